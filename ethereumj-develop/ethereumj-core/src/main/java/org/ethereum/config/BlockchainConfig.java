@@ -24,6 +24,7 @@ import org.ethereum.mine.MinerIfc;
 import org.ethereum.validator.BlockHeaderValidator;
 import org.ethereum.vm.DataWord;
 import org.ethereum.vm.GasCost;
+import org.ethereum.vm.InstructionTable;
 import org.ethereum.vm.OpCode;
 import org.ethereum.vm.program.Program;
 
@@ -187,4 +188,9 @@ public interface BlockchainConfig {
      * Skinny CREATE2: same as CREATE but with deterministic address
      */
     boolean eip1014();
+
+    /**
+     * Instructions available under this config, the table is built once per config instance
+     */
+    InstructionTable getInstructionTable();
 }
@@ -30,6 +30,7 @@ import org.ethereum.net.eth.handler.Eth63;
 import org.ethereum.sync.FastSyncManager;
 import org.ethereum.validator.*;
 import org.ethereum.vm.DataWord;
+import org.ethereum.vm.PrecompiledResultCache;
 import org.ethereum.vm.program.ProgramPrecompile;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -52,6 +53,7 @@ public class CommonConfig {
     private Set<DbSource> dbSources = new HashSet<>();
 
     private static CommonConfig defaultInstance;
+    private static final PrecompiledResultCache disabledResultCache = new PrecompiledResultCache(0);
 
     public static CommonConfig getDefault() {
         if (defaultInstance == null && !SystemProperties.isUseOnlySpringConfig()) {
@@ -60,6 +62,11 @@ public class CommonConfig {
                 public Source<byte[], ProgramPrecompile> precompileSource() {
                     return null;
                 }
+
+                @Override
+                public PrecompiledResultCache precompiledResultCache() {
+                    return disabledResultCache;
+                }
             };
         }
         return defaultInstance;
@@ -83,7 +90,7 @@ public class CommonConfig {
 
     @Bean
     public Repository defaultRepository() {
-        return new RepositoryRoot(stateSource(), null);
+        return new RepositoryRoot(stateSource(), null, StripedWriteCache.DEFAULT_STRIPES);
     }
 
     @Bean @Scope("prototype")
@@ -116,7 +123,7 @@ public class CommonConfig {
     public StateSource stateSource() {
         fastSyncCleanUp();
         StateSource stateSource = new StateSource(blockchainSource("state"),
-                systemProperties().databasePruneDepth() >= 0);
+                systemProperties().databasePruneDepth() >= 0, systemProperties().stateOffHeapCacheSize());
 
         dbFlushManager().addCache(stateSource.getWriteCache());
 
@@ -147,7 +154,7 @@ public class CommonConfig {
 
     @Bean
     public AbstractCachedSource<byte[], byte[]> blockchainDbCache() {
-        WriteCache.BytesKey<byte[]> ret = new WriteCache.BytesKey<>(
+        StripedWriteCache.BytesKey<byte[]> ret = new StripedWriteCache.BytesKey<>(
                 new BatchSourceWriter<>(blockchainDB()), WriteCache.CacheType.SIMPLE);
         ret.setFlushSource(true);
         return ret;
@@ -237,7 +244,7 @@ public class CommonConfig {
     public HeaderStore headerStore() {
         DbSource<byte[]> dataSource = headerSource();
 
-        WriteCache.BytesKey<byte[]> cache = new WriteCache.BytesKey<>(
+        StripedWriteCache.BytesKey<byte[]> cache = new StripedWriteCache.BytesKey<>(
                 new BatchSourceWriter<>(dataSource), WriteCache.CacheType.SIMPLE);
         cache.setFlushSource(true);
         dbFlushManager().addCache(cache);
@@ -254,7 +261,7 @@ public class CommonConfig {
     public Source<byte[], ProgramPrecompile> precompileSource() {
 
         StateSource source = stateSource();
-        return new SourceCodec<byte[], ProgramPrecompile, byte[], byte[]>(source,
+        SourceCodec<byte[], ProgramPrecompile, byte[], byte[]> codec = new SourceCodec<byte[], ProgramPrecompile, byte[], byte[]>(source,
                 new Serializer<byte[], byte[]>() {
                     public byte[] serialize(byte[] object) {
                         DataWord ret = DataWord.of(object);
@@ -272,6 +279,14 @@ public class CommonConfig {
                         return stream == null ? null : ProgramPrecompile.deserialize(stream);
                     }
         });
+
+        // hot contracts are neither re-analyzed nor deserialized
+        return new ReadCache.BytesKey<>(codec).withMaxCapacity(systemProperties().precompileCacheSize());
+    }
+
+    @Bean
+    public PrecompiledResultCache precompiledResultCache() {
+        return new PrecompiledResultCache(systemProperties().precompiledResultCacheSize());
     }
 
     @Bean
@@ -37,6 +37,7 @@ import org.ethereum.util.ByteUtil;
 import org.ethereum.util.Utils;
 import org.ethereum.validator.BlockCustomHashRule;
 import org.ethereum.validator.BlockHeaderValidator;
+import org.ethereum.vm.OpCode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.spongycastle.util.encoders.Hex;
@@ -156,6 +157,8 @@ public class SystemProperties {
     private BlockchainNetConfig blockchainConfig;
     private Genesis genesis;
     private Boolean vmTrace;
+    private Set<String> vmTraceStreamContracts;
+    private Set<OpCode> vmTraceStreamOps;
     private Boolean recordInternalTransactionsData;
 
     private final ClassLoader classLoader;
@@ -274,6 +277,8 @@ public class SystemProperties {
      */
     public void overrideParams(Config overrideOptions) {
         config = overrideOptions.withFallback(config);
+        vmTraceStreamContracts = null;
+        vmTraceStreamOps = null;
         validateConfig();
     }
 
@@ -551,6 +556,31 @@ public class SystemProperties {
         return config.getInt("cache.headerQueueSize") * 1024 * 1024;
     }
 
+    @ValidateMe
+    public long stateOffHeapCacheSize() {
+        return config.getLong("cache.stateOffHeapCacheSize") * 1024 * 1024;
+    }
+
+    @ValidateMe
+    public int precompileCacheSize() {
+        return config.getInt("cache.precompileCacheSize");
+    }
+
+    @ValidateMe
+    public int precompiledResultCacheSize() {
+        return config.getInt("cache.precompiledResultCacheSize");
+    }
+
+    @ValidateMe
+    public int statePrefetchThreads() {
+        return config.getInt("cache.prefetchThreads");
+    }
+
+    @ValidateMe
+    public int localCallThreads() {
+        return config.getInt("vm.localCall.threads");
+    }
+
     @ValidateMe
     public Integer peerChannelReadTimeout() {
         return config.getInt("peer.channel.read.timeout");
@@ -581,6 +611,21 @@ public class SystemProperties {
         return config.getString("dump.style");
     }
 
+    @ValidateMe
+    public boolean vmProfilerEnabled() {
+        return config.getBoolean("vm.profiler.enabled");
+    }
+
+    @ValidateMe
+    public int vmProfilerContracts() {
+        return config.getInt("vm.profiler.contracts");
+    }
+
+    @ValidateMe
+    public int blockchainParallelThreads() {
+        return config.getInt("blockchain.parallel.threads");
+    }
+
     @ValidateMe
     public int dumpBlock() {
         return config.getInt("dump.block");
@@ -671,6 +716,52 @@ public class SystemProperties {
         return config.getBoolean("vm.structured.compressed");
     }
 
+    @ValidateMe
+    public boolean vmTraceStream() {
+        return config.getBoolean("vm.structured.stream.enabled");
+    }
+
+    @ValidateMe
+    public int vmTraceStreamBufferSize() {
+        return config.getInt("vm.structured.stream.bufferSize");
+    }
+
+    @ValidateMe
+    public int vmTraceStreamSampling() {
+        return config.getInt("vm.structured.stream.sampling");
+    }
+
+    /**
+     * @return lower case hex addresses without 0x prefix
+     */
+    @ValidateMe
+    public Set<String> vmTraceStreamContracts() {
+        if (vmTraceStreamContracts == null) {
+            Set<String> contracts = new HashSet<>();
+            for (String address : config.getStringList("vm.structured.stream.contracts")) {
+                contracts.add(address.toLowerCase().replaceFirst("^0x", ""));
+            }
+            vmTraceStreamContracts = Collections.unmodifiableSet(contracts);
+        }
+        return vmTraceStreamContracts;
+    }
+
+    @ValidateMe
+    public Set<OpCode> vmTraceStreamOps() {
+        if (vmTraceStreamOps == null) {
+            Set<OpCode> ops = EnumSet.noneOf(OpCode.class);
+            for (String op : config.getStringList("vm.structured.stream.ops")) {
+                try {
+                    ops.add(OpCode.valueOf(op.toUpperCase()));
+                } catch (IllegalArgumentException e) {
+                    throw new RuntimeException("Unknown opcode in vm.structured.stream.ops: " + op);
+                }
+            }
+            vmTraceStreamOps = Collections.unmodifiableSet(ops);
+        }
+        return vmTraceStreamOps;
+    }
+
     @ValidateMe
     public int vmTraceInitStorageLimit() {
         return config.getInt("vm.structured.initStorageLimit");
@@ -29,6 +29,7 @@ import org.ethereum.mine.MinerIfc;
 import org.ethereum.validator.BlockHeaderValidator;
 import org.ethereum.vm.DataWord;
 import org.ethereum.vm.GasCost;
+import org.ethereum.vm.InstructionTable;
 import org.ethereum.vm.OpCode;
 import org.ethereum.vm.program.Program;
 
@@ -51,6 +52,7 @@ public abstract class AbstractConfig implements BlockchainConfig, BlockchainNetC
     protected Constants constants;
     protected MinerIfc miner;
     private List<Pair<Long, BlockHeaderValidator>> headerValidators = new ArrayList<>();
+    private volatile InstructionTable instructionTable;
 
     public AbstractConfig() {
         this(new Constants());
@@ -218,4 +220,13 @@ public abstract class AbstractConfig implements BlockchainConfig, BlockchainNetC
         return getClass().getSimpleName();
     }
 
+    @Override
+    public InstructionTable getInstructionTable() {
+        InstructionTable table = instructionTable;
+        if (table == null) {
+            // tables built by racing threads are the same, any of them can be kept
+            instructionTable = table = new InstructionTable(this);
+        }
+        return table;
+    }
 }
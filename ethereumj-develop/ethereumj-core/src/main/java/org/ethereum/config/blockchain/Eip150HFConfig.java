@@ -32,6 +32,7 @@ import org.ethereum.util.Utils;
 import org.ethereum.validator.BlockHeaderValidator;
 import org.ethereum.vm.DataWord;
 import org.ethereum.vm.GasCost;
+import org.ethereum.vm.InstructionTable;
 import org.ethereum.vm.OpCode;
 import org.ethereum.vm.program.Program;
 
@@ -43,6 +44,7 @@ import java.util.List;
  */
 public class Eip150HFConfig implements BlockchainConfig, BlockchainNetConfig {
     protected BlockchainConfig parent;
+    private volatile InstructionTable instructionTable;
 
 
     static class GasCostEip150HF extends GasCost {
@@ -206,4 +208,14 @@ public class Eip150HFConfig implements BlockchainConfig, BlockchainNetConfig {
     public String toString() {
         return getClass().getSimpleName();
     }
+
+    @Override
+    public InstructionTable getInstructionTable() {
+        InstructionTable table = instructionTable;
+        if (table == null) {
+            // tables built by racing threads are the same, any of them can be kept
+            instructionTable = table = new InstructionTable(this);
+        }
+        return table;
+    }
 }
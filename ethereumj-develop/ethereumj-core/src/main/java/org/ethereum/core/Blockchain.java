@@ -61,6 +61,12 @@ public interface Blockchain {
      */
     TransactionInfo getTransactionInfo(byte[] hash);
 
+    /**
+     * Batch version of {@link #getTransactionInfo(byte[])}
+     * @return infos in the order of hashes, null for the transactions not found
+     */
+    List<TransactionInfo> getTransactionInfos(List<byte[]> hashes);
+
     Block getBlockByHash(byte[] hash);
 
     List<Chain> getAltChains();
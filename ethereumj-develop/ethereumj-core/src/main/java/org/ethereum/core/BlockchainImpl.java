@@ -181,6 +181,8 @@ public class BlockchainImpl implements Blockchain, org.ethereum.facade.Blockchai
 
     private Stack<State> stateStack = new Stack<>();
 
+    private ParallelTransactionExecutor parallelExecutor;
+
     /** Tests only **/
     public BlockchainImpl() {
     }
@@ -239,6 +241,8 @@ public class BlockchainImpl implements Blockchain, org.ethereum.facade.Blockchai
         minerExtraData = config.getMineExtraData();
         UNCLE_LIST_LIMIT = config.getBlockchainConfig().getCommonConstants().getUNCLE_LIST_LIMIT();
         UNCLE_GENERATION_LIMIT = config.getBlockchainConfig().getCommonConstants().getUNCLE_GENERATION_LIMIT();
+        int parallelThreads = config.blockchainParallelThreads();
+        parallelExecutor = parallelThreads > 1 ? new ParallelTransactionExecutor(parallelThreads) : null;
     }
 
     @Override
@@ -258,8 +262,20 @@ public class BlockchainImpl implements Blockchain, org.ethereum.facade.Blockchai
 
     @Override
     public TransactionInfo getTransactionInfo(byte[] hash) {
+        return pickTransactionInfo(hash, transactionStore.get(hash));
+    }
+
+    @Override
+    public List<TransactionInfo> getTransactionInfos(List<byte[]> hashes) {
+        List<List<TransactionInfo>> infos = transactionStore.getBatch(hashes);
+        List<TransactionInfo> ret = new ArrayList<>(hashes.size());
+        for (int i = 0; i < hashes.size(); i++) {
+            ret.add(pickTransactionInfo(hashes.get(i), infos.get(i)));
+        }
+        return ret;
+    }
 
-        List<TransactionInfo> infos = transactionStore.get(hash);
+    private TransactionInfo pickTransactionInfo(byte[] hash, List<TransactionInfo> infos) {
 
         if (infos == null || infos.isEmpty())
             return null;
@@ -883,48 +899,65 @@ public class BlockchainImpl implements Blockchain, org.ethereum.facade.Blockchai
         List<TransactionReceipt> receipts = new ArrayList<>();
         List<TransactionExecutionSummary> summaries = new ArrayList<>();
 
-        for (Transaction tx : block.getTransactionsList()) {
-            stateLogger.debug("apply block: [{}] tx: [{}] ", block.getNumber(), i);
-
-            Repository txTrack = track.startTracking();
-            TransactionExecutor executor = new TransactionExecutor(
-                    tx, block.getCoinbase(),
-                    txTrack, blockStore, programInvokeFactory, block, listener, totalGasUsed, vmHook)
-                    .withCommonConfig(commonConfig);
+        ParallelTransactionExecutor.BlockExecution parallel = startParallelExecution(track, block, blockchainConfig);
 
-            executor.init();
-            executor.execute();
-            executor.go();
-            TransactionExecutionSummary summary = executor.finalization();
+        try {
+            for (Transaction tx : block.getTransactionsList()) {
+                stateLogger.debug("apply block: [{}] tx: [{}] ", block.getNumber(), i);
+
+                ParallelTransactionExecutor.Speculation speculation = parallel == null ? null : parallel.commitNext(totalGasUsed);
+                TransactionExecutor executor;
+                TransactionExecutionSummary summary;
+                if (speculation != null) {
+                    executor = speculation.getExecutor();
+                    summary = speculation.getSummary();
+                    listener.onTransactionExecuted(summary);
+                } else {
+                    Repository txTrack = parallel == null ? track.startTracking() : parallel.startTracking();
+                    executor = new TransactionExecutor(
+                            tx, block.getCoinbase(),
+                            txTrack, blockStore, programInvokeFactory, block, listener, totalGasUsed, vmHook)
+                            .withCommonConfig(commonConfig);
+
+                    executor.init();
+                    executor.execute();
+                    executor.go();
+                    summary = executor.finalization();
+
+                    txTrack.commit();
+                }
 
-            totalGasUsed += executor.getGasUsed();
+                totalGasUsed += executor.getGasUsed();
 
-            txTrack.commit();
-            final TransactionReceipt receipt = executor.getReceipt();
+                final TransactionReceipt receipt = executor.getReceipt();
+                receipt.setCumulativeGas(totalGasUsed);
 
-            if (blockchainConfig.eip658()) {
-                receipt.setTxStatus(receipt.isSuccessful());
-            } else {
-                receipt.setPostTxState(track.getRoot());
-            }
+                if (blockchainConfig.eip658()) {
+                    receipt.setTxStatus(receipt.isSuccessful());
+                } else {
+                    receipt.setPostTxState(track.getRoot());
+                }
 
-            if (stateLogger.isInfoEnabled())
-                stateLogger.info("block: [{}] executed tx: [{}] \n  state: [{}]", block.getNumber(), i,
-                        toHexString(track.getRoot()));
+                if (stateLogger.isInfoEnabled())
+                    stateLogger.info("block: [{}] executed tx: [{}] \n  state: [{}]", block.getNumber(), i,
+                            toHexString(track.getRoot()));
 
-            stateLogger.info("[{}] ", receipt.toString());
+                stateLogger.info("[{}] ", receipt.toString());
 
-            if (stateLogger.isInfoEnabled())
-                stateLogger.info("tx[{}].receipt: [{}] ", i, toHexString(receipt.getEncoded()));
+                if (stateLogger.isInfoEnabled())
+                    stateLogger.info("tx[{}].receipt: [{}] ", i, toHexString(receipt.getEncoded()));
 
-            // TODO
+                // TODO
 //            if (block.getNumber() >= config.traceStartBlock())
 //                repository.dumpState(block, totalGasUsed, i++, tx.getHash());
 
-            receipts.add(receipt);
-            if (summary != null) {
-                summaries.add(summary);
+                receipts.add(receipt);
+                if (summary != null) {
+                    summaries.add(summary);
+                }
             }
+        } finally {
+            if (parallel != null) parallel.cancel();
         }
 
         Map<byte[], BigInteger> rewards = addReward(track, block, summaries);
@@ -946,6 +979,25 @@ public class BlockchainImpl implements Blockchain, org.ethereum.facade.Blockchai
         return new BlockSummary(block, rewards, receipts, summaries);
     }
 
+    /**
+     * Starts speculative parallel execution of the block transactions if it's enabled and applicable:
+     * intermediate state roots (pre-Byzantium receipts), traces and VM hooks need the sequential execution
+     */
+    private ParallelTransactionExecutor.BlockExecution startParallelExecution(Repository track, Block block,
+                                                                             BlockchainConfig blockchainConfig) {
+        if (parallelExecutor == null || block.getTransactionsList().size() < 2 ||
+                !blockchainConfig.eip658() || !(track instanceof RepositoryImpl) ||
+                (vmHook != null && !vmHook.isEmpty()) || config.vmTrace() || config.vmTraceStream() ||
+                stateLogger.isInfoEnabled()) {
+            return null;
+        }
+
+        return parallelExecutor.execute((RepositoryImpl) track, block, blockchainConfig.eip161(),
+                (tx, txTrack) -> new TransactionExecutor(tx, block.getCoinbase(), txTrack, blockStore,
+                        programInvokeFactory, block, new EthereumListenerAdapter(), 0, VMHook.EMPTY)
+                        .withCommonConfig(commonConfig));
+    }
+
     /**
      * Add reward to block- and every uncle coinbase
      * assuming the entire block is valid.
@@ -1349,8 +1401,7 @@ public class BlockchainImpl implements Blockchain, org.ethereum.facade.Blockchai
     public List<byte[]> getListOfBodiesByHashes(List<byte[]> hashes) {
         List<byte[]> bodies = new ArrayList<>(hashes.size());
 
-        for (byte[] hash : hashes) {
-            Block block = blockStore.getBlockByHash(hash);
+        for (Block block : blockStore.getBlocksByHashes(hashes)) {
             if (block == null) break;
             bodies.add(block.getEncodedBody());
         }
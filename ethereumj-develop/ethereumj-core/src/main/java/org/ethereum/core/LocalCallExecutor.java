@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ethereum.core;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.ethereum.config.CommonConfig;
+import org.ethereum.config.SystemProperties;
+import org.ethereum.crypto.ECKey;
+import org.ethereum.db.BlockStore;
+import org.ethereum.listener.EthereumListener;
+import org.ethereum.listener.EthereumListenerAdapter;
+import org.ethereum.util.FastByteComparisons;
+import org.ethereum.vm.hook.VMHook;
+import org.ethereum.vm.program.ProgramResult;
+import org.ethereum.vm.program.invoke.ProgramInvokeFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Executes read-only (constant) calls against the state of a block.
+ *
+ * Calls don't go through the block import repository: they share an immutable
+ * {@link Repository#getReadOnlySnapshotTo(byte[]) snapshot} of the block state which is
+ * reused while the block stays the same, so the state looked up by one call is
+ * instantly available to the others. The snapshot memo is bounded, so a snapshot kept
+ * for a long time doesn't grow with every call. Each call runs in a throwaway track on top of the snapshot.
+ *
+ * Only the execution itself is done: no fees, receipts, blooms, traces or listener
+ * notifications, the result of a call is its {@link ProgramResult}.
+ * Batches of calls are spread over a worker pool.
+ */
+@Component
+public class LocalCallExecutor {
+
+    private static final EthereumListener NO_LISTENER = new EthereumListenerAdapter();
+
+    private final Repository repository;
+    private final BlockStore blockStore;
+    private final ProgramInvokeFactory programInvokeFactory;
+    private final CommonConfig commonConfig;
+
+    private final ExecutorService executor;
+
+    private volatile StateSnapshot lastSnapshot;
+
+    private static class StateSnapshot {
+        final byte[] root;
+        final Repository repository;
+
+        StateSnapshot(byte[] root, Repository repository) {
+            this.root = root;
+            this.repository = repository;
+        }
+    }
+
+    @Autowired
+    public LocalCallExecutor(SystemProperties config, @Qualifier("defaultRepository") Repository repository,
+                             BlockStore blockStore, ProgramInvokeFactory programInvokeFactory,
+                             CommonConfig commonConfig) {
+        this.repository = repository;
+        this.blockStore = blockStore;
+        this.programInvokeFactory = programInvokeFactory;
+        this.commonConfig = commonConfig;
+        int threads = config.localCallThreads();
+        this.executor = threads <= 1 ? null : Executors.newFixedThreadPool(threads,
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("local-call-%d").build());
+    }
+
+    /**
+     * Executes the transaction on top of the block state, the state is left untouched
+     *
+     * @param tx transaction to call, unsigned one is signed with a dummy key
+     * @param block the block providing the state, the coinbase and the environment
+     * @return the call result
+     */
+    public ProgramResult call(Transaction tx, Block block) {
+        return call(tx, block, getSnapshot(block.getStateRoot()));
+    }
+
+    /**
+     * Executes the transactions independently of each other, i.e. every one of them
+     * sees the block state only. The calls are run concurrently when the worker pool is enabled
+     *
+     * @return results in the order of transactions
+     */
+    public List<ProgramResult> callAll(List<Transaction> txs, Block block) {
+        Repository snapshot = getSnapshot(block.getStateRoot());
+        List<ProgramResult> ret = new ArrayList<>(txs.size());
+
+        if (executor == null || txs.size() < 2) {
+            for (Transaction tx : txs) {
+                ret.add(call(tx, block, snapshot));
+            }
+            return ret;
+        }
+
+        List<Callable<ProgramResult>> tasks = new ArrayList<>(txs.size());
+        for (Transaction tx : txs) {
+            tasks.add(() -> call(tx, block, snapshot));
+        }
+        try {
+            for (Future<ProgramResult> result : executor.invokeAll(tasks)) {
+                ret.add(result.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while executing local calls", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Local call failed", e.getCause());
+        }
+        return ret;
+    }
+
+    private ProgramResult call(Transaction tx, Block block, Repository snapshot) {
+        if (tx.getSignature() == null) {
+            tx.sign(ECKey.DUMMY);
+        }
+
+        Repository track = snapshot.startTracking();
+        try {
+            TransactionExecutor executor = new TransactionExecutor(tx, block.getCoinbase(), track, blockStore,
+                    programInvokeFactory, block, NO_LISTENER, 0, VMHook.EMPTY)
+                    .withCommonConfig(commonConfig)
+                    .setLocalCall(true);
+
+            executor.init();
+            executor.execute();
+            executor.go();
+
+            return executor.getResult();
+        } finally {
+            track.rollback();
+        }
+    }
+
+    /**
+     * @return read-only snapshot of the state, the last one is reused as long as the root is the same
+     */
+    public Repository getSnapshot(byte[] stateRoot) {
+        StateSnapshot snapshot = lastSnapshot;
+        if (snapshot == null || !FastByteComparisons.equal(snapshot.root, stateRoot)) {
+            snapshot = new StateSnapshot(stateRoot, repository.getReadOnlySnapshotTo(stateRoot));
+            lastSnapshot = snapshot;
+        }
+        return snapshot.repository;
+    }
+}
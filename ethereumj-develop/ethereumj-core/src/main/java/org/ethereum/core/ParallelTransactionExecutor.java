@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ethereum.core;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.ethereum.db.ByteArrayWrapper;
+import org.ethereum.db.RecordingRepository;
+import org.ethereum.db.RepositoryImpl;
+import org.ethereum.vm.VM;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+
+/**
+ * Speculative parallel execution of block transactions.
+ *
+ * All the transactions of a block are started concurrently, each against the block state
+ * seen through its own {@link RecordingRepository}. Then the results are committed strictly in the block order:
+ * a transaction which read nothing written by the preceding ones is committed as is,
+ * otherwise it is executed again on top of the preceding ones the regular way.
+ * Fees paid to the block coinbase commute, so they are not considered a conflict.
+ * Thus the resulting state, receipts and summaries are the same as of the sequential execution.
+ *
+ * Speculations left once the block is done are cancelled, the VMs running them
+ * stop at the next instruction, see {@link VM#setInterruptible(boolean)}.
+ *
+ * The gain depends on the number of cores and on the share of conflicting transactions,
+ * which is high in blocks dominated by a few hot contracts or senders.
+ * On a single core, importing blocks of independent transactions takes about as long as the sequential
+ * execution does, see {@code ParallelTransactionExecutorTest#compareImportTime}, so the overhead is small,
+ * but compare the block import time with and without blockchain.parallel.threads on the target chain
+ * before turning it on.
+ */
+public class ParallelTransactionExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger("blockchain");
+
+    private final ExecutorService executor;
+
+    public ParallelTransactionExecutor(int threads) {
+        executor = Executors.newFixedThreadPool(threads,
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("parallel-tx-%d").build());
+    }
+
+    /**
+     * Starts speculative execution of the block transactions
+     *
+     * @param track block state, is not modified until the results are committed
+     * @param deleteEmpty whether EIP-161 is active for the block
+     * @param executorFactory creates an executor of the transaction over the track,
+     *                        the executor must not notify listeners and hooks
+     */
+    public BlockExecution execute(RepositoryImpl track, Block block, boolean deleteEmpty,
+                                  BiFunction<Transaction, Repository, TransactionExecutor> executorFactory) {
+        return new BlockExecution(track, block, deleteEmpty, executorFactory);
+    }
+
+    public static class Speculation {
+        private final Transaction tx;
+        private final Repository txTrack;
+        private final RecordingRepository view;
+        private final TransactionExecutor executor;
+        private final TransactionExecutionSummary summary;
+
+        private Speculation(Transaction tx, Repository txTrack, RecordingRepository view,
+                            TransactionExecutor executor, TransactionExecutionSummary summary) {
+            this.tx = tx;
+            this.txTrack = txTrack;
+            this.view = view;
+            this.executor = executor;
+            this.summary = summary;
+        }
+
+        public TransactionExecutor getExecutor() {
+            return executor;
+        }
+
+        public TransactionExecutionSummary getSummary() {
+            return summary;
+        }
+    }
+
+    public class BlockExecution {
+        private final Block block;
+        private final List<Future<Speculation>> speculations = new ArrayList<>();
+        // keys written to the block state since the speculations have been started
+        private final Set<ByteArrayWrapper> writes = new HashSet<>();
+        private final RecordingRepository inOrder;
+        private int next = 0;
+
+        private BlockExecution(RepositoryImpl track, Block block, boolean deleteEmpty,
+                               BiFunction<Transaction, Repository, TransactionExecutor> executorFactory) {
+            this.block = block;
+            this.inOrder = track.startRecording(writes);
+            for (Transaction tx : block.getTransactionsList()) {
+                speculations.add(executor.submit(() -> {
+                    VM.setInterruptible(true);
+                    RecordingRepository view = track.startRecording(writes);
+                    Repository txTrack = view.startTracking();
+                    TransactionExecutor txExecutor = executorFactory.apply(tx, txTrack);
+                    txExecutor.init();
+                    txExecutor.execute();
+                    txExecutor.go();
+                    view.startBalanceDelta(block.getCoinbase(), deleteEmpty);
+                    TransactionExecutionSummary summary = txExecutor.finalization();
+                    return new Speculation(tx, txTrack, view, txExecutor, summary);
+                }));
+            }
+        }
+
+        /**
+         * Commits the speculative execution of the next transaction to the block state if it is still valid
+         *
+         * @param gasUsedInTheBlock gas used by the preceding transactions
+         * @return committed execution or null if the transaction should be executed in order over {@link #startTracking()}
+         */
+        public Speculation commitNext(long gasUsedInTheBlock) {
+            Future<Speculation> future = speculations.get(next++);
+            Speculation speculation;
+            try {
+                speculation = future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                logger.debug("Speculative execution failed, block: {}, tx: {}", block.getNumber(), next - 1, e.getCause());
+                return null;
+            }
+
+            if (!speculation.view.isReadValid()) return null;
+
+            // the gas limit check was done without gas used by the preceding transactions
+            BigInteger cumulativeGas = new BigInteger(1, speculation.tx.getGasLimit()).add(BigInteger.valueOf(gasUsedInTheBlock));
+            if (cumulativeGas.compareTo(new BigInteger(1, block.getGasLimit())) > 0) return null;
+
+            speculation.txTrack.commit();
+            return speculation;
+        }
+
+        /**
+         * @return track to execute a transaction in order, its changes are recorded as conflicting
+         * with the speculative executions of the following transactions
+         */
+        public Repository startTracking() {
+            return inOrder.startTracking();
+        }
+
+        /**
+         * Cancels speculations which haven't been committed yet
+         */
+        public void cancel() {
+            for (int i = next; i < speculations.size(); i++) {
+                speculations.get(i).cancel(true);
+            }
+        }
+    }
+}
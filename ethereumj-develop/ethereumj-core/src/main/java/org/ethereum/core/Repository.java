@@ -236,6 +236,17 @@ public interface Repository extends org.ethereum.facade.Repository{
 
     Repository getSnapshotTo(byte[] root);
 
+    /**
+     * Returns immutable view of the state with the given root
+     * which may be read concurrently without blocking the block import.
+     * Implementations not supporting it return a regular snapshot
+     *
+     * @param root - state root
+     */
+    default Repository getReadOnlySnapshotTo(byte[] root) {
+        return getSnapshotTo(root);
+    }
+
     /**
      * Clones repository so changes made to this repository are
      * not reflected in its clone. 
@@ -23,6 +23,7 @@ import org.ethereum.config.CommonConfig;
 import org.ethereum.config.SystemProperties;
 import org.ethereum.db.BlockStore;
 import org.ethereum.db.ContractDetails;
+import org.ethereum.db.RepositoryImpl;
 import org.ethereum.listener.EthereumListener;
 import org.ethereum.listener.EthereumListenerAdapter;
 import org.ethereum.util.ByteArraySet;
@@ -32,6 +33,7 @@ import org.ethereum.vm.program.Program;
 import org.ethereum.vm.program.ProgramResult;
 import org.ethereum.vm.program.invoke.ProgramInvoke;
 import org.ethereum.vm.program.invoke.ProgramInvokeFactory;
+import org.ethereum.vm.trace.ProgramTraceWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -110,7 +112,8 @@ public class TransactionExecutor {
         this.tx = tx;
         this.coinbase = coinbase;
         this.track = track;
-        this.cacheTrack = track.startTracking();
+        // nested calls of the transaction share one journaled overlay instead of stacking tracks
+        this.cacheTrack = track instanceof RepositoryImpl ? ((RepositoryImpl) track).startJournaling() : track.startTracking();
         this.blockStore = blockStore;
         this.programInvokeFactory = programInvokeFactory;
         this.currentBlock = currentBlock;
@@ -207,10 +210,16 @@ public class TransactionExecutor {
                 logger.info("Paying: txGasCost: [{}], gasPrice: [{}], gasLimit: [{}]", txGasCost, toBI(tx.getGasPrice()), txGasLimit);
         }
 
-        if (tx.isContractCreation()) {
-            create();
-        } else {
-            call();
+        try {
+            if (tx.isContractCreation()) {
+                create();
+            } else {
+                call();
+            }
+        } catch (RuntimeException e) {
+            // the trace writer could have been created already, nobody would finalize the execution
+            closeTraceWriter();
+            throw e;
         }
     }
 
@@ -257,7 +266,8 @@ public class TransactionExecutor {
                         programInvokeFactory.createProgramInvoke(tx, currentBlock, cacheTrack, track, blockStore);
 
                 this.vm = new VM(config, vmHook);
-                this.program = new Program(track.getCodeHash(targetAddress), code, programInvoke, tx, config, vmHook).withCommonConfig(commonConfig);
+                this.program = new Program(track.getCodeHash(targetAddress), code, programInvoke, tx, config, vmHook).withCommonConfig(commonConfig)
+                        .withTraceWriter(createTraceWriter());
             }
         }
 
@@ -301,7 +311,8 @@ public class TransactionExecutor {
                     cacheTrack, originalRepo, blockStore);
 
             this.vm = new VM(config, vmHook);
-            this.program = new Program(tx.getData(), programInvoke, tx, config, vmHook).withCommonConfig(commonConfig);
+            this.program = new Program(tx.getData(), programInvoke, tx, config, vmHook).withCommonConfig(commonConfig)
+                    .withTraceWriter(createTraceWriter());
 
             // reset storage if the contract with the same address already exists
             // TCK test case only - normally this is near-impossible situation in the real network
@@ -401,7 +412,28 @@ public class TransactionExecutor {
                 tx.isContractCreation() ? tx.getContractAddress() : tx.getReceiveAddress());
     }
 
+    private void closeTraceWriter() {
+        ProgramTraceWriter traceWriter = program == null ? null : program.getTrace().getWriter();
+        if (traceWriter != null) {
+            traceWriter.close();
+        }
+    }
+
+    private ProgramTraceWriter createTraceWriter() {
+        // local calls are not a part of any block, their traces are not streamed
+        return localCall ? null : ProgramTraceWriter.create(config, toHexString(tx.getHash()));
+    }
+
     public TransactionExecutionSummary finalization() {
+        try {
+            return finalizationImpl();
+        } finally {
+            // finish() closes the writer, this is for the cases failed before getting to it
+            closeTraceWriter();
+        }
+    }
+
+    private TransactionExecutionSummary finalizationImpl() {
         if (!readyToExecute) return null;
 
         TransactionExecutionSummary.Builder summaryBuilder = TransactionExecutionSummary.builderFor(tx)
@@ -469,7 +501,10 @@ public class TransactionExecutor {
 
         listener.onTransactionExecuted(summary);
 
-        if (config.vmTrace() && program != null && result != null) {
+        ProgramTraceWriter traceWriter = program == null ? null : program.getTrace().getWriter();
+        if (traceWriter != null) {
+            traceWriter.finish(result == null ? null : result.getHReturn(), result == null ? null : result.getException());
+        } else if (config.vmTrace() && program != null && result != null) {
             String trace = program.getTrace()
                     .result(result.getHReturn())
                     .error(result.getException())
@@ -53,7 +53,6 @@ import org.spongycastle.asn1.ASN1Integer;
 import org.spongycastle.asn1.DLSequence;
 import org.spongycastle.asn1.sec.SECNamedCurves;
 import org.spongycastle.asn1.x9.X9ECParameters;
-import org.spongycastle.asn1.x9.X9IntegerConverter;
 import org.spongycastle.crypto.agreement.ECDHBasicAgreement;
 import org.spongycastle.crypto.digests.SHA256Digest;
 import org.spongycastle.crypto.engines.AESEngine;
@@ -61,8 +60,6 @@ import org.spongycastle.crypto.modes.SICBlockCipher;
 import org.spongycastle.crypto.params.*;
 import org.spongycastle.crypto.signers.ECDSASigner;
 import org.spongycastle.crypto.signers.HMacDSAKCalculator;
-import org.spongycastle.math.ec.ECAlgorithms;
-import org.spongycastle.math.ec.ECCurve;
 import org.spongycastle.math.ec.ECPoint;
 import org.spongycastle.util.BigIntegers;
 import org.spongycastle.util.encoders.Base64;
@@ -840,6 +837,49 @@ public class ECKey implements Serializable {
         return key;
     }
 
+    /**
+     * Batch version of {@link #signatureToKeyBytes(byte[], ECDSASignature)},
+     * recovers keys of all the signatures sharing modular inversions between them
+     *
+     * @param messageHashes 32-byte hashes of messages
+     * @param sigs signatures of the respective messages
+     * @return 65-byte encoded public keys, an entry is null if the respective signature is malformed
+     *          or the key could not be recovered from it
+     */
+    public static byte[][] signaturesToKeyBytes(byte[][] messageHashes, ECDSASignature[] sigs) {
+        check(messageHashes.length == sigs.length, "number of hashes doesn't match number of signatures");
+
+        int[] idx = new int[sigs.length];
+        int[] recIds = new int[sigs.length];
+        BigInteger[] r = new BigInteger[sigs.length];
+        BigInteger[] s = new BigInteger[sigs.length];
+        byte[][] hashes = new byte[sigs.length][];
+        int cnt = 0;
+        for (int i = 0; i < sigs.length; i++) {
+            ECDSASignature sig = sigs[i];
+            int header = sig.v;
+            if (messageHashes[i].length != 32 || header < 27 || header > 34 ||
+                    sig.r.signum() < 0 || sig.s.signum() < 0) continue;
+            if (header >= 31) {
+                header -= 4;
+            }
+            idx[cnt] = i;
+            recIds[cnt] = header - 27;
+            r[cnt] = sig.r;
+            s[cnt] = sig.s;
+            hashes[cnt] = messageHashes[i];
+            cnt++;
+        }
+
+        byte[][] keys = Secp256k1.recoverPublicKeys(Arrays.copyOf(recIds, cnt), Arrays.copyOf(r, cnt),
+                Arrays.copyOf(s, cnt), Arrays.copyOf(hashes, cnt));
+        byte[][] ret = new byte[sigs.length][];
+        for (int i = 0; i < cnt; i++) {
+            ret[idx[i]] = keys[i];
+        }
+        return ret;
+    }
+
     /**
      * Compute the address of the key that signed the given signature.
      *
@@ -1073,52 +1113,7 @@ public class ECKey implements Serializable {
         check(sig.r.signum() >= 0, "r must be positive");
         check(sig.s.signum() >= 0, "s must be positive");
         check(messageHash != null, "messageHash must not be null");
-        // 1.0 For j from 0 to h   (h == recId here and the loop is outside this function)
-        //   1.1 Let x = r + jn
-        BigInteger n = CURVE.getN();  // Curve order.
-        BigInteger i = BigInteger.valueOf((long) recId / 2);
-        BigInteger x = sig.r.add(i.multiply(n));
-        //   1.2. Convert the integer x to an octet string X of length mlen using the conversion routine
-        //        specified in Section 2.3.7, where mlen = ⌈(log2 p)/8⌉ or mlen = ⌈m/8⌉.
-        //   1.3. Convert the octet string (16 set binary digits)||X to an elliptic curve point R using the
-        //        conversion routine specified in Section 2.3.4. If this conversion routine outputs “invalid”, then
-        //        do another iteration of Step 1.
-        //
-        // More concisely, what these points mean is to use X as a compressed public key.
-        ECCurve.Fp curve = (ECCurve.Fp) CURVE.getCurve();
-        BigInteger prime = curve.getQ();  // Bouncy Castle is not consistent about the letter it uses for the prime.
-        if (x.compareTo(prime) >= 0) {
-            // Cannot have point co-ordinates larger than this as everything takes place modulo Q.
-            return null;
-        }
-        // Compressed keys require you to know an extra bit of data about the y-coord as there are two possibilities.
-        // So it's encoded in the recId.
-        ECPoint R = decompressKey(x, (recId & 1) == 1);
-        //   1.4. If nR != point at infinity, then do another iteration of Step 1 (callers responsibility).
-        if (!R.multiply(n).isInfinity())
-            return null;
-        //   1.5. Compute e from M using Steps 2 and 3 of ECDSA signature verification.
-        BigInteger e = new BigInteger(1, messageHash);
-        //   1.6. For k from 1 to 2 do the following.   (loop is outside this function via iterating recId)
-        //   1.6.1. Compute a candidate public key as:
-        //               Q = mi(r) * (sR - eG)
-        //
-        // Where mi(x) is the modular multiplicative inverse. We transform this into the following:
-        //               Q = (mi(r) * s ** R) + (mi(r) * -e ** G)
-        // Where -e is the modular additive inverse of e, that is z such that z + e = 0 (mod n). In the above equation
-        // ** is point multiplication and + is point addition (the EC group operator).
-        //
-        // We can find the additive inverse by subtracting e from zero then taking the mod. For example the additive
-        // inverse of 3 modulo 11 is 8 because 3 + 8 mod 11 = 0, and -3 mod 11 = 8.
-        BigInteger eInv = BigInteger.ZERO.subtract(e).mod(n);
-        BigInteger rInv = sig.r.modInverse(n);
-        BigInteger srInv = rInv.multiply(sig.s).mod(n);
-        BigInteger eInvrInv = rInv.multiply(eInv).mod(n);
-        ECPoint.Fp q = (ECPoint.Fp) ECAlgorithms.sumOfTwoMultiplies(CURVE.getG(), eInvrInv, R, srInv);
-        // result sanity check: point must not be at infinity
-        if (q.isInfinity())
-            return null;
-        return q.getEncoded(/* compressed */ false);
+        return Secp256k1.recoverPublicKey(recId, sig.r, sig.s, messageHash);
     }
 
     /**
@@ -1156,20 +1151,6 @@ public class ECKey implements Serializable {
     }
 
 
-    /**
-     * Decompress a compressed public key (x co-ord and low-bit of y-coord).
-     *
-     * @param xBN -
-     * @param yBit -
-     * @return -
-     */
-    private static ECPoint decompressKey(BigInteger xBN, boolean yBit) {
-        X9IntegerConverter x9 = new X9IntegerConverter();
-        byte[] compEnc = x9.integerToBytes(xBN, 1 + x9.getByteLength(CURVE.getCurve()));
-        compEnc[0] = (byte) (yBit ? 0x03 : 0x02);
-        return CURVE.getCurve().decodePoint(compEnc);
-    }
-
     /**
      * Returns a 32 byte array containing the private key, or null if the key is encrypted or public only
      *
@@ -18,6 +18,7 @@
 package org.ethereum.crypto;
 
 import org.ethereum.config.SystemProperties;
+import org.ethereum.crypto.cryptohash.Keccak256Hasher;
 import org.ethereum.crypto.jce.SpongyCastleProvider;
 import org.ethereum.util.RLP;
 import org.ethereum.util.Utils;
@@ -51,12 +52,17 @@ public class HashUtil {
     private static final String HASH_256_ALGORITHM_NAME;
     private static final String HASH_512_ALGORITHM_NAME;
 
+    // default Keccak-256 of our provider is served by the per thread engine
+    private static final boolean THREAD_LOCAL_KECCAK;
+
     static {
         SystemProperties props = SystemProperties.getDefault();
         Security.addProvider(SpongyCastleProvider.getInstance());
         CRYPTO_PROVIDER = Security.getProvider(props.getCryptoProviderName());
         HASH_256_ALGORITHM_NAME = props.getHash256AlgName();
         HASH_512_ALGORITHM_NAME = props.getHash512AlgName();
+        THREAD_LOCAL_KECCAK = CRYPTO_PROVIDER == SpongyCastleProvider.getInstance() &&
+                "ETH-KECCAK-256".equalsIgnoreCase(HASH_256_ALGORITHM_NAME);
         EMPTY_DATA_HASH = sha3(EMPTY_BYTE_ARRAY);
         EMPTY_LIST_HASH = sha3(RLP.encodeList());
         EMPTY_TRIE_HASH = sha3(RLP.encodeElement(EMPTY_BYTE_ARRAY));
@@ -78,6 +84,8 @@ public class HashUtil {
     }
 
     public static byte[] sha3(byte[] input) {
+        if (THREAD_LOCAL_KECCAK) return Keccak256Hasher.hash(input);
+
         MessageDigest digest;
         try {
             digest = MessageDigest.getInstance(HASH_256_ALGORITHM_NAME, CRYPTO_PROVIDER);
@@ -91,6 +99,8 @@ public class HashUtil {
     }
 
     public static byte[] sha3(byte[] input1, byte[] input2) {
+        if (THREAD_LOCAL_KECCAK) return Keccak256Hasher.hash(input1, input2);
+
         MessageDigest digest;
         try {
             digest = MessageDigest.getInstance(HASH_256_ALGORITHM_NAME, CRYPTO_PROVIDER);
@@ -115,6 +125,8 @@ public class HashUtil {
      * @return - keccak hash of the chunk
      */
     public static byte[] sha3(byte[] input, int start, int length) {
+        if (THREAD_LOCAL_KECCAK) return Keccak256Hasher.hash(input, start, length);
+
         MessageDigest digest;
         try {
             digest = MessageDigest.getInstance(HASH_256_ALGORITHM_NAME, CRYPTO_PROVIDER);
@@ -126,6 +138,28 @@ public class HashUtil {
         }
     }
 
+    /**
+     * hashing chunk of the data into the provided buffer
+     *
+     * @param input
+     *            - data for hash
+     * @param start
+     *            - start of hashing chunk
+     * @param length
+     *            - length of hashing chunk
+     * @param out
+     *            - buffer receiving 32 bytes of the hash
+     * @param outOffset
+     *            - position of the hash in the buffer
+     */
+    public static void sha3(byte[] input, int start, int length, byte[] out, int outOffset) {
+        if (THREAD_LOCAL_KECCAK) {
+            Keccak256Hasher.hash(input, start, length, out, outOffset);
+        } else {
+            System.arraycopy(sha3(input, start, length), 0, out, outOffset, 32);
+        }
+    }
+
     public static byte[] sha512(byte[] input) {
         MessageDigest digest;
         try {
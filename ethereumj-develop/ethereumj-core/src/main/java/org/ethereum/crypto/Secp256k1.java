@@ -0,0 +1,516 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ethereum.crypto;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.ethereum.crypto.Secp256k1Field.*;
+
+/**
+ * Public key recovery dedicated to the secp256k1 curve. <br/>
+ * <br/>
+ *
+ * The key is {@code Q = r^-1 * (s * R - e * G)}, it is computed by a single Strauss-wNAF pass over
+ * four half-length scalars: both {@code u1 = -e / r} and {@code u2 = s / r} are split with the GLV endomorphism
+ * {@code lambda * (x, y) = (beta * x, y)}, odd multiples of {@code G} and {@code lambda * G} are precomputed once,
+ * odd multiples of {@code R} and {@code lambda * R} are computed per signature. <br/>
+ *
+ * {@link #recoverPublicKeys(int[], BigInteger[], BigInteger[], byte[][])} processes a batch of signatures
+ * sharing modular inversions between them with Montgomery's trick:
+ * one inversion mod n for all {@code r^-1}, one field inversion to bring all precomputed multiples of {@code R}
+ * to affine coordinates and one more for the resulting keys. <br/>
+ *
+ * The result is the same as of the algorithm in SEC1v2 section 4.1.6 implemented by
+ * {@link ECKey#recoverPubBytesFromSignature(int, ECKey.ECDSASignature, byte[])}
+ */
+public class Secp256k1 {
+
+    static final BigInteger N = new BigInteger("fffffffffffffffffffffffffffffffebaaedce6af48a03bbfd25e8cd0364141", 16);
+    private static final BigInteger HALF_N = N.shiftRight(1);
+
+    static final BigInteger GX = new BigInteger("79be667ef9dcbbac55a06295ce870b07029bfcdb2dce28d959f2815b16f81798", 16);
+    static final BigInteger GY = new BigInteger("483ada7726a3c4655da4fbfc0e1108a8fd17b448a68554199c47d08ffb10d4b8", 16);
+
+    // lambda * (x, y) = (beta * x, y) for every curve point
+    static final BigInteger LAMBDA = new BigInteger("5363ad4cc05c30e0a5261c028812645a122e22ea20816678df02967c1b23bd72", 16);
+    private static final int[] BETA = create(new BigInteger("7ae96a2b657c07106e64479eac3434e99cf0497512f58995c1396c28719501ee", 16));
+
+    // short basis of the lattice {(a, b): a + b * lambda = 0 mod n}
+    private static final BigInteger A1 = new BigInteger("3086d221a7d46bcde86c90e49284eb15", 16);
+    private static final BigInteger B1 = new BigInteger("-e4437ed6010e88286f547fa90abfe4c3", 16);
+    private static final BigInteger A2 = new BigInteger("114ca50f7a8e2f3f657c1108d9d44cfd8", 16);
+    private static final BigInteger B2 = A1;
+
+    private static final int[] SEVEN = create(7);
+
+    private static final int WINDOW_G = 10;
+    private static final int WINDOW_R = 5;
+
+    // odd multiples 1, 3 .. 2^(w-1) - 1 of G and lambda * G
+    private static final Table G_TABLE;
+    private static final Table G_LAMBDA_TABLE;
+
+    static {
+        Point g = new Point();
+        g.setAffine(create(GX), create(GY));
+        List<Point> multiples = oddMultiples(g, WINDOW_G);
+        normalizeAll(multiples);
+        G_TABLE = new Table(multiples);
+        G_LAMBDA_TABLE = G_TABLE.mulLambda();
+    }
+
+    private Secp256k1() {
+    }
+
+    /**
+     * Recovers public key from the signature, see {@link #recoverPublicKeys(int[], BigInteger[], BigInteger[], byte[][])}
+     *
+     * @return 65-byte encoded public key or null if recovery is not possible
+     */
+    public static byte[] recoverPublicKey(int recId, BigInteger r, BigInteger s, byte[] messageHash) {
+        return recoverPublicKeys(new int[] {recId}, new BigInteger[] {r}, new BigInteger[] {s},
+                new byte[][] {messageHash})[0];
+    }
+
+    /**
+     * Recovers public keys from a batch of signatures
+     *
+     * @param recIds indexes (0 to 3) of the possible keys to recover
+     * @param r R components of the signatures, non-negative
+     * @param s S components of the signatures, non-negative
+     * @param messageHashes 32 byte hashes of the signed data
+     * @return 65-byte encoded public keys, an entry is null if recovery of the respective key is not possible
+     */
+    public static byte[][] recoverPublicKeys(int[] recIds, BigInteger[] r, BigInteger[] s, byte[][] messageHashes) {
+        int cnt = recIds.length;
+        byte[][] ret = new byte[cnt][];
+
+        // 1. decompress R, collect invertible r values
+        Point[] rPoints = new Point[cnt];
+        List<BigInteger> rs = new ArrayList<>(cnt);
+        for (int i = 0; i < cnt; i++) {
+            BigInteger ri = r[i].mod(N);
+            if (ri.signum() == 0) continue;
+            BigInteger x = r[i].add(N.multiply(BigInteger.valueOf(recIds[i] / 2)));
+            if (x.compareTo(P) >= 0) continue;
+            rPoints[i] = decompress(x, (recIds[i] & 1) == 1);
+            if (rPoints[i] != null) rs.add(ri);
+        }
+        BigInteger[] rInvs = inverseAll(rs);
+
+        // 2. split scalars, precompute multiples of R
+        int[][][] wnafs = new int[cnt][][];
+        List<Point> rMultiples = new ArrayList<>();
+        for (int i = 0, j = 0; i < cnt; i++) {
+            if (rPoints[i] == null) continue;
+
+            BigInteger rInv = rInvs[j++];
+            BigInteger e = new BigInteger(1, messageHashes[i]);
+            BigInteger u1 = N.subtract(e.mod(N)).multiply(rInv).mod(N);
+            BigInteger u2 = s[i].multiply(rInv).mod(N);
+
+            BigInteger[] g = split(u1);
+            BigInteger[] k = split(u2);
+            wnafs[i] = new int[][] {wnaf(g[0], WINDOW_G), wnaf(g[1], WINDOW_G), wnaf(k[0], WINDOW_R), wnaf(k[1], WINDOW_R)};
+            rMultiples.addAll(oddMultiples(rPoints[i], WINDOW_R));
+        }
+        normalizeAll(rMultiples);
+
+        // 3. Strauss-wNAF
+        Point[] keys = new Point[cnt];
+        List<Point> toNormalize = new ArrayList<>(cnt);
+        int tableSize = 1 << (WINDOW_R - 2);
+        for (int i = 0, off = 0; i < cnt; i++) {
+            if (rPoints[i] == null) continue;
+
+            Table rTable = new Table(rMultiples.subList(off, off + tableSize));
+            off += tableSize;
+            Table[] tables = {G_TABLE, G_LAMBDA_TABLE, rTable, rTable.mulLambda()};
+
+            Point q = multiply(wnafs[i], tables);
+            if (!q.infinity) {
+                keys[i] = q;
+                toNormalize.add(q);
+            }
+        }
+        normalizeAll(toNormalize);
+
+        for (int i = 0; i < cnt; i++) {
+            if (keys[i] == null) continue;
+            byte[] encoded = new byte[65];
+            encoded[0] = 0x04;
+            toBytes(keys[i].x, encoded, 1);
+            toBytes(keys[i].y, encoded, 33);
+            ret[i] = encoded;
+        }
+
+        return ret;
+    }
+
+    /**
+     * @return point with the given x coordinate and the parity of y, or null if there is no such point
+     */
+    private static Point decompress(BigInteger xBN, boolean odd) {
+        int[] x = create(xBN);
+        int[] rhs = create();
+        sqr(rhs, x);
+        mul(rhs, rhs, x);
+        add(rhs, rhs, SEVEN);
+
+        int[] y = create();
+        sqrt(y, rhs);
+        int[] check = create();
+        sqr(check, y);
+        if (!equal(check, rhs)) return null;
+
+        if (isOdd(y) != odd) negate(y, y);
+
+        Point p = new Point();
+        p.setAffine(x, y);
+        return p;
+    }
+
+    /**
+     * Splits k into k1 and k2 of about 128 bits each so that {@code k = k1 + k2 * lambda (mod n)}
+     */
+    static BigInteger[] split(BigInteger k) {
+        BigInteger c1 = B2.multiply(k).add(HALF_N).divide(N);
+        BigInteger c2 = B1.negate().multiply(k).add(HALF_N).divide(N);
+        BigInteger k1 = k.subtract(c1.multiply(A1)).subtract(c2.multiply(A2));
+        BigInteger k2 = c1.multiply(B1).add(c2.multiply(B2)).negate();
+        return new BigInteger[] {k1, k2};
+    }
+
+    /**
+     * Width-w non-adjacent form: every non zero digit is odd, less than 2^(w-1) by absolute value
+     * and followed by at least w - 1 zeros
+     */
+    static int[] wnaf(BigInteger k, int w) {
+        boolean negative = k.signum() < 0;
+        k = k.abs();
+
+        int[] ret = new int[k.bitLength() + 2];
+        int carry = 0;
+        for (int bit = 0; bit < ret.length; ) {
+            if ((k.testBit(bit) ? 1 : 0) == carry) {
+                bit++;
+                continue;
+            }
+
+            int word = carry;
+            for (int i = 0; i < w; i++) {
+                if (k.testBit(bit + i)) word += 1 << i;
+            }
+            carry = (word >> (w - 1)) & 1;
+            word -= carry << w;
+
+            ret[bit] = negative ? -word : word;
+            bit += w;
+        }
+
+        return ret;
+    }
+
+    private static Point multiply(int[][] wnafs, Table[] tables) {
+        int len = 0;
+        for (int[] wnaf : wnafs) len = Math.max(len, wnaf.length);
+
+        Point q = new Point();
+        int[] negY = create();
+        for (int i = len - 1; i >= 0; i--) {
+            q.dbl();
+            for (int j = 0; j < wnafs.length; j++) {
+                int d = i < wnafs[j].length ? wnafs[j][i] : 0;
+                if (d > 0) {
+                    q.addAffine(tables[j].x[(d - 1) / 2], tables[j].y[(d - 1) / 2]);
+                } else if (d < 0) {
+                    negate(negY, tables[j].y[(-d - 1) / 2]);
+                    q.addAffine(tables[j].x[(-d - 1) / 2], negY);
+                }
+            }
+        }
+        return q;
+    }
+
+    /**
+     * @return P, 3P .. (2^(w-1) - 1)P
+     */
+    private static List<Point> oddMultiples(Point p, int w) {
+        int size = 1 << (w - 2);
+        List<Point> ret = new ArrayList<>(size);
+
+        Point dbl = p.copy();
+        dbl.dbl();
+        ret.add(p.copy());
+        for (int i = 1; i < size; i++) {
+            Point next = ret.get(i - 1).copy();
+            next.addJacobian(dbl);
+            ret.add(next);
+        }
+        return ret;
+    }
+
+    /**
+     * Converts points to affine coordinates doing a single field inversion, points must not be at infinity
+     */
+    private static void normalizeAll(List<Point> points) {
+        if (points.isEmpty()) return;
+
+        int[][] acc = new int[points.size()][];
+        acc[0] = copy(points.get(0).z);
+        for (int i = 1; i < points.size(); i++) {
+            acc[i] = create();
+            mul(acc[i], acc[i - 1], points.get(i).z);
+        }
+
+        int[] inv = create();
+        inverse(inv, acc[points.size() - 1]);
+
+        int[] zInv = create(), zInv2 = create();
+        for (int i = points.size() - 1; i >= 0; i--) {
+            Point p = points.get(i);
+            if (i > 0) {
+                mul(zInv, inv, acc[i - 1]);
+                mul(inv, inv, p.z);
+            } else {
+                set(zInv, inv);
+            }
+
+            sqr(zInv2, zInv);
+            mul(p.x, p.x, zInv2);
+            mul(zInv2, zInv2, zInv);
+            mul(p.y, p.y, zInv2);
+            set(p.z, create(1));
+        }
+    }
+
+    /**
+     * Inverts values mod n doing a single inversion
+     */
+    private static BigInteger[] inverseAll(List<BigInteger> values) {
+        BigInteger[] ret = new BigInteger[values.size()];
+        if (values.isEmpty()) return ret;
+
+        BigInteger[] acc = new BigInteger[values.size()];
+        acc[0] = values.get(0);
+        for (int i = 1; i < acc.length; i++) {
+            acc[i] = acc[i - 1].multiply(values.get(i)).mod(N);
+        }
+
+        BigInteger inv = acc[acc.length - 1].modInverse(N);
+        for (int i = acc.length - 1; i > 0; i--) {
+            ret[i] = inv.multiply(acc[i - 1]).mod(N);
+            inv = inv.multiply(values.get(i)).mod(N);
+        }
+        ret[0] = inv;
+
+        return ret;
+    }
+
+    /**
+     * Affine points, precomputed odd multiples
+     */
+    private static class Table {
+        final int[][] x;
+        final int[][] y;
+
+        Table(int[][] x, int[][] y) {
+            this.x = x;
+            this.y = y;
+        }
+
+        Table(List<Point> points) {
+            this(new int[points.size()][], new int[points.size()][]);
+            for (int i = 0; i < points.size(); i++) {
+                x[i] = points.get(i).x;
+                y[i] = points.get(i).y;
+            }
+        }
+
+        Table mulLambda() {
+            int[][] lx = new int[x.length][];
+            for (int i = 0; i < x.length; i++) {
+                lx[i] = create();
+                mul(lx[i], x[i], BETA);
+            }
+            return new Table(lx, y);
+        }
+    }
+
+    /**
+     * Mutable point in Jacobian coordinates, (X, Y, Z) stands for (X / Z^2, Y / Z^3)
+     */
+    static class Point {
+        final int[] x = create();
+        final int[] y = create();
+        final int[] z = create();
+        boolean infinity = true;
+
+        void setAffine(int[] ax, int[] ay) {
+            set(x, ax);
+            set(y, ay);
+            set(z, create(1));
+            infinity = false;
+        }
+
+        Point copy() {
+            Point p = new Point();
+            set(p.x, x);
+            set(p.y, y);
+            set(p.z, z);
+            p.infinity = infinity;
+            return p;
+        }
+
+        // dbl-2009-l, a = 0
+        void dbl() {
+            if (infinity) return;
+
+            int[] a = create(), b = create(), c = create(), d = create(), e = create(), f = create();
+            sqr(a, x);
+            sqr(b, y);
+            sqr(c, b);
+            add(d, x, b);
+            sqr(d, d);
+            sub(d, d, a);
+            sub(d, d, c);
+            mulInt(d, d, 2);
+            mulInt(e, a, 3);
+            sqr(f, e);
+
+            mul(z, y, z);
+            mulInt(z, z, 2);
+
+            mulInt(x, d, 2);
+            sub(x, f, x);
+
+            sub(d, d, x);
+            mul(y, e, d);
+            mulInt(c, c, 8);
+            sub(y, y, c);
+        }
+
+        // madd-2007-bl
+        void addAffine(int[] x2, int[] y2) {
+            if (infinity) {
+                setAffine(x2, y2);
+                return;
+            }
+
+            int[] z1z1 = create(), u2 = create(), s2 = create(), h = create(), r = create();
+            sqr(z1z1, z);
+            mul(u2, x2, z1z1);
+            mul(s2, y2, z);
+            mul(s2, s2, z1z1);
+            sub(h, u2, x);
+            sub(r, s2, y);
+
+            if (isZero(h)) {
+                if (isZero(r)) {
+                    dbl();
+                } else {
+                    infinity = true;
+                }
+                return;
+            }
+
+            int[] hh = create(), i = create(), j = create(), v = create();
+            sqr(hh, h);
+            mulInt(i, hh, 4);
+            mul(j, h, i);
+            mulInt(r, r, 2);
+            mul(v, x, i);
+
+            add(z, z, h);
+            sqr(z, z);
+            sub(z, z, z1z1);
+            sub(z, z, hh);
+
+            sqr(x, r);
+            sub(x, x, j);
+            sub(x, x, v);
+            sub(x, x, v);
+
+            mul(j, j, y);
+            mulInt(j, j, 2);
+            sub(v, v, x);
+            mul(y, r, v);
+            sub(y, y, j);
+        }
+
+        // add-2007-bl
+        void addJacobian(Point o) {
+            if (o.infinity) return;
+            if (infinity) {
+                set(x, o.x);
+                set(y, o.y);
+                set(z, o.z);
+                infinity = false;
+                return;
+            }
+
+            int[] z1z1 = create(), z2z2 = create(), u1 = create(), u2 = create(), s1 = create(), s2 = create(),
+                    h = create(), r = create();
+            sqr(z1z1, z);
+            sqr(z2z2, o.z);
+            mul(u1, x, z2z2);
+            mul(u2, o.x, z1z1);
+            mul(s1, y, o.z);
+            mul(s1, s1, z2z2);
+            mul(s2, o.y, z);
+            mul(s2, s2, z1z1);
+            sub(h, u2, u1);
+            sub(r, s2, s1);
+
+            if (isZero(h)) {
+                if (isZero(r)) {
+                    dbl();
+                } else {
+                    infinity = true;
+                }
+                return;
+            }
+
+            int[] i = create(), j = create(), v = create();
+            mulInt(i, h, 2);
+            sqr(i, i);
+            mul(j, h, i);
+            mulInt(r, r, 2);
+            mul(v, u1, i);
+
+            add(z, z, o.z);
+            sqr(z, z);
+            sub(z, z, z1z1);
+            sub(z, z, z2z2);
+            mul(z, z, h);
+
+            sqr(x, r);
+            sub(x, x, j);
+            sub(x, x, v);
+            sub(x, x, v);
+
+            mul(s1, s1, j);
+            mulInt(s1, s1, 2);
+            sub(v, v, x);
+            mul(y, r, v);
+            sub(y, y, s1);
+        }
+    }
+}
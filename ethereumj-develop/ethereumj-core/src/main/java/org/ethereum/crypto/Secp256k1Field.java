@@ -0,0 +1,387 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ethereum.crypto;
+
+import java.math.BigInteger;
+
+/**
+ * Arithmetic in the secp256k1 base field, p = 2^256 - 2^32 - 977 <br/>
+ * <br/>
+ *
+ * Elements are {@code int[10]} arrays of 26-bit limbs, least significant first.
+ * Limb products fit a {@code long} with plenty of room, so no unsigned arithmetic is involved,
+ * and reduction uses the special form of p: {@code 2^260 = 2^36 + 0x3D10 (mod p)}. <br/>
+ *
+ * Results of the arithmetic are only weakly reduced: every limb is below 2^26 and the value is
+ * below 2^260 but it's not necessarily less than p, use {@link #normalize(int[])} before
+ * comparing elements or converting them back. <br/>
+ *
+ * Output array may be the same as any of the input ones.
+ */
+class Secp256k1Field {
+
+    static final int LIMBS = 10;
+
+    private static final int BITS = 26;
+    private static final long MASK = (1L << BITS) - 1;
+
+    // 2^260 mod p split into 26-bit limbs
+    private static final long R0 = 0x3D10;
+    private static final long R1 = 0x400;
+
+    static final BigInteger P = new BigInteger("fffffffffffffffffffffffffffffffffffffffffffffffffffffffefffffc2f", 16);
+
+    private Secp256k1Field() {
+    }
+
+    static int[] create() {
+        return new int[LIMBS];
+    }
+
+    static int[] create(long v) {
+        int[] r = new int[LIMBS];
+        r[0] = (int) (v & MASK);
+        r[1] = (int) ((v >>> BITS) & MASK);
+        r[2] = (int) (v >>> (2 * BITS));
+        return r;
+    }
+
+    static int[] create(BigInteger v) {
+        int[] r = new int[LIMBS];
+        for (int i = 0; i < LIMBS; i++) {
+            r[i] = v.shiftRight(BITS * i).intValue() & (int) MASK;
+        }
+        return r;
+    }
+
+    /**
+     * Parses 32 big endian bytes, value is expected to be less than p
+     */
+    static int[] create(byte[] b, int off) {
+        int[] r = new int[LIMBS];
+        for (int i = 0; i < 32; i++) {
+            int bit = 8 * (31 - i);
+            long v = b[off + i] & 0xFF;
+            r[bit / BITS] |= (int) ((v << (bit % BITS)) & MASK);
+            if (bit % BITS > BITS - 8) {
+                r[bit / BITS + 1] |= v >>> (BITS - bit % BITS);
+            }
+        }
+        return r;
+    }
+
+    static int[] copy(int[] a) {
+        return a.clone();
+    }
+
+    static void set(int[] r, int[] a) {
+        System.arraycopy(a, 0, r, 0, LIMBS);
+    }
+
+    static void mul(int[] r, int[] a, int[] b) {
+        long a0 = a[0], a1 = a[1], a2 = a[2], a3 = a[3], a4 = a[4],
+             a5 = a[5], a6 = a[6], a7 = a[7], a8 = a[8], a9 = a[9];
+        long b0 = b[0], b1 = b[1], b2 = b[2], b3 = b[3], b4 = b[4],
+             b5 = b[5], b6 = b[6], b7 = b[7], b8 = b[8], b9 = b[9];
+
+        long c0 = a0 * b0;
+        long c1 = a0 * b1 + a1 * b0;
+        long c2 = a0 * b2 + a1 * b1 + a2 * b0;
+        long c3 = a0 * b3 + a1 * b2 + a2 * b1 + a3 * b0;
+        long c4 = a0 * b4 + a1 * b3 + a2 * b2 + a3 * b1 + a4 * b0;
+        long c5 = a0 * b5 + a1 * b4 + a2 * b3 + a3 * b2 + a4 * b1 + a5 * b0;
+        long c6 = a0 * b6 + a1 * b5 + a2 * b4 + a3 * b3 + a4 * b2 + a5 * b1 + a6 * b0;
+        long c7 = a0 * b7 + a1 * b6 + a2 * b5 + a3 * b4 + a4 * b3 + a5 * b2 + a6 * b1 + a7 * b0;
+        long c8 = a0 * b8 + a1 * b7 + a2 * b6 + a3 * b5 + a4 * b4 + a5 * b3 + a6 * b2 + a7 * b1 + a8 * b0;
+        long c9 = a0 * b9 + a1 * b8 + a2 * b7 + a3 * b6 + a4 * b5 + a5 * b4 + a6 * b3 + a7 * b2 + a8 * b1 + a9 * b0;
+        long c10 = a1 * b9 + a2 * b8 + a3 * b7 + a4 * b6 + a5 * b5 + a6 * b4 + a7 * b3 + a8 * b2 + a9 * b1;
+        long c11 = a2 * b9 + a3 * b8 + a4 * b7 + a5 * b6 + a6 * b5 + a7 * b4 + a8 * b3 + a9 * b2;
+        long c12 = a3 * b9 + a4 * b8 + a5 * b7 + a6 * b6 + a7 * b5 + a8 * b4 + a9 * b3;
+        long c13 = a4 * b9 + a5 * b8 + a6 * b7 + a7 * b6 + a8 * b5 + a9 * b4;
+        long c14 = a5 * b9 + a6 * b8 + a7 * b7 + a8 * b6 + a9 * b5;
+        long c15 = a6 * b9 + a7 * b8 + a8 * b7 + a9 * b6;
+        long c16 = a7 * b9 + a8 * b8 + a9 * b7;
+        long c17 = a8 * b9 + a9 * b8;
+        long c18 = a9 * b9;
+
+        reduceWide(r, c0, c1, c2, c3, c4, c5, c6, c7, c8, c9, c10, c11, c12, c13, c14, c15, c16, c17, c18);
+    }
+
+    static void sqr(int[] r, int[] a) {
+        long a0 = a[0], a1 = a[1], a2 = a[2], a3 = a[3], a4 = a[4],
+             a5 = a[5], a6 = a[6], a7 = a[7], a8 = a[8], a9 = a[9];
+
+        long c0 = a0 * a0;
+        long c1 = 2 * a0 * a1;
+        long c2 = 2 * a0 * a2 + a1 * a1;
+        long c3 = 2 * a0 * a3 + 2 * a1 * a2;
+        long c4 = 2 * a0 * a4 + 2 * a1 * a3 + a2 * a2;
+        long c5 = 2 * a0 * a5 + 2 * a1 * a4 + 2 * a2 * a3;
+        long c6 = 2 * a0 * a6 + 2 * a1 * a5 + 2 * a2 * a4 + a3 * a3;
+        long c7 = 2 * a0 * a7 + 2 * a1 * a6 + 2 * a2 * a5 + 2 * a3 * a4;
+        long c8 = 2 * a0 * a8 + 2 * a1 * a7 + 2 * a2 * a6 + 2 * a3 * a5 + a4 * a4;
+        long c9 = 2 * a0 * a9 + 2 * a1 * a8 + 2 * a2 * a7 + 2 * a3 * a6 + 2 * a4 * a5;
+        long c10 = 2 * a1 * a9 + 2 * a2 * a8 + 2 * a3 * a7 + 2 * a4 * a6 + a5 * a5;
+        long c11 = 2 * a2 * a9 + 2 * a3 * a8 + 2 * a4 * a7 + 2 * a5 * a6;
+        long c12 = 2 * a3 * a9 + 2 * a4 * a8 + 2 * a5 * a7 + a6 * a6;
+        long c13 = 2 * a4 * a9 + 2 * a5 * a8 + 2 * a6 * a7;
+        long c14 = 2 * a5 * a9 + 2 * a6 * a8 + a7 * a7;
+        long c15 = 2 * a6 * a9 + 2 * a7 * a8;
+        long c16 = 2 * a7 * a9 + a8 * a8;
+        long c17 = 2 * a8 * a9;
+        long c18 = a9 * a9;
+
+        reduceWide(r, c0, c1, c2, c3, c4, c5, c6, c7, c8, c9, c10, c11, c12, c13, c14, c15, c16, c17, c18);
+    }
+
+    static void add(int[] r, int[] a, int[] b) {
+        carry(r, (long) a[0] + b[0], (long) a[1] + b[1], (long) a[2] + b[2], (long) a[3] + b[3], (long) a[4] + b[4],
+                (long) a[5] + b[5], (long) a[6] + b[6], (long) a[7] + b[7], (long) a[8] + b[8], (long) a[9] + b[9]);
+    }
+
+    static void sub(int[] r, int[] a, int[] b) {
+        carry(r, (long) a[0] - b[0], (long) a[1] - b[1], (long) a[2] - b[2], (long) a[3] - b[3], (long) a[4] - b[4],
+                (long) a[5] - b[5], (long) a[6] - b[6], (long) a[7] - b[7], (long) a[8] - b[8], (long) a[9] - b[9]);
+    }
+
+    static void mulInt(int[] r, int[] a, int k) {
+        carry(r, (long) a[0] * k, (long) a[1] * k, (long) a[2] * k, (long) a[3] * k, (long) a[4] * k,
+                (long) a[5] * k, (long) a[6] * k, (long) a[7] * k, (long) a[8] * k, (long) a[9] * k);
+    }
+
+    static void negate(int[] r, int[] a) {
+        carry(r, -a[0], -a[1], -a[2], -a[3], -a[4], -a[5], -a[6], -a[7], -a[8], -a[9]);
+    }
+
+    /**
+     * Reduces {@code a} to its canonical value in [0, p)
+     */
+    static void normalize(int[] a) {
+        long[] t = new long[LIMBS];
+        for (int i = 0; i < LIMBS; i++) t[i] = a[i];
+
+        // fold bits above 2^256: 2^256 = 2^32 + 977 (mod p)
+        long top;
+        while ((top = t[9] >>> 22) != 0) {
+            t[9] &= 0x3FFFFF;
+            t[0] += top * 977;
+            t[1] += top << 6;
+            for (int i = 0; i < 9; i++) {
+                t[i + 1] += t[i] >> BITS;
+                t[i] &= MASK;
+            }
+        }
+
+        // value is below 2^256 now, subtract p once if value + 2^32 + 977 overflows 2^256
+        long[] u = t.clone();
+        u[0] += 977;
+        u[1] += 1 << 6;
+        for (int i = 0; i < 9; i++) {
+            u[i + 1] += u[i] >> BITS;
+            u[i] &= MASK;
+        }
+        if ((u[9] >>> 22) != 0) {
+            u[9] &= 0x3FFFFF;
+            t = u;
+        }
+
+        for (int i = 0; i < LIMBS; i++) a[i] = (int) t[i];
+    }
+
+    static boolean isZero(int[] a) {
+        int[] n = a.clone();
+        normalize(n);
+        int acc = 0;
+        for (int v : n) acc |= v;
+        return acc == 0;
+    }
+
+    static boolean equal(int[] a, int[] b) {
+        int[] d = create();
+        sub(d, a, b);
+        return isZero(d);
+    }
+
+    static boolean isOdd(int[] a) {
+        int[] n = a.clone();
+        normalize(n);
+        return (n[0] & 1) != 0;
+    }
+
+    static BigInteger toBigInteger(int[] a) {
+        return new BigInteger(1, toBytes(a));
+    }
+
+    /**
+     * @return canonical value as 32 big endian bytes
+     */
+    static byte[] toBytes(int[] a) {
+        byte[] r = new byte[32];
+        toBytes(a, r, 0);
+        return r;
+    }
+
+    static void toBytes(int[] a, byte[] r, int off) {
+        int[] n = a.clone();
+        normalize(n);
+        for (int i = 0; i < 32; i++) {
+            int bit = 8 * (31 - i);
+            long v = n[bit / BITS] >>> (bit % BITS);
+            if (bit % BITS > BITS - 8) {
+                v |= (long) n[bit / BITS + 1] << (BITS - bit % BITS);
+            }
+            r[off + i] = (byte) v;
+        }
+    }
+
+    static void inverse(int[] r, int[] a) {
+        int[] inv = create(toBigInteger(a).modInverse(P));
+        set(r, inv);
+    }
+
+    /**
+     * Computes {@code a^((p + 1) / 4)} which is the square root of {@code a} if there is one,
+     * the caller must check the result by squaring it
+     */
+    static void sqrt(int[] r, int[] a) {
+        // addition chain from libsecp256k1, xN = a^(2^N - 1)
+        int[] x2 = create(), x3 = create(), x6 = create(), x9 = create(), x11 = create(),
+                x22 = create(), x44 = create(), x88 = create(), x176 = create(), x220 = create(),
+                x223 = create(), t = create();
+
+        sqr(x2, a);
+        mul(x2, x2, a);
+
+        sqr(x3, x2);
+        mul(x3, x3, a);
+
+        sqrN(x6, x3, 3);
+        mul(x6, x6, x3);
+
+        sqrN(x9, x6, 3);
+        mul(x9, x9, x3);
+
+        sqrN(x11, x9, 2);
+        mul(x11, x11, x2);
+
+        sqrN(x22, x11, 11);
+        mul(x22, x22, x11);
+
+        sqrN(x44, x22, 22);
+        mul(x44, x44, x22);
+
+        sqrN(x88, x44, 44);
+        mul(x88, x88, x44);
+
+        sqrN(x176, x88, 88);
+        mul(x176, x176, x88);
+
+        sqrN(x220, x176, 44);
+        mul(x220, x220, x44);
+
+        sqrN(x223, x220, 3);
+        mul(x223, x223, x3);
+
+        sqrN(t, x223, 23);
+        mul(t, t, x22);
+        sqrN(t, t, 6);
+        mul(t, t, x2);
+        sqrN(r, t, 2);
+    }
+
+    private static void sqrN(int[] r, int[] a, int n) {
+        sqr(r, a);
+        for (int i = 1; i < n; i++) {
+            sqr(r, r);
+        }
+    }
+
+    /**
+     * Reduces column sums of a product, each column is below 2^57
+     */
+    private static void reduceWide(int[] r, long c0, long c1, long c2, long c3, long c4, long c5, long c6,
+                                   long c7, long c8, long c9, long c10, long c11, long c12, long c13,
+                                   long c14, long c15, long c16, long c17, long c18) {
+        c1 += c0 >> BITS; c0 &= MASK;
+        c2 += c1 >> BITS; c1 &= MASK;
+        c3 += c2 >> BITS; c2 &= MASK;
+        c4 += c3 >> BITS; c3 &= MASK;
+        c5 += c4 >> BITS; c4 &= MASK;
+        c6 += c5 >> BITS; c5 &= MASK;
+        c7 += c6 >> BITS; c6 &= MASK;
+        c8 += c7 >> BITS; c7 &= MASK;
+        c9 += c8 >> BITS; c8 &= MASK;
+        c10 += c9 >> BITS; c9 &= MASK;
+        c11 += c10 >> BITS; c10 &= MASK;
+        c12 += c11 >> BITS; c11 &= MASK;
+        c13 += c12 >> BITS; c12 &= MASK;
+        c14 += c13 >> BITS; c13 &= MASK;
+        c15 += c14 >> BITS; c14 &= MASK;
+        c16 += c15 >> BITS; c15 &= MASK;
+        c17 += c16 >> BITS; c16 &= MASK;
+        c18 += c17 >> BITS; c17 &= MASK;
+        long c19 = c18 >> BITS; c18 &= MASK;
+
+        // limb k >= 10 weighs 2^(26 * (k - 10)) * 2^260, going from the top
+        // makes the contribution of the limb 19 to the limb 10 folded as well
+        c9 += c19 * R0; c10 += c19 * R1;
+        c8 += c18 * R0; c9 += c18 * R1;
+        c7 += c17 * R0; c8 += c17 * R1;
+        c6 += c16 * R0; c7 += c16 * R1;
+        c5 += c15 * R0; c6 += c15 * R1;
+        c4 += c14 * R0; c5 += c14 * R1;
+        c3 += c13 * R0; c4 += c13 * R1;
+        c2 += c12 * R0; c3 += c12 * R1;
+        c1 += c11 * R0; c2 += c11 * R1;
+        c0 += c10 * R0; c1 += c10 * R1;
+
+        carry(r, c0, c1, c2, c3, c4, c5, c6, c7, c8, c9);
+    }
+
+    /**
+     * Propagates (possibly negative) carries folding everything above 2^260 back in
+     */
+    private static void carry(int[] r, long t0, long t1, long t2, long t3, long t4,
+                              long t5, long t6, long t7, long t8, long t9) {
+        long c;
+        do {
+            t1 += t0 >> BITS; t0 &= MASK;
+            t2 += t1 >> BITS; t1 &= MASK;
+            t3 += t2 >> BITS; t2 &= MASK;
+            t4 += t3 >> BITS; t3 &= MASK;
+            t5 += t4 >> BITS; t4 &= MASK;
+            t6 += t5 >> BITS; t5 &= MASK;
+            t7 += t6 >> BITS; t6 &= MASK;
+            t8 += t7 >> BITS; t7 &= MASK;
+            t9 += t8 >> BITS; t8 &= MASK;
+            c = t9 >> BITS; t9 &= MASK;
+            t0 += c * R0; t1 += c * R1;
+        } while (c != 0);
+
+        r[0] = (int) t0;
+        r[1] = (int) t1;
+        r[2] = (int) t2;
+        r[3] = (int) t3;
+        r[4] = (int) t4;
+        r[5] = (int) t5;
+        r[6] = (int) t6;
+        r[7] = (int) t7;
+        r[8] = (int) t8;
+        r[9] = (int) t9;
+    }
+}
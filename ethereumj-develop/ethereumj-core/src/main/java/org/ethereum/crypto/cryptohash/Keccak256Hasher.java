@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ethereum.crypto.cryptohash;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Keccak-256 hashing backed by a {@link Keccak256} engine kept per thread. <br/>
+ *
+ * Unlike hashing with a {@link java.security.MessageDigest} obtained from the JCA provider
+ * it neither looks the algorithm up nor creates a new state on each call,
+ * hashing into a caller supplied buffer doesn't allocate at all.
+ */
+public final class Keccak256Hasher {
+
+    public static final int DIGEST_LENGTH = 32;
+
+    private static final ThreadLocal<Keccak256Hasher> HASHER = ThreadLocal.withInitial(Keccak256Hasher::new);
+
+    private final Keccak256 digest = new Keccak256();
+    private final byte[] buf = new byte[digest.getBlockLength()];
+
+    private Keccak256Hasher() {
+    }
+
+    /**
+     * Hashes {@code input[off, off + len)} writing 32 bytes of the hash to {@code out} starting at {@code outOff}
+     */
+    public static void hash(byte[] input, int off, int len, byte[] out, int outOff) {
+        Keccak256 digest = HASHER.get().start();
+        digest.update(input, off, len);
+        digest.digest(out, outOff, DIGEST_LENGTH);
+    }
+
+    public static byte[] hash(byte[] input, int off, int len) {
+        byte[] ret = new byte[DIGEST_LENGTH];
+        hash(input, off, len, ret, 0);
+        return ret;
+    }
+
+    public static byte[] hash(byte[] input) {
+        return hash(input, 0, input.length);
+    }
+
+    /**
+     * Hashes concatenation of the inputs
+     */
+    public static byte[] hash(byte[] input1, byte[] input2) {
+        Keccak256 digest = HASHER.get().start();
+        digest.update(input1, 0, input1.length);
+        digest.update(input2, 0, input2.length);
+        byte[] ret = new byte[DIGEST_LENGTH];
+        digest.digest(ret, 0, DIGEST_LENGTH);
+        return ret;
+    }
+
+    /**
+     * Hashes remaining bytes of the buffer, buffer position is moved to its limit
+     */
+    public static void hash(ByteBuffer input, byte[] out, int outOff) {
+        Keccak256Hasher hasher = HASHER.get();
+        Keccak256 digest = hasher.start();
+        if (input.hasArray()) {
+            digest.update(input.array(), input.arrayOffset() + input.position(), input.remaining());
+            input.position(input.limit());
+        } else {
+            while (input.hasRemaining()) {
+                int len = Math.min(input.remaining(), hasher.buf.length);
+                input.get(hasher.buf, 0, len);
+                digest.update(hasher.buf, 0, len);
+            }
+        }
+        digest.digest(out, outOff, DIGEST_LENGTH);
+    }
+
+    private Keccak256 start() {
+        // drops the state left if previous hashing has failed half way
+        digest.reset();
+        return digest;
+    }
+}
@@ -138,6 +138,11 @@ abstract class KeccakCore extends DigestEngine{
 		long t, kt;
 		long c0, c1, c2, c3, c4, bnn;
 
+		/* Lanes are kept in locals for the rounds, so they can stay in registers */
+		long a0 = A[0], a1 = A[1], a2 = A[2], a3 = A[3], a4 = A[4], a5 = A[5], a6 = A[6], a7 = A[7], a8 = A[8],
+			a9 = A[9], a10 = A[10], a11 = A[11], a12 = A[12], a13 = A[13], a14 = A[14], a15 = A[15], a16 = A[16],
+			a17 = A[17], a18 = A[18], a19 = A[19], a20 = A[20], a21 = A[21], a22 = A[22], a23 = A[23], a24 = A[24];
+
 		/*
 		 * Unrolling four rounds kills performance big time
 		 * on Intel x86 Core2, in both 32-bit and 64-bit modes
@@ -146,394 +151,419 @@ abstract class KeccakCore extends DigestEngine{
 		 */
 		for (int j = 0; j < 24; j += 2) {
 
-			tt0 = A[ 1] ^ A[ 6];
-			tt1 = A[11] ^ A[16];
-			tt0 ^= A[21] ^ tt1;
+			tt0 = a1 ^ a6;
+			tt1 = a11 ^ a16;
+			tt0 ^= a21 ^ tt1;
 			tt0 = (tt0 << 1) | (tt0 >>> 63);
-			tt2 = A[ 4] ^ A[ 9];
-			tt3 = A[14] ^ A[19];
-			tt0 ^= A[24];
+			tt2 = a4 ^ a9;
+			tt3 = a14 ^ a19;
+			tt0 ^= a24;
 			tt2 ^= tt3;
 			t0 = tt0 ^ tt2;
 
-			tt0 = A[ 2] ^ A[ 7];
-			tt1 = A[12] ^ A[17];
-			tt0 ^= A[22] ^ tt1;
+			tt0 = a2 ^ a7;
+			tt1 = a12 ^ a17;
+			tt0 ^= a22 ^ tt1;
 			tt0 = (tt0 << 1) | (tt0 >>> 63);
-			tt2 = A[ 0] ^ A[ 5];
-			tt3 = A[10] ^ A[15];
-			tt0 ^= A[20];
+			tt2 = a0 ^ a5;
+			tt3 = a10 ^ a15;
+			tt0 ^= a20;
 			tt2 ^= tt3;
 			t1 = tt0 ^ tt2;
 
-			tt0 = A[ 3] ^ A[ 8];
-			tt1 = A[13] ^ A[18];
-			tt0 ^= A[23] ^ tt1;
+			tt0 = a3 ^ a8;
+			tt1 = a13 ^ a18;
+			tt0 ^= a23 ^ tt1;
 			tt0 = (tt0 << 1) | (tt0 >>> 63);
-			tt2 = A[ 1] ^ A[ 6];
-			tt3 = A[11] ^ A[16];
-			tt0 ^= A[21];
+			tt2 = a1 ^ a6;
+			tt3 = a11 ^ a16;
+			tt0 ^= a21;
 			tt2 ^= tt3;
 			t2 = tt0 ^ tt2;
 
-			tt0 = A[ 4] ^ A[ 9];
-			tt1 = A[14] ^ A[19];
-			tt0 ^= A[24] ^ tt1;
+			tt0 = a4 ^ a9;
+			tt1 = a14 ^ a19;
+			tt0 ^= a24 ^ tt1;
 			tt0 = (tt0 << 1) | (tt0 >>> 63);
-			tt2 = A[ 2] ^ A[ 7];
-			tt3 = A[12] ^ A[17];
-			tt0 ^= A[22];
+			tt2 = a2 ^ a7;
+			tt3 = a12 ^ a17;
+			tt0 ^= a22;
 			tt2 ^= tt3;
 			t3 = tt0 ^ tt2;
 
-			tt0 = A[ 0] ^ A[ 5];
-			tt1 = A[10] ^ A[15];
-			tt0 ^= A[20] ^ tt1;
+			tt0 = a0 ^ a5;
+			tt1 = a10 ^ a15;
+			tt0 ^= a20 ^ tt1;
 			tt0 = (tt0 << 1) | (tt0 >>> 63);
-			tt2 = A[ 3] ^ A[ 8];
-			tt3 = A[13] ^ A[18];
-			tt0 ^= A[23];
+			tt2 = a3 ^ a8;
+			tt3 = a13 ^ a18;
+			tt0 ^= a23;
 			tt2 ^= tt3;
 			t4 = tt0 ^ tt2;
 
-			A[ 0] = A[ 0] ^ t0;
-			A[ 5] = A[ 5] ^ t0;
-			A[10] = A[10] ^ t0;
-			A[15] = A[15] ^ t0;
-			A[20] = A[20] ^ t0;
-			A[ 1] = A[ 1] ^ t1;
-			A[ 6] = A[ 6] ^ t1;
-			A[11] = A[11] ^ t1;
-			A[16] = A[16] ^ t1;
-			A[21] = A[21] ^ t1;
-			A[ 2] = A[ 2] ^ t2;
-			A[ 7] = A[ 7] ^ t2;
-			A[12] = A[12] ^ t2;
-			A[17] = A[17] ^ t2;
-			A[22] = A[22] ^ t2;
-			A[ 3] = A[ 3] ^ t3;
-			A[ 8] = A[ 8] ^ t3;
-			A[13] = A[13] ^ t3;
-			A[18] = A[18] ^ t3;
-			A[23] = A[23] ^ t3;
-			A[ 4] = A[ 4] ^ t4;
-			A[ 9] = A[ 9] ^ t4;
-			A[14] = A[14] ^ t4;
-			A[19] = A[19] ^ t4;
-			A[24] = A[24] ^ t4;
-			A[ 5] = (A[ 5] << 36) | (A[ 5] >>> (64 - 36));
-			A[10] = (A[10] << 3) | (A[10] >>> (64 - 3));
-			A[15] = (A[15] << 41) | (A[15] >>> (64 - 41));
-			A[20] = (A[20] << 18) | (A[20] >>> (64 - 18));
-			A[ 1] = (A[ 1] << 1) | (A[ 1] >>> (64 - 1));
-			A[ 6] = (A[ 6] << 44) | (A[ 6] >>> (64 - 44));
-			A[11] = (A[11] << 10) | (A[11] >>> (64 - 10));
-			A[16] = (A[16] << 45) | (A[16] >>> (64 - 45));
-			A[21] = (A[21] << 2) | (A[21] >>> (64 - 2));
-			A[ 2] = (A[ 2] << 62) | (A[ 2] >>> (64 - 62));
-			A[ 7] = (A[ 7] << 6) | (A[ 7] >>> (64 - 6));
-			A[12] = (A[12] << 43) | (A[12] >>> (64 - 43));
-			A[17] = (A[17] << 15) | (A[17] >>> (64 - 15));
-			A[22] = (A[22] << 61) | (A[22] >>> (64 - 61));
-			A[ 3] = (A[ 3] << 28) | (A[ 3] >>> (64 - 28));
-			A[ 8] = (A[ 8] << 55) | (A[ 8] >>> (64 - 55));
-			A[13] = (A[13] << 25) | (A[13] >>> (64 - 25));
-			A[18] = (A[18] << 21) | (A[18] >>> (64 - 21));
-			A[23] = (A[23] << 56) | (A[23] >>> (64 - 56));
-			A[ 4] = (A[ 4] << 27) | (A[ 4] >>> (64 - 27));
-			A[ 9] = (A[ 9] << 20) | (A[ 9] >>> (64 - 20));
-			A[14] = (A[14] << 39) | (A[14] >>> (64 - 39));
-			A[19] = (A[19] << 8) | (A[19] >>> (64 - 8));
-			A[24] = (A[24] << 14) | (A[24] >>> (64 - 14));
-			bnn = ~A[12];
-			kt = A[ 6] | A[12];
-			c0 = A[ 0] ^ kt;
-			kt = bnn | A[18];
-			c1 = A[ 6] ^ kt;
-			kt = A[18] & A[24];
-			c2 = A[12] ^ kt;
-			kt = A[24] | A[ 0];
-			c3 = A[18] ^ kt;
-			kt = A[ 0] & A[ 6];
-			c4 = A[24] ^ kt;
-			A[ 0] = c0;
-			A[ 6] = c1;
-			A[12] = c2;
-			A[18] = c3;
-			A[24] = c4;
-			bnn = ~A[22];
-			kt = A[ 9] | A[10];
-			c0 = A[ 3] ^ kt;
-			kt = A[10] & A[16];
-			c1 = A[ 9] ^ kt;
-			kt = A[16] | bnn;
-			c2 = A[10] ^ kt;
-			kt = A[22] | A[ 3];
-			c3 = A[16] ^ kt;
-			kt = A[ 3] & A[ 9];
-			c4 = A[22] ^ kt;
-			A[ 3] = c0;
-			A[ 9] = c1;
-			A[10] = c2;
-			A[16] = c3;
-			A[22] = c4;
-			bnn = ~A[19];
-			kt = A[ 7] | A[13];
-			c0 = A[ 1] ^ kt;
-			kt = A[13] & A[19];
-			c1 = A[ 7] ^ kt;
-			kt = bnn & A[20];
-			c2 = A[13] ^ kt;
-			kt = A[20] | A[ 1];
+			a0 = a0 ^ t0;
+			a5 = a5 ^ t0;
+			a10 = a10 ^ t0;
+			a15 = a15 ^ t0;
+			a20 = a20 ^ t0;
+			a1 = a1 ^ t1;
+			a6 = a6 ^ t1;
+			a11 = a11 ^ t1;
+			a16 = a16 ^ t1;
+			a21 = a21 ^ t1;
+			a2 = a2 ^ t2;
+			a7 = a7 ^ t2;
+			a12 = a12 ^ t2;
+			a17 = a17 ^ t2;
+			a22 = a22 ^ t2;
+			a3 = a3 ^ t3;
+			a8 = a8 ^ t3;
+			a13 = a13 ^ t3;
+			a18 = a18 ^ t3;
+			a23 = a23 ^ t3;
+			a4 = a4 ^ t4;
+			a9 = a9 ^ t4;
+			a14 = a14 ^ t4;
+			a19 = a19 ^ t4;
+			a24 = a24 ^ t4;
+			a5 = (a5 << 36) | (a5 >>> (64 - 36));
+			a10 = (a10 << 3) | (a10 >>> (64 - 3));
+			a15 = (a15 << 41) | (a15 >>> (64 - 41));
+			a20 = (a20 << 18) | (a20 >>> (64 - 18));
+			a1 = (a1 << 1) | (a1 >>> (64 - 1));
+			a6 = (a6 << 44) | (a6 >>> (64 - 44));
+			a11 = (a11 << 10) | (a11 >>> (64 - 10));
+			a16 = (a16 << 45) | (a16 >>> (64 - 45));
+			a21 = (a21 << 2) | (a21 >>> (64 - 2));
+			a2 = (a2 << 62) | (a2 >>> (64 - 62));
+			a7 = (a7 << 6) | (a7 >>> (64 - 6));
+			a12 = (a12 << 43) | (a12 >>> (64 - 43));
+			a17 = (a17 << 15) | (a17 >>> (64 - 15));
+			a22 = (a22 << 61) | (a22 >>> (64 - 61));
+			a3 = (a3 << 28) | (a3 >>> (64 - 28));
+			a8 = (a8 << 55) | (a8 >>> (64 - 55));
+			a13 = (a13 << 25) | (a13 >>> (64 - 25));
+			a18 = (a18 << 21) | (a18 >>> (64 - 21));
+			a23 = (a23 << 56) | (a23 >>> (64 - 56));
+			a4 = (a4 << 27) | (a4 >>> (64 - 27));
+			a9 = (a9 << 20) | (a9 >>> (64 - 20));
+			a14 = (a14 << 39) | (a14 >>> (64 - 39));
+			a19 = (a19 << 8) | (a19 >>> (64 - 8));
+			a24 = (a24 << 14) | (a24 >>> (64 - 14));
+			bnn = ~a12;
+			kt = a6 | a12;
+			c0 = a0 ^ kt;
+			kt = bnn | a18;
+			c1 = a6 ^ kt;
+			kt = a18 & a24;
+			c2 = a12 ^ kt;
+			kt = a24 | a0;
+			c3 = a18 ^ kt;
+			kt = a0 & a6;
+			c4 = a24 ^ kt;
+			a0 = c0;
+			a6 = c1;
+			a12 = c2;
+			a18 = c3;
+			a24 = c4;
+			bnn = ~a22;
+			kt = a9 | a10;
+			c0 = a3 ^ kt;
+			kt = a10 & a16;
+			c1 = a9 ^ kt;
+			kt = a16 | bnn;
+			c2 = a10 ^ kt;
+			kt = a22 | a3;
+			c3 = a16 ^ kt;
+			kt = a3 & a9;
+			c4 = a22 ^ kt;
+			a3 = c0;
+			a9 = c1;
+			a10 = c2;
+			a16 = c3;
+			a22 = c4;
+			bnn = ~a19;
+			kt = a7 | a13;
+			c0 = a1 ^ kt;
+			kt = a13 & a19;
+			c1 = a7 ^ kt;
+			kt = bnn & a20;
+			c2 = a13 ^ kt;
+			kt = a20 | a1;
 			c3 = bnn ^ kt;
-			kt = A[ 1] & A[ 7];
-			c4 = A[20] ^ kt;
-			A[ 1] = c0;
-			A[ 7] = c1;
-			A[13] = c2;
-			A[19] = c3;
-			A[20] = c4;
-			bnn = ~A[17];
-			kt = A[ 5] & A[11];
-			c0 = A[ 4] ^ kt;
-			kt = A[11] | A[17];
-			c1 = A[ 5] ^ kt;
-			kt = bnn | A[23];
-			c2 = A[11] ^ kt;
-			kt = A[23] & A[ 4];
+			kt = a1 & a7;
+			c4 = a20 ^ kt;
+			a1 = c0;
+			a7 = c1;
+			a13 = c2;
+			a19 = c3;
+			a20 = c4;
+			bnn = ~a17;
+			kt = a5 & a11;
+			c0 = a4 ^ kt;
+			kt = a11 | a17;
+			c1 = a5 ^ kt;
+			kt = bnn | a23;
+			c2 = a11 ^ kt;
+			kt = a23 & a4;
 			c3 = bnn ^ kt;
-			kt = A[ 4] | A[ 5];
-			c4 = A[23] ^ kt;
-			A[ 4] = c0;
-			A[ 5] = c1;
-			A[11] = c2;
-			A[17] = c3;
-			A[23] = c4;
-			bnn = ~A[ 8];
-			kt = bnn & A[14];
-			c0 = A[ 2] ^ kt;
-			kt = A[14] | A[15];
+			kt = a4 | a5;
+			c4 = a23 ^ kt;
+			a4 = c0;
+			a5 = c1;
+			a11 = c2;
+			a17 = c3;
+			a23 = c4;
+			bnn = ~a8;
+			kt = bnn & a14;
+			c0 = a2 ^ kt;
+			kt = a14 | a15;
 			c1 = bnn ^ kt;
-			kt = A[15] & A[21];
-			c2 = A[14] ^ kt;
-			kt = A[21] | A[ 2];
-			c3 = A[15] ^ kt;
-			kt = A[ 2] & A[ 8];
-			c4 = A[21] ^ kt;
-			A[ 2] = c0;
-			A[ 8] = c1;
-			A[14] = c2;
-			A[15] = c3;
-			A[21] = c4;
-			A[ 0] = A[ 0] ^ RC[j + 0];
+			kt = a15 & a21;
+			c2 = a14 ^ kt;
+			kt = a21 | a2;
+			c3 = a15 ^ kt;
+			kt = a2 & a8;
+			c4 = a21 ^ kt;
+			a2 = c0;
+			a8 = c1;
+			a14 = c2;
+			a15 = c3;
+			a21 = c4;
+			a0 = a0 ^ RC[j + 0];
 
-			tt0 = A[ 6] ^ A[ 9];
-			tt1 = A[ 7] ^ A[ 5];
-			tt0 ^= A[ 8] ^ tt1;
+			tt0 = a6 ^ a9;
+			tt1 = a7 ^ a5;
+			tt0 ^= a8 ^ tt1;
 			tt0 = (tt0 << 1) | (tt0 >>> 63);
-			tt2 = A[24] ^ A[22];
-			tt3 = A[20] ^ A[23];
-			tt0 ^= A[21];
+			tt2 = a24 ^ a22;
+			tt3 = a20 ^ a23;
+			tt0 ^= a21;
 			tt2 ^= tt3;
 			t0 = tt0 ^ tt2;
 
-			tt0 = A[12] ^ A[10];
-			tt1 = A[13] ^ A[11];
-			tt0 ^= A[14] ^ tt1;
+			tt0 = a12 ^ a10;
+			tt1 = a13 ^ a11;
+			tt0 ^= a14 ^ tt1;
 			tt0 = (tt0 << 1) | (tt0 >>> 63);
-			tt2 = A[ 0] ^ A[ 3];
-			tt3 = A[ 1] ^ A[ 4];
-			tt0 ^= A[ 2];
+			tt2 = a0 ^ a3;
+			tt3 = a1 ^ a4;
+			tt0 ^= a2;
 			tt2 ^= tt3;
 			t1 = tt0 ^ tt2;
 
-			tt0 = A[18] ^ A[16];
-			tt1 = A[19] ^ A[17];
-			tt0 ^= A[15] ^ tt1;
+			tt0 = a18 ^ a16;
+			tt1 = a19 ^ a17;
+			tt0 ^= a15 ^ tt1;
 			tt0 = (tt0 << 1) | (tt0 >>> 63);
-			tt2 = A[ 6] ^ A[ 9];
-			tt3 = A[ 7] ^ A[ 5];
-			tt0 ^= A[ 8];
+			tt2 = a6 ^ a9;
+			tt3 = a7 ^ a5;
+			tt0 ^= a8;
 			tt2 ^= tt3;
 			t2 = tt0 ^ tt2;
 
-			tt0 = A[24] ^ A[22];
-			tt1 = A[20] ^ A[23];
-			tt0 ^= A[21] ^ tt1;
+			tt0 = a24 ^ a22;
+			tt1 = a20 ^ a23;
+			tt0 ^= a21 ^ tt1;
 			tt0 = (tt0 << 1) | (tt0 >>> 63);
-			tt2 = A[12] ^ A[10];
-			tt3 = A[13] ^ A[11];
-			tt0 ^= A[14];
+			tt2 = a12 ^ a10;
+			tt3 = a13 ^ a11;
+			tt0 ^= a14;
 			tt2 ^= tt3;
 			t3 = tt0 ^ tt2;
 
-			tt0 = A[ 0] ^ A[ 3];
-			tt1 = A[ 1] ^ A[ 4];
-			tt0 ^= A[ 2] ^ tt1;
+			tt0 = a0 ^ a3;
+			tt1 = a1 ^ a4;
+			tt0 ^= a2 ^ tt1;
 			tt0 = (tt0 << 1) | (tt0 >>> 63);
-			tt2 = A[18] ^ A[16];
-			tt3 = A[19] ^ A[17];
-			tt0 ^= A[15];
+			tt2 = a18 ^ a16;
+			tt3 = a19 ^ a17;
+			tt0 ^= a15;
 			tt2 ^= tt3;
 			t4 = tt0 ^ tt2;
 
-			A[ 0] = A[ 0] ^ t0;
-			A[ 3] = A[ 3] ^ t0;
-			A[ 1] = A[ 1] ^ t0;
-			A[ 4] = A[ 4] ^ t0;
-			A[ 2] = A[ 2] ^ t0;
-			A[ 6] = A[ 6] ^ t1;
-			A[ 9] = A[ 9] ^ t1;
-			A[ 7] = A[ 7] ^ t1;
-			A[ 5] = A[ 5] ^ t1;
-			A[ 8] = A[ 8] ^ t1;
-			A[12] = A[12] ^ t2;
-			A[10] = A[10] ^ t2;
-			A[13] = A[13] ^ t2;
-			A[11] = A[11] ^ t2;
-			A[14] = A[14] ^ t2;
-			A[18] = A[18] ^ t3;
-			A[16] = A[16] ^ t3;
-			A[19] = A[19] ^ t3;
-			A[17] = A[17] ^ t3;
-			A[15] = A[15] ^ t3;
-			A[24] = A[24] ^ t4;
-			A[22] = A[22] ^ t4;
-			A[20] = A[20] ^ t4;
-			A[23] = A[23] ^ t4;
-			A[21] = A[21] ^ t4;
-			A[ 3] = (A[ 3] << 36) | (A[ 3] >>> (64 - 36));
-			A[ 1] = (A[ 1] << 3) | (A[ 1] >>> (64 - 3));
-			A[ 4] = (A[ 4] << 41) | (A[ 4] >>> (64 - 41));
-			A[ 2] = (A[ 2] << 18) | (A[ 2] >>> (64 - 18));
-			A[ 6] = (A[ 6] << 1) | (A[ 6] >>> (64 - 1));
-			A[ 9] = (A[ 9] << 44) | (A[ 9] >>> (64 - 44));
-			A[ 7] = (A[ 7] << 10) | (A[ 7] >>> (64 - 10));
-			A[ 5] = (A[ 5] << 45) | (A[ 5] >>> (64 - 45));
-			A[ 8] = (A[ 8] << 2) | (A[ 8] >>> (64 - 2));
-			A[12] = (A[12] << 62) | (A[12] >>> (64 - 62));
-			A[10] = (A[10] << 6) | (A[10] >>> (64 - 6));
-			A[13] = (A[13] << 43) | (A[13] >>> (64 - 43));
-			A[11] = (A[11] << 15) | (A[11] >>> (64 - 15));
-			A[14] = (A[14] << 61) | (A[14] >>> (64 - 61));
-			A[18] = (A[18] << 28) | (A[18] >>> (64 - 28));
-			A[16] = (A[16] << 55) | (A[16] >>> (64 - 55));
-			A[19] = (A[19] << 25) | (A[19] >>> (64 - 25));
-			A[17] = (A[17] << 21) | (A[17] >>> (64 - 21));
-			A[15] = (A[15] << 56) | (A[15] >>> (64 - 56));
-			A[24] = (A[24] << 27) | (A[24] >>> (64 - 27));
-			A[22] = (A[22] << 20) | (A[22] >>> (64 - 20));
-			A[20] = (A[20] << 39) | (A[20] >>> (64 - 39));
-			A[23] = (A[23] << 8) | (A[23] >>> (64 - 8));
-			A[21] = (A[21] << 14) | (A[21] >>> (64 - 14));
-			bnn = ~A[13];
-			kt = A[ 9] | A[13];
-			c0 = A[ 0] ^ kt;
-			kt = bnn | A[17];
-			c1 = A[ 9] ^ kt;
-			kt = A[17] & A[21];
-			c2 = A[13] ^ kt;
-			kt = A[21] | A[ 0];
-			c3 = A[17] ^ kt;
-			kt = A[ 0] & A[ 9];
-			c4 = A[21] ^ kt;
-			A[ 0] = c0;
-			A[ 9] = c1;
-			A[13] = c2;
-			A[17] = c3;
-			A[21] = c4;
-			bnn = ~A[14];
-			kt = A[22] | A[ 1];
-			c0 = A[18] ^ kt;
-			kt = A[ 1] & A[ 5];
-			c1 = A[22] ^ kt;
-			kt = A[ 5] | bnn;
-			c2 = A[ 1] ^ kt;
-			kt = A[14] | A[18];
-			c3 = A[ 5] ^ kt;
-			kt = A[18] & A[22];
-			c4 = A[14] ^ kt;
-			A[18] = c0;
-			A[22] = c1;
-			A[ 1] = c2;
-			A[ 5] = c3;
-			A[14] = c4;
-			bnn = ~A[23];
-			kt = A[10] | A[19];
-			c0 = A[ 6] ^ kt;
-			kt = A[19] & A[23];
-			c1 = A[10] ^ kt;
-			kt = bnn & A[ 2];
-			c2 = A[19] ^ kt;
-			kt = A[ 2] | A[ 6];
+			a0 = a0 ^ t0;
+			a3 = a3 ^ t0;
+			a1 = a1 ^ t0;
+			a4 = a4 ^ t0;
+			a2 = a2 ^ t0;
+			a6 = a6 ^ t1;
+			a9 = a9 ^ t1;
+			a7 = a7 ^ t1;
+			a5 = a5 ^ t1;
+			a8 = a8 ^ t1;
+			a12 = a12 ^ t2;
+			a10 = a10 ^ t2;
+			a13 = a13 ^ t2;
+			a11 = a11 ^ t2;
+			a14 = a14 ^ t2;
+			a18 = a18 ^ t3;
+			a16 = a16 ^ t3;
+			a19 = a19 ^ t3;
+			a17 = a17 ^ t3;
+			a15 = a15 ^ t3;
+			a24 = a24 ^ t4;
+			a22 = a22 ^ t4;
+			a20 = a20 ^ t4;
+			a23 = a23 ^ t4;
+			a21 = a21 ^ t4;
+			a3 = (a3 << 36) | (a3 >>> (64 - 36));
+			a1 = (a1 << 3) | (a1 >>> (64 - 3));
+			a4 = (a4 << 41) | (a4 >>> (64 - 41));
+			a2 = (a2 << 18) | (a2 >>> (64 - 18));
+			a6 = (a6 << 1) | (a6 >>> (64 - 1));
+			a9 = (a9 << 44) | (a9 >>> (64 - 44));
+			a7 = (a7 << 10) | (a7 >>> (64 - 10));
+			a5 = (a5 << 45) | (a5 >>> (64 - 45));
+			a8 = (a8 << 2) | (a8 >>> (64 - 2));
+			a12 = (a12 << 62) | (a12 >>> (64 - 62));
+			a10 = (a10 << 6) | (a10 >>> (64 - 6));
+			a13 = (a13 << 43) | (a13 >>> (64 - 43));
+			a11 = (a11 << 15) | (a11 >>> (64 - 15));
+			a14 = (a14 << 61) | (a14 >>> (64 - 61));
+			a18 = (a18 << 28) | (a18 >>> (64 - 28));
+			a16 = (a16 << 55) | (a16 >>> (64 - 55));
+			a19 = (a19 << 25) | (a19 >>> (64 - 25));
+			a17 = (a17 << 21) | (a17 >>> (64 - 21));
+			a15 = (a15 << 56) | (a15 >>> (64 - 56));
+			a24 = (a24 << 27) | (a24 >>> (64 - 27));
+			a22 = (a22 << 20) | (a22 >>> (64 - 20));
+			a20 = (a20 << 39) | (a20 >>> (64 - 39));
+			a23 = (a23 << 8) | (a23 >>> (64 - 8));
+			a21 = (a21 << 14) | (a21 >>> (64 - 14));
+			bnn = ~a13;
+			kt = a9 | a13;
+			c0 = a0 ^ kt;
+			kt = bnn | a17;
+			c1 = a9 ^ kt;
+			kt = a17 & a21;
+			c2 = a13 ^ kt;
+			kt = a21 | a0;
+			c3 = a17 ^ kt;
+			kt = a0 & a9;
+			c4 = a21 ^ kt;
+			a0 = c0;
+			a9 = c1;
+			a13 = c2;
+			a17 = c3;
+			a21 = c4;
+			bnn = ~a14;
+			kt = a22 | a1;
+			c0 = a18 ^ kt;
+			kt = a1 & a5;
+			c1 = a22 ^ kt;
+			kt = a5 | bnn;
+			c2 = a1 ^ kt;
+			kt = a14 | a18;
+			c3 = a5 ^ kt;
+			kt = a18 & a22;
+			c4 = a14 ^ kt;
+			a18 = c0;
+			a22 = c1;
+			a1 = c2;
+			a5 = c3;
+			a14 = c4;
+			bnn = ~a23;
+			kt = a10 | a19;
+			c0 = a6 ^ kt;
+			kt = a19 & a23;
+			c1 = a10 ^ kt;
+			kt = bnn & a2;
+			c2 = a19 ^ kt;
+			kt = a2 | a6;
 			c3 = bnn ^ kt;
-			kt = A[ 6] & A[10];
-			c4 = A[ 2] ^ kt;
-			A[ 6] = c0;
-			A[10] = c1;
-			A[19] = c2;
-			A[23] = c3;
-			A[ 2] = c4;
-			bnn = ~A[11];
-			kt = A[ 3] & A[ 7];
-			c0 = A[24] ^ kt;
-			kt = A[ 7] | A[11];
-			c1 = A[ 3] ^ kt;
-			kt = bnn | A[15];
-			c2 = A[ 7] ^ kt;
-			kt = A[15] & A[24];
+			kt = a6 & a10;
+			c4 = a2 ^ kt;
+			a6 = c0;
+			a10 = c1;
+			a19 = c2;
+			a23 = c3;
+			a2 = c4;
+			bnn = ~a11;
+			kt = a3 & a7;
+			c0 = a24 ^ kt;
+			kt = a7 | a11;
+			c1 = a3 ^ kt;
+			kt = bnn | a15;
+			c2 = a7 ^ kt;
+			kt = a15 & a24;
 			c3 = bnn ^ kt;
-			kt = A[24] | A[ 3];
-			c4 = A[15] ^ kt;
-			A[24] = c0;
-			A[ 3] = c1;
-			A[ 7] = c2;
-			A[11] = c3;
-			A[15] = c4;
-			bnn = ~A[16];
-			kt = bnn & A[20];
-			c0 = A[12] ^ kt;
-			kt = A[20] | A[ 4];
+			kt = a24 | a3;
+			c4 = a15 ^ kt;
+			a24 = c0;
+			a3 = c1;
+			a7 = c2;
+			a11 = c3;
+			a15 = c4;
+			bnn = ~a16;
+			kt = bnn & a20;
+			c0 = a12 ^ kt;
+			kt = a20 | a4;
 			c1 = bnn ^ kt;
-			kt = A[ 4] & A[ 8];
-			c2 = A[20] ^ kt;
-			kt = A[ 8] | A[12];
-			c3 = A[ 4] ^ kt;
-			kt = A[12] & A[16];
-			c4 = A[ 8] ^ kt;
-			A[12] = c0;
-			A[16] = c1;
-			A[20] = c2;
-			A[ 4] = c3;
-			A[ 8] = c4;
-			A[ 0] = A[ 0] ^ RC[j + 1];
-			t = A[ 5];
-			A[ 5] = A[18];
-			A[18] = A[11];
-			A[11] = A[10];
-			A[10] = A[ 6];
-			A[ 6] = A[22];
-			A[22] = A[20];
-			A[20] = A[12];
-			A[12] = A[19];
-			A[19] = A[15];
-			A[15] = A[24];
-			A[24] = A[ 8];
-			A[ 8] = t;
-			t = A[ 1];
-			A[ 1] = A[ 9];
-			A[ 9] = A[14];
-			A[14] = A[ 2];
-			A[ 2] = A[13];
-			A[13] = A[23];
-			A[23] = A[ 4];
-			A[ 4] = A[21];
-			A[21] = A[16];
-			A[16] = A[ 3];
-			A[ 3] = A[17];
-			A[17] = A[ 7];
-			A[ 7] = t;
+			kt = a4 & a8;
+			c2 = a20 ^ kt;
+			kt = a8 | a12;
+			c3 = a4 ^ kt;
+			kt = a12 & a16;
+			c4 = a8 ^ kt;
+			a12 = c0;
+			a16 = c1;
+			a20 = c2;
+			a4 = c3;
+			a8 = c4;
+			a0 = a0 ^ RC[j + 1];
+			t = a5;
+			a5 = a18;
+			a18 = a11;
+			a11 = a10;
+			a10 = a6;
+			a6 = a22;
+			a22 = a20;
+			a20 = a12;
+			a12 = a19;
+			a19 = a15;
+			a15 = a24;
+			a24 = a8;
+			a8 = t;
+			t = a1;
+			a1 = a9;
+			a9 = a14;
+			a14 = a2;
+			a2 = a13;
+			a13 = a23;
+			a23 = a4;
+			a4 = a21;
+			a21 = a16;
+			a16 = a3;
+			a3 = a17;
+			a17 = a7;
+			a7 = t;
 		}
+		A[ 0] = a0;
+		A[ 1] = a1;
+		A[ 2] = a2;
+		A[ 3] = a3;
+		A[ 4] = a4;
+		A[ 5] = a5;
+		A[ 6] = a6;
+		A[ 7] = a7;
+		A[ 8] = a8;
+		A[ 9] = a9;
+		A[10] = a10;
+		A[11] = a11;
+		A[12] = a12;
+		A[13] = a13;
+		A[14] = a14;
+		A[15] = a15;
+		A[16] = a16;
+		A[17] = a17;
+		A[18] = a18;
+		A[19] = a19;
+		A[20] = a20;
+		A[21] = a21;
+		A[22] = a22;
+		A[23] = a23;
+		A[24] = a24;
 	}
 
 	/** @see org.ethereum.crypto.cryptohash.DigestEngine */
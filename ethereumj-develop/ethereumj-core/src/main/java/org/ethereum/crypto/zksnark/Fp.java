@@ -22,38 +22,83 @@ import java.math.BigInteger;
 import static org.ethereum.crypto.zksnark.Params.P;
 
 /**
- * Arithmetic in F_p, p = 21888242871839275222246405745257275088696311157297823662689037894645226208583
+ * Arithmetic in F_p, p = 21888242871839275222246405745257275088696311157297823662689037894645226208583 <br/>
+ * <br/>
+ *
+ * Elements are kept in Montgomery form {@code v * 2^256 mod p} as four 64-bit limbs, least significant first,
+ * so multiplication is done with Montgomery reduction instead of a division.
+ * {@link BigInteger} is only involved when elements are created, converted back and inverted. <br/>
+ * <br/>
+ *
+ * Values which are not less than "p" can be created to be rejected by {@link #isValid()} later,
+ * such elements are neither zero nor equal to any valid element
  *
  * @author Mikhail Kalinin
  * @since 01.09.2017
  */
 public class Fp implements Field<Fp> {
 
+    private static final long P0 = 0x3c208c16d87cfd47L;
+    private static final long P1 = 0x97816a916871ca8dL;
+    private static final long P2 = 0xb85045b68181585dL;
+    private static final long P3 = 0x30644e72e131a029L;
+
+    // -p^(-1) mod 2^64
+    private static final long INV = 0x87d20782e4866389L;
+
+    // 2^512 mod p, Montgomery multiplication by it converts to Montgomery form;
+    // constants don't depend on Params which in its turn is initialized with Fp values
+    private static final long R2_0 = 0xf32cfc5b538afa89L;
+    private static final long R2_1 = 0xb5e71911d44501fbL;
+    private static final long R2_2 = 0x47ab1eff0a417ff6L;
+    private static final long R2_3 = 0x06d89f71cab8351fL;
+
     static final Fp ZERO = new Fp(BigInteger.ZERO);
     static final Fp _1 = new Fp(BigInteger.ONE);
     static final Fp NON_RESIDUE = new Fp(new BigInteger("21888242871839275222246405745257275088696311157297823662689037894645226208582"));
 
-    static final Fp _2_INV = new Fp(BigInteger.valueOf(2).modInverse(P));
+    // (p + 1) / 2
+    static final Fp _2_INV = new Fp(new BigInteger("10944121435919637611123202872628637544348155578648911831344518947322613104292"));
+
+    // value in Montgomery form, the least significant limb first
+    final long v0, v1, v2, v3;
+    private final boolean valid;
+
+    private Fp(long v0, long v1, long v2, long v3) {
+        this.v0 = v0;
+        this.v1 = v1;
+        this.v2 = v2;
+        this.v3 = v3;
+        this.valid = true;
+    }
 
-    BigInteger v;
+    Fp(BigInteger v) {
+        long[] limbs = limbs(v);
+        this.valid = v.signum() >= 0 && v.bitLength() <= 256 && lessThanP(limbs[0], limbs[1], limbs[2], limbs[3]);
+        if (!valid) limbs = limbs(v.mod(P));
 
-    Fp(BigInteger v) { this.v = v; }
+        Fp mont = mul(limbs[0], limbs[1], limbs[2], limbs[3], R2_0, R2_1, R2_2, R2_3);
+        this.v0 = mont.v0;
+        this.v1 = mont.v1;
+        this.v2 = mont.v2;
+        this.v3 = mont.v3;
+    }
 
-    @Override public Fp add(Fp o) { return new Fp(this.v.add(o.v).mod(P)); }
-    @Override public Fp mul(Fp o) { return new Fp(this.v.multiply(o.v).mod(P)); }
-    @Override public Fp sub(Fp o) { return new Fp(this.v.subtract(o.v).mod(P)); }
-    @Override public Fp squared() { return new Fp(v.multiply(v).mod(P)); }
-    @Override public Fp dbl() { return new Fp(v.add(v).mod(P)); }
-    @Override public Fp inverse() { return new Fp(v.modInverse(P)); }
-    @Override public Fp negate() { return new Fp(v.negate().mod(P)); }
-    @Override public boolean isZero() { return v.compareTo(BigInteger.ZERO) == 0; }
+    @Override public Fp add(Fp o) { return add(v0, v1, v2, v3, o.v0, o.v1, o.v2, o.v3); }
+    @Override public Fp mul(Fp o) { return mul(v0, v1, v2, v3, o.v0, o.v1, o.v2, o.v3); }
+    @Override public Fp sub(Fp o) { return sub(v0, v1, v2, v3, o.v0, o.v1, o.v2, o.v3); }
+    @Override public Fp squared() { return mul(v0, v1, v2, v3, v0, v1, v2, v3); }
+    @Override public Fp dbl() { return add(v0, v1, v2, v3, v0, v1, v2, v3); }
+    @Override public Fp inverse() { return new Fp(toBigInteger().modInverse(P)); }
+    @Override public Fp negate() { return sub(0, 0, 0, 0, v0, v1, v2, v3); }
+    @Override public boolean isZero() { return valid && (v0 | v1 | v2 | v3) == 0; }
 
     /**
      * Checks if provided value is a valid Fp member
      */
     @Override
     public boolean isValid() {
-        return v.compareTo(P) < 0;
+        return valid;
     }
 
     Fp2 mul(Fp2 o) { return new Fp2(o.a.mul(this), o.b.mul(this)); }
@@ -66,8 +111,168 @@ public class Fp implements Field<Fp> {
         return new Fp(v);
     }
 
+    /**
+     * @return the value in canonical (non Montgomery) form
+     */
+    BigInteger toBigInteger() {
+        Fp r = mul(v0, v1, v2, v3, 1, 0, 0, 0);
+        long[] limbs = {r.v3, r.v2, r.v1, r.v0};
+        byte[] bytes = new byte[32];
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < 8; j++) {
+                bytes[i * 8 + j] = (byte) (limbs[i] >>> (56 - 8 * j));
+            }
+        }
+        return new BigInteger(1, bytes);
+    }
+
     public byte[] bytes() {
-        return v.toByteArray();
+        return toBigInteger().toByteArray();
+    }
+
+    private static long[] limbs(BigInteger v) {
+        long[] r = new long[4];
+        for (int i = 0; i < 4; i++) {
+            r[i] = v.shiftRight(64 * i).longValue();
+        }
+        return r;
+    }
+
+    /**
+     * Montgomery multiplication (CIOS), returns {@code a * b / 2^256 mod p}
+     */
+    private static Fp mul(long a0, long a1, long a2, long a3, long b0, long b1, long b2, long b3) {
+        long t0 = 0, t1 = 0, t2 = 0, t3 = 0, t4 = 0;
+
+        for (int i = 0; i < 4; i++) {
+            long ai = i == 0 ? a0 : i == 1 ? a1 : i == 2 ? a2 : a3;
+            long lo, hi, c;
+
+            // t += a[i] * b
+            lo = ai * b0; c = mulHi(ai, b0);
+            t0 += lo; if (ult(t0, lo)) c++;
+
+            lo = ai * b1; hi = mulHi(ai, b1);
+            t1 += lo; if (ult(t1, lo)) hi++;
+            t1 += c; if (ult(t1, c)) hi++;
+            c = hi;
+
+            lo = ai * b2; hi = mulHi(ai, b2);
+            t2 += lo; if (ult(t2, lo)) hi++;
+            t2 += c; if (ult(t2, c)) hi++;
+            c = hi;
+
+            lo = ai * b3; hi = mulHi(ai, b3);
+            t3 += lo; if (ult(t3, lo)) hi++;
+            t3 += c; if (ult(t3, c)) hi++;
+            c = hi;
+
+            t4 += c;
+            long t5 = ult(t4, c) ? 1 : 0;
+
+            // t = (t + m * p) / 2^64, m is chosen to zero the lowest limb
+            long m = t0 * INV;
+            c = mulHi(m, P0);
+            if (t0 != 0) c++; // t0 + m * P0 is 0 mod 2^64, it carries unless t0 is 0
+
+            lo = m * P1; hi = mulHi(m, P1);
+            t0 = t1 + lo; if (ult(t0, lo)) hi++;
+            t0 += c; if (ult(t0, c)) hi++;
+            c = hi;
+
+            lo = m * P2; hi = mulHi(m, P2);
+            t1 = t2 + lo; if (ult(t1, lo)) hi++;
+            t1 += c; if (ult(t1, c)) hi++;
+            c = hi;
+
+            lo = m * P3; hi = mulHi(m, P3);
+            t2 = t3 + lo; if (ult(t2, lo)) hi++;
+            t2 += c; if (ult(t2, c)) hi++;
+            c = hi;
+
+            t3 = t4 + c;
+            t4 = t5 + (ult(t3, c) ? 1 : 0);
+        }
+
+        return reduce(t0, t1, t2, t3, t4);
+    }
+
+    private static Fp add(long a0, long a1, long a2, long a3, long b0, long b1, long b2, long b3) {
+        // both are less than p < 2^254, so the sum fits 256 bits
+        long r0 = a0 + b0;
+        long c = ult(r0, a0) ? 1 : 0;
+        long r1 = a1 + b1 + c;
+        c = ult(r1, a1) || (c == 1 && r1 == a1) ? 1 : 0;
+        long r2 = a2 + b2 + c;
+        c = ult(r2, a2) || (c == 1 && r2 == a2) ? 1 : 0;
+        long r3 = a3 + b3 + c;
+
+        return reduce(r0, r1, r2, r3, 0);
+    }
+
+    private static Fp sub(long a0, long a1, long a2, long a3, long b0, long b1, long b2, long b3) {
+        long r0 = a0 - b0;
+        long borrow = ult(a0, b0) ? 1 : 0;
+        long r1 = a1 - b1 - borrow;
+        borrow = ult(a1, b1) || (borrow == 1 && a1 == b1) ? 1 : 0;
+        long r2 = a2 - b2 - borrow;
+        borrow = ult(a2, b2) || (borrow == 1 && a2 == b2) ? 1 : 0;
+        long r3 = a3 - b3 - borrow;
+        borrow = ult(a3, b3) || (borrow == 1 && a3 == b3) ? 1 : 0;
+
+        if (borrow != 0) {
+            // add p back, the carry out of the top limb compensates the borrow
+            r0 += P0;
+            long c = ult(r0, P0) ? 1 : 0;
+            r1 += P1 + c;
+            c = ult(r1, P1) || (c == 1 && r1 == P1) ? 1 : 0;
+            r2 += P2 + c;
+            c = ult(r2, P2) || (c == 1 && r2 == P2) ? 1 : 0;
+            r3 += P3 + c;
+        }
+        return new Fp(r0, r1, r2, r3);
+    }
+
+    /**
+     * Subtracts p once if the value (less than 2p) is not less than p
+     */
+    private static Fp reduce(long r0, long r1, long r2, long r3, long r4) {
+        if (r4 == 0 && lessThanP(r0, r1, r2, r3)) {
+            return new Fp(r0, r1, r2, r3);
+        }
+
+        long s0 = r0 - P0;
+        long borrow = ult(r0, P0) ? 1 : 0;
+        long s1 = r1 - P1 - borrow;
+        borrow = ult(r1, P1) || (borrow == 1 && r1 == P1) ? 1 : 0;
+        long s2 = r2 - P2 - borrow;
+        borrow = ult(r2, P2) || (borrow == 1 && r2 == P2) ? 1 : 0;
+        long s3 = r3 - P3 - borrow;
+        return new Fp(s0, s1, s2, s3);
+    }
+
+    private static boolean lessThanP(long r0, long r1, long r2, long r3) {
+        return ult(r3, P3) || (r3 == P3 && (ult(r2, P2) || (r2 == P2 &&
+                (ult(r1, P1) || (r1 == P1 && ult(r0, P0))))));
+    }
+
+    private static boolean ult(long a, long b) {
+        return (a ^ Long.MIN_VALUE) < (b ^ Long.MIN_VALUE);
+    }
+
+    /**
+     * High 64 bits of the unsigned 128-bit product
+     */
+    private static long mulHi(long a, long b) {
+        long a0 = a & 0xFFFFFFFFL, a1 = a >>> 32;
+        long b0 = b & 0xFFFFFFFFL, b1 = b >>> 32;
+
+        long lo = a0 * b0;
+        long mid1 = a1 * b0;
+        long mid2 = a0 * b1;
+        long cross = (lo >>> 32) + (mid1 & 0xFFFFFFFFL) + mid2;
+
+        return a1 * b1 + (mid1 >>> 32) + (cross >>> 32);
     }
 
     @Override
@@ -77,11 +282,16 @@ public class Fp implements Field<Fp> {
 
         Fp fp = (Fp) o;
 
-        return !(v != null ? v.compareTo(fp.v) != 0 : fp.v != null);
+        return valid == fp.valid && v0 == fp.v0 && v1 == fp.v1 && v2 == fp.v2 && v3 == fp.v3;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(v0 ^ v1 ^ v2 ^ v3);
     }
 
     @Override
     public String toString() {
-        return v.toString();
+        return toBigInteger().toString();
     }
 }
@@ -27,7 +27,13 @@ import java.math.BigInteger;
  * elements of Fp_12 are represented with 2 elements of {@link Fp6} <br/>
  * <br/>
  *
- * Field arithmetic is ported from <a href="https://github.com/scipr-lab/libff/blob/master/libff/algebra/fields/fp12_2over3over2.tcc">libff</a>
+ * Field arithmetic is ported from <a href="https://github.com/scipr-lab/libff/blob/master/libff/algebra/fields/fp12_2over3over2.tcc">libff</a> <br/>
+ * <br/>
+ *
+ * Methods with "InPlace" suffix overwrite the element with the result and return it,
+ * they may be called on results of other operations and {@link #copy()}, but never on shared elements like constants.
+ * {@link Fp6} components are replaced rather than modified, so they may be shared.
+ * The Miller loop and the final exponentiation accumulate their results with them
  *
  * @author Mikhail Kalinin
  * @since 02.09.2017
@@ -45,15 +51,24 @@ class Fp12 implements Field<Fp12> {
         this.b = b;
     }
 
+    Fp12 copy() {
+        return new Fp12(a, b);
+    }
+
     @Override
     public Fp12 squared() {
+        return copy().squaredInPlace();
+    }
+
+    Fp12 squaredInPlace() {
 
         Fp6 ab = a.mul(b);
 
-        Fp6 ra = a.add(b).mul(a.add(b.mulByNonResidue())).sub(ab).sub(ab.mulByNonResidue());
-        Fp6 rb = ab.add(ab);
+        Fp6 ra = a.add(b).mulInPlace(b.mulByNonResidue().addInPlace(a)).subInPlace(ab).subInPlace(ab.mulByNonResidue());
+        b = ab.addInPlace(ab);
+        a = ra;
 
-        return new Fp12(ra, rb);
+        return this;
     }
 
     @Override
@@ -62,6 +77,10 @@ class Fp12 implements Field<Fp12> {
     }
 
     Fp12 mulBy024(Fp2 ell0, Fp2 ellVW, Fp2 ellVV) {
+        return copy().mulBy024InPlace(ell0, ellVW, ellVV);
+    }
+
+    Fp12 mulBy024InPlace(Fp2 ell0, Fp2 ellVW, Fp2 ellVV) {
 
         Fp2 z0 = a.a;
         Fp2 z1 = a.b;
@@ -76,62 +95,67 @@ class Fp12 implements Field<Fp12> {
 
         Fp2 t0, t1, t2, s0, t3, t4, d0, d2, d4, s1;
 
+        // z0..z5 are never modified, temporaries are modified in place once they aren't needed anymore
+
         d0 = z0.mul(x0);
         d2 = z2.mul(x2);
         d4 = z4.mul(x4);
         t2 = z0.add(z4);
         t1 = z0.add(z2);
-        s0 = z1.add(z3).add(z5);
+        s0 = z1.add(z3).addInPlace(z5);
 
         // For z.a_.a_ = z0.
         s1 = z1.mul(x2);
         t3 = s1.add(d4);
-        t4 = Fp6.NON_RESIDUE.mul(t3).add(d0);
+        t4 = t3.mulByNonResidueInPlace().addInPlace(d0);
         z0 = t4;
 
         // For z.a_.b_ = z1
         t3 = z5.mul(x4);
-        s1 = s1.add(t3);
-        t3 = t3.add(d2);
-        t4 = Fp6.NON_RESIDUE.mul(t3);
+        s1.addInPlace(t3);
+        t3.addInPlace(d2);
+        t4 = t3.mulByNonResidueInPlace();
         t3 = z1.mul(x0);
-        s1 = s1.add(t3);
-        t4 = t4.add(t3);
+        s1.addInPlace(t3);
+        t4.addInPlace(t3);
         z1 = t4;
 
         // For z.a_.c_ = z2
         t0 = x0.add(x2);
-        t3 = t1.mul(t0).sub(d0).sub(d2);
+        t3 = t1.mulInPlace(t0).subInPlace(d0).subInPlace(d2);
         t4 = z3.mul(x4);
-        s1 = s1.add(t4);
-        t3 = t3.add(t4);
+        s1.addInPlace(t4);
+        t3.addInPlace(t4);
 
         // For z.b_.a_ = z3 (z3 needs z2)
         t0 = z2.add(z4);
         z2 = t3;
         t1 = x2.add(x4);
-        t3 = t0.mul(t1).sub(d2).sub(d4);
-        t4 = Fp6.NON_RESIDUE.mul(t3);
+        t3 = t0.mulInPlace(t1).subInPlace(d2).subInPlace(d4);
+        t4 = t3.mulByNonResidueInPlace();
         t3 = z3.mul(x0);
-        s1 = s1.add(t3);
-        t4 = t4.add(t3);
+        s1.addInPlace(t3);
+        t4.addInPlace(t3);
         z3 = t4;
 
         // For z.b_.b_ = z4
         t3 = z5.mul(x2);
-        s1 = s1.add(t3);
-        t4 = Fp6.NON_RESIDUE.mul(t3);
+        s1.addInPlace(t3);
+        t4 = t3.mulByNonResidueInPlace();
         t0 = x0.add(x4);
-        t3 = t2.mul(t0).sub(d0).sub(d4);
-        t4 = t4.add(t3);
+        t3 = t2.mulInPlace(t0).subInPlace(d0).subInPlace(d4);
+        t4.addInPlace(t3);
         z4 = t4;
 
         // For z.b_.c_ = z5.
-        t0 = x0.add(x2).add(x4);
-        t3 = s0.mul(t0).sub(s1);
+        t0 = x0.add(x2).addInPlace(x4);
+        t3 = s0.mulInPlace(t0).subInPlace(s1);
         z5 = t3;
 
-        return new Fp12(new Fp6(z0, z1, z2), new Fp6(z3, z4, z5));
+        a = new Fp6(z0, z1, z2);
+        b = new Fp6(z3, z4, z5);
+
+        return this;
     }
 
     @Override
@@ -141,6 +165,10 @@ class Fp12 implements Field<Fp12> {
 
     @Override
     public Fp12 mul(Fp12 o) {
+        return copy().mulInPlace(o);
+    }
+
+    Fp12 mulInPlace(Fp12 o) {
 
         Fp6 a2 = o.a, b2 = o.b;
         Fp6 a1 = a,   b1 = b;
@@ -148,10 +176,11 @@ class Fp12 implements Field<Fp12> {
         Fp6 a1a2 = a1.mul(a2);
         Fp6 b1b2 = b1.mul(b2);
 
-        Fp6 ra = a1a2.add(b1b2.mulByNonResidue());
-        Fp6 rb = a1.add(b1).mul(a2.add(b2)).sub(a1a2).sub(b1b2);
+        Fp6 rb = a1.add(b1).mulInPlace(a2.add(b2)).subInPlace(a1a2).subInPlace(b1b2);
+        a = b1b2.mulByNonResidueInPlace().addInPlace(a1a2);     // ra = a1a2 + b1b2 * NON_RESIDUE
+        b = rb;
 
-        return new Fp12(ra, rb);
+        return this;
     }
 
     @Override
@@ -197,7 +226,11 @@ class Fp12 implements Field<Fp12> {
     }
 
     Fp12 cyclotomicSquared() {
-        
+        return copy().cyclotomicSquaredInPlace();
+    }
+
+    Fp12 cyclotomicSquaredInPlace() {
+
         Fp2 z0 = a.a;
         Fp2 z4 = a.b;
         Fp2 z3 = a.c;
@@ -209,65 +242,56 @@ class Fp12 implements Field<Fp12> {
 
         // t0 + t1*y = (z0 + z1*y)^2 = a^2
         tmp = z0.mul(z1);
-        t0 = z0.add(z1).mul(z0.add(Fp6.NON_RESIDUE.mul(z1))).sub(tmp).sub(Fp6.NON_RESIDUE.mul(tmp));
-        t1 = tmp.add(tmp);
+        t0 = z0.add(z1).mulInPlace(z1.mulByNonResidue().addInPlace(z0)).subInPlace(tmp).subInPlace(tmp.mulByNonResidue());
+        t1 = tmp.dblInPlace();
         // t2 + t3*y = (z2 + z3*y)^2 = b^2
         tmp = z2.mul(z3);
-        t2 = z2.add(z3).mul(z2.add(Fp6.NON_RESIDUE.mul(z3))).sub(tmp).sub(Fp6.NON_RESIDUE.mul(tmp));
-        t3 = tmp.add(tmp);
+        t2 = z2.add(z3).mulInPlace(z3.mulByNonResidue().addInPlace(z2)).subInPlace(tmp).subInPlace(tmp.mulByNonResidue());
+        t3 = tmp.dblInPlace();
         // t4 + t5*y = (z4 + z5*y)^2 = c^2
         tmp = z4.mul(z5);
-        t4 = z4.add(z5).mul(z4.add(Fp6.NON_RESIDUE.mul(z5))).sub(tmp).sub(Fp6.NON_RESIDUE.mul(tmp));
-        t5 = tmp.add(tmp);
+        t4 = z4.add(z5).mulInPlace(z5.mulByNonResidue().addInPlace(z4)).subInPlace(tmp).subInPlace(tmp.mulByNonResidue());
+        t5 = tmp.dblInPlace();
 
         // for A
 
         // z0 = 3 * t0 - 2 * z0
-        z0 = t0.sub(z0);
-        z0 = z0.add(z0);
-        z0 = z0.add(t0);
+        z0 = t0.sub(z0).dblInPlace().addInPlace(t0);
         // z1 = 3 * t1 + 2 * z1
-        z1 = t1.add(z1);
-        z1 = z1.add(z1);
-        z1 = z1.add(t1);
+        z1 = t1.add(z1).dblInPlace().addInPlace(t1);
 
         // for B
 
         // z2 = 3 * (xi * t5) + 2 * z2
-        tmp = Fp6.NON_RESIDUE.mul(t5);
-        z2 = tmp.add(z2);
-        z2 = z2.add(z2);
-        z2 = z2.add(tmp);
+        tmp = t5.mulByNonResidueInPlace();
+        z2 = tmp.add(z2).dblInPlace().addInPlace(tmp);
 
         // z3 = 3 * t4 - 2 * z3
-        z3 = t4.sub(z3);
-        z3 = z3.add(z3);
-        z3 = z3.add(t4);
+        z3 = t4.sub(z3).dblInPlace().addInPlace(t4);
 
         // for C
 
         // z4 = 3 * t2 - 2 * z4
-        z4 = t2.sub(z4);
-        z4 = z4.add(z4);
-        z4 = z4.add(t2);
+        z4 = t2.sub(z4).dblInPlace().addInPlace(t2);
 
         // z5 = 3 * t3 + 2 * z5
-        z5 = t3.add(z5);
-        z5 = z5.add(z5);
-        z5 = z5.add(t3);
-        
-        return new Fp12(new Fp6(z0, z4, z3), new Fp6(z2, z1, z5));
+        z5 = t3.add(z5).dblInPlace().addInPlace(t3);
+
+        a = new Fp6(z0, z4, z3);
+        b = new Fp6(z2, z1, z5);
+
+        return this;
     }
 
     Fp12 cyclotomicExp(BigInteger pow) {
 
-        Fp12 res = _1;
+        Fp12 res = _1.copy();
 
         for (int i = pow.bitLength() - 1; i >=0; i--) {
-            res = res.cyclotomicSquared();
+            res.cyclotomicSquaredInPlace();
 
             if (pow.testBit(i)) {
-                res = res.mul(this);
+                res.mulInPlace(this);
             }
         }
 
@@ -275,15 +299,16 @@ class Fp12 implements Field<Fp12> {
     }
 
     Fp12 unitaryInverse() {
+        return copy().unitaryInverseInPlace();
+    }
 
-        Fp6 ra = a;
-        Fp6 rb = b.negate();
-
-        return new Fp12(ra, rb);
+    Fp12 unitaryInverseInPlace() {
+        b = b.negate();
+        return this;
     }
 
     Fp12 negExp(BigInteger exp) {
-        return this.cyclotomicExp(exp).unitaryInverse();
+        return this.cyclotomicExp(exp).unitaryInverseInPlace();
     }
 
     @Override
@@ -28,6 +28,10 @@ import java.math.BigInteger;
  * <br/>
  *
  * Field arithmetic is ported from <a href="https://github.com/scipr-lab/libff/blob/master/libff/algebra/fields/fp2.tcc">libff</a> <br/>
+ * <br/>
+ *
+ * Methods with "InPlace" suffix overwrite the element with the result and return it,
+ * they may be called on results of other operations and {@link #copy()}, but never on shared elements like constants
  *
  * @author Mikhail Kalinin
  * @since 01.09.2017
@@ -55,45 +59,75 @@ class Fp2 implements Field<Fp2> {
         this(new Fp(a), new Fp(b));
     }
 
+    Fp2 copy() {
+        return new Fp2(a, b);
+    }
+
     @Override
     public Fp2 squared() {
+        return copy().squaredInPlace();
+    }
 
-        // using Complex squaring
+    Fp2 squaredInPlace() {
+
+        // using Complex squaring, Fp.NON_RESIDUE is -1
 
         Fp ab = a.mul(b);
 
-        Fp ra = a.add(b).mul(b.mul(Fp.NON_RESIDUE).add(a))
-                .sub(ab).sub(ab.mul(Fp.NON_RESIDUE)); // ra = (a + b)(a + NON_RESIDUE * b) - ab - NON_RESIDUE * b
-        Fp rb = ab.dbl();
+        a = a.add(b).mul(a.sub(b)); // ra = (a + b)(a + NON_RESIDUE * b) - ab - NON_RESIDUE * ab
+        b = ab.dbl();
 
-        return new Fp2(ra, rb);
+        return this;
     }
 
     @Override
     public Fp2 mul(Fp2 o) {
+        return copy().mulInPlace(o);
+    }
+
+    Fp2 mulInPlace(Fp2 o) {
 
         Fp aa = a.mul(o.a);
         Fp bb = b.mul(o.b);
 
-        Fp ra = bb.mul(Fp.NON_RESIDUE).add(aa);    // ra = a1 * a2 + NON_RESIDUE * b1 * b2
         Fp rb = a.add(b).mul(o.a.add(o.b)).sub(aa).sub(bb);     // rb = (a1 + b1)(a2 + b2) - a1 * a2 - b1 * b2
+        a = aa.sub(bb);    // ra = a1 * a2 + NON_RESIDUE * b1 * b2, NON_RESIDUE is -1
+        b = rb;
 
-        return new Fp2(ra, rb);
+        return this;
     }
 
     @Override
     public Fp2 add(Fp2 o) {
-        return new Fp2(a.add(o.a), b.add(o.b));
+        return copy().addInPlace(o);
+    }
+
+    Fp2 addInPlace(Fp2 o) {
+        a = a.add(o.a);
+        b = b.add(o.b);
+        return this;
     }
 
     @Override
     public Fp2 sub(Fp2 o) {
-        return new Fp2(a.sub(o.a), b.sub(o.b));
+        return copy().subInPlace(o);
+    }
+
+    Fp2 subInPlace(Fp2 o) {
+        a = a.sub(o.a);
+        b = b.sub(o.b);
+        return this;
     }
 
     @Override
     public Fp2 dbl() {
-        return this.add(this);
+        return copy().dblInPlace();
+    }
+
+    Fp2 dblInPlace() {
+        a = a.dbl();
+        b = b.dbl();
+        return this;
     }
 
     @Override
@@ -101,7 +135,7 @@ class Fp2 implements Field<Fp2> {
 
         Fp t0 = a.squared();
         Fp t1 = b.squared();
-        Fp t2 = t0.sub(Fp.NON_RESIDUE.mul(t1));
+        Fp t2 = t0.add(t1); // t0 - NON_RESIDUE * t1
         Fp t3 = t2.inverse();
 
         Fp ra = a.mul(t3);          // ra = a * t3
@@ -112,7 +146,13 @@ class Fp2 implements Field<Fp2> {
 
     @Override
     public Fp2 negate() {
-        return new Fp2(a.negate(), b.negate());
+        return copy().negateInPlace();
+    }
+
+    Fp2 negateInPlace() {
+        a = a.negate();
+        b = b.negate();
+        return this;
     }
 
     @Override
@@ -162,7 +202,17 @@ class Fp2 implements Field<Fp2> {
     }
 
     Fp2 mulByNonResidue() {
-        return NON_RESIDUE.mul(this);
+        return copy().mulByNonResidueInPlace();
+    }
+
+    Fp2 mulByNonResidueInPlace() {
+
+        // (9 + i)(a + bi) = (9a - b) + (a + 9b)i, multiplications by 9 are done with additions
+        Fp ra = a.dbl().dbl().dbl().add(a).sub(b);
+        b = b.dbl().dbl().dbl().add(b).add(a);
+        a = ra;
+
+        return this;
     }
 
     @Override
@@ -27,7 +27,12 @@ import java.math.BigInteger;
  * elements of Fp_6 are represented with 3 elements of {@link Fp2} <br/>
  * <br/>
  *
- * Field arithmetic is ported from <a href="https://github.com/scipr-lab/libff/blob/master/libff/algebra/fields/fp6_3over2.tcc">libff</a>
+ * Field arithmetic is ported from <a href="https://github.com/scipr-lab/libff/blob/master/libff/algebra/fields/fp6_3over2.tcc">libff</a> <br/>
+ * <br/>
+ *
+ * Methods with "InPlace" suffix overwrite the element with the result and return it,
+ * they may be called on results of other operations and {@link #copy()}, but never on shared elements like constants.
+ * {@link Fp2} components are replaced rather than modified, so they may be shared
  *
  * @author Mikhail Kalinin
  * @since 05.09.2017
@@ -48,22 +53,29 @@ class Fp6 implements Field<Fp6> {
         this.c = c;
     }
 
+    Fp6 copy() {
+        return new Fp6(a, b, c);
+    }
+
     @Override
     public Fp6 squared() {
+        return copy().squaredInPlace();
+    }
+
+    Fp6 squaredInPlace() {
 
         Fp2 s0 = a.squared();
-        Fp2 ab = a.mul(b);
-        Fp2 s1 = ab.dbl();
-        Fp2 s2 = a.sub(b).add(c).squared();
-        Fp2 bc = b.mul(c);
-        Fp2 s3 = bc.dbl();
+        Fp2 s1 = a.mul(b).dblInPlace();
+        Fp2 s2 = a.sub(b).addInPlace(c).squaredInPlace();
+        Fp2 s3 = b.mul(c).dblInPlace();
         Fp2 s4 = c.squared();
 
-        Fp2 ra = s0.add(s3.mulByNonResidue());
-        Fp2 rb = s1.add(s4.mulByNonResidue());
-        Fp2 rc = s1.add(s2).add(s3).sub(s0).sub(s4);
+        // rc = s1 + s2 + s3 - s0 - s4 goes first as ra and rb consume s3 and s4
+        c = s2.addInPlace(s1).addInPlace(s3).subInPlace(s0).subInPlace(s4);
+        a = s3.mulByNonResidueInPlace().addInPlace(s0);   // ra = s0 + s3 * NON_RESIDUE
+        b = s4.mulByNonResidueInPlace().addInPlace(s1);   // rb = s1 + s4 * NON_RESIDUE
 
-        return new Fp6(ra, rb, rc);
+        return this;
     }
 
     @Override
@@ -73,6 +85,10 @@ class Fp6 implements Field<Fp6> {
 
     @Override
     public Fp6 mul(Fp6 o) {
+        return copy().mulInPlace(o);
+    }
+
+    Fp6 mulInPlace(Fp6 o) {
 
         Fp2 a1 = a,   b1 = b,   c1 = c;
         Fp2 a2 = o.a, b2 = o.b, c2 = o.c;
@@ -81,11 +97,15 @@ class Fp6 implements Field<Fp6> {
         Fp2 b1b2 = b1.mul(b2);
         Fp2 c1c2 = c1.mul(c2);
 
-        Fp2 ra = a1a2.add(b1.add(c1).mul(b2.add(c2)).sub(b1b2).sub(c1c2).mulByNonResidue());
-        Fp2 rb = a1.add(b1).mul(a2.add(b2)).sub(a1a2).sub(b1b2).add(c1c2.mulByNonResidue());
-        Fp2 rc = a1.add(c1).mul(a2.add(c2)).sub(a1a2).add(b1b2).sub(c1c2);
+        Fp2 ra = b1.add(c1).mulInPlace(b2.add(c2)).subInPlace(b1b2).subInPlace(c1c2).mulByNonResidueInPlace().addInPlace(a1a2);
+        Fp2 rb = a1.add(b1).mulInPlace(a2.add(b2)).subInPlace(a1a2).subInPlace(b1b2).addInPlace(c1c2.mulByNonResidue());
+        Fp2 rc = a1.add(c1).mulInPlace(a2.add(c2)).subInPlace(a1a2).addInPlace(b1b2).subInPlace(c1c2);
 
-        return new Fp6(ra, rb, rc);
+        a = ra;
+        b = rb;
+        c = rc;
+
+        return this;
     }
 
     Fp6 mul(Fp2 o) {
@@ -98,32 +118,45 @@ class Fp6 implements Field<Fp6> {
     }
 
     Fp6 mulByNonResidue() {
+        return copy().mulByNonResidueInPlace();
+    }
 
-        Fp2 ra = NON_RESIDUE.mul(c);
-        Fp2 rb = a;
-        Fp2 rc = b;
+    Fp6 mulByNonResidueInPlace() {
 
-        return new Fp6(ra, rb, rc);
+        Fp2 ra = c.mulByNonResidue();
+        c = b;
+        b = a;
+        a = ra;
+
+        return this;
     }
 
     @Override
     public Fp6 add(Fp6 o) {
+        return copy().addInPlace(o);
+    }
 
-        Fp2 ra = a.add(o.a);
-        Fp2 rb = b.add(o.b);
-        Fp2 rc = c.add(o.c);
+    Fp6 addInPlace(Fp6 o) {
 
-        return new Fp6(ra, rb, rc);
+        a = a.add(o.a);
+        b = b.add(o.b);
+        c = c.add(o.c);
+
+        return this;
     }
 
     @Override
     public Fp6 sub(Fp6 o) {
+        return copy().subInPlace(o);
+    }
 
-        Fp2 ra = a.sub(o.a);
-        Fp2 rb = b.sub(o.b);
-        Fp2 rc = c.sub(o.c);
+    Fp6 subInPlace(Fp6 o) {
 
-        return new Fp6(ra, rb, rc);
+        a = a.sub(o.a);
+        b = b.sub(o.b);
+        c = c.sub(o.c);
+
+        return this;
     }
 
     @Override
@@ -151,7 +184,16 @@ class Fp6 implements Field<Fp6> {
 
     @Override
     public Fp6 negate() {
-        return new Fp6(a.negate(), b.negate(), c.negate());
+        return copy().negateInPlace();
+    }
+
+    Fp6 negateInPlace() {
+
+        a = a.negate();
+        b = b.negate();
+        c = c.negate();
+
+        return this;
     }
 
     @Override
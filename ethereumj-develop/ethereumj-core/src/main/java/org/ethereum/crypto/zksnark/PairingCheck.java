@@ -94,28 +94,29 @@ public class PairingCheck {
         // calculate Ell coefficients
         List<EllCoeffs> coeffs = calcEllCoeffs(g2);
 
-        Fp12 f = Fp12._1;
+        // accumulated in place
+        Fp12 f = Fp12._1.copy();
         int idx = 0;
 
         // for each bit except most significant one
         for (int i = LOOP_COUNT.bitLength() - 2; i >=0; i--) {
 
             EllCoeffs c = coeffs.get(idx++);
-            f = f.squared();
-            f = f.mulBy024(c.ell0, g1.y.mul(c.ellVW), g1.x.mul(c.ellVV));
+            f.squaredInPlace();
+            f.mulBy024InPlace(c.ell0, g1.y.mul(c.ellVW), g1.x.mul(c.ellVV));
 
             if (LOOP_COUNT.testBit(i)) {
                 c = coeffs.get(idx++);
-                f = f.mulBy024(c.ell0, g1.y.mul(c.ellVW), g1.x.mul(c.ellVV));
+                f.mulBy024InPlace(c.ell0, g1.y.mul(c.ellVW), g1.x.mul(c.ellVV));
             }
 
         }
 
         EllCoeffs c = coeffs.get(idx++);
-        f = f.mulBy024(c.ell0, g1.y.mul(c.ellVW), g1.x.mul(c.ellVV));
+        f.mulBy024InPlace(c.ell0, g1.y.mul(c.ellVW), g1.x.mul(c.ellVV));
 
         c = coeffs.get(idx);
-        f = f.mulBy024(c.ell0, g1.y.mul(c.ellVW), g1.x.mul(c.ellVV));
+        f.mulBy024InPlace(c.ell0, g1.y.mul(c.ellVW), g1.x.mul(c.ellVV));
 
         return f;
     }
@@ -17,6 +17,11 @@
  */
 package org.ethereum.datasource;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
 /**
  *
  * 内存缓存数据源，
@@ -65,6 +70,52 @@ public abstract class AbstractCachedSource <Key, Value>
      */
     abstract Entry<Value> getCached(Key key);
 
+    /**
+     * Serves the cached keys from the cache and requests the rest
+     * from the backing Source as a single batch so only misses reach it
+     */
+    @Override
+    public List<Value> getBatch(Collection<Key> keys) {
+        Value[] ret = (Value[]) new Object[keys.size()];
+        List<Key> missed = new ArrayList<>();
+        int[] missedIdx = new int[ret.length];
+        int i = 0;
+        for (Key key : keys) {
+            Entry<Value> entry = lookupCached(key);
+            if (entry != null) {
+                ret[i] = entry.value();
+            } else {
+                missedIdx[missed.size()] = i;
+                missed.add(key);
+            }
+            i++;
+        }
+
+        if (!missed.isEmpty() && getSource() != null) {
+            List<Value> loaded = getSource().getBatch(missed);
+            for (int j = 0; j < missed.size(); j++) {
+                ret[missedIdx[j]] = loaded.get(j);
+                cacheLoaded(missed.get(j), loaded.get(j));
+            }
+        }
+        return Arrays.asList(ret);
+    }
+
+    /**
+     * Looks up the key in the cache on behalf of {@link #getBatch(Collection)}
+     * Caches tracking accesses should override it to account the lookup
+     */
+    protected Entry<Value> lookupCached(Key key) {
+        return getCached(key);
+    }
+
+    /**
+     * Invoked by {@link #getBatch(Collection)} for each value fetched from
+     * the backing Source. Read caches should override it to retain the value
+     */
+    protected void cacheLoaded(Key key, Value value) {
+    }
+
     /**
      * Needs to be called by the implementation when cache entry is added
      * Only new entries should be accounted for accurate size tracking
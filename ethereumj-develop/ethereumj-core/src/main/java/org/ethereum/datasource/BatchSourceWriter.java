@@ -17,7 +17,9 @@
  */
 package org.ethereum.datasource;
 
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -54,6 +56,11 @@ public class BatchSourceWriter<Key, Value> extends AbstractChainedSource<Key, Va
         return getSource().get(key);
     }
 
+    @Override
+    public List<Value> getBatch(Collection<Key> keys) {
+        return getSource().getBatch(keys);
+    }
+
     @Override
     public synchronized boolean flushImpl() {
         if (!buf.isEmpty()) {
@@ -0,0 +1,565 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ethereum.datasource;
+
+import org.ethereum.util.ByteArrayHashMap;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link ReadCache} which can be accessed concurrently and which keeps
+ * frequently used entries when a lot of entries are read just once
+ * (e.g. full state traversal)
+ *
+ * Entries are split between a number of independently locked shards.
+ * Each shard follows the W-TinyLFU policy: new entries get to a small LRU window,
+ * entries evicted from the window compete with the eldest entries of the main space
+ * and are admitted only if they were requested more often. Request frequencies are
+ * tracked approximately by the per shard {@link FrequencySketch} which is periodically aged.
+ * The main space is a segmented LRU: entries requested again while on probation are protected
+ * from eviction until pushed out by more recently used ones
+ *
+ * The cache is limited either by the number of entries ({@link #withMaxCapacity(int)})
+ * or by the entries size reported by the {@link MemSizeEstimator}s ({@link #withMaxSize(long)})
+ *
+ * The underlying Source is accessed without any shard lock held
+ */
+public class ConcurrentReadCache<Key, Value> extends ReadCache<Key, Value> {
+
+    public static final int DEFAULT_SHARDS = 16;
+
+    // marks the key which is known to have no value in the underlying Source
+    private static final Object NULL = new Object();
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    static final class Node<K> {
+        final K key;
+        final int hash;
+        Object value;
+        long weight;
+        long size;
+        int queue;
+        Node<K> prev, next;
+
+        Node(K key, int hash) {
+            this.key = key;
+            this.hash = hash;
+        }
+    }
+
+    /**
+     * Doubly linked list of nodes ordered from the least to the most recently used
+     */
+    private static final class AccessQueue<K> {
+        final Node<K> head = new Node<>(null, 0);
+        long weight;
+
+        AccessQueue() {
+            head.prev = head.next = head;
+        }
+
+        Node<K> first() {
+            return head.next == head ? null : head.next;
+        }
+
+        void addLast(Node<K> node) {
+            node.prev = head.prev;
+            node.next = head;
+            head.prev.next = node;
+            head.prev = node;
+            weight += node.weight;
+        }
+
+        void remove(Node<K> node) {
+            node.prev.next = node.next;
+            node.next.prev = node.prev;
+            node.prev = node.next = null;
+            weight -= node.weight;
+        }
+
+        void moveToLast(Node<K> node) {
+            remove(node);
+            addLast(node);
+        }
+    }
+
+    private static final class Shard<K> {
+        final Map<K, Node<K>> map;
+        final FrequencySketch sketch = new FrequencySketch(16);
+        final AccessQueue<K> window = new AccessQueue<>();
+        final AccessQueue<K> probation = new AccessQueue<>();
+        final AccessQueue<K> protect = new AccessQueue<>();
+
+        long windowMax = Long.MAX_VALUE;
+        long mainMax = Long.MAX_VALUE;
+        long protectedMax = Long.MAX_VALUE;
+
+        long size;
+        long evictions;
+
+        Shard(Map<K, Node<K>> map) {
+            this.map = map;
+        }
+
+        void setMaxWeight(long maxWeight) {
+            windowMax = Math.max(1, maxWeight / 100);
+            mainMax = maxWeight - windowMax;
+            protectedMax = mainMax / 5 * 4;
+        }
+
+        AccessQueue<K> queue(Node<K> node) {
+            return node.queue == WINDOW ? window : node.queue == PROBATION ? probation : protect;
+        }
+
+        void onHit(Node<K> node) {
+            if (node.queue == PROBATION) {
+                probation.remove(node);
+                node.queue = PROTECTED;
+                protect.addLast(node);
+                while (protect.weight > protectedMax) {
+                    Node<K> demoted = protect.first();
+                    protect.remove(demoted);
+                    demoted.queue = PROBATION;
+                    probation.addLast(demoted);
+                }
+            } else {
+                queue(node).moveToLast(node);
+            }
+        }
+
+        void add(Node<K> node) {
+            map.put(node.key, node);
+            node.queue = WINDOW;
+            window.addLast(node);
+            size += node.size;
+            if (map.size() > sketch.capacity()) {
+                sketch.ensureCapacity(map.size() * 2);
+            }
+        }
+
+        void remove(Node<K> node) {
+            map.remove(node.key);
+            queue(node).remove(node);
+            size -= node.size;
+        }
+
+        void evict(Node<K> node) {
+            remove(node);
+            evictions++;
+        }
+
+        /**
+         * Moves the entries overflowing the window to the main space
+         * if they win over the main space eviction candidates
+         */
+        void evict() {
+            while (window.weight > windowMax) {
+                Node<K> candidate = window.first();
+                window.remove(candidate);
+                admit(candidate);
+            }
+            while (probation.weight + protect.weight > mainMax) {
+                evict(probation.first() != null ? probation.first() : protect.first());
+            }
+        }
+
+        private void admit(Node<K> candidate) {
+            while (probation.weight + protect.weight + candidate.weight > mainMax) {
+                Node<K> victim = probation.first() != null ? probation.first() : protect.first();
+                if (victim == null || sketch.frequency(candidate.hash) <= sketch.frequency(victim.hash)) {
+                    // the candidate is not yet in any queue
+                    map.remove(candidate.key);
+                    size -= candidate.size;
+                    evictions++;
+                    return;
+                }
+                evict(victim);
+            }
+            candidate.queue = PROBATION;
+            probation.addLast(candidate);
+        }
+    }
+
+    private final Shard<Key>[] shards;
+    private final int shift;
+
+    private volatile boolean limitBySize = false;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public ConcurrentReadCache(Source<Key, Value> src) {
+        this(src, DEFAULT_SHARDS);
+    }
+
+    /**
+     * @param shardsCount number of independently locked shards, rounded up to the power of 2
+     */
+    public ConcurrentReadCache(Source<Key, Value> src, int shardsCount) {
+        super(src);
+        if (shardsCount < 1) throw new IllegalArgumentException("Invalid shards count: " + shardsCount);
+        int n = Integer.highestOneBit(shardsCount);
+        if (n < shardsCount) n <<= 1;
+        this.shards = new Shard[n];
+        for (int i = 0; i < n; i++) {
+            shards[i] = new Shard<>(createMap());
+        }
+        this.shift = 32 - Integer.numberOfTrailingZeros(n);
+    }
+
+    /**
+     * Creates the map backing a shard.
+     * Must be overridden to return a {@link ByteArrayHashMap} when keys are byte[]
+     */
+    protected Map<Key, Node<Key>> createMap() {
+        return new HashMap<>();
+    }
+
+    protected int hash(Key key) {
+        return key.hashCode();
+    }
+
+    private int spread(Key key) {
+        return hash(key) * 0x9E3779B9;
+    }
+
+    private Shard<Key> shard(int hash) {
+        // the high bits of the mixed hash: shard maps index their buckets by the low bits of the key hash
+        return shift == 32 ? shards[0] : shards[hash >>> shift];
+    }
+
+    /**
+     * Not supported, the entries are kept in the internal structures
+     */
+    @Override
+    public ReadCache<Key, Value> withCache(Map<Key, Value> cache) {
+        throw new UnsupportedOperationException("ConcurrentReadCache manages the cached entries itself");
+    }
+
+    /**
+     * Sets the max number of entries to cache
+     */
+    @Override
+    public ConcurrentReadCache<Key, Value> withMaxCapacity(int maxCapacity) {
+        setMaximum(maxCapacity, false);
+        return this;
+    }
+
+    /**
+     * Sets the max total size of cached entries as estimated by the key and value
+     * {@link MemSizeEstimator}s which should be set beforehand
+     */
+    public ConcurrentReadCache<Key, Value> withMaxSize(long maxSize) {
+        if (keySizeEstimator == null || valueSizeEstimator == null) {
+            throw new IllegalStateException("Size estimators should be set to limit the cache by size");
+        }
+        setMaximum(maxSize, true);
+        return this;
+    }
+
+    private void setMaximum(long maximum, boolean bySize) {
+        limitBySize = bySize;
+        long perShard = Math.max(1, (maximum + shards.length - 1) / shards.length);
+        for (Shard<Key> shard : shards) {
+            synchronized (shard) {
+                for (Node<Key> node : shard.map.values()) {
+                    AccessQueue<Key> queue = shard.queue(node);
+                    queue.weight -= node.weight;
+                    node.weight = bySize ? node.size : 1;
+                    queue.weight += node.weight;
+                }
+                shard.setMaxWeight(perShard);
+                shard.evict();
+            }
+        }
+    }
+
+    private long estimateSize(Key key, Object value) {
+        long ret = 0;
+        if (keySizeEstimator != null) {
+            ret += keySizeEstimator.estimateSize(key);
+        }
+        if (valueSizeEstimator != null && value != NULL) {
+            ret += valueSizeEstimator.estimateSize((Value) value);
+        }
+        return ret;
+    }
+
+    private Node<Key> createNode(Key key, int hash, Object value) {
+        Node<Key> node = new Node<>(key, hash);
+        node.value = value;
+        node.size = estimateSize(key, value);
+        node.weight = limitBySize ? node.size : 1;
+        return node;
+    }
+
+    @Override
+    public void put(Key key, Value val) {
+        if (val == null) {
+            delete(key);
+            return;
+        }
+
+        int hash = spread(key);
+        Shard<Key> shard = shard(hash);
+        synchronized (shard) {
+            shard.sketch.increment(hash);
+            Node<Key> node = shard.map.get(key);
+            if (node != null) {
+                shard.remove(node);
+            }
+            shard.add(createNode(key, hash, val));
+            shard.evict();
+        }
+        getSource().put(key, val);
+    }
+
+    @Override
+    public Value get(Key key) {
+        int hash = spread(key);
+        Shard<Key> shard = shard(hash);
+        synchronized (shard) {
+            shard.sketch.increment(hash);
+            Node<Key> node = shard.map.get(key);
+            if (node != null) {
+                shard.onHit(node);
+                hits.increment();
+                return node.value == NULL ? null : (Value) node.value;
+            }
+        }
+
+        misses.increment();
+        Value ret = getSource().get(key);
+        cacheLoaded(key, hash, ret);
+        return ret;
+    }
+
+    @Override
+    protected Entry<Value> lookupCached(Key key) {
+        int hash = spread(key);
+        Shard<Key> shard = shard(hash);
+        synchronized (shard) {
+            shard.sketch.increment(hash);
+            Node<Key> node = shard.map.get(key);
+            if (node != null) {
+                shard.onHit(node);
+                hits.increment();
+                return new SimpleEntry<>(node.value == NULL ? null : (Value) node.value);
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    @Override
+    protected void cacheLoaded(Key key, Value value) {
+        cacheLoaded(key, spread(key), value);
+    }
+
+    private void cacheLoaded(Key key, int hash, Value value) {
+        Shard<Key> shard = shard(hash);
+        synchronized (shard) {
+            // the entry could have been put while reading the Source
+            if (!shard.map.containsKey(key)) {
+                shard.add(createNode(key, hash, value == null ? NULL : value));
+                shard.evict();
+            }
+        }
+    }
+
+    @Override
+    public void delete(Key key) {
+        Shard<Key> shard = shard(spread(key));
+        synchronized (shard) {
+            Node<Key> node = shard.map.get(key);
+            if (node != null) {
+                shard.remove(node);
+            }
+        }
+        getSource().delete(key);
+    }
+
+    @Override
+    public Entry<Value> getCached(Key key) {
+        Shard<Key> shard = shard(spread(key));
+        synchronized (shard) {
+            Node<Key> node = shard.map.get(key);
+            return node == null ? null : new SimpleEntry<>(node.value == NULL ? null : (Value) node.value);
+        }
+    }
+
+    @Override
+    public long estimateCacheSize() {
+        long ret = 0;
+        for (Shard<Key> shard : shards) {
+            synchronized (shard) {
+                ret += shard.size;
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * @return number of cached entries
+     */
+    public long getEntriesCount() {
+        long ret = 0;
+        for (Shard<Key> shard : shards) {
+            synchronized (shard) {
+                ret += shard.map.size();
+            }
+        }
+        return ret;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        long ret = 0;
+        for (Shard<Key> shard : shards) {
+            synchronized (shard) {
+                ret += shard.evictions;
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * @return ratio of get() requests served from the cache, 1.0 when there were no requests
+     */
+    public double getHitRate() {
+        long hit = hits.sum();
+        long total = hit + misses.sum();
+        return total == 0 ? 1.0 : (double) hit / total;
+    }
+
+    public void resetStats() {
+        hits.reset();
+        misses.reset();
+    }
+
+    /**
+     * Count-Min sketch of 4-bit counters estimating how often the key was requested.
+     * Once the number of increments reaches 10 times the number of counter rows
+     * all the counters are halved, so the sketch reflects recent frequencies
+     */
+    static final class FrequencySketch {
+        private static final long[] SEEDS = {
+                0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+        private static final long RESET_MASK = 0x7777777777777777L;
+
+        private long[] table;
+        private int counterMask;
+        private int sampleSize;
+        private int additions;
+
+        FrequencySketch(int capacity) {
+            ensureCapacity(capacity);
+        }
+
+        int capacity() {
+            return table.length;
+        }
+
+        /**
+         * Grows the sketch to fit the expected number of distinct keys dropping the collected frequencies
+         */
+        void ensureCapacity(int capacity) {
+            int n = Integer.highestOneBit(Math.max(capacity, 8) - 1) << 1;
+            if (table != null && table.length >= n) return;
+            table = new long[n];
+            counterMask = (n << 4) - 1;
+            sampleSize = 10 * n;
+            additions = 0;
+        }
+
+        private int indexOf(int hash, int row) {
+            long h = (hash + SEEDS[row]) * SEEDS[row];
+            h += h >>> 32;
+            return (int) h & counterMask;
+        }
+
+        int frequency(int hash) {
+            int ret = 15;
+            for (int row = 0; row < 4; row++) {
+                int idx = indexOf(hash, row);
+                int count = (int) (table[idx >>> 4] >>> ((idx & 15) << 2)) & 0xF;
+                ret = Math.min(ret, count);
+            }
+            return ret;
+        }
+
+        void increment(int hash) {
+            boolean added = false;
+            for (int row = 0; row < 4; row++) {
+                int idx = indexOf(hash, row);
+                int offset = (idx & 15) << 2;
+                long mask = 0xFL << offset;
+                if ((table[idx >>> 4] & mask) != mask) {
+                    table[idx >>> 4] += 1L << offset;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                reset();
+            }
+        }
+
+        private void reset() {
+            for (int i = 0; i < table.length; i++) {
+                table[i] = (table[i] >>> 1) & RESET_MASK;
+            }
+            additions >>>= 1;
+        }
+    }
+
+    /**
+     * Shortcut for ConcurrentReadCache with byte[] keys
+     */
+    public static class BytesKey<V> extends ConcurrentReadCache<byte[], V> implements CachedSource.BytesKey<V> {
+
+        public BytesKey(Source<byte[], V> src) {
+            super(src);
+        }
+
+        public BytesKey(Source<byte[], V> src, int shardsCount) {
+            super(src, shardsCount);
+        }
+
+        @Override
+        protected Map<byte[], Node<byte[]>> createMap() {
+            return new ByteArrayHashMap<>();
+        }
+
+        @Override
+        protected int hash(byte[] key) {
+            return ByteArrayHashMap.hash(key);
+        }
+    }
+}
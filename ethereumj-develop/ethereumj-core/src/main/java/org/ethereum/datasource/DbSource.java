@@ -17,6 +17,9 @@
  */
 package org.ethereum.datasource;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -79,4 +82,20 @@ public interface DbSource<V> extends BatchSource<byte[], V> {
      * @throws RuntimeException if operation is not supported
      */
     V prefixLookup(byte[] key, int prefixBytes);
+
+    /**
+     * Batch version of {@link #prefixLookup(byte[], int)}
+     *
+     * @param keys keys for the lookup
+     * @param prefixBytes prefix length in bytes
+     * @return values in the iteration order of keys, null if there is no match
+     * @throws RuntimeException if operation is not supported
+     */
+    default List<V> prefixLookupBatch(Collection<byte[]> keys, int prefixBytes) {
+        List<V> ret = new ArrayList<>(keys.size());
+        for (byte[] key : keys) {
+            ret.add(prefixLookup(key, prefixBytes));
+        }
+        return ret;
+    }
 }
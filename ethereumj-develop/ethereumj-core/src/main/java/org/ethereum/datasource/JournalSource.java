@@ -24,6 +24,7 @@ import org.ethereum.util.RLPElement;
 import org.ethereum.util.RLPList;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -141,6 +142,11 @@ public class JournalSource<V> extends AbstractChainedSource<byte[], V, byte[], V
         return getSource().get(key);
     }
 
+    @Override
+    public synchronized List<V> getBatch(Collection<byte[]> keys) {
+        return getSource().getBatch(keys);
+    }
+
     /**
      * Records all the changes made prior to this call to a single chunk
      * with supplied hash.
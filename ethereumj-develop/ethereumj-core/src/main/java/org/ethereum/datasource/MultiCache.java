@@ -17,6 +17,10 @@
  */
 package org.ethereum.datasource;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 /**
  * Cache of Caches (child caches)
  * When a child cache is not found in the local cache it is looked up in the backing Source
@@ -53,6 +57,18 @@ public abstract class MultiCache<V extends CachedSource> extends ReadWriteCache.
         return ownCache;
     }
 
+    /**
+     * Child caches are created one by one the same way {@link #get(byte[])} does
+     */
+    @Override
+    public synchronized List<V> getBatch(Collection<byte[]> keys) {
+        List<V> ret = new ArrayList<>(keys.size());
+        for (byte[] key : keys) {
+            ret.add(get(key));
+        }
+        return ret;
+    }
+
     /**
      * each child is just flushed if it has backing Source or the whole
      * child cache is put to the MultiCache backing source
@@ -17,6 +17,9 @@
  */
 package org.ethereum.datasource;
 
+import java.util.Collection;
+import java.util.List;
+
 /**
  * Just ignores deletes from the backing Source
  * Normally used for testing for Trie backing Sources to
@@ -45,6 +48,11 @@ public class NoDeleteSource<Key, Value> extends AbstractChainedSource<Key, Value
         return getSource().get(key);
     }
 
+    @Override
+    public List<Value> getBatch(Collection<Key> keys) {
+        return getSource().getBatch(keys);
+    }
+
     @Override
     protected boolean flushImpl() {
         return false;
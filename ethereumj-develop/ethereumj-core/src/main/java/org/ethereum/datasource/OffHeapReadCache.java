@@ -0,0 +1,471 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ethereum.datasource;
+
+import org.ethereum.util.ALock;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Read cache for 32 bytes hash keys (trie nodes, contract code) which keeps
+ * cached entries outside of the Java heap, so that a large cache doesn't add
+ * to the GC work. Keys of any other length are passed to the underlying Source
+ *
+ * Entries are split between a number of shards by the key hash. Each shard writes its entries
+ * one after another to a ring of direct {@link ByteBuffer} segments: [key][value length][value].
+ * When the ring is full the oldest segment is reused and all the entries it holds are evicted,
+ * thus the eviction is FIFO on the segment granularity. The entries are looked up via
+ * open addressing index of the entry hash and its location, the index is kept in the flat
+ * primitive arrays
+ *
+ * Like {@link ReadCache} it caches the absence of the value as well
+ */
+public class OffHeapReadCache extends AbstractCachedSource<byte[], byte[]>
+        implements CachedSource.BytesKey<byte[]> {
+
+    public static final int KEY_LENGTH = 32;
+    public static final int DEFAULT_SHARDS = 16;
+
+    private static final int SEGMENTS_PER_SHARD = 8;
+    private static final int HEADER_SIZE = KEY_LENGTH + 4;
+    // value length of the entry which caches the value absence
+    private static final int NULL_LENGTH = -1;
+    private static final int INITIAL_INDEX_CAPACITY = 1024;
+
+    private static final class Shard {
+        final ReadWriteLock rwLock = new ReentrantReadWriteLock();
+        final ALock readLock = new ALock(rwLock.readLock());
+        final ALock writeLock = new ALock(rwLock.writeLock());
+
+        final int segmentSize;
+        final ByteBuffer[] segments = new ByteBuffer[SEGMENTS_PER_SHARD];
+        final int[] segmentEnds = new int[SEGMENTS_PER_SHARD];
+        int current = 0;
+
+        // (segment + 1) << 32 | offset, 0 for the empty slot
+        long[] addresses = new long[INITIAL_INDEX_CAPACITY];
+        int[] hashes = new int[INITIAL_INDEX_CAPACITY];
+        int mask = INITIAL_INDEX_CAPACITY - 1;
+        int count;
+
+        long size;
+        long evictions;
+
+        Shard(int segmentSize) {
+            this.segmentSize = segmentSize;
+        }
+
+        int find(long k0, long k1, long k2, long k3, int hash) {
+            for (int i = hash & mask; ; i = (i + 1) & mask) {
+                long addr = addresses[i];
+                if (addr == 0) return -1;
+                if (hashes[i] == hash && keyEquals(addr, k0, k1, k2, k3)) return i;
+            }
+        }
+
+        private boolean keyEquals(long addr, long k0, long k1, long k2, long k3) {
+            ByteBuffer buf = segments[segment(addr)];
+            int off = (int) addr;
+            return buf.getLong(off) == k0 && buf.getLong(off + 8) == k1 &&
+                    buf.getLong(off + 16) == k2 && buf.getLong(off + 24) == k3;
+        }
+
+        byte[] read(int slot) {
+            long addr = addresses[slot];
+            ByteBuffer buf = segments[segment(addr)].duplicate();
+            int off = (int) addr;
+            int len = buf.getInt(off + KEY_LENGTH);
+            if (len == NULL_LENGTH) return null;
+            byte[] ret = new byte[len];
+            buf.position(off + HEADER_SIZE);
+            buf.get(ret);
+            return ret;
+        }
+
+        void insert(long k0, long k1, long k2, long k3, int hash, byte[] value) {
+            int entrySize = entrySize(value);
+            if (entrySize > segmentSize) return;
+
+            if (segmentEnds[current] + entrySize > segmentSize) {
+                current = (current + 1) % segments.length;
+                evictSegment(current);
+            }
+            if (segments[current] == null) {
+                segments[current] = ByteBuffer.allocateDirect(segmentSize);
+            }
+
+            ByteBuffer buf = segments[current];
+            int off = segmentEnds[current];
+            buf.putLong(off, k0);
+            buf.putLong(off + 8, k1);
+            buf.putLong(off + 16, k2);
+            buf.putLong(off + 24, k3);
+            if (value == null) {
+                buf.putInt(off + KEY_LENGTH, NULL_LENGTH);
+            } else {
+                buf.putInt(off + KEY_LENGTH, value.length);
+                ByteBuffer dup = buf.duplicate();
+                dup.position(off + HEADER_SIZE);
+                dup.put(value);
+            }
+            segmentEnds[current] = off + entrySize;
+
+            if (count + 1 > (addresses.length >> 2) * 3) {
+                resizeIndex();
+            }
+            putSlot(((long) (current + 1) << 32) | off, hash);
+            count++;
+            size += entrySize;
+        }
+
+        private void putSlot(long addr, int hash) {
+            int i = hash & mask;
+            while (addresses[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            addresses[i] = addr;
+            hashes[i] = hash;
+        }
+
+        private void resizeIndex() {
+            long[] oldAddresses = addresses;
+            int[] oldHashes = hashes;
+            addresses = new long[oldAddresses.length << 1];
+            hashes = new int[oldAddresses.length << 1];
+            mask = addresses.length - 1;
+            for (int i = 0; i < oldAddresses.length; i++) {
+                if (oldAddresses[i] != 0) {
+                    putSlot(oldAddresses[i], oldHashes[i]);
+                }
+            }
+        }
+
+        void remove(int slot) {
+            size -= sizeAt(addresses[slot]);
+            count--;
+
+            // shifting back the following entries of the probe sequence
+            int i = slot;
+            for (int j = (i + 1) & mask; addresses[j] != 0; j = (j + 1) & mask) {
+                int ideal = hashes[j] & mask;
+                boolean stays = i <= j ? (i < ideal && ideal <= j) : (i < ideal || ideal <= j);
+                if (!stays) {
+                    addresses[i] = addresses[j];
+                    hashes[i] = hashes[j];
+                    i = j;
+                }
+            }
+            addresses[i] = 0;
+        }
+
+        /**
+         * Drops from the index all the segment entries which were not deleted or replaced before
+         */
+        private void evictSegment(int segment) {
+            ByteBuffer buf = segments[segment];
+            if (buf == null) return;
+            for (int off = 0; off < segmentEnds[segment]; off += sizeAt(buf, off)) {
+                long k0 = buf.getLong(off);
+                int slot = find(k0, buf.getLong(off + 8), buf.getLong(off + 16), buf.getLong(off + 24), hash(k0));
+                if (slot >= 0 && addresses[slot] == (((long) (segment + 1) << 32) | off)) {
+                    remove(slot);
+                    evictions++;
+                }
+            }
+            segmentEnds[segment] = 0;
+        }
+
+        private int sizeAt(long addr) {
+            return sizeAt(segments[segment(addr)], (int) addr);
+        }
+
+        private static int sizeAt(ByteBuffer buf, int off) {
+            int len = buf.getInt(off + KEY_LENGTH);
+            return HEADER_SIZE + (len == NULL_LENGTH ? 0 : len);
+        }
+
+        private static int segment(long addr) {
+            return (int) (addr >>> 32) - 1;
+        }
+    }
+
+    private final Shard[] shards;
+    private final int shift;
+    private final long maxSize;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public OffHeapReadCache(Source<byte[], byte[]> src, long maxSize) {
+        this(src, maxSize, DEFAULT_SHARDS);
+    }
+
+    /**
+     * @param maxSize max off-heap memory in bytes taken by the cached entries
+     * @param shardsCount number of independently locked shards, rounded up to the power of 2
+     */
+    public OffHeapReadCache(Source<byte[], byte[]> src, long maxSize, int shardsCount) {
+        super(src);
+        if (shardsCount < 1) throw new IllegalArgumentException("Invalid shards count: " + shardsCount);
+        int n = Integer.highestOneBit(shardsCount);
+        if (n < shardsCount) n <<= 1;
+
+        long segmentSize = maxSize / n / SEGMENTS_PER_SHARD;
+        if (segmentSize < HEADER_SIZE || segmentSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid cache size: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.shards = new Shard[n];
+        for (int i = 0; i < n; i++) {
+            shards[i] = new Shard((int) segmentSize);
+        }
+        this.shift = Integer.numberOfTrailingZeros(n);
+    }
+
+    private static int hash(long k0) {
+        // keys are hashes already, just making sure the shard and the slot bits are independent
+        long h = k0 * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private Shard shard(int hash) {
+        return shift == 0 ? shards[0] : shards[hash >>> (32 - shift)];
+    }
+
+    private static long getLong(byte[] key, int off) {
+        return ((key[off] & 0xFFL) << 56) | ((key[off + 1] & 0xFFL) << 48) |
+                ((key[off + 2] & 0xFFL) << 40) | ((key[off + 3] & 0xFFL) << 32) |
+                ((key[off + 4] & 0xFFL) << 24) | ((key[off + 5] & 0xFFL) << 16) |
+                ((key[off + 6] & 0xFFL) << 8) | (key[off + 7] & 0xFFL);
+    }
+
+    private static int entrySize(byte[] value) {
+        return HEADER_SIZE + (value == null ? 0 : value.length);
+    }
+
+    @Override
+    public byte[] get(byte[] key) {
+        if (key.length != KEY_LENGTH) {
+            return getSource().get(key);
+        }
+
+        long k0 = getLong(key, 0), k1 = getLong(key, 8), k2 = getLong(key, 16), k3 = getLong(key, 24);
+        int hash = hash(k0);
+        Shard shard = shard(hash);
+        try (ALock l = shard.readLock.lock()) {
+            int slot = shard.find(k0, k1, k2, k3, hash);
+            if (slot >= 0) {
+                hits.increment();
+                return shard.read(slot);
+            }
+        }
+
+        misses.increment();
+        byte[] ret = getSource().get(key);
+        cacheLoaded(shard, k0, k1, k2, k3, hash, ret);
+        return ret;
+    }
+
+    @Override
+    protected Entry<byte[]> lookupCached(byte[] key) {
+        if (key.length != KEY_LENGTH) return null;
+
+        Entry<byte[]> ret = getCached(key);
+        if (ret != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return ret;
+    }
+
+    @Override
+    protected void cacheLoaded(byte[] key, byte[] value) {
+        if (key.length != KEY_LENGTH) return;
+
+        long k0 = getLong(key, 0);
+        int hash = hash(k0);
+        cacheLoaded(shard(hash), k0, getLong(key, 8), getLong(key, 16), getLong(key, 24), hash, value);
+    }
+
+    private void cacheLoaded(Shard shard, long k0, long k1, long k2, long k3, int hash, byte[] value) {
+        try (ALock l = shard.writeLock.lock()) {
+            // the entry could have been put while reading the Source
+            if (shard.find(k0, k1, k2, k3, hash) < 0) {
+                shard.insert(k0, k1, k2, k3, hash, value);
+            }
+        }
+    }
+
+    @Override
+    public void put(byte[] key, byte[] val) {
+        if (val == null) {
+            delete(key);
+            return;
+        }
+
+        if (key.length == KEY_LENGTH) {
+            long k0 = getLong(key, 0), k1 = getLong(key, 8), k2 = getLong(key, 16), k3 = getLong(key, 24);
+            int hash = hash(k0);
+            Shard shard = shard(hash);
+            try (ALock l = shard.writeLock.lock()) {
+                int slot = shard.find(k0, k1, k2, k3, hash);
+                if (slot >= 0) {
+                    shard.remove(slot);
+                }
+                shard.insert(k0, k1, k2, k3, hash, val);
+            }
+        }
+        getSource().put(key, val);
+    }
+
+    @Override
+    public void delete(byte[] key) {
+        if (key.length == KEY_LENGTH) {
+            long k0 = getLong(key, 0), k1 = getLong(key, 8), k2 = getLong(key, 16), k3 = getLong(key, 24);
+            int hash = hash(k0);
+            Shard shard = shard(hash);
+            try (ALock l = shard.writeLock.lock()) {
+                int slot = shard.find(k0, k1, k2, k3, hash);
+                if (slot >= 0) {
+                    shard.remove(slot);
+                }
+            }
+        }
+        getSource().delete(key);
+    }
+
+    @Override
+    public Entry<byte[]> getCached(byte[] key) {
+        if (key.length != KEY_LENGTH) return null;
+
+        long k0 = getLong(key, 0);
+        int hash = hash(k0);
+        Shard shard = shard(hash);
+        try (ALock l = shard.readLock.lock()) {
+            int slot = shard.find(k0, getLong(key, 8), getLong(key, 16), getLong(key, 24), hash);
+            return slot < 0 ? null : new SimpleEntry<>(shard.read(slot));
+        }
+    }
+
+    @Override
+    public Collection<byte[]> getModified() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public boolean hasModified() {
+        return false;
+    }
+
+    @Override
+    protected boolean flushImpl() {
+        return false;
+    }
+
+    /**
+     * @return total size of the cached entries
+     */
+    @Override
+    public long estimateCacheSize() {
+        long ret = 0;
+        for (Shard shard : shards) {
+            try (ALock l = shard.readLock.lock()) {
+                ret += shard.size;
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * @return max off-heap memory which can be taken by the cache
+     */
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return off-heap memory allocated so far
+     */
+    public long getAllocatedSize() {
+        long ret = 0;
+        for (Shard shard : shards) {
+            try (ALock l = shard.readLock.lock()) {
+                for (ByteBuffer segment : shard.segments) {
+                    if (segment != null) ret += segment.capacity();
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * @return part of the cache size taken by the entries which are still cached
+     */
+    public double getOccupancy() {
+        return (double) estimateCacheSize() / maxSize;
+    }
+
+    public long getEntriesCount() {
+        long ret = 0;
+        for (Shard shard : shards) {
+            try (ALock l = shard.readLock.lock()) {
+                ret += shard.count;
+            }
+        }
+        return ret;
+    }
+
+    public long getEvictionCount() {
+        long ret = 0;
+        for (Shard shard : shards) {
+            try (ALock l = shard.readLock.lock()) {
+                ret += shard.evictions;
+            }
+        }
+        return ret;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return ratio of get() requests served from the cache, 1.0 when there were no requests
+     */
+    public double getHitRate() {
+        long hit = hits.sum();
+        long total = hit + misses.sum();
+        return total == 0 ? 1.0 : (double) hit / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("OffHeapReadCache[entries: %d, occupancy: %.2f, evictions: %d, hit rate: %.3f]",
+                getEntriesCount(), getOccupancy(), getEvictionCount(), getHitRate());
+    }
+}
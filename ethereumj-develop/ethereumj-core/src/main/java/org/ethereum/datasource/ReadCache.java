@@ -19,6 +19,7 @@ package org.ethereum.datasource;
 
 import org.apache.commons.collections4.map.LRUMap;
 import org.ethereum.db.ByteArrayWrapper;
+import org.ethereum.util.ByteArrayHashMap;
 import org.ethereum.util.ByteArrayMap;
 
 import java.util.Collection;
@@ -49,18 +50,22 @@ public class ReadCache<Key, Value> extends AbstractCachedSource<Key, Value> {
 
     public ReadCache(Source<Key, Value> src) {
         super(src);
-        withCache(new HashMap<Key, Value>());
+        setCache(new HashMap<Key, Value>());
     }
 
     /**
      * Installs the specific cache Map implementation
      */
     public ReadCache<Key, Value> withCache(Map<Key, Value> cache) {
-        byteKeyMap = cache instanceof ByteArrayMap;
-        this.cache = Collections.synchronizedMap(cache);
+        setCache(cache);
         return this;
     }
 
+    private void setCache(Map<Key, Value> cache) {
+        byteKeyMap = cache instanceof ByteArrayMap || cache instanceof ByteArrayHashMap;
+        this.cache = Collections.synchronizedMap(cache);
+    }
+
     /**
      * Sets the max number of entries to cache
      */
@@ -114,6 +119,18 @@ public class ReadCache<Key, Value> extends AbstractCachedSource<Key, Value> {
         return ret;
     }
 
+    @Override
+    protected void cacheLoaded(Key key, Value value) {
+        checkByteArrKey(key);
+        synchronized (cache) {
+            // the entry could have been put while reading the Source
+            if (!cache.containsKey(key)) {
+                cache.put(key, value == null ? NULL : value);
+                cacheAdded(key, value);
+            }
+        }
+    }
+
     @Override
     public void delete(Key key) {
         checkByteArrKey(key);
@@ -150,7 +167,7 @@ public class ReadCache<Key, Value> extends AbstractCachedSource<Key, Value> {
 
         public BytesKey(Source<byte[], V> src) {
             super(src);
-            withCache(new ByteArrayMap<V>());
+            withCache(new ByteArrayHashMap<V>());
         }
 
         public ReadCache.BytesKey<V> withMaxCapacity(int maxCapacity) {
@@ -17,6 +17,10 @@
  */
 package org.ethereum.datasource;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 /**
  * Base interface for all data source classes
  *
@@ -35,6 +39,21 @@ public interface Source<K, V> {
      */
     V get(K key);
 
+    /**
+     * Gets values for a number of keys at once.
+     * Sources which can serve several keys in a single round trip
+     * to the backing storage should override it, the default
+     * implementation just calls {@link #get(Object)} for each key
+     * @return values in the iteration order of keys, null for absent keys
+     */
+    default List<V> getBatch(Collection<K> keys) {
+        List<V> ret = new ArrayList<>(keys.size());
+        for (K key : keys) {
+            ret.add(get(key));
+        }
+        return ret;
+    }
+
     /**
      * Deletes the key-value pair from the source
      */
@@ -18,6 +18,7 @@
 package org.ethereum.datasource;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -58,6 +59,11 @@ public class SourceChainBox<Key, Value, SourceKey, SourceValue>
         return lastSource.get(key);
     }
 
+    @Override
+    public List<Value> getBatch(Collection<Key> keys) {
+        return lastSource.getBatch(keys);
+    }
+
     @Override
     public void delete(Key key) {
         lastSource.delete(key);
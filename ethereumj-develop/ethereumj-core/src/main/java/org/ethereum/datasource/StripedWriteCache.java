@@ -0,0 +1,360 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ethereum.datasource;
+
+import org.ethereum.util.ALock;
+import org.ethereum.util.ByteArrayHashMap;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * {@link WriteCache} counterpart which splits the entries between a number of stripes
+ * each guarded by its own lock, so that threads touching different keys don't contend
+ *
+ * Entries behave exactly like in the {@link WriteCache} of the same {@link WriteCache.CacheType}
+ *
+ * On flush() the stripes are processed one by one: the stripe entries are detached
+ * as a snapshot and replaced with an empty map under the stripe lock, then the snapshot
+ * is written to the backing Source without holding the lock. The snapshot stays readable
+ * until the backing Source is flushed, thus concurrent readers never see an entry
+ * disappearing on its way to the storage, while writers keep filling the fresh map
+ *
+ * The underlying Source is read without any stripe lock held
+ */
+public class StripedWriteCache<Key, Value> extends AbstractCachedSource<Key, Value> {
+
+    public static final int DEFAULT_STRIPES = 16;
+
+    private static final class Stripe<K, V> {
+        final ReadWriteLock rwLock = new ReentrantReadWriteLock();
+        final ALock readLock = new ALock(rwLock.readLock());
+        final ALock writeLock = new ALock(rwLock.writeLock());
+
+        Map<K, WriteCache.CacheEntry<V>> cache;
+        // entries being written to the underlying Source by the current flush()
+        Map<K, WriteCache.CacheEntry<V>> flushing;
+        // emptied map of the previous flush, reused to not grow a fresh one from scratch
+        Map<K, WriteCache.CacheEntry<V>> spare;
+
+        volatile long size;
+        volatile long flushingSize;
+
+        Stripe(Map<K, WriteCache.CacheEntry<V>> cache) {
+            this.cache = cache;
+        }
+
+        /**
+         * Looks up the fresh entries first, falls back to the entries being flushed
+         * when the fresh one doesn't know the value
+         */
+        WriteCache.CacheEntry<V> get(K key) {
+            WriteCache.CacheEntry<V> entry = cache.get(key);
+            if ((entry == null || entry.getValue() == WriteCache.CacheEntry.UNKNOWN_VALUE) && flushing != null) {
+                WriteCache.CacheEntry<V> flushed = flushing.get(key);
+                if (flushed != null && flushed.getValue() != WriteCache.CacheEntry.UNKNOWN_VALUE) {
+                    return flushed;
+                }
+            }
+            return entry;
+        }
+    }
+
+    private final boolean isCounting;
+    private final Stripe<Key, Value>[] stripes;
+    private final int shift;
+
+    private final Object flushLock = new Object();
+
+    public StripedWriteCache(Source<Key, Value> src, WriteCache.CacheType cacheType) {
+        this(src, cacheType, DEFAULT_STRIPES);
+    }
+
+    /**
+     * @param stripesCount number of independently locked stripes, rounded up to the power of 2
+     */
+    public StripedWriteCache(Source<Key, Value> src, WriteCache.CacheType cacheType, int stripesCount) {
+        super(src);
+        if (stripesCount < 1) throw new IllegalArgumentException("Invalid stripes count: " + stripesCount);
+        this.isCounting = cacheType == WriteCache.CacheType.COUNTING;
+
+        int n = Integer.highestOneBit(stripesCount);
+        if (n < stripesCount) n <<= 1;
+        this.stripes = new Stripe[n];
+        for (int i = 0; i < n; i++) {
+            stripes[i] = new Stripe<>(createMap());
+        }
+        this.shift = 32 - Integer.numberOfTrailingZeros(n);
+    }
+
+    /**
+     * Creates the map backing a stripe.
+     * Must be overridden to return a {@link ByteArrayHashMap} when keys are byte[]
+     */
+    protected Map<Key, WriteCache.CacheEntry<Value>> createMap() {
+        return new HashMap<>();
+    }
+
+    protected int hash(Key key) {
+        return key.hashCode();
+    }
+
+    private Stripe<Key, Value> stripe(Key key) {
+        // picking the stripe by the high bits of the mixed hash: the stripe maps
+        // index their buckets by the low bits of the very same key hash
+        return shift == 32 ? stripes[0] : stripes[(hash(key) * 0x9E3779B9) >>> shift];
+    }
+
+    public int getStripesCount() {
+        return stripes.length;
+    }
+
+    @Override
+    public Collection<Key> getModified() {
+        Map<Key, WriteCache.CacheEntry<Value>> ret = createMap();
+        for (Stripe<Key, Value> stripe : stripes) {
+            try (ALock l = stripe.readLock.lock()) {
+                ret.putAll(stripe.cache);
+            }
+        }
+        return ret.keySet();
+    }
+
+    @Override
+    public boolean hasModified() {
+        for (Stripe<Key, Value> stripe : stripes) {
+            try (ALock l = stripe.readLock.lock()) {
+                if (!stripe.cache.isEmpty()) return true;
+            }
+        }
+        return false;
+    }
+
+    private WriteCache.CacheEntry<Value> createCacheEntry(Value val) {
+        if (isCounting) {
+            return new WriteCache.CountCacheEntry<>(val);
+        } else {
+            return new WriteCache.SimpleCacheEntry<>(val);
+        }
+    }
+
+    @Override
+    public void put(Key key, Value val) {
+        if (val == null)  {
+            delete(key);
+            return;
+        }
+
+        Stripe<Key, Value> stripe = stripe(key);
+        try (ALock l = stripe.writeLock.lock()) {
+            WriteCache.CacheEntry<Value> curVal = stripe.cache.get(key);
+            if (curVal == null) {
+                curVal = createCacheEntry(val);
+                stripe.cache.put(key, curVal);
+                stripe.size += estimateSize(key, val);
+            }
+            // assigning for non-counting cache only
+            // for counting cache the value should be immutable (see HashedKeySource)
+            curVal.value = val;
+            curVal.added();
+        }
+    }
+
+    @Override
+    public Value get(Key key) {
+        Stripe<Key, Value> stripe = stripe(key);
+        try (ALock l = stripe.readLock.lock()) {
+            WriteCache.CacheEntry<Value> curVal = stripe.get(key);
+            if (curVal != null) {
+                Value value = curVal.getValue();
+                if (value != unknownValue()) {
+                    return value;
+                }
+            }
+        }
+        return getSource() == null ? null : getSource().get(key);
+    }
+
+    @Override
+    public void delete(Key key) {
+        Stripe<Key, Value> stripe = stripe(key);
+        try (ALock l = stripe.writeLock.lock()) {
+            WriteCache.CacheEntry<Value> curVal = stripe.cache.get(key);
+            if (curVal == null) {
+                curVal = createCacheEntry(getSource() == null ? null : unknownValue());
+                stripe.cache.put(key, curVal);
+                stripe.size += estimateSize(key, null);
+            }
+            curVal.deleted();
+        }
+    }
+
+    @Override
+    public boolean flush() {
+        boolean ret = false;
+        synchronized (flushLock) {
+            for (Stripe<Key, Value> stripe : stripes) {
+                Map<Key, WriteCache.CacheEntry<Value>> snapshot;
+                try (ALock l = stripe.writeLock.lock()) {
+                    if (stripe.cache.isEmpty()) continue;
+                    snapshot = stripe.cache;
+                    stripe.flushing = snapshot;
+                    stripe.flushingSize = stripe.size;
+                    stripe.cache = stripe.spare != null ? stripe.spare : createMap();
+                    stripe.spare = null;
+                    stripe.size = 0;
+                }
+                ret |= flushEntries(snapshot);
+            }
+
+            if (flushSource) {
+                getSource().flush();
+            }
+
+            for (Stripe<Key, Value> stripe : stripes) {
+                Map<Key, WriteCache.CacheEntry<Value>> flushed;
+                try (ALock l = stripe.writeLock.lock()) {
+                    flushed = stripe.flushing;
+                    stripe.flushing = null;
+                    stripe.flushingSize = 0;
+                }
+                if (flushed != null) {
+                    // not visible to other threads anymore
+                    flushed.clear();
+                    stripe.spare = flushed;
+                }
+            }
+            return ret;
+        }
+    }
+
+    private boolean flushEntries(Map<Key, WriteCache.CacheEntry<Value>> entries) {
+        boolean ret = false;
+        for (Map.Entry<Key, WriteCache.CacheEntry<Value>> entry : entries.entrySet()) {
+            if (entry.getValue().counter > 0) {
+                for (int i = 0; i < entry.getValue().counter; i++) {
+                    getSource().put(entry.getKey(), entry.getValue().value);
+                }
+                ret = true;
+            } else if (entry.getValue().counter < 0) {
+                for (int i = 0; i > entry.getValue().counter; i--) {
+                    getSource().delete(entry.getKey());
+                }
+                ret = true;
+            }
+        }
+        return ret;
+    }
+
+    @Override
+    protected boolean flushImpl() {
+        return false;
+    }
+
+    private Value unknownValue() {
+        return (Value) WriteCache.CacheEntry.UNKNOWN_VALUE;
+    }
+
+    /**
+     * Unlike {@link #getCached(Object)} answers for the deleted entries
+     * the same way {@link #get(Object)} does
+     */
+    @Override
+    protected Entry<Value> lookupCached(Key key) {
+        Stripe<Key, Value> stripe = stripe(key);
+        try (ALock l = stripe.readLock.lock()) {
+            WriteCache.CacheEntry<Value> entry = stripe.get(key);
+            return entry == null || entry.getValue() == unknownValue() ? null : entry;
+        }
+    }
+
+    public Entry<Value> getCached(Key key) {
+        Stripe<Key, Value> stripe = stripe(key);
+        try (ALock l = stripe.readLock.lock()) {
+            WriteCache.CacheEntry<Value> entry = stripe.get(key);
+            if (entry == null || entry.value == unknownValue()) {
+                return null;
+            } else {
+                return entry;
+            }
+        }
+    }
+
+    private long estimateSize(Key key, Value value) {
+        long ret = 0;
+        if (keySizeEstimator != null) {
+            ret += keySizeEstimator.estimateSize(key);
+        }
+        if (valueSizeEstimator != null) {
+            ret += valueSizeEstimator.estimateSize(value);
+        }
+        return ret;
+    }
+
+    /**
+     * Includes the entries which are being flushed at the moment
+     */
+    @Override
+    public long estimateCacheSize() {
+        long ret = 0;
+        for (Stripe<Key, Value> stripe : stripes) {
+            ret += stripe.size + stripe.flushingSize;
+        }
+        return ret;
+    }
+
+    public long debugCacheSize() {
+        long ret = 0;
+        for (Stripe<Key, Value> stripe : stripes) {
+            try (ALock l = stripe.readLock.lock()) {
+                for (Map.Entry<Key, WriteCache.CacheEntry<Value>> entry : stripe.cache.entrySet()) {
+                    ret += keySizeEstimator.estimateSize(entry.getKey());
+                    ret += valueSizeEstimator.estimateSize(entry.getValue().value());
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Shortcut for StripedWriteCache with byte[] keys
+     */
+    public static class BytesKey<V> extends StripedWriteCache<byte[], V> implements CachedSource.BytesKey<V> {
+
+        public BytesKey(Source<byte[], V> src, WriteCache.CacheType cacheType) {
+            super(src, cacheType);
+        }
+
+        public BytesKey(Source<byte[], V> src, WriteCache.CacheType cacheType, int stripesCount) {
+            super(src, cacheType, stripesCount);
+        }
+
+        @Override
+        protected Map<byte[], WriteCache.CacheEntry<V>> createMap() {
+            return new ByteArrayHashMap<>();
+        }
+
+        @Override
+        protected int hash(byte[] key) {
+            return ByteArrayHashMap.hash(key);
+        }
+    }
+}
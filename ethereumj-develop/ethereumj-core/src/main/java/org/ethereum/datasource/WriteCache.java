@@ -20,6 +20,7 @@ package org.ethereum.datasource;
 import com.googlecode.concurentlocks.ReadWriteUpdateLock;
 import com.googlecode.concurentlocks.ReentrantReadWriteUpdateLock;
 import org.ethereum.util.ALock;
+import org.ethereum.util.ByteArrayHashMap;
 import org.ethereum.util.ByteArrayMap;
 
 import java.util.Collection;
@@ -63,7 +64,7 @@ public class WriteCache<Key, Value> extends AbstractCachedSource<Key, Value> {
         COUNTING
     }
 
-    private static abstract class CacheEntry<V> implements Entry<V>{
+    static abstract class CacheEntry<V> implements Entry<V>{
         // dedicated value instance which indicates that the entry was deleted
         // (ref counter decremented) but we don't know actual value behind it
         static final Object UNKNOWN_VALUE = new Object();
@@ -88,7 +89,7 @@ public class WriteCache<Key, Value> extends AbstractCachedSource<Key, Value> {
         }
     }
 
-    private static final class SimpleCacheEntry<V> extends CacheEntry<V> {
+    static final class SimpleCacheEntry<V> extends CacheEntry<V> {
         public SimpleCacheEntry(V value) {
             super(value);
         }
@@ -107,7 +108,7 @@ public class WriteCache<Key, Value> extends AbstractCachedSource<Key, Value> {
         }
     }
 
-    private static final class CountCacheEntry<V> extends CacheEntry<V> {
+    static final class CountCacheEntry<V> extends CacheEntry<V> {
         public CountCacheEntry(V value) {
             super(value);
         }
@@ -268,6 +269,19 @@ public class WriteCache<Key, Value> extends AbstractCachedSource<Key, Value> {
         return (Value) CacheEntry.UNKNOWN_VALUE;
     }
 
+    /**
+     * Unlike {@link #getCached(Object)} answers for the deleted entries
+     * the same way {@link #get(Object)} does
+     */
+    @Override
+    protected Entry<Value> lookupCached(Key key) {
+        checkByteArrKey(key);
+        try (ALock l = readLock.lock()){
+            CacheEntry<Value> entry = cache.get(key);
+            return entry == null || entry.getValue() == unknownValue() ? null : entry;
+        }
+    }
+
     public Entry<Value> getCached(Key key) {
         try (ALock l = readLock.lock()){
             CacheEntry<Value> entry = cache.get(key);
@@ -286,7 +300,7 @@ public class WriteCache<Key, Value> extends AbstractCachedSource<Key, Value> {
         if (checked) return;
 
         if (key instanceof byte[]) {
-            if (!(cache instanceof ByteArrayMap)) {
+            if (!(cache instanceof ByteArrayMap || cache instanceof ByteArrayHashMap)) {
                 throw new RuntimeException("Wrong map/set for byte[] key");
             }
         }
@@ -310,7 +324,7 @@ public class WriteCache<Key, Value> extends AbstractCachedSource<Key, Value> {
 
         public BytesKey(Source<byte[], V> src, CacheType cacheType) {
             super(src, cacheType);
-            withCache(new ByteArrayMap<CacheEntry<V>>());
+            withCache(new ByteArrayHashMap<CacheEntry<V>>());
         }
     }
 }
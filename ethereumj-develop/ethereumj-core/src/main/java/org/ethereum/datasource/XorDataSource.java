@@ -19,6 +19,10 @@ package org.ethereum.datasource;
 
 import org.ethereum.util.ByteUtil;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 /**
  * When propagating changes to the backing Source XORs keys
  * with the specified value
@@ -47,6 +51,15 @@ public class XorDataSource<V> extends AbstractChainedSource<byte[], V, byte[], V
         return getSource().get(convertKey(key));
     }
 
+    @Override
+    public List<V> getBatch(Collection<byte[]> keys) {
+        List<byte[]> converted = new ArrayList<>(keys.size());
+        for (byte[] key : keys) {
+            converted.add(convertKey(key));
+        }
+        return getSource().getBatch(converted);
+    }
+
     @Override
     public void put(byte[] key, V value) {
         getSource().put(convertKey(key), value);
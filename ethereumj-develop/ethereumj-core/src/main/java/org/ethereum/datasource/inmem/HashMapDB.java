@@ -20,9 +20,12 @@ package org.ethereum.datasource.inmem;
 import org.ethereum.datasource.DbSettings;
 import org.ethereum.datasource.DbSource;
 import org.ethereum.util.ALock;
-import org.ethereum.util.ByteArrayMap;
+import org.ethereum.util.ByteArrayHashMap;
 import org.ethereum.util.FastByteComparisons;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.locks.ReadWriteLock;
@@ -43,10 +46,10 @@ public class HashMapDB<V> implements DbSource<V> {
     protected ALock writeLock = new ALock(rwLock.writeLock());
 
     public HashMapDB() {
-        this(new ByteArrayMap<V>());
+        this(new ByteArrayHashMap<V>());
     }
 
-    public HashMapDB(ByteArrayMap<V> storage) {
+    public HashMapDB(Map<byte[], V> storage) {
         this.storage = storage;
     }
 
@@ -68,6 +71,17 @@ public class HashMapDB<V> implements DbSource<V> {
         }
     }
 
+    @Override
+    public List<V> getBatch(Collection<byte[]> keys) {
+        try (ALock l = readLock.lock()) {
+            List<V> ret = new ArrayList<>(keys.size());
+            for (byte[] key : keys) {
+                ret.add(storage.get(key));
+            }
+            return ret;
+        }
+    }
+
     @Override
     public void delete(byte[] key) {
         try (ALock l = writeLock.lock()) {
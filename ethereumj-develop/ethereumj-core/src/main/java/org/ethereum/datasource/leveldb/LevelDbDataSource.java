@@ -20,6 +20,7 @@ package org.ethereum.datasource.leveldb;
 import org.ethereum.config.SystemProperties;
 import org.ethereum.datasource.DbSettings;
 import org.ethereum.datasource.DbSource;
+import org.ethereum.util.FastByteComparisons;
 import org.ethereum.util.FileUtil;
 import org.iq80.leveldb.*;
 import org.slf4j.Logger;
@@ -31,7 +32,10 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.locks.ReadWriteLock;
@@ -202,6 +206,52 @@ public class LevelDbDataSource implements DbSource<byte[]> {
         }
     }
 
+    @Override
+    public List<byte[]> getBatch(Collection<byte[]> keys) {
+        resetDbLock.readLock().lock();
+        try {
+            if (logger.isTraceEnabled()) logger.trace("~> LevelDbDataSource.getBatch(): " + name + ", " + keys.size());
+            try {
+                List<byte[]> ret = getBatchInternal(keys);
+                if (logger.isTraceEnabled()) logger.trace("<~ LevelDbDataSource.getBatch(): " + name + ", " + keys.size());
+                return ret;
+            } catch (Exception e) {
+                logger.warn("Exception. Retrying again...", e);
+                try {
+                    List<byte[]> ret = getBatchInternal(keys);
+                    if (logger.isTraceEnabled()) logger.trace("<~ LevelDbDataSource.getBatch(): " + name + ", " + keys.size());
+                    return ret;
+                } catch (Exception e1) {
+                    logger.error("Error", e1);
+                    throw new RuntimeException(e1);
+                }
+            }
+        } finally {
+            resetDbLock.readLock().unlock();
+        }
+    }
+
+    private List<byte[]> getBatchInternal(Collection<byte[]> keys) throws IOException {
+        final byte[][] keysArr = keys.toArray(new byte[keys.size()][]);
+        Integer[] order = new Integer[keysArr.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        // reading keys in the DB order touches each table block once
+        // and lets the adjacent reads reuse the blocks already in the block cache
+        Arrays.sort(order, (i1, i2) -> FastByteComparisons.compareTo(
+                keysArr[i1], 0, keysArr[i1].length, keysArr[i2], 0, keysArr[i2].length));
+
+        byte[][] ret = new byte[keysArr.length][];
+        try (Snapshot snapshot = db.getSnapshot()) {
+            ReadOptions readOptions = new ReadOptions().snapshot(snapshot);
+            for (int i : order) {
+                ret[i] = db.get(keysArr[i], readOptions);
+            }
+        }
+        return Arrays.asList(ret);
+    }
+
     @Override
     public void put(byte[] key, byte[] value) {
         resetDbLock.readLock().lock();
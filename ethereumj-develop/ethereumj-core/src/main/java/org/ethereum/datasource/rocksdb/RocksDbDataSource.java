@@ -323,6 +323,29 @@ public class RocksDbDataSource implements DbSource<byte[]> {
         }
     }
 
+    @Override
+    public List<byte[]> getBatch(Collection<byte[]> keys) {
+        resetDbLock.readLock().lock();
+        try {
+            if (logger.isTraceEnabled()) logger.trace("~> RocksDbDataSource.getBatch(): " + name + ", " + keys.size());
+            List<byte[]> keysList = keys instanceof List ? (List<byte[]>) keys : new ArrayList<>(keys);
+            // only found entries are returned, mapped by the passed key instances
+            Map<byte[], byte[]> found = db.multiGet(readOpts, keysList);
+            List<byte[]> ret = new ArrayList<>(keysList.size());
+            for (byte[] key : keysList) {
+                ret.add(found.get(key));
+            }
+            if (logger.isTraceEnabled()) logger.trace("<~ RocksDbDataSource.getBatch(): " + name + ", " + keys.size() + ", found " + found.size());
+            return ret;
+        } catch (RocksDBException e) {
+            logger.error("Failed to get batch from db '{}'", name, e);
+            hintOnTooManyOpenFiles(e);
+            throw new RuntimeException(e);
+        } finally {
+            resetDbLock.readLock().unlock();
+        }
+    }
+
     @Override
     public void delete(byte[] key) {
         resetDbLock.readLock().lock();
@@ -377,6 +400,43 @@ public class RocksDbDataSource implements DbSource<byte[]> {
         }
     }
 
+    @Override
+    public List<byte[]> prefixLookupBatch(Collection<byte[]> keys, int prefixBytes) {
+
+        if (prefixBytes != NodeKeyCompositor.PREFIX_BYTES)
+            throw new RuntimeException("RocksDbDataSource.prefixLookupBatch() supports only " + NodeKeyCompositor.PREFIX_BYTES + "-bytes prefix");
+
+        resetDbLock.readLock().lock();
+        try {
+
+            if (logger.isTraceEnabled()) logger.trace("~> RocksDbDataSource.prefixLookupBatch(): " + name + ", " + keys.size());
+
+            // a single iterator is repositioned for every key, see prefixLookup() on the seek semantics
+            List<byte[]> ret = new ArrayList<>(keys.size());
+            byte[] prefix = new byte[NodeKeyCompositor.PREFIX_BYTES];
+            try (RocksIterator it = db.newIterator(readOpts)) {
+
+                for (byte[] key : keys) {
+                    arraycopy(key, 0, prefix, 0, NodeKeyCompositor.PREFIX_BYTES);
+                    it.seek(prefix);
+                    ret.add(it.isValid() ? it.value() : null);
+                }
+
+            } catch (Exception e) {
+                logger.error("Failed to seek by prefix in db '{}'", name, e);
+                hintOnTooManyOpenFiles(e);
+                throw new RuntimeException(e);
+            }
+
+            if (logger.isTraceEnabled()) logger.trace("<~ RocksDbDataSource.prefixLookupBatch(): " + name + ", " + keys.size());
+
+            return ret;
+
+        } finally {
+            resetDbLock.readLock().unlock();
+        }
+    }
+
     @Override
     public boolean flush() {
         return false;
@@ -21,6 +21,7 @@ import org.ethereum.core.Block;
 import org.ethereum.core.BlockHeader;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -41,6 +42,18 @@ public interface BlockStore {
     Block getChainBlockByNumber(long blockNumber);
 
     Block getBlockByHash(byte[] hash);
+
+    /**
+     * @return blocks in the order of hashes, null for the blocks not found
+     */
+    default List<Block> getBlocksByHashes(List<byte[]> hashes) {
+        List<Block> ret = new ArrayList<>(hashes.size());
+        for (byte[] hash : hashes) {
+            ret.add(getBlockByHash(hash));
+        }
+        return ret;
+    }
+
     boolean isBlockExist(byte[] hash);
 
     List<byte[]> getListHashesEndWith(byte[] hash, long qty);
@@ -191,6 +191,11 @@ public class IndexedBlockStore extends AbstractBlockstore{
         return blocks.get(hash);
     }
 
+    @Override
+    public synchronized List<Block> getBlocksByHashes(List<byte[]> hashes) {
+        return blocks.getBatch(hashes);
+    }
+
     @Override
     public synchronized boolean isBlockExist(byte[] hash) {
         return blocks.get(hash) != null;
@@ -0,0 +1,305 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ethereum.db;
+
+import org.ethereum.core.AccountState;
+import org.ethereum.crypto.HashUtil;
+import org.ethereum.datasource.Source;
+import org.ethereum.vm.DataWord;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tracking repository keeping all changes of its nested tracks in a single overlay.
+ *
+ * Unlike {@link RepositoryImpl#startTracking()} which stacks a new set of caches per track,
+ * here nested tracks write right to the shared overlay and only remember the position in the undo journal.
+ * Thus a read costs a single map lookup (plus the parent lookup on a miss) regardless of the nesting depth,
+ * {@link #rollback()} of a nested track undoes just its own changes and {@link #commit()} of a nested track is free.
+ * The changes are propagated to the parent repository when the outermost track is committed.
+ *
+ * Nested tracks are expected to be committed or rolled back in LIFO order,
+ * a nested track which is neither committed nor rolled back leaves its changes in the overlay
+ */
+public class JournaledRepository extends RepositoryImpl {
+
+    private static class Overlay {
+        // null value stands for deleted account
+        final Map<ByteArrayWrapper, AccountState> accounts = new HashMap<>();
+        // keyed the same way as the parent code cache
+        final Map<ByteArrayWrapper, byte[]> code = new HashMap<>();
+        // null value stands for removed (zero) storage row
+        final Map<ByteArrayWrapper, Map<DataWord, DataWord>> storage = new HashMap<>();
+        // deleted accounts which storage is not looked up in the parent
+        final Set<ByteArrayWrapper> cleared = new HashSet<>();
+        // undo actions in the order of changes
+        final List<Runnable> journal = new ArrayList<>();
+
+        void clear() {
+            accounts.clear();
+            code.clear();
+            storage.clear();
+            cleared.clear();
+            journal.clear();
+        }
+    }
+
+    private final Overlay overlay;
+    private final int checkpoint;
+    private final boolean outermost;
+
+    JournaledRepository(RepositoryImpl parent) {
+        this(parent, new Overlay(), 0, true);
+    }
+
+    private JournaledRepository(RepositoryImpl parent, Overlay overlay, int checkpoint, boolean outermost) {
+        this.parent = parent;
+        this.config = parent.config;
+        this.overlay = overlay;
+        this.checkpoint = checkpoint;
+        this.outermost = outermost;
+    }
+
+    private <K, V> void put(Map<K, V> map, K key, V value) {
+        boolean existed = map.containsKey(key);
+        V old = map.put(key, value);
+        overlay.journal.add(() -> {
+            if (existed) {
+                map.put(key, old);
+            } else {
+                map.remove(key);
+            }
+        });
+    }
+
+    private void putAccount(byte[] addr, AccountState state) {
+        put(overlay.accounts, new ByteArrayWrapper(addr), state);
+    }
+
+    @Override
+    public AccountState createAccount(byte[] addr) {
+        AccountState state = new AccountState(config.getBlockchainConfig().getCommonConstants().getInitialNonce(),
+                BigInteger.ZERO);
+        synchronized (overlay) {
+            putAccount(addr, state);
+        }
+        return state;
+    }
+
+    @Override
+    public AccountState getAccountState(byte[] addr) {
+        ByteArrayWrapper key = new ByteArrayWrapper(addr);
+        synchronized (overlay) {
+            if (overlay.accounts.containsKey(key)) {
+                return overlay.accounts.get(key);
+            }
+        }
+        return parent.getAccountState(addr);
+    }
+
+    @Override
+    AccountState getOrCreateAccountState(byte[] addr) {
+        AccountState ret = getAccountState(addr);
+        if (ret == null) {
+            ret = createAccount(addr);
+        }
+        return ret;
+    }
+
+    @Override
+    public void delete(byte[] addr) {
+        ByteArrayWrapper key = new ByteArrayWrapper(addr);
+        synchronized (overlay) {
+            put(overlay.accounts, key, null);
+            put(overlay.storage, key, new HashMap<>());
+            if (overlay.cleared.add(key)) {
+                overlay.journal.add(() -> overlay.cleared.remove(key));
+            }
+        }
+    }
+
+    @Override
+    public BigInteger increaseNonce(byte[] addr) {
+        synchronized (overlay) {
+            AccountState accountState = getOrCreateAccountState(addr);
+            putAccount(addr, accountState.withIncrementedNonce());
+            return accountState.getNonce();
+        }
+    }
+
+    @Override
+    public BigInteger setNonce(byte[] addr, BigInteger nonce) {
+        synchronized (overlay) {
+            AccountState accountState = getOrCreateAccountState(addr);
+            putAccount(addr, accountState.withNonce(nonce));
+            return accountState.getNonce();
+        }
+    }
+
+    @Override
+    public BigInteger addBalance(byte[] addr, BigInteger value) {
+        synchronized (overlay) {
+            AccountState accountState = getOrCreateAccountState(addr);
+            putAccount(addr, accountState.withBalanceIncrement(value));
+            return accountState.getBalance();
+        }
+    }
+
+    @Override
+    public void saveCode(byte[] addr, byte[] code) {
+        byte[] codeHash = HashUtil.sha3(code);
+        synchronized (overlay) {
+            put(overlay.code, new ByteArrayWrapper(codeKey(codeHash, addr)), code);
+            AccountState accountState = getOrCreateAccountState(addr);
+            putAccount(addr, accountState.withCodeHash(codeHash));
+        }
+    }
+
+    @Override
+    byte[] getCode(byte[] addr, byte[] codeHash) {
+        ByteArrayWrapper key = new ByteArrayWrapper(codeKey(codeHash, addr));
+        synchronized (overlay) {
+            byte[] code = overlay.code.get(key);
+            if (code != null) return code;
+        }
+        return parent.getCode(addr, codeHash);
+    }
+
+    @Override
+    public void addStorageRow(byte[] addr, DataWord key, DataWord value) {
+        ByteArrayWrapper addrKey = new ByteArrayWrapper(addr);
+        synchronized (overlay) {
+            getOrCreateAccountState(addr);
+
+            // an empty storage map is the same as no map, so its creation is not journaled
+            Map<DataWord, DataWord> storage = overlay.storage.computeIfAbsent(addrKey, k -> new HashMap<>());
+            put(storage, key, value.isZero() ? null : value);
+        }
+    }
+
+    @Override
+    public DataWord getStorageValue(byte[] addr, DataWord key) {
+        if (getAccountState(addr) == null) return null;
+
+        ByteArrayWrapper addrKey = new ByteArrayWrapper(addr);
+        synchronized (overlay) {
+            Map<DataWord, DataWord> storage = overlay.storage.get(addrKey);
+            if (storage != null && storage.containsKey(key)) {
+                return storage.get(key);
+            }
+            if (overlay.cleared.contains(addrKey)) {
+                return null;
+            }
+        }
+        return parent.getStorageValue(addr, key);
+    }
+
+    /**
+     * @return nested track sharing the overlay of this one
+     */
+    @Override
+    public RepositoryImpl startTracking() {
+        synchronized (overlay) {
+            return new JournaledRepository(parent, overlay, overlay.journal.size(), false);
+        }
+    }
+
+    @Override
+    public RepositoryImpl startJournaling() {
+        return startTracking();
+    }
+
+    /**
+     * Nested track changes are already visible to the enclosing track, so there is nothing to do.
+     * The outermost track propagates the overlay to the parent through a regular parent track,
+     * so the parent caches are flushed exactly the same way as with {@link RepositoryImpl#startTracking()}
+     */
+    @Override
+    public void commit() {
+        if (!outermost) return;
+
+        synchronized (overlay) {
+            RepositoryImpl track = parent.startTracking();
+            for (ByteArrayWrapper addr : overlay.cleared) {
+                track.delete(addr.getData());
+            }
+            for (Map.Entry<ByteArrayWrapper, AccountState> e : overlay.accounts.entrySet()) {
+                if (e.getValue() == null) {
+                    track.accountStateCache.delete(e.getKey().getData());
+                } else {
+                    track.accountStateCache.put(e.getKey().getData(), e.getValue());
+                }
+            }
+            for (Map.Entry<ByteArrayWrapper, byte[]> e : overlay.code.entrySet()) {
+                track.codeCache.put(e.getKey().getData(), e.getValue());
+            }
+            for (Map.Entry<ByteArrayWrapper, Map<DataWord, DataWord>> e : overlay.storage.entrySet()) {
+                if (e.getValue().isEmpty()) continue;
+                Source<DataWord, DataWord> storage = track.storageCache.get(e.getKey().getData());
+                for (Map.Entry<DataWord, DataWord> row : e.getValue().entrySet()) {
+                    storage.put(row.getKey(), row.getValue());
+                }
+            }
+            track.commit();
+
+            overlay.clear();
+        }
+    }
+
+    /**
+     * Undoes changes made since this track has been started, including changes of its nested tracks
+     */
+    @Override
+    public void rollback() {
+        synchronized (overlay) {
+            if (outermost) {
+                overlay.clear();
+                return;
+            }
+            List<Runnable> journal = overlay.journal;
+            for (int i = journal.size() - 1; i >= checkpoint; i--) {
+                journal.remove(i).run();
+            }
+        }
+    }
+
+    @Override
+    public void updateBatch(HashMap<ByteArrayWrapper, AccountState> accountStates, HashMap<ByteArrayWrapper, ContractDetails> contractDetailes) {
+        synchronized (overlay) {
+            for (Map.Entry<ByteArrayWrapper, AccountState> entry : accountStates.entrySet()) {
+                putAccount(entry.getKey().getData(), entry.getValue());
+            }
+        }
+        for (Map.Entry<ByteArrayWrapper, ContractDetails> entry : contractDetailes.entrySet()) {
+            ContractDetails details = getContractDetails(entry.getKey().getData());
+            for (DataWord key : entry.getValue().getStorageKeys()) {
+                details.put(key, entry.getValue().get(key));
+            }
+            byte[] code = entry.getValue().getCode();
+            if (code != null && code.length > 0) {
+                details.setCode(code);
+            }
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ethereum.db;
+
+import org.ethereum.core.AccountState;
+import org.ethereum.datasource.AbstractChainedSource;
+import org.ethereum.datasource.CachedSource;
+import org.ethereum.datasource.MultiCache;
+import org.ethereum.datasource.Source;
+import org.ethereum.util.ByteUtil;
+import org.ethereum.util.FastByteComparisons;
+import org.ethereum.vm.DataWord;
+
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Pass-through view of the parent repository which records the keys of accounts,
+ * code and storage rows read and written through it.
+ *
+ * The view keeps no changes on its own: tracks started from it are committed right to the parent.
+ * Views may be read from several threads while the parent is being updated via another view
+ * as long as the parent is a track (see {@link RepositoryImpl#startTracking()}): its account and code caches
+ * are safe for concurrent use and don't cache what's read. The storage cache creates child caches
+ * on read, so storage caches are put and deleted under its monitor. The view itself takes no locks:
+ * recorded reads belong to the thread using the view and the parent is updated from one thread at a time.
+ *
+ * Written keys go to a set which may be shared by several views,
+ * then {@link #isReadValid()} tells whether this view read anything written after it has been started
+ */
+public class RecordingRepository extends RepositoryImpl {
+
+    private final Set<ByteArrayWrapper> reads = new HashSet<>();
+    private final Set<ByteArrayWrapper> writes;
+
+    // account which changes are applied as a balance increment, see startBalanceDelta()
+    private byte[] deltaAddr;
+    private boolean deleteEmpty;
+    private AccountState deltaBase;
+
+    RecordingRepository(RepositoryImpl parent, Set<ByteArrayWrapper> writes) {
+        this.parent = parent;
+        this.config = parent.config;
+        this.writes = writes;
+        init(new AccountRecorder(parent.accountStateCache),
+                new Recorder<>(parent.codeCache, key -> key),
+                new RecordingStorage());
+    }
+
+    /**
+     * @return true if none of the keys read through this view has been written to the shared set of writes
+     */
+    public boolean isReadValid() {
+        return Collections.disjoint(reads, writes);
+    }
+
+    /**
+     * Starts treating the account as a subject of commutative balance increments, like the block coinbase
+     * which is paid by every transaction: further reads of the account are not recorded and
+     * the committed account state is applied to the actual parent state as a balance increment.
+     * Has no effect when the account has already been read through this view
+     *
+     * @param deleteEmpty delete the account if it becomes empty (EIP-161)
+     */
+    public void startBalanceDelta(byte[] addr, boolean deleteEmpty) {
+        if (reads.contains(new ByteArrayWrapper(addr))) return;
+        this.deltaAddr = addr;
+        this.deleteEmpty = deleteEmpty;
+    }
+
+    private boolean isDelta(byte[] addr) {
+        return deltaAddr != null && FastByteComparisons.equal(deltaAddr, addr);
+    }
+
+    private class Recorder<K, V> extends AbstractChainedSource<K, V, K, V> implements CachedSource<K, V> {
+        private final Function<K, byte[]> keyOf;
+
+        Recorder(Source<K, V> src, Function<K, byte[]> keyOf) {
+            super(src);
+            this.keyOf = keyOf;
+        }
+
+        @Override
+        public V get(K key) {
+            reads.add(new ByteArrayWrapper(keyOf.apply(key)));
+            return getSource().get(key);
+        }
+
+        @Override
+        public void put(K key, V val) {
+            writes.add(new ByteArrayWrapper(keyOf.apply(key)));
+            getSource().put(key, val);
+        }
+
+        @Override
+        public void delete(K key) {
+            writes.add(new ByteArrayWrapper(keyOf.apply(key)));
+            getSource().delete(key);
+        }
+
+        @Override
+        protected boolean flushImpl() {
+            return false;
+        }
+
+        @Override
+        public Collection<K> getModified() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean hasModified() {
+            return false;
+        }
+
+        @Override
+        public long estimateCacheSize() {
+            return 0;
+        }
+    }
+
+    private class AccountRecorder extends Recorder<byte[], AccountState> {
+
+        AccountRecorder(Source<byte[], AccountState> src) {
+            super(src, key -> key);
+        }
+
+        @Override
+        public AccountState get(byte[] key) {
+            if (!isDelta(key)) return super.get(key);
+            AccountState ret = getSource().get(key);
+            if (deltaBase == null) deltaBase = ret;
+            return ret;
+        }
+
+        @Override
+        public void put(byte[] key, AccountState val) {
+            if (isDelta(key)) {
+                putDelta(key, val);
+            } else {
+                super.put(key, val);
+            }
+        }
+
+        @Override
+        public void delete(byte[] key) {
+            if (isDelta(key)) {
+                putDelta(key, null);
+            } else {
+                super.delete(key);
+            }
+        }
+
+        private void putDelta(byte[] key, AccountState val) {
+            BigInteger delta = (val == null ? BigInteger.ZERO : val.getBalance())
+                    .subtract(deltaBase == null ? BigInteger.ZERO : deltaBase.getBalance());
+            AccountState current = getSource().get(key);
+            if (current == null) {
+                current = new AccountState(config.getBlockchainConfig().getCommonConstants().getInitialNonce(),
+                        BigInteger.ZERO);
+            }
+            AccountState updated = current.withBalanceIncrement(delta);
+
+            writes.add(new ByteArrayWrapper(key));
+            if (deleteEmpty && updated.isEmpty()) {
+                getSource().delete(key);
+                synchronized (parent.storageCache) {
+                    parent.storageCache.delete(key);
+                }
+            } else {
+                getSource().put(key, updated);
+            }
+        }
+    }
+
+    private class RecordingStorage extends MultiCache<CachedSource<DataWord, DataWord>> {
+
+        RecordingStorage() {
+            super(null);
+        }
+
+        @Override
+        public CachedSource<DataWord, DataWord> get(byte[] addr) {
+            reads.add(new ByteArrayWrapper(addr));
+            // the parent cache is never kept here, it may be replaced via another view
+            return create(addr, parent.storageCache.get(addr));
+        }
+
+        @Override
+        public void put(byte[] addr, CachedSource<DataWord, DataWord> val) {
+            writes.add(new ByteArrayWrapper(addr));
+            synchronized (parent.storageCache) {
+                ((MultiCache) parent.storageCache).put(addr, val);
+            }
+        }
+
+        @Override
+        public void delete(byte[] addr) {
+            // the delta account storage is deleted along with the account if ever
+            if (isDelta(addr)) return;
+            writes.add(new ByteArrayWrapper(addr));
+            synchronized (parent.storageCache) {
+                parent.storageCache.delete(addr);
+            }
+        }
+
+        @Override
+        public synchronized boolean flushImpl() {
+            return false;
+        }
+
+        /**
+         * Wraps the parent storage cache of the account to record the rows read and written
+         */
+        @Override
+        protected CachedSource<DataWord, DataWord> create(byte[] addr, CachedSource<DataWord, DataWord> srcCache) {
+            return srcCache == null ? null : new Recorder<>(srcCache, key -> ByteUtil.merge(addr, key.getData()));
+        }
+    }
+}
@@ -136,11 +136,15 @@ public class RepositoryImpl implements Repository, org.ethereum.facade.Repositor
     public synchronized byte[] getCode(byte[] addr) {
         byte[] codeHash = getCodeHash(addr);
         return codeHash == null || FastByteComparisons.equal(codeHash, HashUtil.EMPTY_DATA_HASH) ?
-                ByteUtil.EMPTY_BYTE_ARRAY : codeCache.get(codeKey(codeHash, addr));
+                ByteUtil.EMPTY_BYTE_ARRAY : getCode(addr, codeHash);
+    }
+
+    synchronized byte[] getCode(byte[] addr, byte[] codeHash) {
+        return codeCache.get(codeKey(codeHash, addr));
     }
 
     // composing a key as there can be several contracts with the same code
-    private byte[] codeKey(byte[] codeHash, byte[] addr) {
+    static byte[] codeKey(byte[] codeHash, byte[] addr) {
         return NodeKeyCompositor.compose(codeHash, addr);
     }
 
@@ -179,6 +183,10 @@ public class RepositoryImpl implements Repository, org.ethereum.facade.Repositor
 
     @Override
     public synchronized RepositoryImpl startTracking() {
+        return createTrack();
+    }
+
+    RepositoryImpl createTrack() {
         Source<byte[], AccountState> trackAccountStateCache = new WriteCache.BytesKey<>(accountStateCache,
                 WriteCache.CacheType.SIMPLE);
         Source<byte[], byte[]> trackCodeCache = new WriteCache.BytesKey<>(codeCache, WriteCache.CacheType.SIMPLE);
@@ -194,11 +202,32 @@ public class RepositoryImpl implements Repository, org.ethereum.facade.Repositor
         return ret;
     }
 
+    /**
+     * Starts tracking with a single level overlay: nested tracks of the returned repository
+     * share its changes and only mark checkpoints to revert to, see {@link JournaledRepository}
+     */
+    public synchronized RepositoryImpl startJournaling() {
+        return new JournaledRepository(this);
+    }
+
+    /**
+     * Starts a pass-through view recording the keys read and written through it, see {@link RecordingRepository}
+     * @param writes the set to collect written keys to, may be shared by several views
+     */
+    public synchronized RecordingRepository startRecording(Set<ByteArrayWrapper> writes) {
+        return new RecordingRepository(this, writes);
+    }
+
     @Override
     public synchronized Repository getSnapshotTo(byte[] root) {
         return parent.getSnapshotTo(root);
     }
 
+    @Override
+    public Repository getReadOnlySnapshotTo(byte[] root) {
+        return parent.getReadOnlySnapshotTo(root);
+    }
+
     @Override
     public synchronized void commit() {
         Repository parentSync = parent == null ? this : parent;
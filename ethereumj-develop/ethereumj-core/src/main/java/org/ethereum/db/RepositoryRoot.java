@@ -23,6 +23,8 @@ import org.ethereum.datasource.*;
 import org.ethereum.trie.*;
 import org.ethereum.vm.DataWord;
 
+import java.util.ArrayList;
+
 /**
  * Created by Anton Nashatyrev on 07.10.2016.
  */
@@ -44,12 +46,38 @@ public class RepositoryRoot extends RepositoryImpl {
         @Override
         protected synchronized StorageCache create(byte[] key, StorageCache srcCache) {
             AccountState accountState = accountStateCache.get(key);
+            return createStorage(key, accountState == null ? null : accountState.getStateRoot());
+        }
+
+        private StorageCache createStorage(byte[] key, byte[] root) {
             Serializer<byte[], byte[]> keyCompositor = new NodeKeyCompositor(key);
             Source<byte[], byte[]> composingSrc = new SourceCodec.KeyOnly<>(trieCache, keyCompositor);
-            TrieImpl storageTrie = createTrie(composingSrc, accountState == null ? null : accountState.getStateRoot());
+            TrieImpl storageTrie = createTrie(composingSrc, root);
             return new StorageCache(storageTrie);
         }
 
+        /**
+         * When an account is deleted and its storage is written again a track creates
+         * the storage cache without backing source and puts the whole cache here,
+         * its rows are moved to the new empty storage trie before flushing
+         */
+        @Override
+        public synchronized boolean flushImpl() {
+            for (byte[] key : new ArrayList<>(getModified())) {
+                AbstractCachedSource.Entry entry = getCached(key);
+                Object cache = entry == null ? null : entry.value();
+                if (cache != null && !(cache instanceof StorageCache)) {
+                    CachedSource<DataWord, DataWord> rows = (CachedSource<DataWord, DataWord>) cache;
+                    StorageCache storage = createStorage(key, null);
+                    for (DataWord row : rows.getModified()) {
+                        storage.put(row, rows.get(row));
+                    }
+                    put(key, storage);
+                }
+            }
+            return super.flushImpl();
+        }
+
         @Override
         protected synchronized boolean flushChild(byte[] key, StorageCache childCache) {
             if (super.flushChild(key, childCache)) {
@@ -92,9 +120,19 @@ public class RepositoryRoot extends RepositoryImpl {
      * @param root
      */
     public RepositoryRoot(final Source<byte[], byte[]> stateDS, byte[] root) {
+        this(stateDS, root, 1);
+    }
+
+    /**
+     * @param trieCacheStripes number of independently locked parts of the trie cache,
+     *                         only the repository shared by the import and other threads gains from more than one
+     */
+    public RepositoryRoot(final Source<byte[], byte[]> stateDS, byte[] root, int trieCacheStripes) {
         this.stateDS = stateDS;
 
-        trieCache = new WriteCache.BytesKey<>(stateDS, WriteCache.CacheType.COUNTING);
+        trieCache = trieCacheStripes > 1 ?
+                new StripedWriteCache.BytesKey<>(stateDS, WriteCache.CacheType.COUNTING, trieCacheStripes) :
+                new WriteCache.BytesKey<>(stateDS, WriteCache.CacheType.COUNTING);
         stateTrie = new SecureTrie(trieCache, root);
 
         SourceCodec.BytesKey<AccountState, byte[]> accountStateCodec = new SourceCodec.BytesKey<>(stateTrie, Serializers.AccountStateSerializer);
@@ -134,6 +172,11 @@ public class RepositoryRoot extends RepositoryImpl {
         return new RepositoryRoot(stateDS, root);
     }
 
+    @Override
+    public Repository getReadOnlySnapshotTo(byte[] root) {
+        return new RepositorySnapshot(stateDS, root);
+    }
+
     @Override
     public Repository clone() {
         return getSnapshotTo(getRoot());
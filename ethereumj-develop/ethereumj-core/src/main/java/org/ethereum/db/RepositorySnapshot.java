@@ -0,0 +1,334 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ethereum.db;
+
+import org.ethereum.core.AccountState;
+import org.ethereum.core.Repository;
+import org.ethereum.crypto.HashUtil;
+import org.ethereum.datasource.AbstractChainedSource;
+import org.ethereum.datasource.CachedSource;
+import org.ethereum.datasource.MultiCache;
+import org.ethereum.datasource.NodeKeyCompositor;
+import org.ethereum.datasource.Serializers;
+import org.ethereum.datasource.Source;
+import org.ethereum.datasource.SourceCodec;
+import org.ethereum.trie.SecureTrie;
+import org.ethereum.util.ByteUtil;
+import org.ethereum.util.FastByteComparisons;
+import org.ethereum.vm.DataWord;
+
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Immutable view of the state with the given root which can be read from many threads at once.
+ *
+ * Unlike {@link RepositoryRoot} it takes no locks: every lookup walks a trie instance of its own
+ * over the shared state source, so the nodes come from the same {@link StateSource} caches
+ * as for the block import. Looked up accounts, code and storage rows are memoized, the memo is dropped
+ * as a whole once its weight goes over the limit, so a long living snapshot doesn't keep the whole state read through it.
+ *
+ * The snapshot itself can't be modified, though tracks started from it collect changes as usual
+ * which makes it suitable for local calls
+ */
+public class RepositorySnapshot extends RepositoryImpl {
+
+    // memo weight is roughly the number of entries, code counts as an entry per started KB
+    static final long DEFAULT_MEMO_LIMIT = 100_000;
+
+    private final Source<byte[], byte[]> stateDS;
+    private final byte[] root;
+
+    private final long memoLimit;
+    private final AtomicLong memoWeight = new AtomicLong();
+    private final Lookup<byte[], AccountState> accountLookup;
+    private final Lookup<byte[], byte[]> codeLookup;
+    private final StorageLookup storageLookup;
+
+    RepositorySnapshot(Source<byte[], byte[]> stateDS, byte[] root) {
+        this(stateDS, root, DEFAULT_MEMO_LIMIT);
+    }
+
+    RepositorySnapshot(Source<byte[], byte[]> stateDS, byte[] root, long memoLimit) {
+        this.stateDS = stateDS;
+        this.root = root;
+        this.memoLimit = memoLimit;
+        this.accountLookup = new Lookup<>(addr -> Serializers.AccountStateSerializer.deserialize(
+                new SecureTrie(stateDS, root).get(addr)), state -> 1);
+        this.codeLookup = new Lookup<>(stateDS::get, code -> 1 + code.length / 1024);
+        this.storageLookup = new StorageLookup();
+        init(accountLookup, codeLookup, storageLookup);
+    }
+
+    private void memoized(long weight) {
+        if (memoWeight.addAndGet(weight) > memoLimit) {
+            // lookups running meanwhile may memoize into the dropped maps, that only costs a few extra loads
+            memoWeight.set(0);
+            accountLookup.clear();
+            codeLookup.clear();
+            storageLookup.clear();
+        }
+    }
+
+    long getMemoWeight() {
+        return memoWeight.get();
+    }
+
+    private class Lookup<K, V> extends AbstractChainedSource<K, V, K, V> implements CachedSource<K, V> {
+        private final ConcurrentMap<Object, Optional<V>> cache = new ConcurrentHashMap<>();
+        private final Function<K, V> loader;
+        private final ToLongFunction<V> weigher;
+
+        Lookup(Function<K, V> loader, ToLongFunction<V> weigher) {
+            this.loader = loader;
+            this.weigher = weigher;
+        }
+
+        @Override
+        public V get(K key) {
+            Object cacheKey = key instanceof byte[] ? new ByteArrayWrapper((byte[]) key) : key;
+            Optional<V> ret = cache.get(cacheKey);
+            if (ret == null) {
+                // concurrent loads of the same key yield the same value, so no need to lock
+                ret = Optional.ofNullable(loader.apply(key));
+                if (cache.putIfAbsent(cacheKey, ret) == null) {
+                    memoized(ret.isPresent() ? weigher.applyAsLong(ret.get()) : 1);
+                }
+            }
+            return ret.orElse(null);
+        }
+
+        void clear() {
+            cache.clear();
+        }
+
+        @Override
+        public void put(K key, V val) {
+            throw new UnsupportedOperationException("Repository snapshot is read only");
+        }
+
+        @Override
+        public void delete(K key) {
+            throw new UnsupportedOperationException("Repository snapshot is read only");
+        }
+
+        @Override
+        protected boolean flushImpl() {
+            return false;
+        }
+
+        @Override
+        public Collection<K> getModified() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean hasModified() {
+            return false;
+        }
+
+        @Override
+        public long estimateCacheSize() {
+            return 0;
+        }
+    }
+
+    private class StorageLookup extends MultiCache<CachedSource<DataWord, DataWord>> {
+        private final ConcurrentMap<ByteArrayWrapper, Lookup<DataWord, DataWord>> storages = new ConcurrentHashMap<>();
+
+        StorageLookup() {
+            super(null);
+        }
+
+        @Override
+        public CachedSource<DataWord, DataWord> get(byte[] addr) {
+            ByteArrayWrapper addrKey = new ByteArrayWrapper(addr);
+            Lookup<DataWord, DataWord> ret = storages.get(addrKey);
+            if (ret == null) {
+                AccountState state = accountStateCache.get(addr);
+                Source<byte[], byte[]> storageDS = new SourceCodec.KeyOnly<>(stateDS, new NodeKeyCompositor(addr));
+                byte[] storageRoot = state == null ? null : state.getStateRoot();
+                ret = new Lookup<>(key -> Serializers.StorageValueSerializer.deserialize(
+                        new SecureTrie(storageDS, storageRoot).get(key.getData())), value -> 1);
+                Lookup<DataWord, DataWord> existing = storages.putIfAbsent(addrKey, ret);
+                if (existing != null) {
+                    ret = existing;
+                } else {
+                    memoized(1);
+                }
+            }
+            return ret;
+        }
+
+        void clear() {
+            storages.clear();
+        }
+
+        @Override
+        public void put(byte[] key, CachedSource<DataWord, DataWord> val) {
+            throw new UnsupportedOperationException("Repository snapshot is read only");
+        }
+
+        @Override
+        public void delete(byte[] key) {
+            throw new UnsupportedOperationException("Repository snapshot is read only");
+        }
+
+        @Override
+        public boolean flushImpl() {
+            return false;
+        }
+
+        @Override
+        protected CachedSource<DataWord, DataWord> create(byte[] key, CachedSource<DataWord, DataWord> srcCache) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    @Override
+    public AccountState getAccountState(byte[] addr) {
+        return accountStateCache.get(addr);
+    }
+
+    @Override
+    public boolean isExist(byte[] addr) {
+        return getAccountState(addr) != null;
+    }
+
+    @Override
+    public BigInteger getBalance(byte[] addr) {
+        AccountState accountState = getAccountState(addr);
+        return accountState == null ? BigInteger.ZERO : accountState.getBalance();
+    }
+
+    @Override
+    public BigInteger getNonce(byte[] addr) {
+        AccountState accountState = getAccountState(addr);
+        return accountState == null ? config.getBlockchainConfig().getCommonConstants().getInitialNonce() :
+                accountState.getNonce();
+    }
+
+    @Override
+    public byte[] getCode(byte[] addr) {
+        byte[] codeHash = getCodeHash(addr);
+        return codeHash == null || FastByteComparisons.equal(codeHash, HashUtil.EMPTY_DATA_HASH) ?
+                ByteUtil.EMPTY_BYTE_ARRAY : getCode(addr, codeHash);
+    }
+
+    @Override
+    byte[] getCode(byte[] addr, byte[] codeHash) {
+        return codeCache.get(codeKey(codeHash, addr));
+    }
+
+    @Override
+    public DataWord getStorageValue(byte[] addr, DataWord key) {
+        AccountState accountState = getAccountState(addr);
+        return accountState == null ? null : storageCache.get(addr).get(key);
+    }
+
+    @Override
+    public ContractDetails getContractDetails(byte[] addr) {
+        return new ContractDetailsImpl(addr);
+    }
+
+    @Override
+    public boolean hasContractDetails(byte[] addr) {
+        return true;
+    }
+
+    @Override
+    public RepositoryImpl startTracking() {
+        return createTrack();
+    }
+
+    @Override
+    public RepositoryImpl startJournaling() {
+        return new JournaledRepository(this);
+    }
+
+    @Override
+    public AccountState createAccount(byte[] addr) {
+        throw new UnsupportedOperationException("Repository snapshot is read only");
+    }
+
+    @Override
+    public void delete(byte[] addr) {
+        throw new UnsupportedOperationException("Repository snapshot is read only");
+    }
+
+    @Override
+    public BigInteger increaseNonce(byte[] addr) {
+        throw new UnsupportedOperationException("Repository snapshot is read only");
+    }
+
+    @Override
+    public BigInteger setNonce(byte[] addr, BigInteger nonce) {
+        throw new UnsupportedOperationException("Repository snapshot is read only");
+    }
+
+    @Override
+    public void saveCode(byte[] addr, byte[] code) {
+        throw new UnsupportedOperationException("Repository snapshot is read only");
+    }
+
+    @Override
+    public void addStorageRow(byte[] addr, DataWord key, DataWord value) {
+        throw new UnsupportedOperationException("Repository snapshot is read only");
+    }
+
+    @Override
+    public BigInteger addBalance(byte[] addr, BigInteger value) {
+        throw new UnsupportedOperationException("Repository snapshot is read only");
+    }
+
+    @Override
+    public void commit() {
+        throw new UnsupportedOperationException("Repository snapshot is read only");
+    }
+
+    @Override
+    public void rollback() {
+    }
+
+    @Override
+    public byte[] getRoot() {
+        return root;
+    }
+
+    @Override
+    public Repository getSnapshotTo(byte[] root) {
+        return new RepositoryRoot(stateDS, root);
+    }
+
+    @Override
+    public Repository getReadOnlySnapshotTo(byte[] root) {
+        return new RepositorySnapshot(stateDS, root);
+    }
+
+    @Override
+    public Repository clone() {
+        return startTracking();
+    }
+}
@@ -201,6 +201,11 @@ public class RepositoryWrapper implements Repository {
         return blockchain.getRepository().getSnapshotTo(root);
     }
 
+    @Override
+    public Repository getReadOnlySnapshotTo(byte[] root) {
+        return blockchain.getRepository().getReadOnlySnapshotTo(root);
+    }
+
     @Override
     public Repository clone() {
         return getSnapshotTo(getRoot());
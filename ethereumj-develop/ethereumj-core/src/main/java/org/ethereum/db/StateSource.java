@@ -34,13 +34,30 @@ public class StateSource extends SourceChainBox<byte[], byte[], byte[], byte[]>
     JournalSource<byte[]> journalSource;
     NoDeleteSource<byte[], byte[]> noDeleteSource;
 
-    ReadCache<byte[], byte[]> readCache;
+    ConcurrentReadCache<byte[], byte[]> readCache;
+    OffHeapReadCache offHeapCache;
     AbstractCachedSource<byte[], byte[]> writeCache;
 
     public StateSource(Source<byte[], byte[]> src, boolean pruningEnabled) {
+        this(src, pruningEnabled, 0);
+    }
+
+    /**
+     * @param offHeapCacheSize size in bytes of the off-heap trie nodes cache
+     *                         placed beneath the regular read cache, 0 to not use it
+     */
+    public StateSource(Source<byte[], byte[]> src, boolean pruningEnabled, long offHeapCacheSize) {
         super(src);
         INST = this;
-        add(readCache = new ReadCache.BytesKey<>(src).withMaxCapacity(16 * 1024 * 1024 / 512)); // 512 - approx size of a node
+        Source<byte[], byte[]> readCacheSrc = src;
+        if (offHeapCacheSize > 0) {
+            add(offHeapCache = new OffHeapReadCache(src, offHeapCacheSize));
+            offHeapCache.setFlushSource(true);
+            readCacheSrc = offHeapCache;
+        }
+        readCache = new ConcurrentReadCache.BytesKey<>(readCacheSrc);
+        readCache.withSizeEstimators(MemSizeEstimator.ByteArrayEstimator, MemSizeEstimator.ByteArrayEstimator);
+        add(readCache.withMaxSize(16 * 1024 * 1024));
         readCache.setFlushSource(true);
         writeCache = new AsyncWriteCache<byte[], byte[]>(readCache) {
             @Override
@@ -64,7 +81,7 @@ public class StateSource extends SourceChainBox<byte[], byte[], byte[], byte[]>
     @Autowired
     public void setConfig(SystemProperties config) {
         int size = config.getConfig().getInt("cache.stateCacheSize");
-        readCache.withMaxCapacity(size * 1024 * 1024 / 512); // 512 - approx size of a node
+        readCache.withMaxSize(size * 1024L * 1024);
     }
 
     @Autowired
@@ -89,7 +106,14 @@ public class StateSource extends SourceChainBox<byte[], byte[], byte[], byte[]>
         return writeCache;
     }
 
-    public ReadCache<byte[], byte[]> getReadCache() {
+    public ConcurrentReadCache<byte[], byte[]> getReadCache() {
         return readCache;
     }
+
+    /**
+     * @return the off-heap cache or null if it's not used
+     */
+    public OffHeapReadCache getOffHeapCache() {
+        return offHeapCache;
+    }
 }
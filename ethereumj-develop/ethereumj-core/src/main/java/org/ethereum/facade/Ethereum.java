@@ -109,6 +109,16 @@ public interface Ethereum {
      */
     TransactionReceipt callConstant(Transaction tx, Block block);
 
+    /**
+     * Executes a batch of transactions based on the specified block the same way as
+     * {@link #callConstant(Transaction, Block)} does. Transactions are executed independently
+     * (possibly concurrently) against the same state, i.e. don't see changes made by each other
+     * @param txs    The transactions to execute. No need to sign the transactions and specify the correct nonce
+     * @param block  The block providing the state and the environment for the calls
+     * @return       results of the calls in the order of transactions
+     */
+    List<ProgramResult> callConstant(List<Transaction> txs, Block block);
+
     /**
      * Executes Txes of the block in the same order and from the same state root
      * as they were executed during regular block import
@@ -98,6 +98,9 @@ public class EthereumImpl implements Ethereum, SmartLifecycle {
     @Autowired
     SyncManager syncManager;
 
+    @Autowired
+    LocalCallExecutor localCallExecutor;
+
     @Autowired
     CommonConfig commonConfig = CommonConfig.getDefault();
 
@@ -230,6 +233,11 @@ public class EthereumImpl implements Ethereum, SmartLifecycle {
         return callConstantImpl(tx, block).getReceipt();
     }
 
+    @Override
+    public List<ProgramResult> callConstant(List<Transaction> txs, Block block) {
+        return localCallExecutor.callAll(txs, block);
+    }
+
     @Override
     public BlockSummary replayBlock(Block block) {
         List<TransactionReceipt> receipts = new ArrayList<>();
@@ -276,8 +284,7 @@ public class EthereumImpl implements Ethereum, SmartLifecycle {
 
     private org.ethereum.core.TransactionExecutor callConstantImpl(Transaction tx, Block block) {
 
-        Repository repository = ((Repository) worldManager.getRepository())
-                .getSnapshotTo(block.getStateRoot())
+        Repository repository = localCallExecutor.getSnapshot(block.getStateRoot())
                 .startTracking();
 
         try {
@@ -312,7 +319,7 @@ public class EthereumImpl implements Ethereum, SmartLifecycle {
         tx.sign(senderPrivateKey);
         Block bestBlock = worldManager.getBlockchain().getBestBlock();
 
-        return callConstantImpl(tx, bestBlock).getResult();
+        return localCallExecutor.call(tx, bestBlock);
     }
 
     @Override
@@ -75,9 +75,7 @@ public class BlockLoader {
     private void initPipelines() {
         exec1 = new ExecutorPipeline(8, 1000, true, (Function<Block, Block>) b -> {
             if (b.getNumber() >= blockchain.getBestBlock().getNumber()) {
-                for (Transaction tx : b.getTransactionsList()) {
-                    tx.getSender();
-                }
+                Transaction.recoverSenders(b.getTransactionsList());
             }
             return b;
         }, throwable -> logger.error("Unhandled exception: ", throwable));
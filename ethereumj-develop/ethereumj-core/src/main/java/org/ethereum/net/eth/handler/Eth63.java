@@ -35,7 +35,7 @@ import org.ethereum.net.eth.message.ReceiptsMessage;
 
 import org.ethereum.net.message.ReasonCode;
 import org.ethereum.sync.PeerState;
-import org.ethereum.util.ByteArraySet;
+import org.ethereum.util.ByteArrayHashSet;
 import org.ethereum.util.Value;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -110,14 +110,20 @@ public class Eth63 extends Eth62 {
         );
 
         List<Value> nodeValues = new ArrayList<>();
-        for (byte[] nodeKey : msg.getNodeKeys()) {
-            byte[] rawNode = trieNodeSource.get(nodeKey);
-            if (rawNode != null) {
-                Value value = new Value(rawNode);
-                nodeValues.add(value);
-                if (nodeValues.size() >= MAX_HASHES_TO_SEND) break;
-                logger.trace("Eth63: " + toHexString(nodeKey).substring(0, 8) + " -> " + value);
+        List<byte[]> nodeKeys = msg.getNodeKeys();
+        // requesting no more than the number of nodes still missing in a single batch
+        for (int from = 0; from < nodeKeys.size() && nodeValues.size() < MAX_HASHES_TO_SEND; ) {
+            List<byte[]> batch = nodeKeys.subList(from, Math.min(nodeKeys.size(), from + MAX_HASHES_TO_SEND - nodeValues.size()));
+            List<byte[]> rawNodes = trieNodeSource.getBatch(batch);
+            for (int i = 0; i < batch.size(); i++) {
+                byte[] rawNode = rawNodes.get(i);
+                if (rawNode != null) {
+                    Value value = new Value(rawNode);
+                    nodeValues.add(value);
+                    if (logger.isTraceEnabled()) logger.trace("Eth63: " + toHexString(batch.get(i)).substring(0, 8) + " -> " + value);
+                }
             }
+            from += batch.size();
         }
 
         sendMessage(new NodeDataMessage(nodeValues));
@@ -137,9 +143,13 @@ public class Eth63 extends Eth62 {
             Block block = blockchain.getBlockByHash(blockHash);
             if (block == null) continue;
 
-            List<TransactionReceipt> blockReceipts = new ArrayList<>();
+            List<byte[]> txHashes = new ArrayList<>(block.getTransactionsList().size());
             for (Transaction transaction : block.getTransactionsList()) {
-                TransactionInfo transactionInfo = blockchain.getTransactionInfo(transaction.getHash());
+                txHashes.add(transaction.getHash());
+            }
+
+            List<TransactionReceipt> blockReceipts = new ArrayList<>();
+            for (TransactionInfo transactionInfo : blockchain.getTransactionInfos(txHashes)) {
                 if (transactionInfo == null) break;
                 blockReceipts.add(transactionInfo.getReceipt());
                 sizeSum += TransactionReceipt.MemEstimator.estimateSize(transactionInfo.getReceipt());
@@ -155,7 +165,7 @@ public class Eth63 extends Eth62 {
         if (peerState != PeerState.IDLE) return null;
 
         GetNodeDataMessage msg = new GetNodeDataMessage(hashes);
-        requestedNodes = new ByteArraySet();
+        requestedNodes = new ByteArrayHashSet();
         requestedNodes.addAll(hashes);
 
         requestNodesFuture = SettableFuture.create();
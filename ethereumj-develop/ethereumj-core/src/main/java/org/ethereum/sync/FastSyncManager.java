@@ -229,7 +229,7 @@ public class FastSyncManager {
         final Map<Long, Long> requestSent = new HashMap<>();
         TrieKey nodePath = TrieKey.empty(false);
 
-        private final Set<byte[]> accounts = new ByteArraySet();
+        private final Set<byte[]> accounts = new ByteArrayHashSet();
 
         TrieNodeRequest(TrieNodeType type, byte[] nodeHash) {
             this.type = type;
@@ -341,7 +341,7 @@ public class FastSyncManager {
     }
 
     Deque<TrieNodeRequest> nodesQueue = new LinkedBlockingDeque<>();
-    ByteArrayMap<TrieNodeRequest> pendingNodes = new ByteArrayMap<>();
+    ByteArrayHashMap<TrieNodeRequest> pendingNodes = new ByteArrayHashMap<>();
     Long requestId = 0L;
 
     private synchronized void purgePending(byte[] hash) {
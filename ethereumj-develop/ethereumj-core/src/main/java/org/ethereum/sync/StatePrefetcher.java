@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ethereum.sync;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.ethereum.config.CommonConfig;
+import org.ethereum.config.SystemProperties;
+import org.ethereum.core.Block;
+import org.ethereum.core.Repository;
+import org.ethereum.core.Transaction;
+import org.ethereum.core.TransactionExecutor;
+import org.ethereum.db.BlockStore;
+import org.ethereum.listener.EthereumListenerAdapter;
+import org.ethereum.util.FastByteComparisons;
+import org.ethereum.vm.hook.VMHook;
+import org.ethereum.vm.program.invoke.ProgramInvokeFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.ethereum.util.ByteUtil.toHexString;
+
+/**
+ * Warms up the state read cache for a block waiting in the import queue.
+ *
+ * While the previous block is being imported the transactions of the queued block are
+ * run on a worker pool against a throwaway snapshot of the latest imported state.
+ * Reading the accounts, code and storage the transactions touch pulls the state trie nodes
+ * into the {@link org.ethereum.db.StateSource} read cache, so the import thread mostly hits memory.
+ * The snapshot lags one block behind, so a few reads may miss, which only affects the hit rate.
+ */
+@Component
+public class StatePrefetcher {
+
+    private static final Logger logger = LoggerFactory.getLogger("sync");
+
+    private final Repository repository;
+    private final BlockStore blockStore;
+    private final ProgramInvokeFactory programInvokeFactory;
+    private final CommonConfig commonConfig;
+
+    private final ThreadPoolExecutor executor;
+
+    private volatile byte[] lastPrefetched;
+
+    @Autowired
+    public StatePrefetcher(SystemProperties config, @Qualifier("defaultRepository") Repository repository,
+                           BlockStore blockStore, ProgramInvokeFactory programInvokeFactory,
+                           CommonConfig commonConfig) {
+        this.repository = repository;
+        this.blockStore = blockStore;
+        this.programInvokeFactory = programInvokeFactory;
+        this.commonConfig = commonConfig;
+        int threads = config.statePrefetchThreads();
+        // prefetching is useless when falling far behind the import, so the oldest tasks are dropped
+        this.executor = threads <= 0 ? null : new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(1024),
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("state-prefetch-%d").build(),
+                new ThreadPoolExecutor.DiscardOldestPolicy());
+    }
+
+    /**
+     * Schedules prefetching of the state touched by the block transactions
+     *
+     * @param block block to be imported soon
+     * @param stateRoot the latest state available, normally the state of the best block
+     */
+    public void prefetch(Block block, byte[] stateRoot) {
+        if (executor == null || block.getTransactionsList().isEmpty()) return;
+        if (lastPrefetched != null && FastByteComparisons.equal(block.getHash(), lastPrefetched)) return;
+        lastPrefetched = block.getHash();
+
+        for (Transaction tx : block.getTransactionsList()) {
+            executor.submit(() -> {
+                try {
+                    prefetch(tx, block, stateRoot);
+                } catch (Throwable t) {
+                    logger.debug("State prefetch failed for tx {}: {}", toHexString(tx.getHash()), t.toString());
+                }
+            });
+        }
+    }
+
+    /**
+     * Reads the state touched by the transaction
+     *
+     * @return the snapshot track holding changes of the trial execution, they are never committed
+     */
+    Repository prefetch(Transaction tx, Block block, byte[] stateRoot) {
+        Repository snapshot = repository.getSnapshotTo(stateRoot).startTracking();
+
+        snapshot.getAccountState(tx.getSender());
+        if (!tx.isContractCreation()) {
+            snapshot.getCode(tx.getReceiveAddress());
+        }
+
+        // trial execution to reach the storage, the results are dropped along with the snapshot
+        TransactionExecutor executor = new TransactionExecutor(tx, block.getCoinbase(), snapshot, blockStore,
+                programInvokeFactory, block, new EthereumListenerAdapter(), 0, VMHook.EMPTY)
+                .withCommonConfig(commonConfig)
+                .setLocalCall(true);
+        executor.init();
+        executor.execute();
+        executor.go();
+        return snapshot;
+    }
+
+    /**
+     * Waits until all the scheduled prefetches are done
+     */
+    void awaitIdle() throws InterruptedException {
+        while (executor != null && executor.getCompletedTaskCount() < executor.getTaskCount()) {
+            Thread.sleep(10);
+        }
+    }
+}
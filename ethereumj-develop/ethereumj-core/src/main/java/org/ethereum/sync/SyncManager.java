@@ -64,9 +64,7 @@ public class SyncManager extends BlockDownloader {
     // to unload the main block importing cycle
     private ExecutorPipeline<BlockWrapper,BlockWrapper> exec1 = new ExecutorPipeline<>
             (4, 1000, true, blockWrapper -> {
-                for (Transaction tx : blockWrapper.getBlock().getTransactionsList()) {
-                    tx.getSender();
-                }
+                Transaction.recoverSenders(blockWrapper.getBlock().getTransactionsList());
                 return blockWrapper;
             }, throwable -> logger.error("Unexpected exception: ", throwable));
 
@@ -95,6 +93,9 @@ public class SyncManager extends BlockDownloader {
     @Autowired
     private DependentBlockHeaderRule parentHeaderValidator;
 
+    @Autowired
+    private StatePrefetcher statePrefetcher;
+
     ChannelManager channelManager;
 
     private SystemProperties config;
@@ -286,6 +287,12 @@ public class SyncManager extends BlockDownloader {
                         blockQueue.size(), syncQueue.getHeadersCount(), blocksInMem.get(),
                         blocksInMem.get() * getEstimatedBlockSize() / 1024 / 1024);
 
+                // the next block state is read while this one is being imported
+                BlockWrapper next = blockQueue.peek();
+                if (next != null) {
+                    statePrefetcher.prefetch(next.getBlock(), blockchain.getBestBlock().getStateRoot());
+                }
+
                 long s = System.nanoTime();
                 long sl;
                 ImportResult importResult;
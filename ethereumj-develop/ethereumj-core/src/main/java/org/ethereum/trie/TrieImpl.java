@@ -719,6 +719,7 @@ public class TrieImpl implements Trie<byte[]> {
         if (node.getType() == NodeType.BranchNode) {
             if (node.branchNodeGetValue() != null)
                 scanAction.doOnValue(node.hash, node, k.toNormal(), node.branchNodeGetValue());
+            resolveChildren(node);
             for (int i = 0; i < 16; i++) {
                 scanTree(node.branchNodeGetChild(i), k.concat(TrieKey.singleHex(i)), scanAction);
             }
@@ -730,6 +731,28 @@ public class TrieImpl implements Trie<byte[]> {
     }
 
 
+    /**
+     * Loads all the not yet resolved children of the branch node from the cache in a single batch
+     */
+    private void resolveChildren(Node branchNode) {
+        List<Node> unresolved = new ArrayList<>();
+        List<byte[]> hashes = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            Node child = branchNode.branchNodeGetChild(i);
+            if (child != null && child.hash != null && child.rlp == null && child.parsedRlp == null) {
+                unresolved.add(child);
+                hashes.add(child.hash);
+            }
+        }
+        if (hashes.size() < 2) return;
+
+        List<byte[]> rlps = cache.getBatch(hashes);
+        for (int i = 0; i < unresolved.size(); i++) {
+            // unresolvable node fails later on the regular resolve()
+            unresolved.get(i).rlp = rlps.get(i);
+        }
+    }
+
     private static String hash2str(byte[] hash, boolean shortHash) {
         String ret = Hex.toHexString(hash);
         return "0x" + (shortHash ? ret.substring(0,8) : ret);
@@ -0,0 +1,418 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ethereum.util;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Map with byte[] keys compared by content which, unlike {@link ByteArrayMap},
+ * doesn't wrap keys into {@link org.ethereum.db.ByteArrayWrapper}
+ *
+ * Keys and values are kept in flat arrays addressed by the linear probing,
+ * the key hash is stored alongside to skip comparing most of the non matching keys
+ * and to not recalculate it on resize.
+ * For the 32 bytes keys (hashes) the key hash is taken from the first 8 bytes,
+ * other keys are hashed entirely
+ *
+ * Removed entries leave a mark which is dropped on the next resize,
+ * thus removing entries while iterating is safe
+ */
+public class ByteArrayHashMap<V> extends AbstractMap<byte[], V> {
+
+    private static final int HASH_KEY_LENGTH = 32;
+    private static final int MIN_CAPACITY = 16;
+
+    // marks the slot of the removed entry
+    private static final byte[] REMOVED = new byte[0];
+
+    private byte[][] keys;
+    private Object[] values;
+    private int[] hashes;
+    private int mask;
+
+    private int size;
+    private int used; // including removed entries marks
+    private int modCount;
+
+    private Set<byte[]> keySet;
+    private Collection<V> valuesCollection;
+    private Set<Entry<byte[], V>> entrySet;
+
+    public ByteArrayHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public ByteArrayHashMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * Hash of the byte[] key consistent with {@link #equals(byte[], byte[])}
+     */
+    public static int hash(byte[] key) {
+        long h;
+        if (key.length == HASH_KEY_LENGTH) {
+            h = ((key[0] & 0xFFL) << 56) | ((key[1] & 0xFFL) << 48) |
+                    ((key[2] & 0xFFL) << 40) | ((key[3] & 0xFFL) << 32) |
+                    ((key[4] & 0xFFL) << 24) | ((key[5] & 0xFFL) << 16) |
+                    ((key[6] & 0xFFL) << 8) | (key[7] & 0xFFL);
+        } else {
+            h = Arrays.hashCode(key);
+        }
+        // the keys are not necessarily hashes, spreading the bits in case they are not uniform
+        h *= 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static boolean equals(byte[] key1, byte[] key2) {
+        return Arrays.equals(key1, key2);
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int ret = MIN_CAPACITY;
+        while (ret / 4 * 3 < expectedSize) ret <<= 1;
+        return ret;
+    }
+
+    private void allocate(int capacity) {
+        keys = new byte[capacity][];
+        values = new Object[capacity];
+        hashes = new int[capacity];
+        mask = capacity - 1;
+        used = size;
+    }
+
+    private int indexOf(byte[] key) {
+        int hash = hash(key);
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            byte[] k = keys[i];
+            if (k == null) return -1;
+            if (k != REMOVED && hashes[i] == hash && equals(k, key)) return i;
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf((byte[]) key) >= 0;
+    }
+
+    @Override
+    public V get(Object key) {
+        int idx = indexOf((byte[]) key);
+        return idx < 0 ? null : (V) values[idx];
+    }
+
+    @Override
+    public V put(byte[] key, V value) {
+        int hash = hash(key);
+        int free = -1;
+        int i = hash & mask;
+        for (; ; i = (i + 1) & mask) {
+            byte[] k = keys[i];
+            if (k == null) break;
+            if (k == REMOVED) {
+                if (free < 0) free = i;
+            } else if (hashes[i] == hash && equals(k, key)) {
+                V ret = (V) values[i];
+                values[i] = value;
+                return ret;
+            }
+        }
+
+        if (free >= 0) {
+            i = free;
+        } else if (used + 1 > keys.length / 4 * 3) {
+            rehash(size + 1);
+            i = hash & mask;
+            while (keys[i] != null) i = (i + 1) & mask;
+            used++;
+        } else {
+            used++;
+        }
+        keys[i] = key;
+        values[i] = value;
+        hashes[i] = hash;
+        size++;
+        modCount++;
+        return null;
+    }
+
+    private void rehash(int expectedSize) {
+        byte[][] oldKeys = keys;
+        Object[] oldValues = values;
+        int[] oldHashes = hashes;
+        // growing only when live entries are the reason, otherwise just dropping the removed marks
+        allocate(Math.max(capacityFor(expectedSize), expectedSize > keys.length / 2 ? keys.length << 1 : keys.length));
+        for (int j = 0; j < oldKeys.length; j++) {
+            byte[] k = oldKeys[j];
+            if (k != null && k != REMOVED) {
+                int i = oldHashes[j] & mask;
+                while (keys[i] != null) i = (i + 1) & mask;
+                keys[i] = k;
+                values[i] = oldValues[j];
+                hashes[i] = oldHashes[j];
+            }
+        }
+    }
+
+    @Override
+    public V remove(Object key) {
+        int idx = indexOf((byte[]) key);
+        if (idx < 0) return null;
+        V ret = (V) values[idx];
+        removeAt(idx);
+        return ret;
+    }
+
+    private void removeAt(int idx) {
+        keys[idx] = REMOVED;
+        values[idx] = null;
+        size--;
+        modCount++;
+    }
+
+    @Override
+    public void clear() {
+        if (used == 0) return;
+        Arrays.fill(keys, null);
+        Arrays.fill(values, null);
+        size = 0;
+        used = 0;
+        modCount++;
+    }
+
+    @Override
+    public Set<byte[]> keySet() {
+        if (keySet == null) {
+            keySet = new AbstractSet<byte[]>() {
+                @Override
+                public Iterator<byte[]> iterator() {
+                    return new SlotIterator<byte[]>() {
+                        @Override
+                        byte[] get(int idx) {
+                            return keys[idx];
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    return containsKey(o);
+                }
+
+                @Override
+                public boolean remove(Object o) {
+                    int idx = indexOf((byte[]) o);
+                    if (idx < 0) return false;
+                    removeAt(idx);
+                    return true;
+                }
+
+                @Override
+                public void clear() {
+                    ByteArrayHashMap.this.clear();
+                }
+            };
+        }
+        return keySet;
+    }
+
+    @Override
+    public Collection<V> values() {
+        if (valuesCollection == null) {
+            valuesCollection = new AbstractCollection<V>() {
+                @Override
+                public Iterator<V> iterator() {
+                    return new SlotIterator<V>() {
+                        @Override
+                        V get(int idx) {
+                            return (V) values[idx];
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public void clear() {
+                    ByteArrayHashMap.this.clear();
+                }
+            };
+        }
+        return valuesCollection;
+    }
+
+    @Override
+    public Set<Entry<byte[], V>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<Entry<byte[], V>>() {
+                @Override
+                public Iterator<Entry<byte[], V>> iterator() {
+                    return new SlotIterator<Entry<byte[], V>>() {
+                        @Override
+                        Entry<byte[], V> get(int idx) {
+                            return new SlotEntry(idx);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    if (!(o instanceof Entry)) return false;
+                    Entry<?, ?> e = (Entry<?, ?>) o;
+                    if (!(e.getKey() instanceof byte[])) return false;
+                    int idx = indexOf((byte[]) e.getKey());
+                    return idx >= 0 && (values[idx] == null ? e.getValue() == null : values[idx].equals(e.getValue()));
+                }
+
+                @Override
+                public boolean remove(Object o) {
+                    if (!contains(o)) return false;
+                    ByteArrayHashMap.this.remove(((Entry<?, ?>) o).getKey());
+                    return true;
+                }
+
+                @Override
+                public void clear() {
+                    ByteArrayHashMap.this.clear();
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    private abstract class SlotIterator<E> implements Iterator<E> {
+        int next = advance(0);
+        int last = -1;
+        int expectedModCount = modCount;
+
+        private int advance(int from) {
+            while (from < keys.length && (keys[from] == null || keys[from] == REMOVED)) from++;
+            return from;
+        }
+
+        abstract E get(int idx);
+
+        @Override
+        public boolean hasNext() {
+            return next < keys.length;
+        }
+
+        @Override
+        public E next() {
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+            if (next >= keys.length) throw new NoSuchElementException();
+            last = next;
+            next = advance(next + 1);
+            return get(last);
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) throw new IllegalStateException();
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+            removeAt(last);
+            expectedModCount = modCount;
+            last = -1;
+        }
+    }
+
+    private final class SlotEntry implements Entry<byte[], V> {
+        private final int idx;
+        private final byte[] key;
+
+        SlotEntry(int idx) {
+            this.idx = idx;
+            this.key = keys[idx];
+        }
+
+        @Override
+        public byte[] getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return (V) values[idx];
+        }
+
+        @Override
+        public V setValue(V value) {
+            if (keys[idx] != key) throw new ConcurrentModificationException();
+            V ret = (V) values[idx];
+            values[idx] = value;
+            return ret;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Entry)) return false;
+            Entry<?, ?> e = (Entry<?, ?>) o;
+            Object v = getValue();
+            return e.getKey() instanceof byte[] && equals(key, (byte[]) e.getKey()) &&
+                    (v == null ? e.getValue() == null : v.equals(e.getValue()));
+        }
+
+        private boolean equals(byte[] k1, byte[] k2) {
+            return ByteArrayHashMap.equals(k1, k2);
+        }
+
+        @Override
+        public int hashCode() {
+            Object v = getValue();
+            return Arrays.hashCode(key) ^ (v == null ? 0 : v.hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return ByteUtil.toHexString(key) + "=" + getValue();
+        }
+    }
+}
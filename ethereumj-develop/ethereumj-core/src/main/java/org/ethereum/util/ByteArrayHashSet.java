@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ethereum.util;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * Set of byte[] compared by content backed by the {@link ByteArrayHashMap},
+ * avoids wrapping elements into {@link org.ethereum.db.ByteArrayWrapper} like {@link ByteArraySet} does
+ */
+public class ByteArrayHashSet extends AbstractSet<byte[]> {
+    private final ByteArrayHashMap<Boolean> map;
+
+    public ByteArrayHashSet() {
+        map = new ByteArrayHashMap<>();
+    }
+
+    public ByteArrayHashSet(int expectedSize) {
+        map = new ByteArrayHashMap<>(expectedSize);
+    }
+
+    public ByteArrayHashSet(Collection<? extends byte[]> c) {
+        this(c.size());
+        addAll(c);
+    }
+
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return map.isEmpty();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return map.containsKey(o);
+    }
+
+    @Override
+    public Iterator<byte[]> iterator() {
+        return map.keySet().iterator();
+    }
+
+    @Override
+    public boolean add(byte[] bytes) {
+        return map.put(bytes, Boolean.TRUE) == null;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return map.remove(o) != null;
+    }
+
+    @Override
+    public void clear() {
+        map.clear();
+    }
+
+    @Override
+    public int hashCode() {
+        int ret = 0;
+        for (byte[] bytes : this) {
+            ret += Arrays.hashCode(bytes);
+        }
+        return ret;
+    }
+}
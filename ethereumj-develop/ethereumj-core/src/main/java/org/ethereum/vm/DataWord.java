@@ -21,15 +21,10 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonValue;
 import org.ethereum.db.ByteArrayWrapper;
 import org.ethereum.util.ByteUtil;
-import org.ethereum.util.FastByteComparisons;
 import org.spongycastle.util.encoders.Hex;
 
 import java.math.BigInteger;
-import java.util.Arrays;
 
-import static org.ethereum.util.ByteUtil.intToBytes;
-import static org.ethereum.util.ByteUtil.longToBytes;
-import static org.ethereum.util.ByteUtil.numberOfLeadingZeros;
 import static org.ethereum.util.ByteUtil.toHexString;
 
 /**
@@ -37,6 +32,9 @@ import static org.ethereum.util.ByteUtil.toHexString;
  * Calculations can be done on this word with other DataWords
  * DataWord is immutable. Use one of `of` factories for instance creation.
  *
+ * Internally the number is kept in four 64-bit limbs, most significant first,
+ * all arithmetic is done on limbs without {@link BigInteger} round trips
+ *
  * @author Roman Mandeleil
  * @since 01.06.2014
  */
@@ -46,27 +44,30 @@ public final class DataWord implements Comparable<DataWord> {
     public static final int MAX_POW = 256;
     public static final BigInteger _2_256 = BigInteger.valueOf(2).pow(MAX_POW);
     public static final BigInteger MAX_VALUE = _2_256.subtract(BigInteger.ONE);
-    public static final DataWord ZERO = new DataWord(new byte[32]);
-    public static final DataWord ONE = DataWord.of((byte) 1);
+    public static final DataWord ZERO = new DataWord(0, 0, 0, 0);
+    public static final DataWord ONE = new DataWord(0, 0, 0, 1);
+
+    public static final long MEM_SIZE = 16 + 4 * 8;
 
-    public static final long MEM_SIZE = 32 + 16 + 16;
+    private static final long INT_MASK = 0xFFFFFFFFL;
 
-    private final byte[] data;
+    /* w0 is the most significant limb, w3 is the least significant one */
+    private final long w0, w1, w2, w3;
 
     /**
-     * Unsafe private constructor
-     * Doesn't guarantee immutability if byte[] contents are changed later
+     * Private constructor, limbs are stored as is
      * Use one of factory methods instead:
      *  - {@link #of(byte[])}
      *  - {@link #of(ByteArrayWrapper)}
      *  - {@link #of(String)}
      *  - {@link #of(long)}
      *  - {@link #of(int)}
-     * @param data Byte Array[32] which is guaranteed to be immutable
      */
-    private DataWord(byte[] data) {
-        if (data == null || data.length != 32) throw new RuntimeException("Input byte array should have 32 bytes in it!");
-        this.data = data;
+    private DataWord(long w0, long w1, long w2, long w3) {
+        this.w0 = w0;
+        this.w1 = w1;
+        this.w2 = w2;
+        this.w3 = w3;
     }
 
     public static DataWord of(byte[] data) {
@@ -74,22 +75,20 @@ public final class DataWord implements Comparable<DataWord> {
             return DataWord.ZERO;
         }
 
-        int leadingZeroBits = numberOfLeadingZeros(data);
-        int valueBits = 8 * data.length - leadingZeroBits;
-        if (valueBits <= 8) {
-            if (data[data.length - 1] == 0) return DataWord.ZERO;
-            if (data[data.length - 1] == 1) return DataWord.ONE;
+        if (data.length > 32) {
+            int firstNonZero = ByteUtil.firstNonZeroByte(data);
+            if (firstNonZero == -1) return DataWord.ZERO;
+            if (firstNonZero == data.length - 1 && data[firstNonZero] == 1) return DataWord.ONE;
+            throw new RuntimeException(String.format("Data word can't exceed 32 bytes: 0x%s", ByteUtil.toHexString(data)));
         }
 
-        if (data.length == 32)
-            return new DataWord(Arrays.copyOf(data, data.length));
-        else if (data.length <= 32) {
-            byte[] bytes = new byte[32];
-            System.arraycopy(data, 0, bytes, 32 - data.length, data.length);
-            return new DataWord(bytes);
-        } else {
-            throw new RuntimeException(String.format("Data word can't exceed 32 bytes: 0x%s", ByteUtil.toHexString(data)));
+        long[] limbs = new long[4];
+        int offset = 32 - data.length;
+        for (int i = 0; i < data.length; i++) {
+            int pos = offset + i;
+            limbs[pos >>> 3] = (limbs[pos >>> 3] << 8) | (data[i] & 0xff);
         }
+        return valueOf(limbs[0], limbs[1], limbs[2], limbs[3]);
     }
 
     public static DataWord of(ByteArrayWrapper wrappedData) {
@@ -102,18 +101,23 @@ public final class DataWord implements Comparable<DataWord> {
     }
 
     public static DataWord of(byte num) {
-        byte[] bb = new byte[32];
-        bb[31] = num;
-        return new DataWord(bb);
-
+        return new DataWord(0, 0, 0, num & 0xff);
     }
 
     public static DataWord of(int num) {
-        return of(intToBytes(num));
+        return valueOf(0, 0, 0, num & INT_MASK);
     }
 
     public static DataWord of(long num) {
-        return of(longToBytes(num));
+        return valueOf(0, 0, 0, num);
+    }
+
+    private static DataWord valueOf(long w0, long w1, long w2, long w3) {
+        if ((w0 | w1 | w2) == 0) {
+            if (w3 == 0) return ZERO;
+            if (w3 == 1) return ONE;
+        }
+        return new DataWord(w0, w1, w2, w3);
     }
 
     /**
@@ -123,27 +127,38 @@ public final class DataWord implements Comparable<DataWord> {
      * @return instance data
      */
     public byte[] getData() {
-        return Arrays.copyOf(data, data.length);
-    }
-
-    /**
-     * Returns copy of instance data
-     * @return copy of instance data
-     */
-    private byte[] copyData() {
-        return Arrays.copyOf(data, data.length);
+        byte[] data = new byte[32];
+        putLimb(data, 0, w0);
+        putLimb(data, 8, w1);
+        putLimb(data, 16, w2);
+        putLimb(data, 24, w3);
+        return data;
+    }
+
+    private static void putLimb(byte[] data, int offset, long limb) {
+        for (int i = 7; i >= 0; i--) {
+            data[offset + i] = (byte) limb;
+            limb >>>= 8;
+        }
     }
 
     public byte[] getNoLeadZeroesData() {
-        return ByteUtil.stripLeadingZeroes(copyData());
+        return ByteUtil.stripLeadingZeroes(getData());
     }
 
     public byte[] getLast20Bytes() {
-        return Arrays.copyOfRange(data, 12, data.length);
+        byte[] last20 = new byte[20];
+        last20[0] = (byte) (w1 >>> 24);
+        last20[1] = (byte) (w1 >>> 16);
+        last20[2] = (byte) (w1 >>> 8);
+        last20[3] = (byte) w1;
+        putLimb(last20, 4, w2);
+        putLimb(last20, 12, w3);
+        return last20;
     }
 
     public BigInteger value() {
-        return new BigInteger(1, data);
+        return new BigInteger(1, getData());
     }
 
     /**
@@ -155,13 +170,7 @@ public final class DataWord implements Comparable<DataWord> {
      * @throws ArithmeticException - if this will not fit in an int.
      */
     public int intValue() {
-        int intVal = 0;
-
-        for (byte aData : data) {
-            intVal = (intVal << 8) + (aData & 0xff);
-        }
-
-        return intVal;
+        return (int) w3;
     }
 
     /**
@@ -169,10 +178,8 @@ public final class DataWord implements Comparable<DataWord> {
      * otherwise works as #intValue()
      */
     public int intValueSafe() {
-        int bytesOccupied = bytesOccupied();
-        int intValue = intValue();
-        if (bytesOccupied > 4 || intValue < 0) return Integer.MAX_VALUE;
-        return intValue;
+        if ((w0 | w1 | w2) != 0 || (w3 & ~0x7FFFFFFFL) != 0) return Integer.MAX_VALUE;
+        return (int) w3;
     }
 
     /**
@@ -184,13 +191,7 @@ public final class DataWord implements Comparable<DataWord> {
      * @throws ArithmeticException - if this will not fit in a long.
      */
     public long longValue() {
-
-        long longVal = 0;
-        for (byte aData : data) {
-            longVal = (longVal << 8) + (aData & 0xff);
-        }
-
-        return longVal;
+        return w3;
     }
 
     /**
@@ -198,55 +199,40 @@ public final class DataWord implements Comparable<DataWord> {
      * otherwise works as #longValue()
      */
     public long longValueSafe() {
-        int bytesOccupied = bytesOccupied();
-        long longValue = longValue();
-        if (bytesOccupied > 8 || longValue < 0) return Long.MAX_VALUE;
-        return longValue;
+        if ((w0 | w1 | w2) != 0 || w3 < 0) return Long.MAX_VALUE;
+        return w3;
     }
 
     public BigInteger sValue() {
-        return new BigInteger(data);
+        return new BigInteger(getData());
     }
 
     public String bigIntValue() {
-        return new BigInteger(data).toString();
+        return sValue().toString();
     }
 
     public boolean isZero() {
         if (this == ZERO) return true;
-        return this.compareTo(ZERO) == 0;
+        return (w0 | w1 | w2 | w3) == 0;
     }
 
     // only in case of signed operation
     // when the number is explicit defined
     // as negative
     public boolean isNegative() {
-        int result = data[0] & 0x80;
-        return result == 0x80;
+        return w0 < 0;
     }
 
     public DataWord and(DataWord word) {
-        byte[] newData = this.copyData();
-        for (int i = 0; i < this.data.length; ++i) {
-            newData[i] &= word.data[i];
-        }
-        return new DataWord(newData);
+        return valueOf(w0 & word.w0, w1 & word.w1, w2 & word.w2, w3 & word.w3);
     }
 
     public DataWord or(DataWord word) {
-        byte[] newData = this.copyData();
-        for (int i = 0; i < this.data.length; ++i) {
-            newData[i] |= word.data[i];
-        }
-        return new DataWord(newData);
+        return valueOf(w0 | word.w0, w1 | word.w1, w2 | word.w2, w3 | word.w3);
     }
 
     public DataWord xor(DataWord word) {
-        byte[] newData = this.copyData();
-        for (int i = 0; i < this.data.length; ++i) {
-            newData[i] ^= word.data[i];
-        }
-        return new DataWord(newData);
+        return valueOf(w0 ^ word.w0, w1 ^ word.w1, w2 ^ word.w2, w3 ^ word.w3);
     }
 
     public DataWord negate() {
@@ -255,81 +241,102 @@ public final class DataWord implements Comparable<DataWord> {
     }
 
     public DataWord bnot() {
-        if (this.isZero()) {
-            return new DataWord(ByteUtil.copyToArray(MAX_VALUE));
-        }
-        return new DataWord(ByteUtil.copyToArray(MAX_VALUE.subtract(this.value())));
+        return valueOf(~w0, ~w1, ~w2, ~w3);
     }
 
-    // By   : Holger
-    // From : http://stackoverflow.com/a/24023466/459349
     public DataWord add(DataWord word) {
-        byte[] newData = new byte[32];
-        for (int i = 31, overflow = 0; i >= 0; i--) {
-            int v = (this.data[i] & 0xff) + (word.data[i] & 0xff) + overflow;
-            newData[i] = (byte) v;
-            overflow = v >>> 8;
-        }
-        return new DataWord(newData);
+        long r3 = w3 + word.w3;
+        long c = Long.compareUnsigned(r3, w3) < 0 ? 1 : 0;
+        long r2 = w2 + word.w2 + c;
+        c = carry(w2, word.w2, r2, c);
+        long r1 = w1 + word.w1 + c;
+        c = carry(w1, word.w1, r1, c);
+        long r0 = w0 + word.w0 + c;
+        return valueOf(r0, r1, r2, r3);
+    }
+
+    /* carry out of a + b + c == sum, where c is either 0 or 1 */
+    private static long carry(long a, long b, long sum, long c) {
+        return (c == 0 ? Long.compareUnsigned(sum, a) < 0 : Long.compareUnsigned(sum, a) <= 0) ? 1 : 0;
     }
 
     // old add-method with BigInteger quick hack
     public DataWord add2(DataWord word) {
         BigInteger result = value().add(word.value());
-        return new DataWord(ByteUtil.copyToArray(result.and(MAX_VALUE)));
+        return of(ByteUtil.copyToArray(result.and(MAX_VALUE)));
     }
 
-    // TODO: mul can be done in more efficient way
-    // TODO:     with shift left shift right trick
-    // TODO      without BigInteger quick hack
     public DataWord mul(DataWord word) {
-        BigInteger result = value().multiply(word.value());
-        return new DataWord(ByteUtil.copyToArray(result.and(MAX_VALUE)));
+        if (this.isZero() || word.isZero()) return ZERO;
+        return fromInts(mulInts(toInts(), word.toInts(), 8));
     }
 
-    // TODO: improve with no BigInteger
     public DataWord div(DataWord word) {
 
         if (word.isZero()) {
             return ZERO;
         }
 
-        BigInteger result = value().divide(word.value());
-        return new DataWord(ByteUtil.copyToArray(result.and(MAX_VALUE)));
+        return udivmod(this, word, false);
     }
 
-    // TODO: improve with no BigInteger
     public DataWord sDiv(DataWord word) {
 
         if (word.isZero()) {
             return ZERO;
         }
 
-        BigInteger result = sValue().divide(word.sValue());
-        return new DataWord(ByteUtil.copyToArray(result.and(MAX_VALUE)));
+        DataWord result = udivmod(this.abs(), word.abs(), false);
+        return (this.isNegative() != word.isNegative()) ? result.negate() : result;
     }
 
-    // TODO: improve with no BigInteger
     public DataWord sub(DataWord word) {
-        BigInteger result = value().subtract(word.value());
-        return new DataWord(ByteUtil.copyToArray(result.and(MAX_VALUE)));
+        long r3 = w3 - word.w3;
+        long b = Long.compareUnsigned(w3, word.w3) < 0 ? 1 : 0;
+        long r2 = w2 - word.w2 - b;
+        b = borrow(w2, word.w2, b);
+        long r1 = w1 - word.w1 - b;
+        b = borrow(w1, word.w1, b);
+        long r0 = w0 - word.w0 - b;
+        return valueOf(r0, r1, r2, r3);
+    }
+
+    /* borrow out of a - b - c, where c is either 0 or 1 */
+    private static long borrow(long a, long b, long c) {
+        return (c == 0 ? Long.compareUnsigned(a, b) < 0 : Long.compareUnsigned(a, b) <= 0) ? 1 : 0;
     }
 
-    // TODO: improve with no BigInteger
     public DataWord exp(DataWord word) {
-        BigInteger newData = value().modPow(word.value(), _2_256);
-        return new DataWord(ByteUtil.copyToArray(newData));
+        if (word.isZero()) return ONE;
+        if (this.isZero() || this.equals(ONE)) return this;
+
+        // 2 ** n is the most frequent case, it's just a shift
+        if ((w0 | w1 | w2) == 0 && w3 == 2) {
+            long n = word.longValueSafe();
+            return n < MAX_POW ? ONE.shiftLeft((int) n) : ZERO;
+        }
+
+        int[] result = ONE.toInts();
+        int[] base = toInts();
+        int bits = MAX_POW - word.numberOfLeadingZeros();
+        for (int i = 0; i < bits; i++) {
+            if (word.testBit(i)) {
+                result = mulInts(result, base, 8);
+            }
+            if (i < bits - 1) {
+                base = mulInts(base, base, 8);
+            }
+        }
+        return fromInts(result);
     }
 
-    // TODO: improve with no BigInteger
     public DataWord mod(DataWord word) {
 
         if (word.isZero()) {
             return ZERO;
         }
 
-        BigInteger result = value().mod(word.value());
-        return new DataWord(ByteUtil.copyToArray(result.and(MAX_VALUE)));
+        return udivmod(this, word, true);
     }
 
     public DataWord sMod(DataWord word) {
@@ -338,10 +345,8 @@ public final class DataWord implements Comparable<DataWord> {
             return ZERO;
         }
 
-        BigInteger result = sValue().abs().mod(word.sValue().abs());
-        result = (sValue().signum() == -1) ? result.negate() : result;
-
-        return new DataWord(ByteUtil.copyToArray(result.and(MAX_VALUE)));
+        DataWord result = udivmod(this.abs(), word.abs(), true);
+        return this.isNegative() ? result.negate() : result;
     }
 
     public DataWord addmod(DataWord word1, DataWord word2) {
@@ -349,8 +354,18 @@ public final class DataWord implements Comparable<DataWord> {
             return ZERO;
         }
 
-        BigInteger result = value().add(word1.value()).mod(word2.value());
-        return new DataWord(ByteUtil.copyToArray(result.and(MAX_VALUE)));
+        int[] a = toInts();
+        int[] b = word1.toInts();
+        int[] sum = new int[9];
+        long c = 0;
+        for (int i = 0; i < 8; i++) {
+            c += (a[i] & INT_MASK) + (b[i] & INT_MASK);
+            sum[i] = (int) c;
+            c >>>= 32;
+        }
+        sum[8] = (int) c;
+
+        return fromInts(modInts(sum, word2.toInts()));
     }
 
     public DataWord mulmod(DataWord word1, DataWord word2) {
@@ -359,8 +374,7 @@ public final class DataWord implements Comparable<DataWord> {
             return ZERO;
         }
 
-        BigInteger result = value().multiply(word1.value()).mod(word2.value());
-        return new DataWord(ByteUtil.copyToArray(result.and(MAX_VALUE)));
+        return fromInts(modInts(mulInts(toInts(), word1.toInts(), 16), word2.toInts()));
     }
 
     /**
@@ -369,12 +383,24 @@ public final class DataWord implements Comparable<DataWord> {
      * @return this << arg
      */
     public DataWord shiftLeft(DataWord arg) {
-        if (arg.value().compareTo(BigInteger.valueOf(MAX_POW)) >= 0) {
+        long n = arg.longValueSafe();
+        if (n >= MAX_POW) {
             return DataWord.ZERO;
         }
-        
-        BigInteger result = value().shiftLeft(arg.intValueSafe());
-        return new DataWord(ByteUtil.copyToArray(result.and(MAX_VALUE)));
+
+        return shiftLeft((int) n);
+    }
+
+    private DataWord shiftLeft(int n) {
+        long[] l = {w0, w1, w2, w3};
+        long[] r = new long[4];
+        int limbs = n >>> 6, bits = n & 63;
+        for (int i = 0; i < 4 - limbs; i++) {
+            long v = l[i + limbs] << bits;
+            if (bits > 0 && i + limbs + 1 < 4) v |= l[i + limbs + 1] >>> (64 - bits);
+            r[i] = v;
+        }
+        return valueOf(r[0], r[1], r[2], r[3]);
     }
 
     /**
@@ -383,12 +409,12 @@ public final class DataWord implements Comparable<DataWord> {
      * @return this >> arg
      */
     public DataWord shiftRight(DataWord arg) {
-        if (arg.value().compareTo(BigInteger.valueOf(MAX_POW)) >= 0) {
+        long n = arg.longValueSafe();
+        if (n >= MAX_POW) {
             return DataWord.ZERO;
         }
 
-        BigInteger result = value().shiftRight(arg.intValueSafe());
-        return new DataWord(ByteUtil.copyToArray(result.and(MAX_VALUE)));
+        return shiftRight((int) n, 0);
     }
 
     /**
@@ -397,7 +423,8 @@ public final class DataWord implements Comparable<DataWord> {
      * @return this >> arg
      */
     public DataWord shiftRightSigned(DataWord arg) {
-        if (arg.value().compareTo(BigInteger.valueOf(MAX_POW)) >= 0) {
+        long n = arg.longValueSafe();
+        if (n >= MAX_POW) {
             if (this.isNegative()) {
                 return DataWord.ONE.negate();
             } else {
@@ -405,14 +432,26 @@ public final class DataWord implements Comparable<DataWord> {
             }
         }
 
-        BigInteger result = sValue().shiftRight(arg.intValueSafe());
-        return new DataWord(ByteUtil.copyToArray(result.and(MAX_VALUE)));
+        return shiftRight((int) n, isNegative() ? -1L : 0);
+    }
+
+    /* shifts right filling vacated bits from the fill limb (either 0 or -1) */
+    private DataWord shiftRight(int n, long fill) {
+        long[] l = {w0, w1, w2, w3};
+        long[] r = {fill, fill, fill, fill};
+        int limbs = n >>> 6, bits = n & 63;
+        for (int i = 3; i >= limbs; i--) {
+            long v = l[i - limbs] >>> bits;
+            if (bits > 0) v |= (i - limbs - 1 >= 0 ? l[i - limbs - 1] : fill) << (64 - bits);
+            r[i] = v;
+        }
+        return valueOf(r[0], r[1], r[2], r[3]);
     }
 
     @JsonValue
     @Override
     public String toString() {
-        return toHexString(data);
+        return toHexString(getData());
     }
 
     public String toPrefixString() {
@@ -438,46 +477,244 @@ public final class DataWord implements Comparable<DataWord> {
 
         DataWord that = (DataWord) o;
 
-        return java.util.Arrays.equals(this.data, that.data);
+        return w0 == that.w0 && w1 == that.w1 && w2 == that.w2 && w3 == that.w3;
     }
 
     @Override
     public int hashCode() {
-        return java.util.Arrays.hashCode(data);
+        int result = Long.hashCode(w0);
+        result = 31 * result + Long.hashCode(w1);
+        result = 31 * result + Long.hashCode(w2);
+        result = 31 * result + Long.hashCode(w3);
+        return result;
     }
 
+    /**
+     * Unsigned comparison of two words
+     */
     @Override
     public int compareTo(DataWord o) {
         if (o == null) return -1;
-        int result = FastByteComparisons.compareTo(
-                data, 0, data.length,
-                o.data, 0, o.data.length);
-        // Convert result into -1, 0 or 1 as is the convention
-        return (int) Math.signum(result);
+        if (w0 != o.w0) return Long.compareUnsigned(w0, o.w0) < 0 ? -1 : 1;
+        if (w1 != o.w1) return Long.compareUnsigned(w1, o.w1) < 0 ? -1 : 1;
+        if (w2 != o.w2) return Long.compareUnsigned(w2, o.w2) < 0 ? -1 : 1;
+        if (w3 != o.w3) return Long.compareUnsigned(w3, o.w3) < 0 ? -1 : 1;
+        return 0;
+    }
+
+    /**
+     * Signed comparison of two words, both are treated as two's complement numbers
+     */
+    public int sCompareTo(DataWord o) {
+        if (isNegative() != o.isNegative()) return isNegative() ? -1 : 1;
+        return compareTo(o);
     }
 
     public DataWord signExtend(byte k) {
         if (0 > k || k > 31)
             throw new IndexOutOfBoundsException();
-        byte mask = this.sValue().testBit((k * 8) + 7) ? (byte) 0xff : 0;
-        byte[] newData = this.copyData();
-        for (int i = 31; i > k; i--) {
-            newData[31 - i] = mask;
+        int bit = k * 8 + 7;
+        if (bit == MAX_POW - 1) return this;
+
+        long[] l = {w0, w1, w2, w3};
+        int limb = 3 - (bit >>> 6);
+        long mask = -1L << (bit & 63) << 1; // bits above the sign bit within its limb
+        boolean negative = ((l[limb] >>> (bit & 63)) & 1) != 0;
+        l[limb] = negative ? l[limb] | mask : l[limb] & ~mask;
+        for (int i = 0; i < limb; i++) {
+            l[i] = negative ? -1L : 0;
         }
-        return new DataWord(newData);
+        return valueOf(l[0], l[1], l[2], l[3]);
     }
 
     public int bytesOccupied() {
-        int firstNonZero = ByteUtil.firstNonZeroByte(data);
-        if (firstNonZero == -1) return 0;
-        return 31 - firstNonZero + 1;
+        return (MAX_POW - numberOfLeadingZeros() + 7) / 8;
+    }
+
+    private int numberOfLeadingZeros() {
+        if (w0 != 0) return Long.numberOfLeadingZeros(w0);
+        if (w1 != 0) return 64 + Long.numberOfLeadingZeros(w1);
+        if (w2 != 0) return 128 + Long.numberOfLeadingZeros(w2);
+        return 192 + Long.numberOfLeadingZeros(w3);
+    }
+
+    private boolean testBit(int n) {
+        long limb = n < 64 ? w3 : n < 128 ? w2 : n < 192 ? w1 : w0;
+        return ((limb >>> (n & 63)) & 1) != 0;
+    }
+
+    private DataWord abs() {
+        return isNegative() ? negate() : this;
     }
 
     public boolean isHex(String hex) {
-        return Hex.toHexString(data).equals(hex);
+        return Hex.toHexString(getData()).equals(hex);
     }
 
     public String asString() {
         return new String(getNoLeadZeroesData());
     }
+
+    /* ---------- 32-bit limb helpers used by multiplication and division ---------- */
+
+    /**
+     * Splits the word into eight 32-bit limbs, least significant first
+     */
+    private int[] toInts() {
+        return new int[] {
+                (int) w3, (int) (w3 >>> 32),
+                (int) w2, (int) (w2 >>> 32),
+                (int) w1, (int) (w1 >>> 32),
+                (int) w0, (int) (w0 >>> 32)
+        };
+    }
+
+    /**
+     * Builds a word from the lowest eight 32-bit limbs, least significant first
+     */
+    private static DataWord fromInts(int[] ints) {
+        long[] l = new long[4];
+        for (int i = 0; i < 4 && 2 * i < ints.length; i++) {
+            long lo = ints[2 * i] & INT_MASK;
+            long hi = 2 * i + 1 < ints.length ? (ints[2 * i + 1] & INT_MASK) : 0;
+            l[3 - i] = (hi << 32) | lo;
+        }
+        return valueOf(l[0], l[1], l[2], l[3]);
+    }
+
+    /**
+     * Schoolbook multiplication of two 256-bit numbers,
+     * the product is truncated to the given number of 32-bit limbs
+     */
+    private static int[] mulInts(int[] a, int[] b, int resultLen) {
+        int[] r = new int[resultLen];
+        for (int i = 0; i < 8 && i < resultLen; i++) {
+            long ai = a[i] & INT_MASK;
+            if (ai == 0) continue;
+            long k = 0;
+            int j = 0;
+            for (; j < 8 && i + j < resultLen; j++) {
+                long t = ai * (b[j] & INT_MASK) + (r[i + j] & INT_MASK) + k;
+                r[i + j] = (int) t;
+                k = t >>> 32;
+            }
+            if (i + j < resultLen) {
+                r[i + j] = (int) k;
+            }
+        }
+        return r;
+    }
+
+    private static DataWord udivmod(DataWord u, DataWord v, boolean remainder) {
+        int cmp = u.compareTo(v);
+        if (cmp < 0) return remainder ? u : ZERO;
+        if (cmp == 0) return remainder ? ZERO : ONE;
+
+        // both fit into a long, the JVM can do it natively
+        if ((u.w0 | u.w1 | u.w2 | v.w0 | v.w1 | v.w2) == 0) {
+            return remainder ? of(Long.remainderUnsigned(u.w3, v.w3)) : of(Long.divideUnsigned(u.w3, v.w3));
+        }
+
+        int[] q = new int[8];
+        int[] r = divmodInts(u.toInts(), v.toInts(), q);
+        return remainder ? fromInts(r) : fromInts(q);
+    }
+
+    private static int[] modInts(int[] u, int[] v) {
+        return divmodInts(u, v, new int[u.length]);
+    }
+
+    private static int significantLength(int[] x) {
+        int len = x.length;
+        while (len > 0 && x[len - 1] == 0) len--;
+        return len;
+    }
+
+    /**
+     * Knuth's long division (TAOCP vol. 2, 4.3.1, algorithm D) on 32-bit limbs,
+     * least significant limb first. Quotient is written to q, remainder is returned.
+     * Divisor must not be zero.
+     */
+    private static int[] divmodInts(int[] u, int[] v, int[] q) {
+        int m = significantLength(u);
+        int n = significantLength(v);
+
+        if (m < n) {
+            return u.clone();
+        }
+
+        if (n == 1) {
+            long d = v[0] & INT_MASK;
+            long k = 0;
+            for (int j = m - 1; j >= 0; j--) {
+                long cur = (k << 32) | (u[j] & INT_MASK);
+                q[j] = (int) Long.divideUnsigned(cur, d);
+                k = Long.remainderUnsigned(cur, d);
+            }
+            return new int[] {(int) k};
+        }
+
+        // normalize, so that the top limb of the divisor has its highest bit set
+        int s = Integer.numberOfLeadingZeros(v[n - 1]);
+        int[] vn = new int[n];
+        for (int i = n - 1; i > 0; i--) {
+            vn[i] = (v[i] << s) | (s == 0 ? 0 : v[i - 1] >>> (32 - s));
+        }
+        vn[0] = v[0] << s;
+
+        int[] un = new int[m + 1];
+        un[m] = s == 0 ? 0 : u[m - 1] >>> (32 - s);
+        for (int i = m - 1; i > 0; i--) {
+            un[i] = (u[i] << s) | (s == 0 ? 0 : u[i - 1] >>> (32 - s));
+        }
+        un[0] = u[0] << s;
+
+        long vTop = vn[n - 1] & INT_MASK;
+        long vNext = vn[n - 2] & INT_MASK;
+        for (int j = m - n; j >= 0; j--) {
+            // estimate quotient digit
+            long num = ((un[j + n] & INT_MASK) << 32) | (un[j + n - 1] & INT_MASK);
+            long qhat = Long.divideUnsigned(num, vTop);
+            long rhat = Long.remainderUnsigned(num, vTop);
+            while (qhat > INT_MASK ||
+                    Long.compareUnsigned(qhat * vNext, (rhat << 32) | (un[j + n - 2] & INT_MASK)) > 0) {
+                qhat--;
+                rhat += vTop;
+                if (rhat > INT_MASK) break;
+            }
+
+            // multiply and subtract
+            long k = 0;
+            long t;
+            for (int i = 0; i < n; i++) {
+                long p = qhat * (vn[i] & INT_MASK);
+                t = (un[i + j] & INT_MASK) - k - (p & INT_MASK);
+                un[i + j] = (int) t;
+                k = (p >>> 32) - (t >> 32);
+            }
+            t = (un[j + n] & INT_MASK) - k;
+            un[j + n] = (int) t;
+
+            q[j] = (int) qhat;
+            if (t < 0) {
+                // subtracted too much, add back
+                q[j]--;
+                k = 0;
+                for (int i = 0; i < n; i++) {
+                    t = (un[i + j] & INT_MASK) + (vn[i] & INT_MASK) + k;
+                    un[i + j] = (int) t;
+                    k = t >>> 32;
+                }
+                un[j + n] += (int) k;
+            }
+        }
+
+        // unnormalize remainder
+        int[] r = new int[n];
+        for (int i = 0; i < n - 1; i++) {
+            r[i] = (un[i] >>> s) | (s == 0 ? 0 : un[i + 1] << (32 - s));
+        }
+        r[n - 1] = un[n - 1] >>> s;
+        return r;
+    }
 }
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ethereum.vm;
+
+import org.ethereum.config.BlockchainConfig;
+import org.ethereum.vm.program.Program;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.ethereum.vm.OpCode.*;
+
+/**
+ * Table of instructions available under specific {@link BlockchainConfig}, indexed by the opcode byte.
+ *
+ * Holds instructions which are valid in the fork, their stack requirements and the static part of their gas cost,
+ * so the interpreter decodes, validates and prices an instruction with plain array lookups.
+ * Tables are built once per config instance, see {@link BlockchainConfig#getInstructionTable()},
+ * and shared by all programs executed under that config.
+ *
+ * The table holds no per instruction handlers: dynamic gas and execution are still dispatched
+ * by the switches on the opcode in {@link VM#step(Program)}.
+ */
+public final class InstructionTable {
+
+    private static final Map<OpCode, Function<BlockchainConfig, Boolean>> opValidators = new EnumMap<>(OpCode.class);
+
+    static {
+        opValidators.put(DELEGATECALL, (config) -> config.getConstants().hasDelegateCallOpcode());
+        opValidators.put(REVERT, BlockchainConfig::eip206);
+        opValidators.put(RETURNDATACOPY, BlockchainConfig::eip211);
+        opValidators.put(RETURNDATASIZE, BlockchainConfig::eip211);
+        opValidators.put(STATICCALL, BlockchainConfig::eip214);
+        opValidators.put(EXTCODEHASH, BlockchainConfig::eip1052);
+        opValidators.put(SHL, BlockchainConfig::eip145);
+        opValidators.put(SHR, BlockchainConfig::eip145);
+        opValidators.put(SAR, BlockchainConfig::eip145);
+        opValidators.put(CREATE2, BlockchainConfig::eip1014);
+    }
+
+    private final OpCode[] ops = new OpCode[256];
+    private final int[] require = new int[256];
+    private final int[] ret = new int[256];
+    private final long[] staticGas = new long[256];
+
+    public InstructionTable(BlockchainConfig config) {
+        GasCost gasCosts = config.getGasCost();
+        for (OpCode op : OpCode.values()) {
+            Function<BlockchainConfig, Boolean> validator = opValidators.get(op);
+            if (validator != null && !validator.apply(config)) continue;
+
+            int idx = op.val() & 0xFF;
+            ops[idx] = op;
+            require[idx] = op.require();
+            ret[idx] = op.ret();
+            staticGas[idx] = staticGas(op, gasCosts);
+        }
+    }
+
+    /**
+     * Gas charged for the instruction regardless of its arguments,
+     * operation specific dynamic costs are added on top of it by {@link VM}
+     */
+    private static long staticGas(OpCode op, GasCost gasCosts) {
+        switch (op) {
+            case STOP:
+            case RETURN:
+            case REVERT:
+                return gasCosts.getSTOP();
+            case SUICIDE:
+                return gasCosts.getSUICIDE();
+            case SLOAD:
+                return gasCosts.getSLOAD();
+            case BALANCE:
+                return gasCosts.getBALANCE();
+            case SHA3:
+                return gasCosts.getSHA3();
+            case EXTCODESIZE:
+                return gasCosts.getEXT_CODE_SIZE();
+            case EXTCODECOPY:
+                return gasCosts.getEXT_CODE_COPY();
+            case EXTCODEHASH:
+                return gasCosts.getEXT_CODE_HASH();
+            case CALL:
+            case CALLCODE:
+            case DELEGATECALL:
+            case STATICCALL:
+                return gasCosts.getCALL();
+            case CREATE:
+            case CREATE2:
+                return gasCosts.getCREATE();
+            case EXP:
+                return gasCosts.getEXP_GAS();
+            default:
+                if (op.val() >= LOG0.val() && op.val() <= LOG4.val()) {
+                    return gasCosts.getLOG_GAS() + gasCosts.getLOG_TOPIC_GAS() * (op.val() - LOG0.val());
+                }
+                return op.getTier().asInt();
+        }
+    }
+
+    /**
+     * @return true if {@link VM} charges more than the static gas for the instruction,
+     * depending on its arguments, memory expansion or the state
+     */
+    public static boolean hasDynamicGas(OpCode op) {
+        switch (op) {
+            case SUICIDE:
+            case SSTORE:
+            case MSTORE:
+            case MSTORE8:
+            case MLOAD:
+            case RETURN:
+            case REVERT:
+            case SHA3:
+            case CALLDATACOPY:
+            case RETURNDATACOPY:
+            case CODECOPY:
+            case EXTCODECOPY:
+            case CALL:
+            case CALLCODE:
+            case DELEGATECALL:
+            case STATICCALL:
+            case CREATE:
+            case CREATE2:
+            case LOG0:
+            case LOG1:
+            case LOG2:
+            case LOG3:
+            case LOG4:
+            case EXP:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    public static InstructionTable forConfig(BlockchainConfig config) {
+        return config.getInstructionTable();
+    }
+
+    /**
+     * @return instruction for the opcode byte or null if it's invalid under this table's config
+     */
+    public OpCode get(byte code) {
+        return ops[code & 0xFF];
+    }
+
+    public int require(OpCode op) {
+        return require[op.val() & 0xFF];
+    }
+
+    public int ret(OpCode op) {
+        return ret[op.val() & 0xFF];
+    }
+
+    public long staticGas(OpCode op) {
+        return staticGas[op.val() & 0xFF];
+    }
+}
@@ -90,6 +90,13 @@ public class PrecompiledContracts {
         public abstract long getGasForData(byte[] data);
 
         public abstract Pair<Boolean, byte[]> execute(byte[] data);
+
+        /**
+         * @return true if the execution is costly enough to keep its results, see {@link PrecompiledResultCache}
+         */
+        public boolean isCacheable() {
+            return false;
+        }
     }
 
     public static class Identity extends PrecompiledContract {
@@ -165,6 +172,11 @@ public class PrecompiledContracts {
             return 3000;
         }
 
+        @Override
+        public boolean isCacheable() {
+            return true;
+        }
+
         @Override
         public Pair<Boolean, byte[]> execute(byte[] data) {
 
@@ -243,6 +255,11 @@ public class PrecompiledContracts {
             return isLessThan(gas, BigInteger.valueOf(Long.MAX_VALUE)) ? gas.longValue() : Long.MAX_VALUE;
         }
 
+        @Override
+        public boolean isCacheable() {
+            return true;
+        }
+
         @Override
         public Pair<Boolean, byte[]> execute(byte[] data) {
 
@@ -380,6 +397,11 @@ public class PrecompiledContracts {
             return 40000;
         }
 
+        @Override
+        public boolean isCacheable() {
+            return true;
+        }
+
         @Override
         public Pair<Boolean, byte[]> execute(byte[] data) {
 
@@ -432,6 +454,11 @@ public class PrecompiledContracts {
             return 80000 * (data.length / PAIR_SIZE) + 100000;
         }
 
+        @Override
+        public boolean isCacheable() {
+            return true;
+        }
+
         @Override
         public Pair<Boolean, byte[]> execute(byte[] data) {
 
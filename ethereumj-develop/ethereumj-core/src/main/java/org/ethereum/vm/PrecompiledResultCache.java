@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ethereum.vm;
+
+import org.apache.commons.collections4.map.LRUMap;
+import org.apache.commons.lang3.tuple.Pair;
+import org.ethereum.crypto.HashUtil;
+import org.ethereum.db.ByteArrayWrapper;
+import org.ethereum.vm.PrecompiledContracts.PrecompiledContract;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.ethereum.util.ByteUtil.merge;
+
+/**
+ * Keeps results of the recent calls to expensive precompiled contracts,
+ * see {@link PrecompiledContract#isCacheable()}.
+ *
+ * Precompiled contracts are pure functions, so the result is looked up
+ * by the contract address and the hash of the input. The least recently used
+ * results are evicted once the number of entries exceeds the limit.
+ * The limit of zero turns the cache off, contracts are executed directly then.
+ */
+public class PrecompiledResultCache {
+
+    private final int maxEntries;
+    private final Map<ByteArrayWrapper, Pair<Boolean, byte[]>> cache;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public PrecompiledResultCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.cache = maxEntries > 0 ? Collections.synchronizedMap(new LRUMap<>(maxEntries)) : null;
+    }
+
+    /**
+     * Executes the contract or returns the result of the previous execution with the same input
+     *
+     * @param contract precompiled contract
+     * @param address address the contract is called at
+     * @param data call input
+     */
+    public Pair<Boolean, byte[]> execute(PrecompiledContract contract, byte[] address, byte[] data) {
+        if (cache == null || !contract.isCacheable()) return contract.execute(data);
+
+        ByteArrayWrapper key = new ByteArrayWrapper(merge(address, HashUtil.sha3(data)));
+        Pair<Boolean, byte[]> ret = cache.get(key);
+        if (ret != null) {
+            hits.incrementAndGet();
+            return ret;
+        }
+
+        misses.incrementAndGet();
+        ret = contract.execute(data);
+        cache.put(key, ret);
+        return ret;
+    }
+
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public double getHitRate() {
+        long total = getHits() + getMisses();
+        return total == 0 ? 0 : (double) getHits() / total;
+    }
+
+    public int size() {
+        return cache == null ? 0 : cache.size();
+    }
+
+    @Override
+    public String toString() {
+        return "PrecompiledResultCache{" +
+                "entries=" + size() + "/" + maxEntries +
+                ", hits=" + getHits() +
+                ", misses=" + getMisses() +
+                '}';
+    }
+}
@@ -27,17 +27,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
-import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.function.Consumer;
-import java.util.function.Function;
 import java.util.stream.Stream;
 
-import static org.ethereum.crypto.HashUtil.sha3;
 import static org.ethereum.util.ByteUtil.EMPTY_BYTE_ARRAY;
 import static org.ethereum.util.ByteUtil.toHexString;
 import static org.ethereum.vm.OpCode.*;
@@ -84,12 +79,11 @@ public class VM {
 
     private static final Logger logger = LoggerFactory.getLogger("VM");
     private static final Logger dumpLogger = LoggerFactory.getLogger("dump");
-    private static BigInteger _32_ = BigInteger.valueOf(32);
     private static final String logString = "{}    Op: [{}]  Gas: [{}] Deep: [{}]  Hint: [{}]";
 
     // max mem size which couldn't be paid for ever
     // used to reduce expensive BigInt arithmetic
-    private static BigInteger MAX_MEM_SIZE = BigInteger.valueOf(Integer.MAX_VALUE);
+    private static final long MAX_MEM_SIZE = Integer.MAX_VALUE;
 
     /* Keeps track of the number of steps performed in this VM */
     private int vmCounter = 0;
@@ -97,22 +91,12 @@ public class VM {
     private boolean vmTrace;
     private long dumpBlock;
 
-    private static final Map<OpCode, Function<BlockchainConfig, Boolean>> opValidators = new HashMap<OpCode, Function<BlockchainConfig, Boolean>>()
-    {{
-        put(DELEGATECALL, (config) -> config.getConstants().hasDelegateCallOpcode());
-        put(REVERT, BlockchainConfig::eip206);
-        put(RETURNDATACOPY, BlockchainConfig::eip211);
-        put(RETURNDATASIZE, BlockchainConfig::eip211);
-        put(STATICCALL, BlockchainConfig::eip214);
-        put(EXTCODEHASH, BlockchainConfig::eip1052);
-        put(SHL, BlockchainConfig::eip145);
-        put(SHR, BlockchainConfig::eip145);
-        put(SAR, BlockchainConfig::eip145);
-        put(CREATE2, BlockchainConfig::eip1014);
-    }};
-
     private final SystemProperties config;
 
+    // set for the threads executing code speculatively, see setInterruptible
+    private static final ThreadLocal<Boolean> interruptible = ThreadLocal.withInitial(() -> false);
+    private final boolean stopOnInterrupt;
+
     // deprecated field that holds VM hook. Will be removed in the future releases.
     private static VMHook deprecatedHook = VMHook.EMPTY;
     private final boolean hasHooks;
@@ -131,6 +115,16 @@ public class VM {
                 .filter(h -> !h.isEmpty())
                 .toArray(VMHook[]::new);
         this.hasHooks = this.hooks.length > 0;
+        this.stopOnInterrupt = interruptible.get();
+    }
+
+    /**
+     * Marks the current thread as executing code whose results may be dropped, e.g. speculatively.
+     * VMs created on such a thread stop with {@link Program.ExecutionInterruptedException}
+     * once the thread is interrupted, otherwise interrupts are ignored
+     */
+    public static void setInterruptible(boolean value) {
+        interruptible.set(value);
     }
 
     private void onHookEvent(Consumer<VMHook> consumer) {
@@ -139,16 +133,16 @@ public class VM {
         }
     }
 
-    private long calcMemGas(GasCost gasCosts, long oldMemSize, BigInteger newMemSize, long copySize) {
+    private long calcMemGas(GasCost gasCosts, long oldMemSize, long newMemSize, long copySize) {
         long gasCost = 0;
 
         // Avoid overflows
-        if (newMemSize.compareTo(MAX_MEM_SIZE) > 0) {
+        if (newMemSize > MAX_MEM_SIZE) {
             throw Program.Exception.gasOverflow(newMemSize, MAX_MEM_SIZE);
         }
 
         // memory gas calc
-        long memoryUsage = (newMemSize.longValue() + 31) / 32 * 32;
+        long memoryUsage = (newMemSize + 31) / 32 * 32;
         if (memoryUsage > oldMemSize) {
             long memWords = (memoryUsage / 32);
             long memWordsOld = (oldMemSize / 32);
@@ -169,21 +163,6 @@ public class VM {
         return !program.getStorage().isExist(addr) || program.getStorage().getAccountState(addr).isEmpty();
     }
 
-    /**
-     * Validates whether operation is allowed
-     * with current blockchain config
-     * @param op        VM operation
-     * @param program   Current program
-     */
-    private void validateOp(OpCode op, Program program) {
-        if (!(opValidators.containsKey(op))) return;
-
-        BlockchainConfig blockchainConfig = program.getBlockchainConfig();
-        if (!opValidators.get(op).apply(blockchainConfig)) {
-            throw Program.Exception.invalidOpCode(program.getCurrentOp());
-        }
-    }
-
     public void step(Program program) {
 
         if (vmTrace) {
@@ -192,24 +171,30 @@ public class VM {
 
         try {
             BlockchainConfig blockchainConfig = program.getBlockchainConfig();
+            InstructionTable instructions = program.getInstructionTable();
 
-            OpCode op = OpCode.code(program.getCurrentOp());
+            // null for undefined opcodes as well as for ones not yet activated in this fork
+            OpCode op = instructions.get(program.getCurrentOp());
             if (op == null) {
                 throw Program.Exception.invalidOpCode(program.getCurrentOp());
             }
 
-            validateOp(op, program);
-
             program.setLastOp(op.val());
-            program.verifyStackSize(op.require());
-            program.verifyStackOverflow(op.require(), op.ret()); //Check not exceeding stack limits
+
+            boolean dump = program.getNumber().intValue() == dumpBlock;
+            // per instruction gas is only observable in traces and logs
+            boolean inBlock = !vmTrace && !hasHooks && !dump && !logger.isInfoEnabled() && program.enterBasicBlock();
+            if (!inBlock) {
+                program.verifyStackSize(instructions.require(op));
+                program.verifyStackOverflow(instructions.require(op), instructions.ret(op)); //Check not exceeding stack limits
+            }
 
             long oldMemSize = program.getMemSize();
             Stack stack = program.getStack();
 
             String hint = "";
             long callGas = 0, memWords = 0; // parameters for logging
-            long gasCost = op.getTier().asInt();
+            long gasCost = inBlock ? 0 : instructions.staticGas(op);
             long gasBefore = program.getGasLong();
             int stepBefore = program.getPC();
             GasCost gasCosts = blockchainConfig.getGasCost();
@@ -229,11 +214,7 @@ public class VM {
 
             // Calculate fees and spend gas
             switch (op) {
-                case STOP:
-                    gasCost = gasCosts.getSTOP();
-                    break;
                 case SUICIDE:
-                    gasCost = gasCosts.getSUICIDE();
                     DataWord suicideAddressWord = stack.get(stack.size() - 1);
                     if (blockchainConfig.eip161()) {
                         if (isDeadAccount(program, suicideAddressWord.getLast20Bytes()) &&
@@ -296,12 +277,6 @@ public class VM {
                         }
                     }
                     break;
-                case SLOAD:
-                    gasCost = gasCosts.getSLOAD();
-                    break;
-                case BALANCE:
-                    gasCost = gasCosts.getBALANCE();
-                    break;
 
                 // These all operate on memory and therefore potentially expand it:
                 case MSTORE:
@@ -315,11 +290,11 @@ public class VM {
                     break;
                 case RETURN:
                 case REVERT:
-                    gasCost = gasCosts.getSTOP() + calcMemGas(gasCosts, oldMemSize,
+                    gasCost += calcMemGas(gasCosts, oldMemSize,
                             memNeeded(stack.peek(), stack.get(stack.size() - 2)), 0);
                     break;
                 case SHA3:
-                    gasCost = gasCosts.getSHA3() + calcMemGas(gasCosts, oldMemSize, memNeeded(stack.peek(), stack.get(stack.size() - 2)), 0);
+                    gasCost += calcMemGas(gasCosts, oldMemSize, memNeeded(stack.peek(), stack.get(stack.size() - 2)), 0);
                     DataWord size = stack.get(stack.size() - 2);
                     long chunkUsed = getSizeInWords(size.longValueSafe());
                     gasCost += chunkUsed * gasCosts.getSHA3_WORD();
@@ -335,23 +310,16 @@ public class VM {
                             memNeeded(stack.peek(), stack.get(stack.size() - 3)),
                             stack.get(stack.size() - 3).longValueSafe());
                     break;
-                case EXTCODESIZE:
-                    gasCost = gasCosts.getEXT_CODE_SIZE();
-                    break;
                 case EXTCODECOPY:
-                    gasCost = gasCosts.getEXT_CODE_COPY() + calcMemGas(gasCosts, oldMemSize,
+                    gasCost += calcMemGas(gasCosts, oldMemSize,
                             memNeeded(stack.get(stack.size() - 2), stack.get(stack.size() - 4)),
                             stack.get(stack.size() - 4).longValueSafe());
                     break;
-                case EXTCODEHASH:
-                    gasCost = gasCosts.getEXT_CODE_HASH();
-                    break;
                 case CALL:
                 case CALLCODE:
                 case DELEGATECALL:
                 case STATICCALL:
 
-                    gasCost = gasCosts.getCALL();
                     DataWord callGasWord = stack.get(stack.size() - 1);
 
                     DataWord callAddressWord = stack.get(stack.size() - 2);
@@ -377,9 +345,9 @@ public class VM {
                         gasCost += gasCosts.getVT_CALL();
 
                     int opOff = op.callHasValue() ? 4 : 3;
-                    BigInteger in = memNeeded(stack.get(stack.size() - opOff), stack.get(stack.size() - opOff - 1)); // in offset+size
-                    BigInteger out = memNeeded(stack.get(stack.size() - opOff - 2), stack.get(stack.size() - opOff - 3)); // out offset+size
-                    gasCost += calcMemGas(gasCosts, oldMemSize, in.max(out), 0);
+                    long in = memNeeded(stack.get(stack.size() - opOff), stack.get(stack.size() - opOff - 1)); // in offset+size
+                    long out = memNeeded(stack.get(stack.size() - opOff - 2), stack.get(stack.size() - opOff - 3)); // out offset+size
+                    gasCost += calcMemGas(gasCosts, oldMemSize, Math.max(in, out), 0);
 
                     if (gasCost > program.getGas().longValueSafe()) {
                         throw Program.Exception.notEnoughOpGas(op, callGasWord, program.getGas());
@@ -391,13 +359,12 @@ public class VM {
                     gasCost += adjustedCallGas.longValueSafe();
                     break;
                 case CREATE:
-                    gasCost = gasCosts.getCREATE() + calcMemGas(gasCosts, oldMemSize,
+                    gasCost += calcMemGas(gasCosts, oldMemSize,
                             memNeeded(stack.get(stack.size() - 2), stack.get(stack.size() - 3)), 0);
                     break;
                 case CREATE2:
                     DataWord codeSize = stack.get(stack.size() - 3);
-                    gasCost = gasCosts.getCREATE() +
-                            calcMemGas(gasCosts, oldMemSize, memNeeded(stack.get(stack.size() - 2), codeSize), 0) +
+                    gasCost += calcMemGas(gasCosts, oldMemSize, memNeeded(stack.get(stack.size() - 2), codeSize), 0) +
                             getSizeInWords(codeSize.longValueSafe()) * gasCosts.getSHA3_WORD();
                     break;
                 case LOG0:
@@ -406,24 +373,22 @@ public class VM {
                 case LOG3:
                 case LOG4:
 
-                    int nTopics = op.val() - OpCode.LOG0.val();
-
-                    BigInteger dataSize = stack.get(stack.size() - 2).value();
-                    BigInteger dataCost = dataSize.multiply(BigInteger.valueOf(gasCosts.getLOG_DATA_GAS()));
-                    if (program.getGas().value().compareTo(dataCost) < 0) {
-                        throw Program.Exception.notEnoughOpGas(op, dataCost, program.getGas().value());
+                    long dataSize = stack.get(stack.size() - 2).longValueSafe();
+                    long gasAvailable = program.getGasLong();
+                    if (dataSize > gasAvailable / gasCosts.getLOG_DATA_GAS()) {
+                        long dataCost = dataSize > Long.MAX_VALUE / gasCosts.getLOG_DATA_GAS() ?
+                                Long.MAX_VALUE : dataSize * gasCosts.getLOG_DATA_GAS();
+                        throw Program.Exception.notEnoughOpGas(op, dataCost, gasAvailable);
                     }
 
-                    gasCost = gasCosts.getLOG_GAS() +
-                            gasCosts.getLOG_TOPIC_GAS() * nTopics +
-                            gasCosts.getLOG_DATA_GAS() * stack.get(stack.size() - 2).longValue() +
+                    gasCost += gasCosts.getLOG_DATA_GAS() * stack.get(stack.size() - 2).longValue() +
                             calcMemGas(gasCosts, oldMemSize, memNeeded(stack.peek(), stack.get(stack.size() - 2)), 0);
                     break;
                 case EXP:
 
                     DataWord exp = stack.get(stack.size() - 2);
                     int bytesOccupied = exp.bytesOccupied();
-                    gasCost = gasCosts.getEXP_GAS() + gasCosts.getEXP_BYTE_GAS() * bytesOccupied;
+                    gasCost += gasCosts.getEXP_BYTE_GAS() * bytesOccupied;
                     break;
                 default:
                     break;
@@ -433,12 +398,13 @@ public class VM {
             program.spendGas(gasCost, op.name());
 
             // Log debugging line for VM
-            if (program.getNumber().intValue() == dumpBlock) {
+            if (dump) {
                 this.dumpLine(op, gasBefore, gasCost + callGas, memWords, program);
             }
 
             if (hasHooks) {
-                onHookEvent(hook -> hook.step(program, op));
+                long opGas = adjustedCallGas == null ? gasCost : gasCost - adjustedCallGas.longValueSafe();
+                onHookEvent(hook -> hook.step(program, op, opGas));
             }
 
             // Execute operation
@@ -550,13 +516,13 @@ public class VM {
                 break;
                 case SIGNEXTEND: {
                     DataWord word1 = program.stackPop();
-                    BigInteger k = word1.value();
+                    long k = word1.longValueSafe();
 
-                    if (k.compareTo(_32_) < 0) {
+                    if (k < 32) {
                         DataWord word2 = program.stackPop();
                         if (logger.isInfoEnabled())
                             hint = word1 + "  " + word2.value();
-                        DataWord extendResult = word2.signExtend(k.byteValue());
+                        DataWord extendResult = word2.signExtend((byte) k);
                         program.stackPush(extendResult);
                     }
                     program.step();
@@ -574,14 +540,13 @@ public class VM {
                 }
                 break;
                 case LT: {
-                    // TODO: can be improved by not using BigInteger
                     DataWord word1 = program.stackPop();
                     DataWord word2 = program.stackPop();
 
                     if (logger.isInfoEnabled())
                         hint = word1.value() + " < " + word2.value();
 
-                    if (word1.value().compareTo(word2.value()) == -1) {
+                    if (word1.compareTo(word2) < 0) {
                         program.stackPush(DataWord.ONE);
                     } else {
                         program.stackPush(DataWord.ZERO);
@@ -590,14 +555,13 @@ public class VM {
                 }
                 break;
                 case SLT: {
-                    // TODO: can be improved by not using BigInteger
                     DataWord word1 = program.stackPop();
                     DataWord word2 = program.stackPop();
 
                     if (logger.isInfoEnabled())
                         hint = word1.sValue() + " < " + word2.sValue();
 
-                    if (word1.sValue().compareTo(word2.sValue()) == -1) {
+                    if (word1.sCompareTo(word2) < 0) {
                         program.stackPush(DataWord.ONE);
                     } else {
                         program.stackPush(DataWord.ZERO);
@@ -606,14 +570,13 @@ public class VM {
                 }
                 break;
                 case SGT: {
-                    // TODO: can be improved by not using BigInteger
                     DataWord word1 = program.stackPop();
                     DataWord word2 = program.stackPop();
 
                     if (logger.isInfoEnabled())
                         hint = word1.sValue() + " > " + word2.sValue();
 
-                    if (word1.sValue().compareTo(word2.sValue()) == 1) {
+                    if (word1.sCompareTo(word2) > 0) {
                         program.stackPush(DataWord.ONE);
                     } else {
                         program.stackPush(DataWord.ZERO);
@@ -622,14 +585,13 @@ public class VM {
                 }
                 break;
                 case GT: {
-                    // TODO: can be improved by not using BigInteger
                     DataWord word1 = program.stackPop();
                     DataWord word2 = program.stackPop();
 
                     if (logger.isInfoEnabled())
                         hint = word1.value() + " > " + word2.value();
 
-                    if (word1.value().compareTo(word2.value()) == 1) {
+                    if (word1.compareTo(word2) > 0) {
                         program.stackPush(DataWord.ONE);
                     } else {
                         program.stackPush(DataWord.ZERO);
@@ -711,7 +673,7 @@ public class VM {
                     DataWord word1 = program.stackPop();
                     DataWord word2 = program.stackPop();
                     final DataWord result;
-                    if (word1.value().compareTo(_32_) == -1) {
+                    if (word1.longValueSafe() < 32) {
                         byte tmp = word2.getData()[word1.intValue()];
                         result = DataWord.of(tmp);
                     } else {
@@ -786,9 +748,7 @@ public class VM {
                 case SHA3: {
                     DataWord memOffsetData = program.stackPop();
                     DataWord lengthData = program.stackPop();
-                    byte[] buffer = program.memoryChunk(memOffsetData.intValueSafe(), lengthData.intValueSafe());
-
-                    byte[] encoded = sha3(buffer);
+                    byte[] encoded = program.memorySha3(memOffsetData.intValueSafe(), lengthData.intValueSafe());
                     DataWord word = DataWord.of(encoded);
 
                     if (logger.isInfoEnabled())
@@ -1064,8 +1024,7 @@ public class VM {
                 case DUP13: case DUP14: case DUP15: case DUP16:{
 
                     int n = op.val() - OpCode.DUP1.val() + 1;
-                    DataWord word_1 = stack.get(stack.size() - n);
-                    program.stackPush(word_1);
+                    stack.dup(n);
                     program.step();
 
                 }   break;
@@ -1435,6 +1394,9 @@ public class VM {
             }
 
             while (!program.isStopped()) {
+                if (stopOnInterrupt && Thread.currentThread().isInterrupted()) {
+                    throw new Program.ExecutionInterruptedException();
+                }
                 this.step(program);
             }
 
@@ -1467,9 +1429,15 @@ public class VM {
      * @param offset starting position of the memory
      * @param size number of bytes needed
      * @return offset + size, unless size is 0. In that case memNeeded is also 0.
+     *         Long.MAX_VALUE if the result is beyond {@link #MAX_MEM_SIZE}
      */
-    private static BigInteger memNeeded(DataWord offset, DataWord size) {
-        return size.isZero() ? BigInteger.ZERO : offset.value().add(size.value());
+    private static long memNeeded(DataWord offset, DataWord size) {
+        if (size.isZero()) return 0;
+        long off = offset.longValueSafe();
+        long len = size.longValueSafe();
+        if (off > MAX_MEM_SIZE || len > MAX_MEM_SIZE) return Long.MAX_VALUE;
+        // both fit into 31 bits, so the sum can't overflow
+        return off + len;
     }
 
     /*
@@ -67,6 +67,11 @@ public class RootVmHook implements VMHook {
         proxySafeToAll(hook -> hook.step(program, opcode));
     }
 
+    @Override
+    public void step(Program program, OpCode opcode, long opGas) {
+        proxySafeToAll(hook -> hook.step(program, opcode, opGas));
+    }
+
     @Override
     public void stopPlay(Program program) {
         proxySafeToAll(hook -> hook.stopPlay(program));
@@ -31,6 +31,15 @@ public interface VMHook {
     default void step(Program program, OpCode opcode) {
     }
 
+    /**
+     * Same as {@link #step(Program, OpCode)}, fired after the op is charged and before it is executed
+     *
+     * @param opGas gas charged for the op itself, gas passed to the sub call by the CALL ops is not included
+     */
+    default void step(Program program, OpCode opcode, long opGas) {
+        step(program, opcode);
+    }
+
     default void stopPlay(Program program) {
     }
 
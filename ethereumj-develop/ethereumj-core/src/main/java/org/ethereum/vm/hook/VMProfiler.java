@@ -0,0 +1,408 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ethereum.vm.hook;
+
+import org.ethereum.config.SystemProperties;
+import org.ethereum.db.ByteArrayWrapper;
+import org.ethereum.vm.OpCode;
+import org.ethereum.vm.program.Program;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.lang.String.format;
+import static org.ethereum.util.ByteUtil.EMPTY_BYTE_ARRAY;
+import static org.ethereum.util.ByteUtil.toHexString;
+
+/**
+ * {@link VMHook} collecting per opcode, per contract and per contract instruction (pc) execution statistics:
+ * number of executed ops, time spent in them and gas charged for them.
+ *
+ * Time of an op lasts from its step to the next step or the end of the program,
+ * time spent in sub calls is excluded and accounted to the sub call ops.
+ * Gas of an op is the charge of the op itself as reported by the VM, gas passed to sub calls is not included.
+ * Per pc statistics are collected for the deployed contracts only, init code has no code hash to group them by.
+ * Per pc counters take 24 bytes per byte of code, so only the first vm.profiler.contracts contracts
+ * are tracked on their own, the rest are accounted together as other contracts without per pc statistics.
+ * {@link #reset()} starts tracking anew.
+ *
+ * Counters are {@link LongAdder}s and call frames are thread local,
+ * so the profiler can run on all import threads at once.
+ * Turned on by vm.profiler.enabled, otherwise the hook is empty and costs nothing.
+ * Like any non empty hook the profiler turns off basic block gas precharging and pooling of
+ * call frame stack and memory, so it measures the op by op execution path which is slower than the usual one
+ */
+@Component
+public class VMProfiler implements VMHook {
+
+    // contracts executed without code hash, i.e. contract init code
+    private static final ByteArrayWrapper INIT_CODE = new ByteArrayWrapper(EMPTY_BYTE_ARRAY);
+    // contracts executed after the limit of tracked ones has been reached
+    private static final ByteArrayWrapper OTHER_CODE = new ByteArrayWrapper(new byte[] {0});
+
+    private final boolean enabled;
+    private final int contractsLimit;
+
+    private final LongAdder[] opCount = newAdders();
+    private final LongAdder[] opNanos = newAdders();
+    private final LongAdder[] opGas = newAdders();
+
+    private final Map<ByteArrayWrapper, Counters> contracts = new ConcurrentHashMap<>();
+
+    private final ThreadLocal<ArrayDeque<Frame>> frames = ThreadLocal.withInitial(ArrayDeque::new);
+
+    @Autowired
+    public VMProfiler(SystemProperties config) {
+        this(config.vmProfilerEnabled(), config.vmProfilerContracts());
+    }
+
+    public VMProfiler(boolean enabled) {
+        this(enabled, 256);
+    }
+
+    /**
+     * @param contractsLimit number of contracts which stats are tracked on their own
+     */
+    public VMProfiler(boolean enabled, int contractsLimit) {
+        this.enabled = enabled;
+        this.contractsLimit = contractsLimit;
+    }
+
+    private static LongAdder[] newAdders() {
+        LongAdder[] ret = new LongAdder[256];
+        for (int i = 0; i < ret.length; i++) {
+            ret[i] = new LongAdder();
+        }
+        return ret;
+    }
+
+    private static class Counters {
+        final LongAdder plays = new LongAdder();
+        final LongAdder ops = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final LongAdder gas = new LongAdder();
+
+        // indexed by pc, null for init code
+        final byte[] code;
+        final AtomicLongArray pcCount;
+        final AtomicLongArray pcNanos;
+        final AtomicLongArray pcGas;
+
+        Counters(byte[] code) {
+            this.code = code;
+            this.pcCount = code == null ? null : new AtomicLongArray(code.length);
+            this.pcNanos = code == null ? null : new AtomicLongArray(code.length);
+            this.pcGas = code == null ? null : new AtomicLongArray(code.length);
+        }
+    }
+
+    private static class Frame {
+        final Counters contract;
+        OpCode op;
+        int pc;
+        long started;
+
+        Frame(Counters contract) {
+            this.contract = contract;
+        }
+    }
+
+    @Override
+    public void startPlay(Program program) {
+        long now = System.nanoTime();
+        ArrayDeque<Frame> stack = frames.get();
+        Frame parent = stack.peek();
+        if (parent != null) {
+            finishOp(parent, now);
+        }
+
+        byte[] codeHash = program.getCodeHash();
+        Counters contract = codeHash == null ?
+                contracts.computeIfAbsent(INIT_CODE, k -> new Counters(null)) :
+                contracts.get(new ByteArrayWrapper(codeHash));
+        if (contract == null) {
+            // concurrent threads may exceed the limit by a few contracts, that's fine
+            contract = contracts.size() < contractsLimit ?
+                    contracts.computeIfAbsent(new ByteArrayWrapper(codeHash), k -> new Counters(program.getCode())) :
+                    contracts.computeIfAbsent(OTHER_CODE, k -> new Counters(null));
+        }
+        contract.plays.increment();
+        stack.push(new Frame(contract));
+    }
+
+    @Override
+    public void step(Program program, OpCode opcode, long opGas) {
+        long now = System.nanoTime();
+        Frame frame = frames.get().peek();
+        if (frame == null) return;
+        finishOp(frame, now);
+
+        int idx = opcode.val() & 0xFF;
+        opCount[idx].increment();
+        this.opGas[idx].add(opGas);
+        Counters contract = frame.contract;
+        contract.ops.increment();
+        contract.gas.add(opGas);
+
+        int pc = program.getPC();
+        if (contract.code != null && pc < contract.code.length) {
+            contract.pcCount.incrementAndGet(pc);
+            contract.pcGas.addAndGet(pc, opGas);
+        }
+
+        frame.op = opcode;
+        frame.pc = pc;
+        frame.started = System.nanoTime();
+    }
+
+    @Override
+    public void stopPlay(Program program) {
+        long now = System.nanoTime();
+        ArrayDeque<Frame> stack = frames.get();
+        Frame frame = stack.poll();
+        if (frame == null) return;
+        finishOp(frame, now);
+
+        Frame parent = stack.peek();
+        if (parent != null && parent.op != null) {
+            // resume the call op of the parent
+            parent.started = System.nanoTime();
+        }
+    }
+
+    private void finishOp(Frame frame, long now) {
+        if (frame.op == null) return;
+        long nanos = now - frame.started;
+        opNanos[frame.op.val() & 0xFF].add(nanos);
+        Counters contract = frame.contract;
+        contract.nanos.add(nanos);
+        if (contract.code != null && frame.pc < contract.code.length) {
+            contract.pcNanos.addAndGet(frame.pc, nanos);
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return !enabled;
+    }
+
+    public void reset() {
+        for (int i = 0; i < 256; i++) {
+            opCount[i].reset();
+            opNanos[i].reset();
+            opGas[i].reset();
+        }
+        contracts.clear();
+    }
+
+    public static class OpStats {
+        private final OpCode op;
+        private final long count;
+        private final long nanos;
+        private final long gas;
+
+        OpStats(OpCode op, long count, long nanos, long gas) {
+            this.op = op;
+            this.count = count;
+            this.nanos = nanos;
+            this.gas = gas;
+        }
+
+        public OpCode getOp() {
+            return op;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public long getGas() {
+            return gas;
+        }
+    }
+
+    public static class ContractStats {
+        private final byte[] codeHash;
+        private final long plays;
+        private final long ops;
+        private final long nanos;
+        private final long gas;
+
+        ContractStats(byte[] codeHash, long plays, long ops, long nanos, long gas) {
+            this.codeHash = codeHash;
+            this.plays = plays;
+            this.ops = ops;
+            this.nanos = nanos;
+            this.gas = gas;
+        }
+
+        /**
+         * @return hash of the contract code, empty array stands for all contract init code
+         * and a single zero byte for all contracts over the limit of tracked ones
+         */
+        public byte[] getCodeHash() {
+            return codeHash;
+        }
+
+        public long getPlays() {
+            return plays;
+        }
+
+        public long getOps() {
+            return ops;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public long getGas() {
+            return gas;
+        }
+    }
+
+    public static class PcStats {
+        private final byte[] codeHash;
+        private final int pc;
+        private final OpCode op;
+        private final long count;
+        private final long nanos;
+        private final long gas;
+
+        PcStats(byte[] codeHash, int pc, OpCode op, long count, long nanos, long gas) {
+            this.codeHash = codeHash;
+            this.pc = pc;
+            this.op = op;
+            this.count = count;
+            this.nanos = nanos;
+            this.gas = gas;
+        }
+
+        public byte[] getCodeHash() {
+            return codeHash;
+        }
+
+        public int getPc() {
+            return pc;
+        }
+
+        public OpCode getOp() {
+            return op;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public long getGas() {
+            return gas;
+        }
+    }
+
+    /**
+     * @return stats of executed opcodes, the most time consuming first
+     */
+    public List<OpStats> getOpStats() {
+        List<OpStats> ret = new ArrayList<>();
+        for (OpCode op : OpCode.values()) {
+            int idx = op.val() & 0xFF;
+            long count = opCount[idx].sum();
+            if (count > 0) {
+                ret.add(new OpStats(op, count, opNanos[idx].sum(), opGas[idx].sum()));
+            }
+        }
+        ret.sort(Comparator.comparingLong(OpStats::getNanos).reversed());
+        return ret;
+    }
+
+    /**
+     * @return stats of up to <code>limit</code> the most time consuming contracts
+     */
+    public List<ContractStats> getContractStats(int limit) {
+        List<ContractStats> ret = new ArrayList<>();
+        for (Map.Entry<ByteArrayWrapper, Counters> e : contracts.entrySet()) {
+            Counters c = e.getValue();
+            ret.add(new ContractStats(e.getKey().getData(), c.plays.sum(), c.ops.sum(), c.nanos.sum(), c.gas.sum()));
+        }
+        ret.sort(Comparator.comparingLong(ContractStats::getNanos).reversed());
+        return ret.size() > limit ? new ArrayList<>(ret.subList(0, limit)) : ret;
+    }
+
+    /**
+     * @return stats of up to <code>limit</code> the most time consuming instructions of deployed contracts
+     */
+    public List<PcStats> getPcStats(int limit) {
+        List<PcStats> ret = new ArrayList<>();
+        for (Map.Entry<ByteArrayWrapper, Counters> e : contracts.entrySet()) {
+            Counters c = e.getValue();
+            if (c.code == null) continue;
+            for (int pc = 0; pc < c.code.length; pc++) {
+                long count = c.pcCount.get(pc);
+                if (count > 0) {
+                    ret.add(new PcStats(e.getKey().getData(), pc, OpCode.code(c.code[pc]),
+                            count, c.pcNanos.get(pc), c.pcGas.get(pc)));
+                }
+            }
+        }
+        ret.sort(Comparator.comparingLong(PcStats::getNanos).reversed());
+        return ret.size() > limit ? new ArrayList<>(ret.subList(0, limit)) : ret;
+    }
+
+    public String getReport(int contractsLimit) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(format("%-14s %14s %14s %16s %10s%n", "op", "count", "ms", "gas", "ns/op"));
+        for (OpStats s : getOpStats()) {
+            sb.append(format("%-14s %14d %14d %16d %10d%n", s.getOp(), s.getCount(),
+                    s.getNanos() / 1_000_000, s.getGas(), s.getNanos() / s.getCount()));
+        }
+        sb.append(format("%n%-64s %10s %14s %14s %16s%n", "code hash", "plays", "ops", "ms", "gas"));
+        for (ContractStats s : getContractStats(contractsLimit)) {
+            String hash = s.getCodeHash().length == 0 ? "(init code)" :
+                    s.getCodeHash().length == 1 ? "(other contracts)" : toHexString(s.getCodeHash());
+            sb.append(format("%-64s %10d %14d %14d %16d%n", hash, s.getPlays(), s.getOps(),
+                    s.getNanos() / 1_000_000, s.getGas()));
+        }
+        sb.append(format("%n%-64s %6s %-14s %14s %14s %16s%n", "code hash", "pc", "op", "count", "ms", "gas"));
+        for (PcStats s : getPcStats(contractsLimit)) {
+            sb.append(format("%-64s %6d %-14s %14d %14d %16d%n", toHexString(s.getCodeHash()), s.getPc(), s.getOp(),
+                    s.getCount(), s.getNanos() / 1_000_000, s.getGas()));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return getReport(20);
+    }
+}
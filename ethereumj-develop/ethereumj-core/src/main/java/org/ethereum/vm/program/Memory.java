@@ -17,25 +17,35 @@
  */
 package org.ethereum.vm.program;
 
+import org.ethereum.crypto.HashUtil;
 import org.ethereum.vm.DataWord;
 import org.ethereum.vm.program.listener.ProgramListener;
 import org.ethereum.vm.program.listener.ProgramListenerAware;
 
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 
 import static java.lang.Math.ceil;
-import static java.lang.Math.min;
 import static java.lang.String.format;
 import static org.ethereum.util.ByteUtil.EMPTY_BYTE_ARRAY;
 import static org.ethereum.util.ByteUtil.oneByteToHexString;
 
+/**
+ * EVM memory.
+ *
+ * Kept in a single contiguous buffer, so any address is reached in O(1).
+ * The buffer is allocated in {@link #CHUNK_SIZE} units, its capacity grows geometrically
+ * to keep the cost of memory expansion amortized.
+ */
 public class Memory implements ProgramListenerAware {
 
     private static final int CHUNK_SIZE = 1024;
     private static final int WORD_SIZE = 32;
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
 
-    private List<byte[]> chunks = new LinkedList<>();
+    private byte[] buffer = EMPTY_BYTE_ARRAY;
+    private int allocatedSize;
     private int softSize;
     private ProgramListener programListener;
 
@@ -48,27 +58,17 @@ public class Memory implements ProgramListenerAware {
         if (size <= 0) return EMPTY_BYTE_ARRAY;
 
         extend(address, size);
-        byte[] data = new byte[size];
-
-        int chunkIndex = address / CHUNK_SIZE;
-        int chunkOffset = address % CHUNK_SIZE;
-
-        int toGrab = data.length;
-        int start = 0;
-
-        while (toGrab > 0) {
-            int copied = grabMax(chunkIndex, chunkOffset, toGrab, data, start);
-
-            // read next chunk from the start
-            ++chunkIndex;
-            chunkOffset = 0;
+        return Arrays.copyOfRange(buffer, address, address + size);
+    }
 
-            // mark remind
-            toGrab -= copied;
-            start += copied;
-        }
+    /**
+     * Calculates sha3 of the memory region in place, without copying it out
+     */
+    public byte[] sha3(int address, int size) {
+        if (size <= 0) return HashUtil.sha3(EMPTY_BYTE_ARRAY);
 
-        return data;
+        extend(address, size);
+        return HashUtil.sha3(buffer, address, size);
     }
 
     public void write(int address, byte[] data, int dataSize, boolean limited) {
@@ -80,26 +80,14 @@ public class Memory implements ProgramListenerAware {
         if (!limited)
             extend(address, dataSize);
 
-        int chunkIndex = address / CHUNK_SIZE;
-        int chunkOffset = address % CHUNK_SIZE;
-
         int toCapture = 0;
         if (limited)
             toCapture = (address + dataSize > softSize) ? softSize - address : dataSize;
         else
             toCapture = dataSize;
 
-        int start = 0;
-        while (toCapture > 0) {
-            int captured = captureMax(chunkIndex, chunkOffset, toCapture, data, start);
-
-            // capture next chunk
-            ++chunkIndex;
-            chunkOffset = 0;
-
-            // mark remind
-            toCapture -= captured;
-            start += captured;
+        if (toCapture > 0) {
+            System.arraycopy(data, 0, buffer, address, toCapture);
         }
 
         if (programListener != null) programListener.onMemoryWrite(address, data, dataSize);
@@ -118,7 +106,7 @@ public class Memory implements ProgramListenerAware {
 
         int toAllocate = newSize - internalSize();
         if (toAllocate > 0) {
-            addChunks((int) ceil((double) toAllocate / CHUNK_SIZE));
+            allocate((int) ceil((double) toAllocate / CHUNK_SIZE));
         }
 
         toAllocate = newSize - softSize;
@@ -136,13 +124,7 @@ public class Memory implements ProgramListenerAware {
 
     // just access expecting all data valid
     public byte readByte(int address) {
-
-        int chunkIndex = address / CHUNK_SIZE;
-        int chunkOffset = address % CHUNK_SIZE;
-
-        byte[] chunk = chunks.get(chunkIndex);
-
-        return chunk[chunkOffset];
+        return buffer[address];
     }
 
     @Override
@@ -180,35 +162,40 @@ public class Memory implements ProgramListenerAware {
     }
 
     public int internalSize() {
-        return chunks.size() * CHUNK_SIZE;
+        return allocatedSize;
     }
 
+    /**
+     * Returns copies of allocated memory split into {@link #CHUNK_SIZE} pieces
+     */
     public List<byte[]> getChunks() {
-        return new LinkedList<>(chunks);
-    }
-
-    private int captureMax(int chunkIndex, int chunkOffset, int size, byte[] src, int srcPos) {
-
-        byte[] chunk = chunks.get(chunkIndex);
-        int toCapture = min(size, chunk.length - chunkOffset);
-
-        System.arraycopy(src, srcPos, chunk, chunkOffset, toCapture);
-        return toCapture;
+        List<byte[]> chunks = new LinkedList<>();
+        for (int offset = 0; offset < allocatedSize; offset += CHUNK_SIZE) {
+            chunks.add(Arrays.copyOfRange(buffer, offset, offset + CHUNK_SIZE));
+        }
+        return chunks;
     }
 
-    private int grabMax(int chunkIndex, int chunkOffset, int size, byte[] dest, int destPos) {
-
-        byte[] chunk = chunks.get(chunkIndex);
-        int toGrab = min(size, chunk.length - chunkOffset);
-
-        System.arraycopy(chunk, chunkOffset, dest, destPos, toGrab);
-
-        return toGrab;
+    /**
+     * Brings the memory back to the initial empty state,
+     * the buffer is kept for reuse unless it's larger than {@code maxCapacity}
+     */
+    void reset(int maxCapacity) {
+        if (buffer.length <= maxCapacity) {
+            Arrays.fill(buffer, 0, allocatedSize, (byte) 0);
+        } else {
+            buffer = EMPTY_BYTE_ARRAY;
+        }
+        allocatedSize = 0;
+        softSize = 0;
+        programListener = null;
     }
 
-    private void addChunks(int num) {
-        for (int i = 0; i < num; ++i) {
-            chunks.add(new byte[CHUNK_SIZE]);
+    private void allocate(int chunks) {
+        allocatedSize += chunks * CHUNK_SIZE;
+        if (allocatedSize > buffer.length) {
+            int capacity = (int) Math.max(allocatedSize, Math.min(2L * buffer.length, MAX_CAPACITY));
+            buffer = Arrays.copyOf(buffer, capacity);
         }
     }
 }
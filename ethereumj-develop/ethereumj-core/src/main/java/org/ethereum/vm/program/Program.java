@@ -25,6 +25,7 @@ import org.ethereum.core.AccountState;
 import org.ethereum.core.Repository;
 import org.ethereum.core.Transaction;
 import org.ethereum.crypto.HashUtil;
+import org.ethereum.datasource.Source;
 import org.ethereum.db.ContractDetails;
 import org.ethereum.util.ByteArraySet;
 import org.ethereum.util.ByteUtil;
@@ -41,6 +42,7 @@ import org.ethereum.vm.program.listener.ProgramListenerAware;
 import org.ethereum.vm.program.listener.ProgramStorageChangeListener;
 import org.ethereum.vm.trace.ProgramTraceListener;
 import org.ethereum.vm.trace.ProgramTrace;
+import org.ethereum.vm.trace.ProgramTraceWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.spongycastle.util.encoders.Hex;
@@ -74,7 +76,7 @@ public class Program {
     private static final int MAX_DEPTH = 1024;
 
     //Max size for stack checks
-    private static final int MAX_STACKSIZE = 1024;
+    private static final int MAX_STACKSIZE = Stack.MAX_SIZE;
 
     private Transaction transaction;
 
@@ -105,12 +107,20 @@ public class Program {
 
     private ProgramPrecompile programPrecompile;
 
+    // basic block which gas has been charged at its entry, see enterBasicBlock()
+    private int block = -1;
+    private int blockStart;
+    private int blockEnd;
+
     CommonConfig commonConfig = CommonConfig.getDefault();
 
     private final SystemProperties config;
 
     private final BlockchainConfig blockchainConfig;
+    private final InstructionTable instructionTable;
     private final VMHook vmHook;
+    // stack and memory are taken from ProgramFramePool and go back there once the frame is done
+    private final boolean pooled;
 
     public Program(byte[] ops, ProgramInvoke programInvoke) {
         this(ops, programInvoke, (Transaction) null);
@@ -129,6 +139,11 @@ public class Program {
     }
 
     public Program(byte[] codeHash, byte[] ops, ProgramInvoke programInvoke, Transaction transaction, SystemProperties config, VMHook vmHook) {
+        this(codeHash, ops, programInvoke, transaction, config, vmHook, new Stack(), new Memory(), false);
+    }
+
+    private Program(byte[] codeHash, byte[] ops, ProgramInvoke programInvoke, Transaction transaction, SystemProperties config,
+                    VMHook vmHook, Stack stack, Memory memory, boolean pooled) {
         this.config = config;
         this.invoke = programInvoke;
         this.transaction = transaction;
@@ -138,24 +153,28 @@ public class Program {
 
         this.vmHook = vmHook;
         this.traceListener = new ProgramTraceListener(config.vmTrace());
-        this.memory = setupProgramListener(new Memory());
-        this.stack = setupProgramListener(new Stack());
+        this.memory = setupProgramListener(memory);
+        // stack events are only consumed by the trace listener
+        this.stack = config.vmTrace() ? setupProgramListener(stack) : stack;
+        this.pooled = pooled;
         this.originalRepo = programInvoke.getOrigRepository();
         this.storage = setupProgramListener(new Storage(programInvoke));
         this.trace = new ProgramTrace(config, programInvoke);
         this.blockchainConfig = config.getBlockchainConfig().getConfigForBlock(programInvoke.getNumber().longValue());
+        this.instructionTable = InstructionTable.forConfig(blockchainConfig);
     }
 
     public ProgramPrecompile getProgramPrecompile() {
         if (programPrecompile == null) {
-            if (codeHash != null && commonConfig.precompileSource() != null) {
-                programPrecompile = commonConfig.precompileSource().get(codeHash);
+            Source<byte[], ProgramPrecompile> precompileSource = codeHash != null ? commonConfig.precompileSource() : null;
+            if (precompileSource != null) {
+                programPrecompile = precompileSource.get(codeHash);
             }
             if (programPrecompile == null) {
                 programPrecompile = ProgramPrecompile.compile(ops);
 
-                if (codeHash != null && commonConfig.precompileSource() != null) {
-                    commonConfig.precompileSource().put(codeHash, programPrecompile);
+                if (precompileSource != null) {
+                    precompileSource.put(codeHash, programPrecompile);
                 }
             }
         }
@@ -167,6 +186,37 @@ public class Program {
         return this;
     }
 
+    /**
+     * Streams trace of this program and its sub calls to the writer, see {@link ProgramTraceWriter}
+     */
+    public Program withTraceWriter(ProgramTraceWriter traceWriter) {
+        this.trace.setWriter(traceWriter);
+        return this;
+    }
+
+    /**
+     * Creates the program of a nested call frame, its stack and memory are recycled
+     * by {@link #releaseFrame(Program)} unless hooks or traces may still refer to them
+     */
+    private Program createFrame(byte[] codeHash, byte[] programCode, ProgramInvoke programInvoke,
+                                InternalTransaction internalTx) {
+        Program program;
+        if (config.vmTrace() || !vmHook.isEmpty()) {
+            program = new Program(codeHash, programCode, programInvoke, internalTx, config, vmHook);
+        } else {
+            ProgramFramePool pool = ProgramFramePool.get();
+            program = new Program(codeHash, programCode, programInvoke, internalTx, config, vmHook,
+                    pool.takeStack(), pool.takeMemory(), true);
+        }
+        return program.withCommonConfig(commonConfig).withTraceWriter(getTrace().getWriter());
+    }
+
+    private static void releaseFrame(Program program) {
+        if (program.pooled) {
+            ProgramFramePool.get().release(program.stack, program.memory);
+        }
+    }
+
     public int getCallDeep() {
         return invoke.getCallDeep();
     }
@@ -300,6 +350,35 @@ public class Program {
         return stack.pop();
     }
 
+    /**
+     * Verifies stack bounds and charges static gas of the whole basic block if current instruction starts one.
+     * Falls back to per instruction accounting when the block would fail somewhere in the middle,
+     * so failures are raised by exactly the same instruction as without blocks.
+     *
+     * @return true if stack and static gas of the current instruction have been already accounted
+     */
+    public boolean enterBasicBlock() {
+        if (pc > blockStart && pc < blockEnd) return true;
+
+        blockEnd = 0;
+        ProgramPrecompile precompile = getProgramPrecompile();
+        int idx = precompile.findBlock(pc, block + 1);
+        if (idx < 0) return false;
+        block = idx;
+
+        if (stack.size() < precompile.getBlockMinStack(idx) ||
+                stack.size() + precompile.getBlockMaxGrowth(idx) > MAX_STACKSIZE) {
+            return false;
+        }
+        long gas = precompile.getBlockGas(idx, instructionTable, ops);
+        if (getGasLong() < gas) return false;
+
+        spendGas(gas, "basic block");
+        blockStart = pc;
+        blockEnd = precompile.getBlockEnd(idx);
+        return true;
+    }
+
     /**
      * Verifies that the stack is at least <code>stackSize</code>
      *
@@ -365,6 +444,13 @@ public class Program {
         return memory.read(offset, size);
     }
 
+    /**
+     * Hashes memory region without copying it out of the memory
+     */
+    public byte[] memorySha3(int offset, int size) {
+        return memory.sha3(offset, size);
+    }
+
     /**
      * Allocates extra memory in the program for
      * a specified size, calculated from a given offset
@@ -539,13 +625,17 @@ public class Program {
             result.setException(new BytecodeExecutionException("Trying to create a contract with existing contract address: 0x" + toHexString(newAddress)));
         } else if (isNotEmpty(programCode)) {
             VM vm = new VM(config, vmHook);
-            Program program = new Program(programCode, programInvoke, internalTx, config, vmHook).withCommonConfig(commonConfig);
+            Program program = createFrame(null, programCode, programInvoke, internalTx);
             // reset storage if the contract with the same address already exists
             // TCK test case only - normally this is near-impossible situation in the real network
-            ContractDetails contractDetails = program.getStorage().getContractDetails(newAddress);
-            contractDetails.deleteStorage();
-            vm.play(program);
-            result = program.getResult();
+            try {
+                ContractDetails contractDetails = program.getStorage().getContractDetails(newAddress);
+                contractDetails.deleteStorage();
+                vm.play(program);
+                result = program.getResult();
+            } finally {
+                releaseFrame(program);
+            }
         }
 
         // 4. CREATE THE CONTRACT OUT OF RETURN
@@ -588,8 +678,12 @@ public class Program {
                 returnDataBuffer = result.getHReturn();
             }
         } else {
-            if (!byTestingSuite())
+            if (!byTestingSuite()) {
                 track.commit();
+            } else {
+                // testing suite only records the call, changes are discarded
+                track.rollback();
+            }
 
             // IN SUCCESS PUSH THE ADDRESS INTO THE STACK
             stackPush(DataWord.of(newAddress));
@@ -676,10 +770,13 @@ public class Program {
                     msg.getType().callIsStatic() || isStaticCall(), byTestingSuite());
 
             VM vm = new VM(config, vmHook);
-            Program program = new Program(getStorage().getCodeHash(codeAddress), programCode, programInvoke, internalTx, config, vmHook)
-                    .withCommonConfig(commonConfig);
-            vm.play(program);
-            result = program.getResult();
+            Program program = createFrame(getStorage().getCodeHash(codeAddress), programCode, programInvoke, internalTx);
+            try {
+                vm.play(program);
+                result = program.getResult();
+            } finally {
+                releaseFrame(program);
+            }
 
             getTrace().merge(program.getTrace());
             getResult().merge(result);
@@ -784,6 +881,13 @@ public class Program {
         return ops;
     }
 
+    /**
+     * @return hash of the code or null for contract init code and empty code
+     */
+    public byte[] getCodeHash() {
+        return codeHash;
+    }
+
     public byte[] getCodeAt(DataWord address) {
         byte[] code = invoke.getRepository().getCode(address.getLast20Bytes());
         return nullToEmpty(code);
@@ -905,6 +1009,10 @@ public class Program {
         return blockchainConfig;
     }
 
+    public InstructionTable getInstructionTable() {
+        return instructionTable;
+    }
+
     public DataWord getDifficulty() {
         return invoke.getDifficulty();
     }
@@ -1270,6 +1378,7 @@ public class Program {
                     msg.getGas().getNoLeadZeroesData(),
                     msg.getEndowment().getNoLeadZeroesData());
 
+            track.rollback();
             stackPushOne();
             return;
         }
@@ -1286,7 +1395,7 @@ public class Program {
             if (logger.isDebugEnabled())
                 logger.debug("Call {}(data = {})", contract.getClass().getSimpleName(), toHexString(data));
 
-            Pair<Boolean, byte[]> out = contract.execute(data);
+            Pair<Boolean, byte[]> out = commonConfig.precompiledResultCache().execute(contract, codeAddress, data);
 
             if (out.getLeft()) { // success
                 this.refundGas(msg.getGas().longValue() - requiredGas, "call pre-compiled");
@@ -1370,6 +1479,16 @@ public class Program {
         }
     }
 
+    /**
+     * Execution was abandoned, the results must be dropped, see {@link VM#setInterruptible(boolean)}
+     */
+    @SuppressWarnings("serial")
+    public static class ExecutionInterruptedException extends RuntimeException {
+        public ExecutionInterruptedException() {
+            super("Execution interrupted");
+        }
+    }
+
 
     public static class Exception {
 
@@ -1390,8 +1509,12 @@ public class Program {
                     cause, program.invoke.getGas().longValue(), gasValue, program.getResult().getGasUsed());
         }
 
+        public static OutOfGasException gasOverflow(long actualGas, long gasLimit) {
+            return new OutOfGasException("Gas value overflow: actualGas[%d], gasLimit[%d];", actualGas, gasLimit);
+        }
+
         public static OutOfGasException gasOverflow(BigInteger actualGas, BigInteger gasLimit) {
-            return new OutOfGasException("Gas value overflow: actualGas[%d], gasLimit[%d];", actualGas.longValue(), gasLimit.longValue());
+            return gasOverflow(actualGas.longValue(), gasLimit.longValue());
         }
 
         public static IllegalOperationException invalidOpCode(byte... opCode) {
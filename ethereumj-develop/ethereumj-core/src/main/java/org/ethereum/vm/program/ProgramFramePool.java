@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ethereum.vm.program;
+
+import java.util.ArrayDeque;
+
+/**
+ * Per thread pool of {@link Stack} and {@link Memory} instances of finished nested call frames.
+ *
+ * Every frame preallocates a stack of {@link Stack#MAX_SIZE} slots and grows a memory buffer,
+ * contracts doing many internal calls would otherwise allocate them for each call.
+ * Nested frames are strictly LIFO within a thread, so the frame released by a finished call
+ * is taken by the next one. Released instances are reset to the empty state, nothing
+ * left by a previous frame is visible to the next one.
+ */
+class ProgramFramePool {
+
+    // deep call chains are rare, no need to keep all their frames
+    static final int MAX_POOLED = 64;
+    // memory buffers larger than this are left to GC
+    static final int MAX_MEMORY_CAPACITY = 64 * 1024;
+
+    private static final ThreadLocal<ProgramFramePool> pools = ThreadLocal.withInitial(ProgramFramePool::new);
+
+    private final ArrayDeque<Stack> stacks = new ArrayDeque<>();
+    private final ArrayDeque<Memory> memories = new ArrayDeque<>();
+
+    static ProgramFramePool get() {
+        return pools.get();
+    }
+
+    Stack takeStack() {
+        Stack stack = stacks.poll();
+        return stack == null ? new Stack() : stack;
+    }
+
+    Memory takeMemory() {
+        Memory memory = memories.poll();
+        return memory == null ? new Memory() : memory;
+    }
+
+    void release(Stack stack, Memory memory) {
+        if (stacks.size() < MAX_POOLED) {
+            stack.reset();
+            stacks.push(stack);
+        }
+        if (memories.size() < MAX_POOLED) {
+            memory.reset(MAX_MEMORY_CAPACITY);
+            memories.push(memory);
+        }
+    }
+
+    int size() {
+        return stacks.size();
+    }
+}
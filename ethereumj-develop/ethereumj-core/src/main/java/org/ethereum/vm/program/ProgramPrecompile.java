@@ -17,33 +17,65 @@
  */
 package org.ethereum.vm.program;
 
-import org.ethereum.datasource.Source;
 import org.ethereum.util.ByteUtil;
 import org.ethereum.util.RLP;
-import org.ethereum.util.RLPElement;
 import org.ethereum.util.RLPList;
+import org.ethereum.vm.InstructionTable;
 import org.ethereum.vm.OpCode;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
+ * Results of the bytecode analysis which are reused across executions of the same code.
+ *
+ * Valid jump destinations are kept in a bitmap indexed by code offset,
+ * so JUMP/JUMPI validation is a single bit test
+ *
+ * Code is also split into basic blocks: runs of instructions with constant gas cost
+ * which are entered only at the first instruction and executed sequentially to the last one.
+ * For every block stack bounds are precomputed, so interpreter could verify stack and charge gas once per block.
+ * Instructions with dynamic gas cost (memory expansion, storage, calls, etc.) don't belong to any block
+ * and are accounted one by one. Block gas depends on the fork and is computed lazily, see {@link #getBlockGas}
+ *
  * Created by Anton Nashatyrev on 06.02.2017.
  */
 public class ProgramPrecompile {
-    private static final int version = 1;
+    private static final int version = 3;
 
-    private Set<Integer> jumpdest = new HashSet<>();
+    // start, end (exclusive), min stack height and max stack growth of each block
+    private static final int BLOCK_START = 0;
+    private static final int BLOCK_END = 1;
+    private static final int BLOCK_MIN_STACK = 2;
+    private static final int BLOCK_MAX_GROWTH = 3;
+    private static final int BLOCK_FIELDS = 4;
 
-    public byte[] serialize() {
-        byte[][] jdBytes = new byte[jumpdest.size() + 1][];
-        int cnt = 0;
-        jdBytes[cnt++] = RLP.encodeInt(version);
-        for (Integer dst : jumpdest) {
-            jdBytes[cnt++] = RLP.encodeInt(dst);
+    private long[] jumpdest = new long[0];
+    private int[] blocks = new int[0];
+
+    private volatile BlockGas blockGas;
+
+    private static class BlockGas {
+        final InstructionTable table;
+        final long[] gas;
+
+        BlockGas(InstructionTable table, long[] gas) {
+            this.table = table;
+            this.gas = gas;
         }
+    }
 
-        return RLP.encodeList(jdBytes);
+    public byte[] serialize() {
+        byte[] bitmap = new byte[jumpdest.length * 8];
+        for (int i = 0; i < bitmap.length; i++) {
+            bitmap[i] = (byte) (jumpdest[i >>> 3] >>> ((i & 7) * 8));
+        }
+        byte[] blockBytes = new byte[blocks.length * 4];
+        for (int i = 0; i < blocks.length; i++) {
+            System.arraycopy(ByteUtil.intToBytes(blocks[i]), 0, blockBytes, i * 4, 4);
+        }
+        return RLP.encodeList(RLP.encodeInt(version), RLP.encodeElement(bitmap), RLP.encodeElement(blockBytes));
     }
 
     public static ProgramPrecompile deserialize(byte[] stream) {
@@ -51,39 +83,199 @@ public class ProgramPrecompile {
         int ver = ByteUtil.byteArrayToInt(l.get(0).getRLPData());
         if (ver != version) return null;
         ProgramPrecompile ret = new ProgramPrecompile();
-        for (int i = 1; i < l.size(); i++) {
-            ret.jumpdest.add(ByteUtil.byteArrayToInt(l.get(i).getRLPData()));
+        byte[] bitmap = l.get(1).getRLPData();
+        if (bitmap != null) {
+            ret.jumpdest = new long[bitmap.length / 8];
+            for (int i = 0; i < bitmap.length; i++) {
+                ret.jumpdest[i >>> 3] |= (bitmap[i] & 0xFFL) << ((i & 7) * 8);
+            }
+        }
+        byte[] blockBytes = l.get(2).getRLPData();
+        if (blockBytes != null) {
+            ret.blocks = new int[blockBytes.length / 4];
+            for (int i = 0; i < ret.blocks.length; i++) {
+                ret.blocks[i] = ByteUtil.byteArrayToInt(Arrays.copyOfRange(blockBytes, i * 4, i * 4 + 4));
+            }
         }
         return ret;
     }
 
     public static ProgramPrecompile compile(byte[] ops) {
         ProgramPrecompile ret = new ProgramPrecompile();
+        ret.jumpdest = new long[(ops.length + 63) >>> 6];
+
+        BlockBuilder blocks = new BlockBuilder();
         for (int i = 0; i < ops.length; ++i) {
 
             OpCode op = OpCode.code(ops[i]);
-            if (op == null) continue;
+            if (op == null || InstructionTable.hasDynamicGas(op)) {
+                // undefined opcode fails on its own, dynamic one is accounted separately
+                blocks.close(i);
+                continue;
+            }
+
+            if (op.equals(OpCode.JUMPDEST)) {
+                ret.jumpdest[i >>> 6] |= 1L << i;
+                blocks.close(i);
+            }
 
-            if (op.equals(OpCode.JUMPDEST)) ret.jumpdest.add(i);
+            blocks.add(i, op);
 
             if (op.asInt() >= OpCode.PUSH1.asInt() && op.asInt() <= OpCode.PUSH32.asInt()) {
                 i += op.asInt() - OpCode.PUSH1.asInt() + 1;
             }
+
+            if (endsBlock(op)) blocks.close(Math.min(i + 1, ops.length));
         }
+        blocks.close(ops.length);
+
+        ret.blocks = blocks.toArray();
         return ret;
     }
 
+    /**
+     * Instructions which transfer control or observe remaining gas,
+     * the latter would otherwise see gas of the whole block already spent
+     */
+    private static boolean endsBlock(OpCode op) {
+        switch (op) {
+            case STOP:
+            case JUMP:
+            case JUMPI:
+            case GAS:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static class BlockBuilder {
+        int[] blocks = new int[BLOCK_FIELDS * 16];
+        int size = 0;
+
+        int start = -1;
+        int height, minStack, maxGrowth;
+
+        void add(int pc, OpCode op) {
+            if (start < 0) {
+                start = pc;
+                height = minStack = maxGrowth = 0;
+            }
+            minStack = Math.max(minStack, op.require() - height);
+            height += op.ret() - op.require();
+            maxGrowth = Math.max(maxGrowth, height);
+        }
+
+        void close(int end) {
+            if (start < 0) return;
+            if (size + BLOCK_FIELDS > blocks.length) {
+                blocks = Arrays.copyOf(blocks, blocks.length * 2);
+            }
+            blocks[size + BLOCK_START] = start;
+            blocks[size + BLOCK_END] = end;
+            blocks[size + BLOCK_MIN_STACK] = minStack;
+            blocks[size + BLOCK_MAX_GROWTH] = maxGrowth;
+            size += BLOCK_FIELDS;
+            start = -1;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(blocks, size);
+        }
+    }
+
     public boolean hasJumpDest(int pc) {
-        return jumpdest.contains(pc);
+        return pc >= 0 && (pc >>> 6) < jumpdest.length && (jumpdest[pc >>> 6] & (1L << pc)) != 0;
+    }
+
+    /**
+     * Looks up the block starting exactly at pc
+     *
+     * @param hint index of the block which is likely the one, e.g. the one following previously executed block
+     * @return block index or -1 if no block starts at pc
+     */
+    public int findBlock(int pc, int hint) {
+        if (hint >= 0 && hint < getBlockCount() && blocks[hint * BLOCK_FIELDS + BLOCK_START] == pc) {
+            return hint;
+        }
+        int lo = 0, hi = getBlockCount() - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int start = blocks[mid * BLOCK_FIELDS + BLOCK_START];
+            if (start < pc) {
+                lo = mid + 1;
+            } else if (start > pc) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    public int getBlockCount() {
+        return blocks.length / BLOCK_FIELDS;
+    }
+
+    public int getBlockStart(int block) {
+        return blocks[block * BLOCK_FIELDS + BLOCK_START];
+    }
+
+    public int getBlockEnd(int block) {
+        return blocks[block * BLOCK_FIELDS + BLOCK_END];
+    }
+
+    /**
+     * @return stack height required to execute the block without underflow
+     */
+    public int getBlockMinStack(int block) {
+        return blocks[block * BLOCK_FIELDS + BLOCK_MIN_STACK];
+    }
+
+    /**
+     * @return max stack growth relative to the height at the block entry
+     */
+    public int getBlockMaxGrowth(int block) {
+        return blocks[block * BLOCK_FIELDS + BLOCK_MAX_GROWTH];
+    }
+
+    /**
+     * Sum of static gas costs of the block instructions under given instruction table.
+     * The result is cached for the most recently requested table
+     *
+     * @param ops the code this precompile was built from
+     */
+    public long getBlockGas(int block, InstructionTable table, byte[] ops) {
+        BlockGas cached = blockGas;
+        if (cached == null || cached.table != table) {
+            long[] gas = new long[getBlockCount()];
+            for (int b = 0; b < gas.length; b++) {
+                for (int i = getBlockStart(b); i < getBlockEnd(b); ++i) {
+                    OpCode op = OpCode.code(ops[i]);
+                    gas[b] += table.staticGas(op);
+                    if (op.asInt() >= OpCode.PUSH1.asInt() && op.asInt() <= OpCode.PUSH32.asInt()) {
+                        i += op.asInt() - OpCode.PUSH1.asInt() + 1;
+                    }
+                }
+            }
+            blockGas = cached = new BlockGas(table, gas);
+        }
+        return cached.gas[block];
+    }
+
+    public List<Integer> getJumpDests() {
+        List<Integer> ret = new ArrayList<>();
+        for (int i = 0; i < jumpdest.length * 64; i++) {
+            if (hasJumpDest(i)) ret.add(i);
+        }
+        return ret;
     }
 
     public static void main(String[] args) throws Exception {
-        ProgramPrecompile pp = new ProgramPrecompile();
-        pp.jumpdest.add(100);
-        pp.jumpdest.add(200);
+        ProgramPrecompile pp = ProgramPrecompile.compile(new byte[] {0x5b, 0x60, 0x5b, 0x5b});
         byte[] bytes = pp.serialize();
 
         ProgramPrecompile pp1 = ProgramPrecompile.deserialize(bytes);
-        System.out.println(pp1.jumpdest);
+        System.out.println(pp1.getJumpDests());
     }
 }
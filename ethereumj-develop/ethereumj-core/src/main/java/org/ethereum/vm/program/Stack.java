@@ -21,7 +21,25 @@ import org.ethereum.vm.DataWord;
 import org.ethereum.vm.program.listener.ProgramListener;
 import org.ethereum.vm.program.listener.ProgramListenerAware;
 
-public class Stack extends java.util.Stack<DataWord> implements ProgramListenerAware {
+import java.util.Arrays;
+import java.util.EmptyStackException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * EVM operand stack.
+ *
+ * Backed by a preallocated array of {@link #MAX_SIZE} slots,
+ * it is used by a single program frame only and hence isn't synchronized.
+ * Index based accessors count from the bottom of the stack
+ * in the same way {@link java.util.Stack} does.
+ */
+public class Stack implements ProgramListenerAware, Iterable<DataWord> {
+
+    public static final int MAX_SIZE = 1024;
+
+    private final DataWord[] items = new DataWord[MAX_SIZE];
+    private int size = 0;
 
     private ProgramListener programListener;
 
@@ -30,27 +48,99 @@ public class Stack extends java.util.Stack<DataWord> implements ProgramListenerA
         this.programListener = listener;
     }
 
-    @Override
-    public synchronized DataWord pop() {
+    public DataWord pop() {
+        if (size == 0) throw new EmptyStackException();
         if (programListener != null) programListener.onStackPop();
-        return super.pop();
+        DataWord item = items[--size];
+        items[size] = null;
+        return item;
     }
 
-    @Override
     public DataWord push(DataWord item) {
+        if (size == MAX_SIZE) {
+            throw new IndexOutOfBoundsException("Stack limit of " + MAX_SIZE + " items is reached");
+        }
         if (programListener != null) programListener.onStackPush(item);
-        return super.push(item);
+        items[size++] = item;
+        return item;
+    }
+
+    public DataWord peek() {
+        if (size == 0) throw new EmptyStackException();
+        return items[size - 1];
+    }
+
+    /**
+     * Pushes a copy of the n-th item counting from the top, DUP1 is {@code dup(1)}
+     */
+    public void dup(int n) {
+        push(get(size - n));
+    }
+
+    public DataWord get(int index) {
+        if (index < 0 || index >= size) {
+            throw new ArrayIndexOutOfBoundsException("Stack index out of range: " + index);
+        }
+        return items[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Empties the stack and detaches the listener, so the instance can be used by another frame
+     */
+    void reset() {
+        Arrays.fill(items, 0, size, null);
+        size = 0;
+        programListener = null;
     }
 
     public void swap(int from, int to) {
         if (isAccessible(from) && isAccessible(to) && (from != to)) {
             if (programListener != null) programListener.onStackSwap(from, to);
-            DataWord tmp = get(from);
-            set(from, set(to, tmp));
+            DataWord tmp = items[from];
+            items[from] = items[to];
+            items[to] = tmp;
         }
     }
 
     private boolean isAccessible(int from) {
         return from >= 0 && from < size();
     }
+
+    public DataWord[] toArray() {
+        return Arrays.copyOf(items, size);
+    }
+
+    /**
+     * Iterates from the bottom of the stack to its top
+     */
+    @Override
+    public Iterator<DataWord> iterator() {
+        return new Iterator<DataWord>() {
+            private int cursor = 0;
+
+            @Override
+            public boolean hasNext() {
+                return cursor < size;
+            }
+
+            @Override
+            public DataWord next() {
+                if (cursor >= size) throw new NoSuchElementException();
+                return items[cursor++];
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
 }
@@ -17,6 +17,7 @@
  */
 package org.ethereum.vm.trace;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.ethereum.config.SystemProperties;
 import org.ethereum.vm.DataWord;
 import org.ethereum.vm.OpCode;
@@ -37,6 +38,10 @@ public class ProgramTrace {
     private String error;
     private String contractAddress;
 
+    // when set, ops are streamed to it instead of being collected
+    @JsonIgnore
+    private ProgramTraceWriter writer;
+
     public ProgramTrace() {
         this(null, null);
     }
@@ -79,6 +84,14 @@ public class ProgramTrace {
         this.contractAddress = contractAddress;
     }
 
+    public ProgramTraceWriter getWriter() {
+        return writer;
+    }
+
+    public void setWriter(ProgramTraceWriter writer) {
+        this.writer = writer;
+    }
+
     public ProgramTrace result(byte[] result) {
         setResult(toHexString(result));
         return this;
@@ -97,7 +110,11 @@ public class ProgramTrace {
         op.setGas(gas.value());
         op.setPc(pc);
 
-        ops.add(op);
+        if (writer != null) {
+            writer.write(contractAddress, op);
+        } else {
+            ops.add(op);
+        }
 
         return op;
     }
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ethereum.vm.trace;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.ethereum.config.SystemProperties;
+import org.ethereum.vm.OpCode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+import static java.lang.String.format;
+import static org.ethereum.util.ByteUtil.toHexString;
+import static org.springframework.util.StringUtils.isEmpty;
+
+/**
+ * Writes VM trace of a single transaction op by op as JSON lines,
+ * so the trace never has to be kept in memory as a whole.
+ *
+ * Each line is either an executed op along with the address of the contract executing it,
+ * or the final line with the transaction result and error.
+ * Ops could be filtered by contract address and opcode and sampled, see vm.structured.stream config section.
+ * An I/O failure turns the writer off, it never affects the execution itself
+ */
+public class ProgramTraceWriter implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger("vmtrace");
+
+    private static final ObjectMapper mapper = Serializers.createFieldsOnlyMapper(false);
+    private static final byte[] NEW_LINE = {'\n'};
+
+    private final File file;
+    private final Set<String> contracts;
+    private final Set<OpCode> ops;
+    private final int sampling;
+
+    private OutputStream out;
+    private long matched;
+    private long written;
+
+    public ProgramTraceWriter(File file, OutputStream out, Set<String> contracts, Set<OpCode> ops, int sampling) {
+        this.file = file;
+        this.out = out;
+        this.contracts = contracts;
+        this.ops = ops;
+        this.sampling = Math.max(sampling, 1);
+    }
+
+    /**
+     * @return writer to the trace file of the transaction or null if streaming is off or the file couldn't be opened
+     */
+    public static ProgramTraceWriter create(SystemProperties config, String txHash) {
+        if (!config.vmTrace() || !config.vmTraceStream() || isEmpty(config.vmTraceDir())) return null;
+
+        File file = new File(new File(config.databaseDir(), config.vmTraceDir()),
+                txHash + (config.vmTraceCompressed() ? ".jsonl.gz" : ".jsonl"));
+        try {
+            file.getParentFile().mkdirs();
+            OutputStream out = new FileOutputStream(file);
+            out = config.vmTraceCompressed() ?
+                    new GZIPOutputStream(out, config.vmTraceStreamBufferSize()) :
+                    new BufferedOutputStream(out, config.vmTraceStreamBufferSize());
+
+            return new ProgramTraceWriter(file, out, config.vmTraceStreamContracts(), config.vmTraceStreamOps(),
+                    config.vmTraceStreamSampling());
+        } catch (IOException e) {
+            logger.error(format("Cannot open trace file '%s': ", file.getAbsolutePath()), e);
+            return null;
+        }
+    }
+
+    public void write(String contractAddress, Op op) {
+        if (out == null) return;
+        if (!contracts.isEmpty() && !contracts.contains(contractAddress)) return;
+        if (!ops.isEmpty() && !ops.contains(op.getCode())) return;
+        if (matched++ % sampling != 0) return;
+
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("contractAddress", contractAddress);
+        line.put("op", op);
+        writeLine(line);
+        written++;
+    }
+
+    /**
+     * Writes transaction result and closes the file
+     */
+    public void finish(byte[] result, Exception error) {
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("result", toHexString(result));
+        line.put("error", error == null ? "" : format("%s: %s", error.getClass(), error.getMessage()));
+        writeLine(line);
+        close();
+    }
+
+    private void writeLine(Object line) {
+        if (out == null) return;
+        try {
+            out.write(mapper.writeValueAsBytes(line));
+            out.write(NEW_LINE);
+        } catch (IOException e) {
+            logger.error(format("Cannot write to trace file '%s', tracing is stopped: ", file), e);
+            close();
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return number of ops written to the file
+     */
+    public long getWritten() {
+        return written;
+    }
+
+    @Override
+    public void close() {
+        if (out == null) return;
+        try {
+            out.close();
+        } catch (IOException e) {
+            logger.error(format("Cannot close trace file '%s': ", file), e);
+        } finally {
+            out = null;
+        }
+    }
+}
@@ -63,16 +63,19 @@ public final class Serializers {
 
     public static String serializeFieldsOnly(Object value, boolean pretty) {
         try {
-            ObjectMapper mapper = createMapper(pretty);
-            mapper.setVisibilityChecker(fieldsOnlyVisibilityChecker(mapper));
-
-            return mapper.writeValueAsString(value);
+            return createFieldsOnlyMapper(pretty).writeValueAsString(value);
         } catch (Exception e) {
             LOGGER.error("JSON serialization error: ", e);
             return "{}";
         }
     }
 
+    public static ObjectMapper createFieldsOnlyMapper(boolean pretty) {
+        ObjectMapper mapper = createMapper(pretty);
+        mapper.setVisibilityChecker(fieldsOnlyVisibilityChecker(mapper));
+        return mapper;
+    }
+
     private static VisibilityChecker<?> fieldsOnlyVisibilityChecker(ObjectMapper mapper) {
         return mapper.getSerializationConfig().getDefaultVisibilityChecker()
                 .withFieldVisibility(JsonAutoDetect.Visibility.ANY)
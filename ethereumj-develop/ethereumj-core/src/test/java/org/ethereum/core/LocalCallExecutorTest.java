@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ethereum.core;
+
+import org.ethereum.config.CommonConfig;
+import org.ethereum.config.SystemProperties;
+import org.ethereum.util.blockchain.StandaloneBlockchain;
+import org.ethereum.vm.DataWord;
+import org.ethereum.vm.program.ProgramResult;
+import org.junit.Test;
+import org.spongycastle.util.encoders.Hex;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class LocalCallExecutorTest {
+
+    // returns the first word of call data incremented by one
+    private static final byte[] runtimeCode = Hex.decode("60003560010160005260206000f3");
+    private static final byte[] initCode = Hex.decode("600e600c600039600e6000f3" + Hex.toHexString(runtimeCode));
+
+    @Test
+    public void testCalls() {
+        StandaloneBlockchain sb = new StandaloneBlockchain();
+        Transaction create = sb.createTransaction(0, new byte[0], 0, initCode);
+        sb.submitTransaction(create);
+        Block block = sb.createBlock();
+        byte[] contract = create.getContractAddress();
+
+        LocalCallExecutor executor = new LocalCallExecutor(SystemProperties.getDefault(),
+                sb.getBlockchain().getRepository(), sb.getBlockchain().getBlockStore(),
+                sb.getBlockchain().getProgramInvokeFactory(), CommonConfig.getDefault());
+
+        ProgramResult result = executor.call(callTx(contract, 41), block);
+        assertNull(result.getException());
+        assertEquals(DataWord.of(42), DataWord.of(result.getHReturn()));
+
+        List<Transaction> txs = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            txs.add(callTx(contract, i));
+        }
+        List<ProgramResult> results = executor.callAll(txs, block);
+        assertEquals(txs.size(), results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(DataWord.of(i + 1), DataWord.of(results.get(i).getHReturn()));
+        }
+
+        // calls don't change the state
+        assertEquals(Hex.toHexString(block.getStateRoot()),
+                Hex.toHexString(sb.getBlockchain().getRepository().getRoot()));
+
+        // the snapshot is shared while the block is the same
+        assertSame(executor.getSnapshot(block.getStateRoot()), executor.getSnapshot(block.getStateRoot()));
+    }
+
+    private static Transaction callTx(byte[] contract, int arg) {
+        return CallTransaction.createRawTransaction(0, 0, 1_000_000, Hex.toHexString(contract), 0,
+                DataWord.of(arg).getData());
+    }
+}
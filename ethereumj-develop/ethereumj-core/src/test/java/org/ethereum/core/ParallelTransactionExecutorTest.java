@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ethereum.core;
+
+import org.ethereum.config.SystemProperties;
+import org.ethereum.crypto.ECKey;
+import org.ethereum.crypto.HashUtil;
+import org.ethereum.listener.EthereumListenerAdapter;
+import org.ethereum.util.blockchain.StandaloneBlockchain;
+import org.junit.After;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.spongycastle.util.encoders.Hex;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class ParallelTransactionExecutorTest {
+
+    // increments the slot 0
+    private static final byte[] counterCode = Hex.decode("60005460010160005500");
+    private static final byte[] counterInit = Hex.decode("600a600c600039600a6000f3" + Hex.toHexString(counterCode));
+    // self-destructs sending the balance to the caller
+    private static final byte[] suicideCode = Hex.decode("33ff");
+    private static final byte[] suicideInit = Hex.decode("6002600c60003960026000f3" + Hex.toHexString(suicideCode));
+    // counts down from 10000 in a loop
+    private static final byte[] loopCode = Hex.decode("6127105b600190038060035700");
+    private static final byte[] loopInit = Hex.decode("600d600c600039600d6000f3" + Hex.toHexString(loopCode));
+
+    private static final byte[] coinbase = Hex.decode("ffffffffffffffffffffffffffffffffffffffff");
+
+    private ECKey[] senders;
+    private long[] nonces;
+
+    @After
+    public void cleanup() {
+        SystemProperties.resetToDefault();
+    }
+
+    private StandaloneBlockchain createBlockchain(int threads) {
+        SystemProperties.getDefault().overrideParams("blockchain.parallel.threads", String.valueOf(threads));
+        StandaloneBlockchain sb = new StandaloneBlockchain();
+        for (ECKey sender : senders) {
+            sb.withAccountBalance(sender.getAddress(), new BigInteger("1000000000000000000000"));
+        }
+        // the executor is set up along with the blockchain
+        sb.getBlockchain();
+        return sb;
+    }
+
+    private void createSenders(int count) {
+        senders = new ECKey[count];
+        nonces = new long[count];
+        for (int i = 0; i < count; i++) {
+            senders[i] = ECKey.fromPrivate(HashUtil.sha3(("sender" + i).getBytes()));
+        }
+    }
+
+    private Transaction submit(StandaloneBlockchain sb, int sender, byte[] to, long value, byte[] data) {
+        Transaction tx = sb.createTransaction(senders[sender], nonces[sender]++, to, BigInteger.valueOf(value), data);
+        sb.submitTransaction(tx);
+        return tx;
+    }
+
+    private static List<BlockSummary> importBlocks(StandaloneBlockchain sb, List<Block> blocks) {
+        List<BlockSummary> summaries = new ArrayList<>();
+        sb.addEthereumListener(new EthereumListenerAdapter() {
+            @Override
+            public void onBlock(BlockSummary blockSummary) {
+                summaries.add(blockSummary);
+            }
+        });
+        for (Block block : blocks) {
+            assertEquals(ImportResult.IMPORTED_BEST, sb.getBlockchain().tryToConnect(block));
+        }
+        return summaries;
+    }
+
+    @Test
+    public void testSameAsSequential() {
+        createSenders(6);
+        StandaloneBlockchain sequential = createBlockchain(0);
+        List<Block> blocks = new ArrayList<>();
+
+        byte[] counter = submit(sequential, 0, new byte[0], 0, counterInit).getContractAddress();
+        byte[] suicide = submit(sequential, 0, new byte[0], 10, suicideInit).getContractAddress();
+        for (int i = 1; i < senders.length; i++) {
+            submit(sequential, i, HashUtil.sha3(new byte[] {(byte) i}), 100 + i, new byte[0]);
+        }
+        blocks.add(sequential.createBlock());
+
+        // same storage row, same sender, coinbase transfer, self-destruct and empty account touch
+        submit(sequential, 1, counter, 0, new byte[0]);
+        submit(sequential, 2, counter, 0, new byte[0]);
+        submit(sequential, 3, HashUtil.sha3(new byte[] {1}), 1, new byte[0]);
+        submit(sequential, 4, coinbase, 1000, new byte[0]);
+        submit(sequential, 5, suicide, 0, new byte[0]);
+        submit(sequential, 0, HashUtil.sha3(new byte[] {2}), 1, new byte[0]);
+        submit(sequential, 0, HashUtil.sha3(new byte[] {3}), 1, new byte[0]);
+        submit(sequential, 3, HashUtil.sha3(new byte[] {4}), 0, new byte[0]);
+        blocks.add(sequential.createBlock());
+
+        // calls of a contract created in the same block and of the self-destructed one
+        byte[] counter2 = submit(sequential, 0, new byte[0], 0, counterInit).getContractAddress();
+        submit(sequential, 1, counter2, 0, new byte[0]);
+        submit(sequential, 2, suicide, 5, new byte[0]);
+        submit(sequential, 3, counter, 0, new byte[0]);
+        submit(sequential, 4, HashUtil.sha3(new byte[] {5}), 1, new byte[0]);
+        submit(sequential, 5, HashUtil.sha3(new byte[] {6}), 1, new byte[0]);
+        blocks.add(sequential.createBlock());
+
+        StandaloneBlockchain replay = createBlockchain(0);
+        StandaloneBlockchain parallel = createBlockchain(4);
+        List<BlockSummary> expected = importBlocks(replay, blocks);
+        List<BlockSummary> actual = importBlocks(parallel, blocks);
+
+        assertEquals(blocks.size(), actual.size());
+        for (int i = 0; i < blocks.size(); i++) {
+            List<TransactionReceipt> expectedReceipts = expected.get(i).getReceipts();
+            List<TransactionReceipt> actualReceipts = actual.get(i).getReceipts();
+            assertEquals(expectedReceipts.size(), actualReceipts.size());
+            for (int j = 0; j < expectedReceipts.size(); j++) {
+                assertEquals(Hex.toHexString(expectedReceipts.get(j).getEncoded()),
+                        Hex.toHexString(actualReceipts.get(j).getEncoded()));
+            }
+        }
+        assertEquals(Hex.toHexString(blocks.get(blocks.size() - 1).getStateRoot()),
+                Hex.toHexString(parallel.getBlockchain().getRepository().getRoot()));
+    }
+
+    @Ignore("performance comparison")
+    @Test
+    public void compareImportTime() {
+        int txs = 50;
+        createSenders(txs);
+        StandaloneBlockchain sequential = createBlockchain(0);
+        List<Block> blocks = new ArrayList<>();
+
+        byte[][] loops = new byte[txs][];
+        for (int i = 0; i < txs; i++) {
+            loops[i] = submit(sequential, i, new byte[0], 0, loopInit).getContractAddress();
+        }
+        sequential.createBlock();
+        for (int b = 0; b < 20; b++) {
+            for (int i = 0; i < txs; i++) {
+                submit(sequential, i, loops[i], 0, new byte[0]);
+            }
+            blocks.add(sequential.createBlock());
+        }
+
+        for (int threads : new int[] {0, 4, 0, 4}) {
+            StandaloneBlockchain sb = createBlockchain(threads);
+            sb.getBlockchain().tryToConnect(sequential.getBlockchain().getBlockByNumber(1));
+            long start = System.nanoTime();
+            importBlocks(sb, blocks);
+            System.out.printf("threads: %d, %d blocks of %d txs imported in %d ms%n",
+                    threads, blocks.size(), txs, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ethereum.crypto;
+
+import org.junit.Test;
+import org.spongycastle.asn1.x9.X9IntegerConverter;
+import org.spongycastle.math.ec.ECAlgorithms;
+import org.spongycastle.math.ec.ECPoint;
+import org.spongycastle.util.encoders.Hex;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.ethereum.crypto.ECKey.CURVE;
+import static org.ethereum.crypto.Secp256k1Field.P;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class Secp256k1Test {
+
+    @Test
+    public void testFieldArithmetic() {
+        Random rnd = new Random(0);
+        for (int i = 0; i < 10000; i++) {
+            BigInteger x = i % 5 == 0 ? P.subtract(BigInteger.valueOf(i % 4 + 1)) : new BigInteger(256, rnd).mod(P);
+            BigInteger y = i % 7 == 0 ? BigInteger.valueOf(i % 3) : new BigInteger(256, rnd).mod(P);
+            int[] fx = Secp256k1Field.create(x), fy = Secp256k1Field.create(y), r = Secp256k1Field.create();
+
+            Secp256k1Field.mul(r, fx, fy);
+            assertEquals(x.multiply(y).mod(P), Secp256k1Field.toBigInteger(r));
+            Secp256k1Field.sqr(r, fx);
+            assertEquals(x.multiply(x).mod(P), Secp256k1Field.toBigInteger(r));
+            Secp256k1Field.add(r, fx, fy);
+            assertEquals(x.add(y).mod(P), Secp256k1Field.toBigInteger(r));
+            Secp256k1Field.sub(r, fx, fy);
+            assertEquals(x.subtract(y).mod(P), Secp256k1Field.toBigInteger(r));
+            Secp256k1Field.mulInt(r, fx, 8);
+            assertEquals(x.shiftLeft(3).mod(P), Secp256k1Field.toBigInteger(r));
+            assertEquals(x, Secp256k1Field.toBigInteger(Secp256k1Field.create(Secp256k1Field.toBytes(fx), 0)));
+
+            if (i % 100 == 0) {
+                Secp256k1Field.sqrt(r, fx);
+                assertEquals(x.modPow(P.add(BigInteger.ONE).shiftRight(2), P), Secp256k1Field.toBigInteger(r));
+            }
+        }
+    }
+
+    @Test
+    public void testScalarDecomposition() {
+        Random rnd = new Random(0);
+        for (int i = 0; i < 1000; i++) {
+            BigInteger k = new BigInteger(256, rnd).mod(Secp256k1.N);
+            BigInteger[] split = Secp256k1.split(k);
+            assertEquals(k, split[0].add(split[1].multiply(Secp256k1.LAMBDA)).mod(Secp256k1.N));
+            assertTrue(split[0].bitLength() <= 129 && split[1].bitLength() <= 129);
+
+            int[] wnaf = Secp256k1.wnaf(split[1], 5);
+            BigInteger sum = BigInteger.ZERO;
+            for (int j = wnaf.length - 1; j >= 0; j--) {
+                sum = sum.shiftLeft(1).add(BigInteger.valueOf(wnaf[j]));
+            }
+            assertEquals(split[1], sum);
+        }
+    }
+
+    @Test
+    public void testRecoveryMatchesGeneric() {
+        Random rnd = new Random(0);
+        for (int i = 0; i < 500; i++) {
+            BigInteger r = new BigInteger(256, rnd).mod(Secp256k1.N);
+            BigInteger s = i % 50 == 0 ? BigInteger.ZERO : new BigInteger(256, rnd).mod(Secp256k1.N);
+            byte[] hash = new byte[32];
+            if (i % 40 != 0) rnd.nextBytes(hash);
+            int recId = i % 4;
+
+            assertArrayEquals(recoverGeneric(recId, r, s, hash), Secp256k1.recoverPublicKey(recId, r, s, hash));
+        }
+    }
+
+    @Test
+    public void testSignedMessages() throws Exception {
+        Random rnd = new Random(0);
+        int cnt = 20;
+        byte[][] hashes = new byte[cnt][32];
+        ECKey.ECDSASignature[] sigs = new ECKey.ECDSASignature[cnt];
+        ECKey[] keys = new ECKey[cnt];
+        for (int i = 0; i < cnt; i++) {
+            keys[i] = new ECKey();
+            rnd.nextBytes(hashes[i]);
+            sigs[i] = keys[i].sign(hashes[i]);
+        }
+        // malformed ones don't break the batch
+        sigs[3] = ECKey.ECDSASignature.fromComponents(sigs[3].r.toByteArray(), sigs[3].s.toByteArray(), (byte) 40);
+        hashes[5] = new byte[20];
+
+        byte[][] batch = ECKey.signaturesToKeyBytes(hashes, sigs);
+        for (int i = 0; i < cnt; i++) {
+            if (i == 3 || i == 5) {
+                assertNull(batch[i]);
+            } else {
+                assertArrayEquals(keys[i].getPubKey(), batch[i]);
+                assertArrayEquals(keys[i].getPubKey(), ECKey.signatureToKeyBytes(hashes[i], sigs[i]));
+            }
+        }
+    }
+
+    @Test
+    public void testPointAtInfinity() {
+        byte[] hash = Hex.decode("acb1c19ac0832320815b5e886c6b73ad7d6177853d44b026f2a7a9e11bb899fc");
+        BigInteger r = new BigInteger("89ea49159b334f9aebbf54481b69d000d285baa341899db355a4030f6838394e", 16);
+        BigInteger s = new BigInteger("540e9f9fa17bef441e32d98d5f4554cfefdc6a56101352e4b92efafd0d9646e8", 16);
+
+        assertNull(Secp256k1.recoverPublicKey(1, r, s, hash));
+        assertNull(Secp256k1.recoverPublicKeys(new int[] {1}, new BigInteger[] {r}, new BigInteger[] {s},
+                new byte[][] {hash})[0]);
+    }
+
+    private static byte[] recoverGeneric(int recId, BigInteger r, BigInteger s, byte[] hash) {
+        BigInteger n = CURVE.getN();
+        BigInteger x = r.add(n.multiply(BigInteger.valueOf(recId / 2)));
+        if (x.compareTo(P) >= 0) return null;
+
+        X9IntegerConverter x9 = new X9IntegerConverter();
+        byte[] compressed = x9.integerToBytes(x, 33);
+        compressed[0] = (byte) ((recId & 1) == 1 ? 0x03 : 0x02);
+        ECPoint point;
+        try {
+            point = CURVE.getCurve().decodePoint(compressed);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+
+        BigInteger rInv = r.modInverse(n);
+        BigInteger u1 = BigInteger.ZERO.subtract(new BigInteger(1, hash)).mod(n).multiply(rInv).mod(n);
+        BigInteger u2 = rInv.multiply(s).mod(n);
+        ECPoint q = ECAlgorithms.sumOfTwoMultiplies(CURVE.getG(), u1, point, u2);
+        return q.isInfinity() ? null : q.getEncoded(false);
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ethereum.crypto.cryptohash;
+
+import org.ethereum.crypto.jce.SpongyCastleProvider;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.spongycastle.util.encoders.Hex;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class Keccak256HasherTest {
+
+    @Test
+    public void testKnownHashes() {
+        assertArrayEquals(Hex.decode("c5d2460186f7233c927e7db2dcc703c0e500b653ca82273b7bfad8045d85a470"),
+                Keccak256Hasher.hash(new byte[0]));
+        assertArrayEquals(Hex.decode("eead6dbfc7340a56caedc044696a168870549a6a7f6f56961e84a54bd9970b8a"),
+                Keccak256Hasher.hash(Hex.decode("cc")));
+    }
+
+    @Test
+    public void testMatchesDigest() {
+        Random rnd = new Random(0);
+        // lengths around the 136 bytes block
+        for (int len : new int[] {1, 31, 32, 135, 136, 137, 272, 1000}) {
+            byte[] data = new byte[len + 10];
+            rnd.nextBytes(data);
+            byte[] expected = new Keccak256().digest(Arrays.copyOfRange(data, 5, 5 + len));
+
+            assertArrayEquals(expected, Keccak256Hasher.hash(data, 5, len));
+
+            byte[] out = new byte[40];
+            Keccak256Hasher.hash(data, 5, len, out, 8);
+            assertArrayEquals(expected, Arrays.copyOfRange(out, 8, 40));
+
+            assertArrayEquals(expected, Keccak256Hasher.hash(Arrays.copyOfRange(data, 5, 5 + len / 2),
+                    Arrays.copyOfRange(data, 5 + len / 2, 5 + len)));
+
+            ByteBuffer direct = ByteBuffer.allocateDirect(len);
+            direct.put(data, 5, len).flip();
+            Keccak256Hasher.hash(direct, out, 0);
+            assertArrayEquals(expected, Arrays.copyOf(out, 32));
+            assertEquals(0, direct.remaining());
+
+            ByteBuffer heap = ByteBuffer.wrap(data, 5, len).slice();
+            Keccak256Hasher.hash(heap, out, 0);
+            assertArrayEquals(expected, Arrays.copyOf(out, 32));
+        }
+    }
+
+    @Test
+    public void testFailureDoesNotLeakState() {
+        try {
+            Keccak256Hasher.hash(new byte[200], 0, 300);
+        } catch (ArrayIndexOutOfBoundsException e) {
+        }
+        assertArrayEquals(new Keccak256().digest(new byte[0]), Keccak256Hasher.hash(new byte[0]));
+    }
+
+    @Ignore("performance comparison")
+    @Test
+    public void compareWithProviderDigest() throws Exception {
+        byte[] data = new byte[100];
+        byte[] out = new byte[32];
+        int iterations = 1_000_000;
+
+        for (int round = 0; round < 5; round++) {
+            long s = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                MessageDigest digest = MessageDigest.getInstance("ETH-KECCAK-256", SpongyCastleProvider.getInstance());
+                digest.update(data);
+                out = digest.digest();
+            }
+            long provider = System.nanoTime() - s;
+
+            s = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                Keccak256Hasher.hash(data, 0, data.length, out, 0);
+            }
+            long threadLocal = System.nanoTime() - s;
+
+            System.out.printf("provider digest: %d ns/op, thread local: %d ns/op%n",
+                    provider / iterations, threadLocal / iterations);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ethereum.crypto.zksnark;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.ethereum.crypto.zksnark.Params.P;
+import static org.ethereum.crypto.zksnark.Params.R;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class Fp12Test {
+
+    private final Random rnd = new Random(0);
+
+    private Fp2 randomFp2() {
+        return Fp2.create(new BigInteger(256, rnd).mod(P), new BigInteger(256, rnd).mod(P));
+    }
+
+    private Fp6 randomFp6() {
+        return new Fp6(randomFp2(), randomFp2(), randomFp2());
+    }
+
+    private Fp12 randomFp12() {
+        return new Fp12(randomFp6(), randomFp6());
+    }
+
+    @Test
+    public void testInPlaceAliasing() {
+        for (int i = 0; i < 20; i++) {
+            Fp2 x2 = randomFp2();
+            Fp6 x6 = randomFp6();
+            Fp12 x12 = randomFp12();
+
+            assertEquals(x2.squared(), x2.copy().mulInPlace(x2));
+            assertEquals(x6.squared(), x6.copy().mulInPlace(x6));
+            assertEquals(x12.squared(), x12.copy().mulInPlace(x12));
+            assertEquals(x6.dbl(), x6.copy().addInPlace(x6));
+            assertEquals(Fp6.ZERO, x6.copy().subInPlace(x6));
+        }
+    }
+
+    @Test
+    public void testInPlaceKeepsOperands() {
+        Fp12 x = randomFp12();
+        Fp12 y = randomFp12();
+        Fp12 xCopy = new Fp12(new Fp6(x.a.a.copy(), x.a.b.copy(), x.a.c.copy()),
+                new Fp6(x.b.a.copy(), x.b.b.copy(), x.b.c.copy()));
+        Fp12 yCopy = new Fp12(new Fp6(y.a.a.copy(), y.a.b.copy(), y.a.c.copy()),
+                new Fp6(y.b.a.copy(), y.b.b.copy(), y.b.c.copy()));
+
+        Fp12 r = x.copy();
+        r.mulInPlace(y);
+        r.squaredInPlace();
+        r.cyclotomicSquaredInPlace();
+        r.mulBy024InPlace(y.a.a, y.a.b, y.a.c);
+        r.unitaryInverseInPlace();
+
+        assertEquals(xCopy, x);
+        assertEquals(yCopy, y);
+        assertEquals(x.mul(y).squared().cyclotomicSquared().mulBy024(y.a.a, y.a.b, y.a.c).unitaryInverse(), r);
+        assertEquals(Fp12._1, new Fp12(Fp6._1, Fp6.ZERO));
+    }
+
+    @Test
+    public void testMulBy024() {
+        for (int i = 0; i < 20; i++) {
+            Fp12 x = randomFp12();
+            Fp2 ell0 = randomFp2();
+            Fp2 ellVW = randomFp2();
+            Fp2 ellVV = randomFp2();
+
+            Fp12 sparse = new Fp12(new Fp6(ell0, Fp2.ZERO, ellVV), new Fp6(Fp2.ZERO, ellVW, Fp2.ZERO));
+            assertEquals(x.mul(sparse), x.mulBy024(ell0, ellVW, ellVV));
+        }
+    }
+
+    @Test
+    public void testCyclotomicSquared() {
+        for (int i = 0; i < 20; i++) {
+            Fp12 x = randomFp12();
+
+            // x^((p^6 - 1)(p^2 + 1)) is a member of the cyclotomic subgroup
+            Fp12 y = x.unitaryInverse().mul(x.inverse());
+            Fp12 z = y.frobeniusMap(2).mul(y);
+
+            assertEquals(z.squared(), z.cyclotomicSquared());
+            assertEquals(z.squared().mul(z), z.cyclotomicExp(BigInteger.valueOf(3)));
+        }
+    }
+
+    @Test
+    public void testPairingBilinearity() {
+        BN128G1 g1 = BN128G1.create(BigInteger.ONE.toByteArray(), BigInteger.valueOf(2).toByteArray());
+        BN128G2 g2 = BN128G2.create(
+                new BigInteger("10857046999023057135944570762232829481370756359578518086990519993285655852781").toByteArray(),
+                new BigInteger("11559732032986387107991004021392285783925812861821192530917403151452391805634").toByteArray(),
+                new BigInteger("8495653923123431417604973247489272438418190587263600148770280649306958101930").toByteArray(),
+                new BigInteger("4082367875863433681332203403145435568316851327593401208105741076214120093531").toByteArray());
+
+        // e(3 * g1, 5 * g2) * e(-15 * g1, g2) == 1
+        PairingCheck check = PairingCheck.create();
+        check.addPair(new BN128G1(g1.mul(BigInteger.valueOf(3))), new BN128G2(g2.mul(BigInteger.valueOf(5))));
+        check.addPair(new BN128G1(g1.mul(R.subtract(BigInteger.valueOf(15)))), g2);
+        check.run();
+        assertEquals(1, check.result());
+
+        check = PairingCheck.create();
+        check.addPair(new BN128G1(g1.mul(BigInteger.valueOf(3))), new BN128G2(g2.mul(BigInteger.valueOf(5))));
+        check.addPair(new BN128G1(g1.mul(R.subtract(BigInteger.valueOf(14)))), g2);
+        check.run();
+        assertEquals(0, check.result());
+
+        Fp12 miller = PairingCheck.Pair.of(g1, g2).millerLoop();
+        assertNotEquals(Fp12._1, PairingCheck.finalExponentiation(miller));
+    }
+}
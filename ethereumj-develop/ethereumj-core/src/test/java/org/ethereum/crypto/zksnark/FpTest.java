@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ethereum.crypto.zksnark;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.ethereum.crypto.zksnark.Params.P;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FpTest {
+
+    @Test
+    public void testArithmetic() {
+        Random rnd = new Random(0);
+        for (int i = 0; i < 10000; i++) {
+            BigInteger x = i % 10 == 0 ? P.subtract(BigInteger.valueOf(i % 3 + 1)) : new BigInteger(256, rnd).mod(P);
+            BigInteger y = i % 7 == 0 ? BigInteger.valueOf(i % 3) : new BigInteger(256, rnd).mod(P);
+            Fp fx = Fp.create(x);
+            Fp fy = Fp.create(y);
+
+            assertEquals(x.add(y).mod(P), fx.add(fy).toBigInteger());
+            assertEquals(x.subtract(y).mod(P), fx.sub(fy).toBigInteger());
+            assertEquals(x.multiply(y).mod(P), fx.mul(fy).toBigInteger());
+            assertEquals(x.multiply(x).mod(P), fx.squared().toBigInteger());
+            assertEquals(x.shiftLeft(1).mod(P), fx.dbl().toBigInteger());
+            assertEquals(x.negate().mod(P), fx.negate().toBigInteger());
+            assertEquals(x, new BigInteger(1, fx.bytes()));
+            if (x.signum() > 0 && i % 100 == 0) {
+                assertEquals(x.modInverse(P), fx.inverse().toBigInteger());
+            }
+        }
+    }
+
+    @Test
+    public void testOutOfRange() {
+        Fp p = Fp.create(P.toByteArray());
+        assertFalse(p.isValid());
+        assertFalse(p.isZero());
+        assertNotEquals(Fp.ZERO, p);
+
+        Fp max = Fp.create(BigInteger.ONE.shiftLeft(256).subtract(BigInteger.ONE).toByteArray());
+        assertFalse(max.isValid());
+
+        Fp last = Fp.create(P.subtract(BigInteger.ONE));
+        assertTrue(last.isValid());
+        assertEquals(Fp.NON_RESIDUE, last);
+        assertTrue(last.add(Fp._1).isZero());
+        assertEquals(Fp._1, Fp._2_INV.dbl());
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ethereum.datasource;
+
+import org.ethereum.datasource.inmem.HashMapDB;
+import org.ethereum.vm.DataWord;
+import org.junit.Test;
+import org.spongycastle.util.encoders.Hex;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.ethereum.crypto.HashUtil.sha3;
+import static org.ethereum.util.ByteUtil.longToBytes;
+import static org.junit.Assert.*;
+
+/**
+ * Testing {@link ConcurrentReadCache}
+ */
+public class ConcurrentReadCacheTest {
+
+    private byte[] intToKey(int i) {
+        return sha3(longToBytes(i));
+    }
+
+    private byte[] intToValue(int i) {
+        return (DataWord.of(i)).getData();
+    }
+
+    private String str(Object obj) {
+        if (obj == null) return null;
+        return Hex.toHexString((byte[]) obj);
+    }
+
+    @Test
+    public void testSimple() {
+        Source<byte[], byte[]> src = new HashMapDB<>();
+        ConcurrentReadCache<byte[], byte[]> readCache = new ConcurrentReadCache.BytesKey<>(src);
+        for (int i = 0; i < 1_000; ++i) {
+            src.put(intToKey(i), intToValue(i));
+        }
+        assertNull(readCache.getCached(intToKey(0)));
+
+        for (int i = 0; i < 1_000; ++i) {
+            assertEquals(str(intToValue(i)), str(readCache.get(intToKey(i))));
+        }
+        assertEquals(str(intToValue(0)), str(readCache.getCached(intToKey(0)).value()));
+        assertEquals(0, readCache.getHitCount());
+        assertEquals(1_000, readCache.getMissCount());
+
+        // null is cached too
+        assertNull(readCache.get(intToKey(1_000)));
+        assertNotNull(readCache.getCached(intToKey(1_000)));
+        assertNull(readCache.getCached(intToKey(1_000)).value());
+
+        // writes go through
+        readCache.put(intToKey(0), intToValue(12345));
+        assertEquals(str(intToValue(12345)), str(src.get(intToKey(0))));
+        assertEquals(str(intToValue(12345)), str(readCache.get(intToKey(0))));
+        readCache.delete(intToKey(0));
+        assertNull(readCache.getCached(intToKey(0)));
+        assertNull(src.get(intToKey(0)));
+        assertNull(readCache.get(intToKey(0)));
+
+        assertEquals(1, readCache.getHitCount());
+    }
+
+    @Test
+    public void testMaxCapacity() {
+        Source<byte[], byte[]> src = new HashMapDB<>();
+        ConcurrentReadCache<byte[], byte[]> readCache = new ConcurrentReadCache.BytesKey<>(src, 4).withMaxCapacity(100);
+        Random rnd = new Random(0);
+        for (int i = 0; i < 50_000; ++i) {
+            byte[] key = intToKey(rnd.nextInt(500));
+            int op = rnd.nextInt(10);
+            if (op < 2) {
+                readCache.put(key, intToValue(rnd.nextInt()));
+            } else if (op < 3) {
+                readCache.delete(key);
+            }
+            assertEquals(str(src.get(key)), str(readCache.get(key)));
+            assertTrue(readCache.getEntriesCount() <= 100);
+        }
+        assertTrue(readCache.getEvictionCount() > 0);
+
+        readCache.withMaxCapacity(10);
+        assertTrue(readCache.getEntriesCount() <= 12);
+    }
+
+    @Test
+    public void testMaxSize() {
+        Source<byte[], byte[]> src = new HashMapDB<>();
+        ConcurrentReadCache<byte[], byte[]> readCache = new ConcurrentReadCache.BytesKey<>(src);
+        readCache.withSizeEstimators(MemSizeEstimator.ByteArrayEstimator, MemSizeEstimator.ByteArrayEstimator);
+        readCache.withMaxSize(100_000);
+
+        Random rnd = new Random(0);
+        for (int i = 0; i < 10_000; ++i) {
+            readCache.put(intToKey(i), new byte[rnd.nextInt(500)]);
+            assertTrue(readCache.estimateCacheSize() <= 100_000);
+        }
+        assertTrue(readCache.estimateCacheSize() > 50_000);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testMaxSizeWithoutEstimators() {
+        new ConcurrentReadCache.BytesKey<>(new HashMapDB<byte[]>()).withMaxSize(1000);
+    }
+
+    @Test
+    public void testScanResistance() {
+        int hot = 1000, capacity = 2000;
+        Source<byte[], byte[]> src = new HashMapDB<>();
+        ConcurrentReadCache<byte[], byte[]> readCache = new ConcurrentReadCache.BytesKey<>(src).withMaxCapacity(capacity);
+        Map<Integer, Boolean> lru = new LinkedHashMap<Integer, Boolean>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Boolean> eldest) {
+                return size() > capacity;
+            }
+        };
+
+        // skewed requests to the hot keys mixed with the scan of unique keys
+        Random rnd = new Random(0);
+        int lruHits = 0, requests = 0, scanned = hot;
+        for (int i = 0; i < 50_000; i++) {
+            int key = (int) (Math.pow(rnd.nextDouble(), 3) * hot);
+            for (int j = 0; j < 4; j++, requests++) {
+                readCache.get(intToKey(key));
+                if (lru.get(key) != null) lruHits++; else lru.put(key, true);
+                key = scanned++;
+            }
+        }
+
+        double lruHitRate = (double) lruHits / requests;
+        assertTrue(readCache.getHitRate() > 0.22);
+        assertTrue(readCache.getHitRate() > lruHitRate * 1.3);
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        final ConcurrentReadCache<byte[], byte[]> readCache =
+                new ConcurrentReadCache.BytesKey<>(new HashMapDB<byte[]>()).withMaxCapacity(1000);
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            final Random rnd = new Random(t);
+            threads.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < 50_000; i++) {
+                        byte[] key = intToKey(rnd.nextInt(5000));
+                        int op = rnd.nextInt(10);
+                        if (op == 0) {
+                            readCache.put(key, key);
+                        } else if (op == 1) {
+                            readCache.delete(key);
+                        } else {
+                            byte[] val = readCache.get(key);
+                            // only value ever stored under the key is the key itself
+                            if (val != null) assertArrayEquals(key, val);
+                        }
+                    }
+                } catch (Throwable e) {
+                    error.set(e);
+                }
+            }));
+        }
+        for (Thread t : threads) t.start();
+        for (Thread t : threads) t.join();
+
+        assertNull(error.get());
+        assertTrue(readCache.getEntriesCount() <= 1000 + ConcurrentReadCache.DEFAULT_SHARDS);
+    }
+}
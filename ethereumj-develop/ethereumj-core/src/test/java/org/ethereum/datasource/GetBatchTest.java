@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ethereum.datasource;
+
+import org.ethereum.datasource.inmem.HashMapDB;
+import org.ethereum.vm.DataWord;
+import org.junit.Test;
+import org.spongycastle.util.encoders.Hex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+import static org.ethereum.crypto.HashUtil.sha3;
+import static org.ethereum.util.ByteUtil.longToBytes;
+import static org.junit.Assert.*;
+
+/**
+ * Testing {@link Source#getBatch(Collection)} through the chain of Sources
+ */
+public class GetBatchTest {
+
+    private static class CountingDb extends HashMapDB<byte[]> {
+        int gets = 0;
+        int batches = 0;
+        int batchKeys = 0;
+
+        @Override
+        public byte[] get(byte[] key) {
+            gets++;
+            return super.get(key);
+        }
+
+        @Override
+        public List<byte[]> getBatch(Collection<byte[]> keys) {
+            batches++;
+            batchKeys += keys.size();
+            return super.getBatch(keys);
+        }
+
+        void resetCounters() {
+            gets = batches = batchKeys = 0;
+        }
+    }
+
+    private byte[] intToKey(int i) {
+        return sha3(longToBytes(i));
+    }
+
+    private byte[] intToValue(int i) {
+        return (DataWord.of(i)).getData();
+    }
+
+    private String str(Object obj) {
+        if (obj == null) return null;
+        return Hex.toHexString((byte[]) obj);
+    }
+
+    private List<byte[]> keys(int... ints) {
+        List<byte[]> ret = new ArrayList<>();
+        for (int i : ints) {
+            ret.add(intToKey(i));
+        }
+        return ret;
+    }
+
+    private void assertSameAsGet(Source<byte[], byte[]> src, List<byte[]> keys) {
+        List<byte[]> batch = src.getBatch(keys);
+        assertEquals(keys.size(), batch.size());
+        for (int i = 0; i < keys.size(); i++) {
+            assertEquals(str(src.get(keys.get(i))), str(batch.get(i)));
+        }
+    }
+
+    @Test
+    public void testReadCache() {
+        CountingDb db = new CountingDb();
+        for (int i = 0; i < 10; i++) {
+            db.put(intToKey(i), intToValue(i));
+        }
+        ReadCache<byte[], byte[]> readCache = new ReadCache.BytesKey<>(db);
+        readCache.get(intToKey(1));
+        db.resetCounters();
+
+        // values are returned in the keys order, absent and duplicate keys included
+        List<byte[]> ret = readCache.getBatch(keys(3, 1, 100, 3, 2));
+        assertEquals(str(intToValue(3)), str(ret.get(0)));
+        assertEquals(str(intToValue(1)), str(ret.get(1)));
+        assertNull(ret.get(2));
+        assertEquals(str(intToValue(3)), str(ret.get(3)));
+        assertEquals(str(intToValue(2)), str(ret.get(4)));
+
+        // the only miss is requested in a single batch
+        assertEquals(0, db.gets);
+        assertEquals(1, db.batches);
+        assertEquals(4, db.batchKeys);
+
+        // loaded values and nulls are cached
+        assertEquals(str(intToValue(2)), str(readCache.getCached(intToKey(2)).value()));
+        assertNull(readCache.getCached(intToKey(100)).value());
+        db.resetCounters();
+        readCache.getBatch(keys(1, 2, 3, 100));
+        assertEquals(0, db.batches);
+    }
+
+    @Test
+    public void testWriteCache() {
+        CountingDb db = new CountingDb();
+        for (int i = 0; i < 10; i++) {
+            db.put(intToKey(i), intToValue(i));
+        }
+        WriteCache<byte[], byte[]> writeCache = new WriteCache.BytesKey<>(db, WriteCache.CacheType.SIMPLE);
+        writeCache.put(intToKey(1), intToValue(100));
+        writeCache.put(intToKey(20), intToValue(20));
+        writeCache.delete(intToKey(2));
+        db.resetCounters();
+
+        List<byte[]> ret = writeCache.getBatch(keys(1, 2, 3, 20, 21));
+        assertEquals(str(intToValue(100)), str(ret.get(0)));
+        assertNull(ret.get(1));
+        assertEquals(str(intToValue(3)), str(ret.get(2)));
+        assertEquals(str(intToValue(20)), str(ret.get(3)));
+        assertNull(ret.get(4));
+        assertEquals(1, db.batches);
+        assertEquals(2, db.batchKeys);
+
+        // counting cache doesn't know the value behind the deleted entry
+        WriteCache<byte[], byte[]> countingCache = new WriteCache.BytesKey<>(db, WriteCache.CacheType.COUNTING);
+        countingCache.delete(intToKey(5));
+        countingCache.put(intToKey(30), intToValue(30));
+        db.resetCounters();
+        ret = countingCache.getBatch(keys(5, 30));
+        assertEquals(str(intToValue(5)), str(ret.get(0)));
+        assertEquals(str(intToValue(30)), str(ret.get(1)));
+        assertEquals(1, db.batchKeys);
+    }
+
+    @Test
+    public void testChain() {
+        CountingDb db = new CountingDb();
+        StripedWriteCache<byte[], byte[]> dbCache = new StripedWriteCache.BytesKey<>(
+                new BatchSourceWriter<>(db), WriteCache.CacheType.SIMPLE);
+        Source<byte[], byte[]> xor = new XorDataSource<>(dbCache, sha3("state".getBytes()));
+        OffHeapReadCache offHeapCache = new OffHeapReadCache(xor, 1024 * 1024);
+        ConcurrentReadCache<byte[], byte[]> readCache = new ConcurrentReadCache.BytesKey<>(offHeapCache);
+        WriteCache<byte[], byte[]> writeCache = new WriteCache.BytesKey<>(readCache, WriteCache.CacheType.SIMPLE);
+        writeCache.setFlushSource(true);
+        readCache.setFlushSource(true);
+        offHeapCache.setFlushSource(true);
+        dbCache.setFlushSource(true);
+
+        Random rnd = new Random(0);
+        for (int i = 0; i < 1000; i++) {
+            writeCache.put(intToKey(i), intToValue(i));
+        }
+        writeCache.flush();
+        readCache.withMaxCapacity(10);
+        for (int i = 0; i < 1000; i++) {
+            int op = rnd.nextInt(10);
+            if (op == 0) {
+                writeCache.put(intToKey(rnd.nextInt(1500)), intToValue(rnd.nextInt()));
+            } else if (op == 1) {
+                writeCache.delete(intToKey(rnd.nextInt(1500)));
+            } else if (op == 2) {
+                writeCache.flush();
+            }
+        }
+
+        List<byte[]> keys = new ArrayList<>();
+        for (int i = 0; i < 1500; i++) {
+            keys.add(intToKey(i));
+        }
+        db.resetCounters();
+        assertSameAsGet(writeCache, keys);
+        // misses reached the db as batches only
+        assertEquals(1, db.batches);
+        assertTrue(db.batchKeys > 0);
+        assertEquals(0, db.gets);
+
+        // everything was loaded to the off-heap cache by the batch
+        db.resetCounters();
+        writeCache.getBatch(keys);
+        assertEquals(0, db.batches);
+    }
+
+    @Test
+    public void testCodecAndPrefixLookup() {
+        HashMapDB<byte[]> db = new HashMapDB<>();
+        for (int i = 0; i < 10; i++) {
+            db.put(intToKey(i), intToValue(i));
+        }
+        SourceCodec<byte[], String, byte[], byte[]> codec = new SourceCodec.BytesKey<>(db, new Serializer<String, byte[]>() {
+            @Override
+            public byte[] serialize(String object) {
+                return object == null ? null : Hex.decode(object);
+            }
+
+            @Override
+            public String deserialize(byte[] stream) {
+                return stream == null ? null : Hex.toHexString(stream);
+            }
+        });
+        List<String> ret = codec.getBatch(keys(1, 100, 2));
+        assertEquals(Arrays.asList(str(intToValue(1)), null, str(intToValue(2))), ret);
+
+        Source<byte[], byte[]> prefixLookup = new PrefixLookupSource<>(db, 32);
+        assertSameAsGet(prefixLookup, keys(5, 100, 0));
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ethereum.datasource;
+
+import org.ethereum.datasource.inmem.HashMapDB;
+import org.ethereum.db.StateSource;
+import org.ethereum.vm.DataWord;
+import org.junit.Test;
+import org.spongycastle.util.encoders.Hex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.ethereum.crypto.HashUtil.sha3;
+import static org.ethereum.util.ByteUtil.longToBytes;
+import static org.junit.Assert.*;
+
+/**
+ * Testing {@link OffHeapReadCache}
+ */
+public class OffHeapReadCacheTest {
+
+    private byte[] intToKey(int i) {
+        return sha3(longToBytes(i));
+    }
+
+    private byte[] intToValue(int i) {
+        return (DataWord.of(i)).getData();
+    }
+
+    private String str(Object obj) {
+        if (obj == null) return null;
+        return Hex.toHexString((byte[]) obj);
+    }
+
+    @Test
+    public void testSimple() {
+        Source<byte[], byte[]> src = new HashMapDB<>();
+        OffHeapReadCache cache = new OffHeapReadCache(src, 1024 * 1024);
+        for (int i = 0; i < 1_000; ++i) {
+            src.put(intToKey(i), intToValue(i));
+        }
+        assertNull(cache.getCached(intToKey(0)));
+
+        for (int i = 0; i < 1_000; ++i) {
+            assertEquals(str(intToValue(i)), str(cache.get(intToKey(i))));
+        }
+        assertEquals(str(intToValue(0)), str(cache.getCached(intToKey(0)).value()));
+        assertEquals(1_000, cache.getEntriesCount());
+        assertEquals(1_000, cache.getMissCount());
+
+        // null is cached too
+        assertNull(cache.get(intToKey(1_000)));
+        assertNull(cache.getCached(intToKey(1_000)).value());
+
+        // writes go through
+        cache.put(intToKey(0), intToValue(12345));
+        assertEquals(str(intToValue(12345)), str(src.get(intToKey(0))));
+        assertEquals(str(intToValue(12345)), str(cache.get(intToKey(0))));
+        cache.delete(intToKey(0));
+        assertNull(cache.getCached(intToKey(0)));
+        assertNull(src.get(intToKey(0)));
+        assertEquals(1, cache.getHitCount());
+
+        // keys other than hashes are not cached
+        cache.put(new byte[] {1, 2, 3}, intToValue(1));
+        assertNull(cache.getCached(new byte[] {1, 2, 3}));
+        assertEquals(str(intToValue(1)), str(cache.get(new byte[] {1, 2, 3})));
+    }
+
+    @Test
+    public void testEviction() {
+        Source<byte[], byte[]> src = new HashMapDB<>();
+        OffHeapReadCache cache = new OffHeapReadCache(src, 200_000, 4);
+        Random rnd = new Random(0);
+        for (int i = 0; i < 100_000; ++i) {
+            byte[] key = intToKey(rnd.nextInt(3000));
+            int op = rnd.nextInt(10);
+            if (op < 3) {
+                byte[] val = new byte[rnd.nextInt(300)];
+                rnd.nextBytes(val);
+                cache.put(key, val);
+            } else if (op < 4) {
+                cache.delete(key);
+            }
+            assertEquals(str(src.get(key)), str(cache.get(key)));
+            assertTrue(cache.estimateCacheSize() <= cache.getMaxSize());
+        }
+        assertTrue(cache.getEvictionCount() > 0);
+        assertTrue(cache.getOccupancy() > 0.5);
+        assertEquals(cache.getMaxSize(), cache.getAllocatedSize());
+
+        for (int i = 0; i < 3000; i++) {
+            AbstractCachedSource.Entry<byte[]> entry = cache.getCached(intToKey(i));
+            if (entry != null) {
+                assertEquals(str(src.get(intToKey(i))), str(entry.value()));
+            }
+        }
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        final OffHeapReadCache cache = new OffHeapReadCache(new HashMapDB<byte[]>(), 1024 * 1024);
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            final Random rnd = new Random(t);
+            threads.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < 50_000; i++) {
+                        byte[] key = intToKey(rnd.nextInt(20_000));
+                        int op = rnd.nextInt(10);
+                        if (op == 0) {
+                            cache.put(key, key);
+                        } else if (op == 1) {
+                            cache.delete(key);
+                        } else {
+                            byte[] val = cache.get(key);
+                            // only value ever stored under the key is the key itself
+                            if (val != null) assertArrayEquals(key, val);
+                        }
+                    }
+                } catch (Throwable e) {
+                    error.set(e);
+                }
+            }));
+        }
+        for (Thread t : threads) t.start();
+        for (Thread t : threads) t.join();
+
+        assertNull(error.get());
+    }
+
+    @Test
+    public void testStateSource() {
+        HashMapDB<byte[]> db = new HashMapDB<>();
+        for (int i = 0; i < 100; i++) {
+            db.put(intToKey(i), intToValue(i));
+        }
+        StateSource stateSource = new StateSource(db, false, 1024 * 1024);
+        stateSource.getReadCache().withMaxCapacity(1);
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(str(intToValue(i)), str(stateSource.get(intToKey(i))));
+        }
+        for (int i = 0; i < 100; i++) {
+            assertEquals(str(intToValue(i)), str(stateSource.getOffHeapCache().getCached(intToKey(i)).value()));
+        }
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ethereum.datasource;
+
+import org.ethereum.datasource.filter.CountingBytesSource;
+import org.ethereum.datasource.inmem.HashMapDB;
+import org.ethereum.util.ByteArraySet;
+import org.ethereum.vm.DataWord;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.spongycastle.util.encoders.Hex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.ethereum.crypto.HashUtil.sha3;
+import static org.ethereum.util.ByteUtil.longToBytes;
+import static org.junit.Assert.*;
+
+/**
+ * Testing {@link StripedWriteCache}
+ */
+public class StripedWriteCacheTest {
+
+    private byte[] intToKey(int i) {
+        return sha3(longToBytes(i));
+    }
+
+    private byte[] intToValue(int i) {
+        return (DataWord.of(i)).getData();
+    }
+
+    private String str(Object obj) {
+        if (obj == null) return null;
+        return Hex.toHexString((byte[]) obj);
+    }
+
+    @Test
+    public void testSimple() {
+        Source<byte[], byte[]> src = new HashMapDB<>();
+        StripedWriteCache<byte[], byte[]> writeCache = new StripedWriteCache.BytesKey<>(src, WriteCache.CacheType.SIMPLE);
+        for (int i = 0; i < 10_000; ++i) {
+            writeCache.put(intToKey(i), intToValue(i));
+        }
+        assertEquals(str(intToValue(0)), str(writeCache.getCached(intToKey(0)).value()));
+        assertEquals(str(intToValue(9_999)), str(writeCache.getCached(intToKey(9_999)).value()));
+        assertEquals(10_000, writeCache.getModified().size());
+        assertTrue(writeCache.getModified().contains(intToKey(9_999)));
+
+        writeCache.flush();
+        assertFalse(writeCache.hasModified());
+        assertNull(writeCache.getCached(intToKey(0)));
+        assertEquals(str(intToValue(9_999)), str(writeCache.get(intToKey(9_999))));
+        assertEquals(str(intToValue(0)), str(src.get(intToKey(0))));
+
+        // Deleting key that is currently in cache
+        writeCache.put(intToKey(0), intToValue(12345));
+        assertEquals(str(intToValue(12345)), str(writeCache.getCached(intToKey(0)).value()));
+        writeCache.delete(intToKey(0));
+        assertNull(writeCache.get(intToKey(0)));
+        assertEquals(str(intToValue(0)), str(src.get(intToKey(0))));
+        writeCache.flush();
+        assertNull(src.get(intToKey(0)));
+
+        // Deleting key that is not currently in cache
+        writeCache.delete(intToKey(1));
+        assertNull(writeCache.get(intToKey(1)));
+        assertEquals(str(intToValue(1)), str(src.get(intToKey(1))));
+        writeCache.flush();
+        assertNull(src.get(intToKey(1)));
+    }
+
+    @Test
+    public void testCounting() {
+        Source<byte[], byte[]> parentSrc = new HashMapDB<>();
+        Source<byte[], byte[]> src = new CountingBytesSource(parentSrc);
+        StripedWriteCache<byte[], byte[]> writeCache = new StripedWriteCache.BytesKey<>(src, WriteCache.CacheType.COUNTING);
+        for (int i = 0; i < 100; ++i) {
+            for (int j = 0; j <= i; ++j) {
+                writeCache.put(intToKey(i), intToValue(i));
+            }
+        }
+        assertEquals(str(intToValue(99)), str(writeCache.getCached(intToKey(99)).value()));
+
+        writeCache.flush();
+        assertNull(writeCache.getCached(intToKey(99)));
+        assertEquals(str(intToValue(99)), str(writeCache.get(intToKey(99))));
+
+        // Deleting key which has 1 ref
+        writeCache.delete(intToKey(0));
+        assertEquals(str(intToValue(0)), str(writeCache.get(intToKey(0))));
+        writeCache.flush();
+        assertNull(writeCache.get(intToKey(0)));
+
+        // Deleting key which has 2 refs
+        writeCache.delete(intToKey(1));
+        writeCache.flush();
+        assertEquals(str(intToValue(1)), str(writeCache.get(intToKey(1))));
+        writeCache.delete(intToKey(1));
+        writeCache.flush();
+        assertNull(writeCache.get(intToKey(1)));
+    }
+
+    @Test
+    public void testSameAsWriteCache() {
+        for (WriteCache.CacheType type : WriteCache.CacheType.values()) {
+            Source<byte[], byte[]> src1 = new CountingBytesSource(new HashMapDB<byte[]>());
+            Source<byte[], byte[]> src2 = new CountingBytesSource(new HashMapDB<byte[]>());
+            WriteCache<byte[], byte[]> writeCache = new WriteCache.BytesKey<>(src1, type);
+            StripedWriteCache<byte[], byte[]> stripedCache = new StripedWriteCache.BytesKey<>(src2, type, 4);
+
+            Random rnd = new Random(0);
+            for (int i = 0; i < 20_000; i++) {
+                byte[] key = intToKey(rnd.nextInt(200));
+                // counting cache expects the same value for the same key
+                byte[] val = type == WriteCache.CacheType.COUNTING ? key : intToValue(rnd.nextInt(5));
+                int op = rnd.nextInt(10);
+                if (op < 5) {
+                    writeCache.put(key, val);
+                    stripedCache.put(key, val);
+                } else if (op < 8) {
+                    writeCache.delete(key);
+                    stripedCache.delete(key);
+                } else if (op < 9) {
+                    assertEquals(writeCache.getModified().size(), stripedCache.getModified().size());
+                    assertEquals(writeCache.flush(), stripedCache.flush());
+                }
+                assertEquals(str(writeCache.get(key)), str(stripedCache.get(key)));
+                assertEquals(str(src1.get(key)), str(src2.get(key)));
+            }
+        }
+    }
+
+    @Test
+    public void testWithSizeEstimator() {
+        Source<byte[], byte[]> src = new HashMapDB<>();
+        StripedWriteCache<byte[], byte[]> writeCache = new StripedWriteCache.BytesKey<>(src, WriteCache.CacheType.SIMPLE);
+        writeCache.withSizeEstimators(MemSizeEstimator.ByteArrayEstimator, MemSizeEstimator.ByteArrayEstimator);
+        assertEquals(0, writeCache.estimateCacheSize());
+
+        writeCache.put(intToKey(0), intToValue(0));
+        long oneObjSize = writeCache.estimateCacheSize();
+        assertNotEquals(0, oneObjSize);
+
+        for (int i = 0; i < 100; ++i) {
+            for (int j = 0; j <= i; ++j) {
+                writeCache.put(intToKey(i), intToValue(i));
+            }
+        }
+        assertEquals(oneObjSize * 100, writeCache.estimateCacheSize());
+
+        writeCache.flush();
+        assertEquals(0, writeCache.estimateCacheSize());
+    }
+
+    @Test
+    public void testReadableWhileFlushing() throws Exception {
+        final CountDownLatch flushStarted = new CountDownLatch(1);
+        final CountDownLatch proceed = new CountDownLatch(1);
+        Source<byte[], byte[]> src = new HashMapDB<byte[]>() {
+            @Override
+            public void put(byte[] key, byte[] val) {
+                flushStarted.countDown();
+                try {
+                    proceed.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                super.put(key, val);
+            }
+        };
+        final StripedWriteCache<byte[], byte[]> writeCache = new StripedWriteCache.BytesKey<>(src, WriteCache.CacheType.SIMPLE, 1);
+        writeCache.put(intToKey(0), intToValue(0));
+
+        Thread flusher = new Thread(writeCache::flush);
+        flusher.start();
+        flushStarted.await();
+
+        // the entry is being written to the source: still readable and the cache is writable
+        assertEquals(str(intToValue(0)), str(writeCache.get(intToKey(0))));
+        writeCache.delete(intToKey(1));
+        assertTrue(writeCache.getModified().contains(intToKey(1)));
+        assertFalse(writeCache.getModified().contains(intToKey(0)));
+
+        proceed.countDown();
+        flusher.join();
+        assertEquals(str(intToValue(0)), str(writeCache.get(intToKey(0))));
+        assertTrue(writeCache.hasModified());
+    }
+
+    @Test
+    public void testGetModifiedSnapshot() {
+        StripedWriteCache<byte[], byte[]> writeCache = new StripedWriteCache.BytesKey<>(new HashMapDB<byte[]>(), WriteCache.CacheType.SIMPLE);
+        writeCache.put(intToKey(0), intToValue(0));
+        writeCache.delete(intToKey(1));
+        ByteArraySet modified = new ByteArraySet();
+        modified.addAll(writeCache.getModified());
+        assertEquals(2, modified.size());
+        assertTrue(modified.contains(intToKey(0)) && modified.contains(intToKey(1)));
+    }
+
+    @Ignore("contention benchmark")
+    @Test
+    public void contentionBenchmark() throws Exception {
+        int keys = 100_000;
+        for (int threads : new int[] {2, 4, 8, 16}) {
+            for (int round = 0; round < 3; round++) {
+                WriteCache<byte[], byte[]> writeCache = new WriteCache.BytesKey<>(new HashMapDB<byte[]>(), WriteCache.CacheType.SIMPLE);
+                StripedWriteCache<byte[], byte[]> stripedCache = new StripedWriteCache.BytesKey<>(new HashMapDB<byte[]>(), WriteCache.CacheType.SIMPLE);
+                long plain = runContention(writeCache, threads, threads, keys);
+                long striped = runContention(stripedCache, threads, threads, keys);
+                System.out.printf("%2d readers + %2d writers: WriteCache %,d ops/s, StripedWriteCache %,d ops/s%n",
+                        threads, threads, plain, striped);
+            }
+        }
+    }
+
+    private long runContention(final Source<byte[], byte[]> cache, int readers, int writers, final int keys) throws Exception {
+        final byte[][] keyArr = new byte[keys][];
+        for (int i = 0; i < keys; i++) {
+            keyArr[i] = intToKey(i);
+            cache.put(keyArr[i], intToValue(i));
+        }
+
+        final AtomicBoolean stop = new AtomicBoolean();
+        final AtomicLong ops = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < readers + writers; t++) {
+            final boolean writer = t < writers;
+            final Random rnd = new Random(t);
+            threads.add(new Thread(() -> {
+                long cnt = 0;
+                while (!stop.get()) {
+                    byte[] key = keyArr[rnd.nextInt(keys)];
+                    if (writer) {
+                        cache.put(key, key);
+                    } else {
+                        cache.get(key);
+                    }
+                    cnt++;
+                }
+                ops.addAndGet(cnt);
+            }));
+        }
+        for (Thread t : threads) t.start();
+        long s = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            Thread.sleep(100);
+            cache.flush();
+        }
+        stop.set(true);
+        for (Thread t : threads) t.join();
+        return ops.get() * 1_000_000_000L / (System.nanoTime() - s);
+    }
+}
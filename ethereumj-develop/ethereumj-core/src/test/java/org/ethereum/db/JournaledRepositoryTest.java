@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ethereum.db;
+
+import org.ethereum.core.Repository;
+import org.ethereum.datasource.inmem.HashMapDB;
+import org.ethereum.vm.DataWord;
+import org.junit.Test;
+import org.spongycastle.util.encoders.Hex;
+
+import java.math.BigInteger;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class JournaledRepositoryTest {
+
+    private static final byte[] cow = Hex.decode("CD2A3D9F938E13CD947EC05ABC7FE734DF8DD826");
+    private static final byte[] horse = Hex.decode("13978AEE95F38490E9769C39B2773ED763D9CD5F");
+    private static final byte[] code = Hex.decode("60016002");
+
+    private static RepositoryRoot createState() {
+        RepositoryRoot repository = new RepositoryRoot(new HashMapDB());
+        repository.addBalance(cow, BigInteger.TEN);
+        repository.addStorageRow(cow, DataWord.ONE, DataWord.of(11));
+        repository.addStorageRow(cow, DataWord.of(2), DataWord.of(22));
+        repository.saveCode(cow, code);
+        repository.addBalance(horse, BigInteger.ONE);
+        repository.commit();
+        return repository;
+    }
+
+    /**
+     * Runs the same changes through a classic and a journaled track and returns both state roots
+     */
+    private static byte[][] run(Consumer<Repository> changes) {
+        RepositoryRoot classic = createState();
+        RepositoryImpl blockTrack = classic.startTracking();
+        Repository tx = blockTrack.startTracking();
+        changes.accept(tx);
+        tx.commit();
+        blockTrack.commit();
+
+        RepositoryRoot journaled = createState();
+        blockTrack = journaled.startTracking();
+        tx = blockTrack.startJournaling();
+        assertTrue(tx instanceof JournaledRepository);
+        changes.accept(tx);
+        tx.commit();
+        blockTrack.commit();
+
+        return new byte[][] {classic.getRoot(), journaled.getRoot()};
+    }
+
+    @Test
+    public void testNestedCommitAndRollback() {
+        byte[][] roots = run(tx -> {
+            tx.addBalance(cow, BigInteger.ONE);
+
+            Repository call = tx.startTracking();
+            call.addStorageRow(cow, DataWord.ONE, DataWord.of(111));
+            call.addBalance(horse, BigInteger.TEN);
+
+            Repository failed = call.startTracking();
+            failed.addStorageRow(cow, DataWord.of(2), DataWord.ZERO);
+            failed.delete(horse);
+            assertNull(failed.getAccountState(horse));
+            failed.rollback();
+
+            assertEquals(DataWord.of(22), call.getStorageValue(cow, DataWord.of(2)));
+            assertEquals(BigInteger.valueOf(11), call.getBalance(horse));
+            call.commit();
+
+            assertEquals(DataWord.of(111), tx.getStorageValue(cow, DataWord.ONE));
+        });
+        assertArrayEquals(roots[0], roots[1]);
+    }
+
+    @Test
+    public void testDeleteAndRecreate() {
+        byte[][] roots = run(tx -> {
+            Repository call = tx.startTracking();
+            call.delete(cow);
+            assertNull(call.getStorageValue(cow, DataWord.ONE));
+
+            call.createAccount(cow);
+            call.addStorageRow(cow, DataWord.of(3), DataWord.of(33));
+            assertNull(call.getStorageValue(cow, DataWord.of(2)));
+            assertEquals(0, call.getCode(cow).length);
+            call.commit();
+
+            tx.saveCode(horse, code);
+            assertArrayEquals(code, tx.getCode(horse));
+        });
+        assertArrayEquals(roots[0], roots[1]);
+    }
+
+    @Test
+    public void testOutermostRollback() {
+        RepositoryRoot repository = createState();
+        RepositoryImpl blockTrack = repository.startTracking();
+        Repository tx = blockTrack.startJournaling();
+        tx.addBalance(cow, BigInteger.ONE);
+        tx.startTracking().addStorageRow(cow, DataWord.ONE, DataWord.ZERO);
+        tx.rollback();
+
+        assertEquals(BigInteger.TEN, tx.getBalance(cow));
+        assertEquals(DataWord.of(11), tx.getStorageValue(cow, DataWord.ONE));
+        assertArrayEquals(code, tx.getCode(cow));
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ethereum.db;
+
+import org.ethereum.core.Repository;
+import org.ethereum.datasource.inmem.HashMapDB;
+import org.ethereum.vm.DataWord;
+import org.junit.Test;
+import org.spongycastle.util.encoders.Hex;
+
+import java.math.BigInteger;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RecordingRepositoryTest {
+
+    private static final byte[] cow = Hex.decode("CD2A3D9F938E13CD947EC05ABC7FE734DF8DD826");
+    private static final byte[] horse = Hex.decode("13978AEE95F38490E9769C39B2773ED763D9CD5F");
+    private static final byte[] coinbase = Hex.decode("0000000000000000000000000000000000000C0B");
+
+    private static RepositoryRoot createState() {
+        RepositoryRoot repository = new RepositoryRoot(new HashMapDB());
+        repository.addBalance(cow, BigInteger.TEN);
+        repository.addStorageRow(cow, DataWord.ONE, DataWord.of(11));
+        repository.addBalance(horse, BigInteger.TEN);
+        repository.addBalance(coinbase, BigInteger.ONE);
+        repository.commit();
+        return repository;
+    }
+
+    @Test
+    public void testConflicts() {
+        RepositoryRoot repository = createState();
+        Set<ByteArrayWrapper> writes = new HashSet<>();
+
+        RecordingRepository view1 = repository.startRecording(writes);
+        Repository track1 = view1.startTracking();
+        track1.addStorageRow(cow, DataWord.ONE, DataWord.of(111));
+
+        RecordingRepository view2 = repository.startRecording(writes);
+        Repository track2 = view2.startTracking();
+        track2.addBalance(horse, BigInteger.ONE);
+
+        RecordingRepository view3 = repository.startRecording(writes);
+        Repository track3 = view3.startTracking();
+        assertEquals(DataWord.of(11), track3.getStorageValue(cow, DataWord.ONE));
+
+        // nothing is written until the tracks are committed
+        assertEquals(DataWord.of(11), repository.getStorageValue(cow, DataWord.ONE));
+        assertTrue(writes.isEmpty());
+
+        track1.commit();
+        assertEquals(DataWord.of(111), repository.getStorageValue(cow, DataWord.ONE));
+        assertTrue(view1.isReadValid());
+        assertTrue(view2.isReadValid());
+        assertFalse(view3.isReadValid());
+
+        track2.commit();
+        assertEquals(BigInteger.valueOf(11), repository.getBalance(horse));
+    }
+
+    @Test
+    public void testBalanceDelta() {
+        RepositoryRoot repository = createState();
+        Set<ByteArrayWrapper> writes = new HashSet<>();
+
+        RecordingRepository view1 = repository.startRecording(writes);
+        Repository track1 = view1.startTracking();
+        track1.addBalance(cow, BigInteger.ONE.negate());
+        view1.startBalanceDelta(coinbase, true);
+        track1.addBalance(coinbase, BigInteger.ONE);
+
+        RecordingRepository view2 = repository.startRecording(writes);
+        Repository track2 = view2.startTracking();
+        track2.addBalance(horse, BigInteger.valueOf(2).negate());
+        view2.startBalanceDelta(coinbase, true);
+        track2.addBalance(coinbase, BigInteger.valueOf(2));
+
+        // the coinbase is read before it's marked, thus it's a regular account
+        RecordingRepository view3 = repository.startRecording(writes);
+        Repository track3 = view3.startTracking();
+        assertEquals(BigInteger.ONE, track3.getBalance(coinbase));
+        view3.startBalanceDelta(coinbase, true);
+
+        track1.commit();
+        assertTrue(view2.isReadValid());
+        assertFalse(view3.isReadValid());
+        track2.commit();
+
+        assertEquals(BigInteger.valueOf(4), repository.getBalance(coinbase));
+        assertEquals(BigInteger.valueOf(9), repository.getBalance(cow));
+        assertEquals(BigInteger.valueOf(8), repository.getBalance(horse));
+    }
+
+    @Test
+    public void testEmptyDeltaAccountDeleted() {
+        RepositoryRoot repository = createState();
+        byte[] empty = Hex.decode("00000000000000000000000000000000000E3B7F");
+
+        RecordingRepository view = repository.startRecording(new HashSet<>());
+        Repository track = view.startTracking();
+        view.startBalanceDelta(empty, true);
+        track.addBalance(empty, BigInteger.ZERO);
+        track.commit();
+
+        assertNull(repository.getAccountState(empty));
+        assertArrayEquals(repository.getRoot(), createState().getRoot());
+    }
+}
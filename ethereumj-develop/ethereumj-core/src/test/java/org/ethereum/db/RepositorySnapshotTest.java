@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ethereum.db;
+
+import org.ethereum.core.Repository;
+import org.ethereum.datasource.NoDeleteSource;
+import org.ethereum.datasource.inmem.HashMapDB;
+import org.ethereum.vm.DataWord;
+import org.junit.Test;
+import org.spongycastle.util.encoders.Hex;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RepositorySnapshotTest {
+
+    private static final byte[] cow = Hex.decode("CD2A3D9F938E13CD947EC05ABC7FE734DF8DD826");
+    private static final byte[] horse = Hex.decode("13978AEE95F38490E9769C39B2773ED763D9CD5F");
+    private static final byte[] code = Hex.decode("60016002");
+
+    @Test
+    public void testReadsAndIsolation() {
+        // nodes of the older state are kept as they are in the pruned state source
+        RepositoryRoot repository = new RepositoryRoot(new NoDeleteSource<>(new HashMapDB<byte[]>()));
+        repository.addBalance(cow, BigInteger.TEN);
+        repository.addStorageRow(cow, DataWord.ONE, DataWord.of(11));
+        repository.saveCode(cow, code);
+        repository.commit();
+        byte[] root = repository.getRoot();
+
+        Repository snapshot = repository.getReadOnlySnapshotTo(root);
+        assertTrue(snapshot instanceof RepositorySnapshot);
+        assertArrayEquals(root, snapshot.getRoot());
+
+        repository.addBalance(cow, BigInteger.ONE);
+        repository.addStorageRow(cow, DataWord.ONE, DataWord.of(111));
+        repository.addBalance(horse, BigInteger.ONE);
+        repository.commit();
+
+        assertEquals(BigInteger.TEN, snapshot.getBalance(cow));
+        assertEquals(DataWord.of(11), snapshot.getStorageValue(cow, DataWord.ONE));
+        assertNull(snapshot.getStorageValue(cow, DataWord.of(2)));
+        assertArrayEquals(code, snapshot.getCode(cow));
+        assertNull(snapshot.getAccountState(horse));
+
+        // tracks collect changes on their own
+        Repository track = snapshot.startTracking();
+        track.addBalance(horse, BigInteger.TEN);
+        track.addStorageRow(cow, DataWord.ONE, DataWord.ZERO);
+        assertEquals(BigInteger.TEN, track.getBalance(horse));
+        assertNull(track.getStorageValue(cow, DataWord.ONE));
+        assertNull(snapshot.getAccountState(horse));
+        assertEquals(DataWord.of(11), snapshot.getStorageValue(cow, DataWord.ONE));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testReadOnly() {
+        RepositoryRoot repository = new RepositoryRoot(new HashMapDB<byte[]>());
+        repository.addBalance(cow, BigInteger.TEN);
+        repository.commit();
+
+        Repository track = repository.getReadOnlySnapshotTo(repository.getRoot()).startTracking();
+        track.addBalance(cow, BigInteger.ONE);
+        track.commit();
+    }
+
+    @Test
+    public void testMemoIsBounded() {
+        HashMapDB<byte[]> stateDS = new HashMapDB<>();
+        RepositoryRoot repository = new RepositoryRoot(stateDS);
+        for (int i = 0; i < 100; i++) {
+            repository.addStorageRow(cow, DataWord.of(i), DataWord.of(i + 1));
+        }
+        repository.saveCode(cow, code);
+        repository.commit();
+
+        RepositorySnapshot snapshot = new RepositorySnapshot(stateDS, repository.getRoot(), 10);
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < 100; i++) {
+                assertEquals(DataWord.of(i + 1), snapshot.getStorageValue(cow, DataWord.of(i)));
+                assertTrue(snapshot.getMemoWeight() <= 10);
+            }
+            assertArrayEquals(code, snapshot.getCode(cow));
+        }
+        assertNull(snapshot.getStorageValue(cow, DataWord.of(100)));
+        assertTrue(snapshot.getMemoWeight() <= 10);
+    }
+
+    @Test
+    public void testConcurrentReads() throws Exception {
+        RepositoryRoot repository = new RepositoryRoot(new HashMapDB<byte[]>());
+        for (int i = 0; i < 100; i++) {
+            repository.addStorageRow(cow, DataWord.of(i), DataWord.of(i + 1));
+        }
+        repository.commit();
+        Repository snapshot = repository.getReadOnlySnapshotTo(repository.getRoot());
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            results.add(executor.submit(() -> {
+                for (int i = 0; i < 100; i++) {
+                    if (!DataWord.of(i + 1).equals(snapshot.getStorageValue(cow, DataWord.of(i)))) return false;
+                }
+                return true;
+            }));
+        }
+        for (Future<Boolean> result : results) {
+            assertTrue(result.get());
+        }
+        executor.shutdown();
+    }
+}
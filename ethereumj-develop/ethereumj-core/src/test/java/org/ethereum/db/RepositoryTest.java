@@ -24,6 +24,7 @@ import org.ethereum.core.Repository;
 import org.ethereum.datasource.inmem.HashMapDB;
 import org.ethereum.datasource.NoDeleteSource;
 import org.ethereum.datasource.Source;
+import org.ethereum.datasource.StripedWriteCache;
 import org.ethereum.vm.DataWord;
 
 import org.junit.Assert;
@@ -36,6 +37,7 @@ import org.spongycastle.util.encoders.Hex;
 import java.math.BigInteger;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.ethereum.util.ByteUtil.EMPTY_BYTE_ARRAY;
 import static org.junit.Assert.*;
@@ -1015,4 +1017,71 @@ public class RepositoryTest {
             throw new RuntimeException("Test failed.");
         }
     }
+
+    @Test // testing for snapshot over the striped trie cache of the main repository
+    public void testMultiThreadStriped() throws InterruptedException {
+        final RepositoryImpl repository = new RepositoryRoot(new HashMapDB(), null, StripedWriteCache.DEFAULT_STRIPES);
+
+        final byte[] cow = Hex.decode("CD2A3D9F938E13CD947EC05ABC7FE734DF8DD826");
+
+        final DataWord cowKey1 = DataWord.of("c1");
+        final DataWord cowKey2 = DataWord.of("c2");
+        final DataWord cowVal0 = DataWord.of("c0a0");
+
+        Repository track2 = repository.startTracking(); //track
+        track2.addStorageRow(cow, cowKey2, cowVal0);
+        track2.commit();
+        repository.flush();
+
+        final AtomicBoolean stripedRunning = new AtomicBoolean(true);
+        final CountDownLatch failSema = new CountDownLatch(1);
+
+        for (int i = 0; i < 10; ++i) {
+            new Thread(() -> {
+                try {
+                    int cnt = 1;
+                    while (stripedRunning.get()) {
+                        Repository snap = repository.getSnapshotTo(repository.getRoot()).startTracking();
+                        snap.addBalance(cow, BigInteger.TEN);
+                        snap.addStorageRow(cow, cowKey1, DataWord.of(cnt));
+                        snap.rollback();
+                        cnt++;
+                    }
+                } catch (Throwable e) {
+                    e.printStackTrace();
+                    failSema.countDown();
+                }
+            }).start();
+        }
+
+        new Thread(() -> {
+            int cnt = 1;
+            try {
+                while (stripedRunning.get()) {
+                    Repository track21 = repository.startTracking(); //track
+                    DataWord cVal = DataWord.of(cnt);
+                    track21.addStorageRow(cow, cowKey1, cVal);
+                    track21.addBalance(cow, BigInteger.ONE);
+                    track21.commit();
+
+                    repository.flush();
+
+                    assertEquals(BigInteger.valueOf(cnt), repository.getBalance(cow));
+                    assertEquals(cVal, repository.getStorageValue(cow, cowKey1));
+                    assertEquals(cowVal0, repository.getStorageValue(cow, cowKey2));
+                    cnt++;
+                }
+            } catch (Throwable e) {
+                e.printStackTrace();
+                failSema.countDown();
+            }
+        }).start();
+
+        failSema.await(10, TimeUnit.SECONDS);
+        stripedRunning.set(false);
+
+        if (failSema.getCount() == 0) {
+            throw new RuntimeException("Test failed.");
+        }
+    }
 }
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ethereum.sync;
+
+import org.ethereum.config.CommonConfig;
+import org.ethereum.config.SystemProperties;
+import org.ethereum.core.Block;
+import org.ethereum.core.Repository;
+import org.ethereum.core.Transaction;
+import org.ethereum.crypto.HashUtil;
+import org.ethereum.util.blockchain.StandaloneBlockchain;
+import org.ethereum.vm.DataWord;
+import org.junit.Test;
+import org.spongycastle.util.encoders.Hex;
+
+import java.math.BigInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class StatePrefetcherTest {
+
+    // stores 1 to the slot 0
+    private static final byte[] runtimeCode = Hex.decode("600160005500");
+    private static final byte[] initCode = Hex.decode("6006600c60003960066000f3" + Hex.toHexString(runtimeCode));
+
+    @Test
+    public void testTrialExecution() throws Exception {
+        StandaloneBlockchain sb = new StandaloneBlockchain();
+        Transaction create = sb.createTransaction(0, new byte[0], 0, initCode);
+        sb.submitTransaction(create);
+        Block block1 = sb.createBlock();
+        sb.submitTransaction(sb.createTransaction(1, new byte[0], 0, initCode));
+        Block block2 = sb.createBlock();
+        byte[] contract = create.getContractAddress();
+        Repository repository = sb.getBlockchain().getRepository();
+
+        SystemProperties config = new SystemProperties();
+        config.overrideParams("cache.prefetchThreads", "2");
+        StatePrefetcher prefetcher = new StatePrefetcher(config, repository,
+                sb.getBlockchain().getBlockStore(), sb.getBlockchain().getProgramInvokeFactory(),
+                CommonConfig.getDefault());
+
+        // the transaction is run on a snapshot, its changes never get to the repository
+        Transaction store = sb.createTransaction(2, contract, 0, new byte[0]);
+        Repository snapshot = prefetcher.prefetch(store, block2, block2.getStateRoot());
+        assertEquals(DataWord.ONE, snapshot.getStorageValue(contract, DataWord.ZERO));
+        assertNull(repository.getStorageValue(contract, DataWord.ZERO));
+
+        // the state to run the block transactions against may be missing, failures are dropped
+        prefetcher.prefetch(block1, HashUtil.sha3(new byte[] {1}));
+        prefetcher.awaitIdle();
+
+        // block transactions are run once again against the parent state
+        prefetcher.prefetch(block2, block1.getStateRoot());
+        prefetcher.awaitIdle();
+
+        assertNull(repository.getStorageValue(contract, DataWord.ZERO));
+        assertEquals(BigInteger.valueOf(2), repository.getNonce(sb.getSender().getAddress()));
+        assertEquals(Hex.toHexString(block2.getStateRoot()), Hex.toHexString(repository.getRoot()));
+    }
+}
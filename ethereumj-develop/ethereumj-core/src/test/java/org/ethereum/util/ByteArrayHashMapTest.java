@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ethereum.util;
+
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+import static org.ethereum.crypto.HashUtil.sha3;
+import static org.ethereum.util.ByteUtil.intToBytes;
+import static org.junit.Assert.*;
+
+/**
+ * Testing {@link ByteArrayHashMap} and {@link ByteArrayHashSet}
+ */
+public class ByteArrayHashMapTest {
+
+    private byte[] intToKey(int i) {
+        // mixing hashes with short keys
+        return i % 3 == 0 ? intToBytes(i) : sha3(intToBytes(i));
+    }
+
+    @Test
+    public void testSimple() {
+        ByteArrayHashMap<String> map = new ByteArrayHashMap<>();
+        assertNull(map.put(intToKey(1), "1"));
+        assertEquals("1", map.put(intToKey(1), "11"));
+        assertEquals("11", map.get(intToKey(1)));
+        assertTrue(map.containsKey(intToKey(1)));
+        assertFalse(map.containsKey(intToKey(2)));
+        assertNull(map.get(intToKey(2)));
+
+        map.put(intToKey(3), "3");
+        assertEquals(2, map.size());
+        assertEquals("3", map.remove(intToKey(3)));
+        assertNull(map.remove(intToKey(3)));
+        assertEquals(1, map.size());
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(intToKey(1)));
+    }
+
+    @Test
+    public void testSameAsByteArrayMap() {
+        ByteArrayHashMap<Integer> map = new ByteArrayHashMap<>();
+        ByteArrayMap<Integer> ref = new ByteArrayMap<>();
+        Random rnd = new Random(0);
+        for (int i = 0; i < 200_000; i++) {
+            byte[] key = intToKey(rnd.nextInt(3000));
+            int op = rnd.nextInt(10);
+            if (op < 4) {
+                assertEquals(ref.put(key, i), map.put(key, i));
+            } else if (op < 7) {
+                assertEquals(ref.remove(key), map.remove(key));
+            } else {
+                assertEquals(ref.get(key), map.get(key));
+            }
+            assertEquals(ref.size(), map.size());
+
+            if (i % 10_000 == 0) {
+                assertTrue(map.equals(ref));
+                assertEquals(ref.hashCode(), map.hashCode());
+                int cnt = 0;
+                for (Map.Entry<byte[], Integer> entry : map.entrySet()) {
+                    assertEquals(ref.get(entry.getKey()), entry.getValue());
+                    cnt++;
+                }
+                assertEquals(ref.size(), cnt);
+            }
+        }
+    }
+
+    @Test
+    public void testIteratorRemove() {
+        ByteArrayHashMap<Integer> map = new ByteArrayHashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            map.put(intToKey(i), i);
+        }
+        Iterator<Map.Entry<byte[], Integer>> it = map.entrySet().iterator();
+        int cnt = 0;
+        while (it.hasNext()) {
+            Map.Entry<byte[], Integer> entry = it.next();
+            if (entry.getValue() % 2 == 0) {
+                it.remove();
+            } else {
+                entry.setValue(-entry.getValue());
+            }
+            cnt++;
+        }
+        assertEquals(1000, cnt);
+        assertEquals(500, map.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i % 2 == 0 ? null : -i, map.get(intToKey(i)));
+        }
+
+        map.keySet().removeIf(key -> map.get(key) < -500);
+        assertEquals(250, map.size());
+        map.values().clear();
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void testSet() {
+        ByteArrayHashSet set = new ByteArrayHashSet();
+        assertTrue(set.add(intToKey(1)));
+        assertFalse(set.add(intToKey(1)));
+        assertTrue(set.contains(intToKey(1)));
+        assertFalse(set.contains(intToKey(2)));
+        assertTrue(set.remove(intToKey(1)));
+        assertFalse(set.remove(intToKey(1)));
+        assertTrue(set.isEmpty());
+
+        for (int i = 0; i < 100; i++) {
+            set.add(intToKey(i));
+        }
+        ByteArrayHashSet copy = new ByteArrayHashSet(set);
+        assertEquals(set, copy);
+        assertEquals(set.hashCode(), copy.hashCode());
+        assertEquals(100, copy.size());
+    }
+}
@@ -17,11 +17,19 @@
  */
 package org.ethereum.vm;
 
+import org.ethereum.util.ByteUtil;
 import org.junit.Test;
 
 import org.spongycastle.util.encoders.Hex;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.ethereum.vm.DataWord.MAX_POW;
+import static org.ethereum.vm.DataWord.MAX_VALUE;
+import static org.ethereum.vm.DataWord._2_256;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -410,6 +418,111 @@ public class DataWordTest {
         assertTrue(actual.isZero());
     }
 
+    @Test
+    public void testArithmeticAgainstBigInteger() {
+        Random rnd = new Random(42);
+        List<BigInteger> values = new ArrayList<>();
+        for (String hex : new String[] {"00", "01", "02", "1f", "20", "ff", "0100",
+                "7fffffffffffffff", "8000000000000000", "ffffffffffffffff", "010000000000000000",
+                "7fffffffffffffffffffffffffffffffffffffffffffffffffffffffffffffff",
+                "8000000000000000000000000000000000000000000000000000000000000000",
+                "8000000000000000000000000000000000000000000000000000000000000001",
+                "ffffffffffffffffffffffffffffffffffffffffffffffffffffffffffffffff",
+                "fffffffffffffffffffffffffffffffffffffffffffffffffffffffffffffffe"}) {
+            values.add(new BigInteger(hex, 16));
+        }
+        for (int i = 0; i < 200; i++) {
+            // mix of short and long operands to hit every division branch
+            values.add(new BigInteger(1 + rnd.nextInt(MAX_POW), rnd));
+        }
+
+        for (int i = 0; i < 4000; i++) {
+            BigInteger a = values.get(rnd.nextInt(values.size()));
+            BigInteger b = values.get(rnd.nextInt(values.size()));
+            BigInteger c = values.get(rnd.nextInt(values.size()));
+            DataWord wa = word(a), wb = word(b), wc = word(c);
+            String msg = a.toString(16) + ", " + b.toString(16) + ", " + c.toString(16);
+
+            assertEquals(msg, word(a.add(b)), wa.add(wb));
+            assertEquals(msg, word(a.subtract(b)), wa.sub(wb));
+            assertEquals(msg, word(a.multiply(b)), wa.mul(wb));
+            assertEquals(msg, b.signum() == 0 ? DataWord.ZERO : word(a.divide(b)), wa.div(wb));
+            assertEquals(msg, b.signum() == 0 ? DataWord.ZERO : word(a.mod(b)), wa.mod(wb));
+            assertEquals(msg, b.signum() == 0 ? DataWord.ZERO : word(signed(a).divide(signed(b))), wa.sDiv(wb));
+            assertEquals(msg, b.signum() == 0 ? DataWord.ZERO : word(signed(a).abs().mod(signed(b).abs())
+                    .multiply(BigInteger.valueOf(signed(a).signum() < 0 ? -1 : 1))), wa.sMod(wb));
+            assertEquals(msg, c.signum() == 0 ? DataWord.ZERO : word(a.add(b).mod(c)), wa.addmod(wb, wc));
+            assertEquals(msg, c.signum() == 0 ? DataWord.ZERO : word(a.multiply(b).mod(c)), wa.mulmod(wb, wc));
+            assertEquals(msg, word(a.modPow(b.mod(BigInteger.valueOf(1024)), _2_256)),
+                    wa.exp(word(b.mod(BigInteger.valueOf(1024)))));
+            assertEquals(msg, word(a.modPow(b, _2_256)), wa.exp(wb));
+            assertEquals(msg, word(a.and(b)), wa.and(wb));
+            assertEquals(msg, word(a.or(b)), wa.or(wb));
+            assertEquals(msg, word(a.xor(b)), wa.xor(wb));
+            assertEquals(msg, word(MAX_VALUE.subtract(a)), wa.bnot());
+            assertEquals(msg, word(a.negate()), wa.negate());
+            assertEquals(msg, a.compareTo(b), wa.compareTo(wb));
+            assertEquals(msg, signed(a).compareTo(signed(b)), wa.sCompareTo(wb));
+            assertEquals(msg, a.equals(b), wa.equals(wb));
+            assertEquals(msg, a, wa.value());
+            assertEquals(msg, signed(a), wa.sValue());
+            assertEquals(msg, a.longValue(), wa.longValue());
+            assertEquals(msg, a.intValue(), wa.intValue());
+            assertEquals(msg, (a.bitLength() + 7) / 8, wa.bytesOccupied());
+
+            int shift = rnd.nextInt(300);
+            DataWord wShift = DataWord.of(shift);
+            assertEquals(msg, shift >= MAX_POW ? DataWord.ZERO : word(a.shiftLeft(shift)), wa.shiftLeft(wShift));
+            assertEquals(msg, shift >= MAX_POW ? DataWord.ZERO : word(a.shiftRight(shift)), wa.shiftRight(wShift));
+            assertEquals(msg, word(signed(a).shiftRight(Math.min(shift, MAX_POW))), wa.shiftRightSigned(wShift));
+
+            byte k = (byte) rnd.nextInt(32);
+            BigInteger extended = signed(a.mod(BigInteger.ONE.shiftLeft(k * 8 + 8)).shiftLeft(MAX_POW - k * 8 - 8))
+                    .shiftRight(MAX_POW - k * 8 - 8);
+            assertEquals(msg, word(extended), wa.signExtend(k));
+        }
+    }
+
+    @Test
+    public void testArithmeticPerformance() {
+        boolean enabled = false;
+
+        if (enabled) {
+            Random rnd = new Random(42);
+            DataWord[] words = new DataWord[1024];
+            for (int i = 0; i < words.length; i++) {
+                words[i] = word(new BigInteger(1 + rnd.nextInt(MAX_POW), rnd).setBit(0)); // non zero divisors
+            }
+
+            int ITERATIONS = 10000000;
+
+            long now1 = System.currentTimeMillis();
+            for (int i = 0; i < ITERATIONS; i++) {
+                DataWord a = words[i & 1023], b = words[(i + 1) & 1023], c = words[(i + 2) & 1023];
+                a.mul(b).add(c).div(b).mod(c).mulmod(a, c);
+            }
+            System.out.println("Limbs: " + (System.currentTimeMillis() - now1) + "ms");
+
+            long now2 = System.currentTimeMillis();
+            for (int i = 0; i < ITERATIONS; i++) {
+                BigInteger a = words[i & 1023].value(), b = words[(i + 1) & 1023].value(), c = words[(i + 2) & 1023].value();
+                BigInteger r = a.multiply(b).and(MAX_VALUE).add(c).and(MAX_VALUE).divide(b).mod(c);
+                word(r.multiply(a).mod(c));
+            }
+            System.out.println("BigInteger: " + (System.currentTimeMillis() - now2) + "ms");
+        } else {
+            System.out.println("Arithmetic performance test is disabled.");
+        }
+    }
+
+    private static DataWord word(BigInteger value) {
+        return DataWord.of(ByteUtil.copyToArray(value.and(MAX_VALUE)));
+    }
+
+    private static BigInteger signed(BigInteger value) {
+        return value.testBit(MAX_POW - 1) ? value.subtract(_2_256) : value;
+    }
+
     public static BigInteger pow(BigInteger x, BigInteger y) {
         if (y.compareTo(BigInteger.ZERO) < 0)
             throw new IllegalArgumentException();
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ethereum.vm;
+
+import org.ethereum.config.BlockchainConfig;
+import org.ethereum.config.blockchain.ByzantiumConfig;
+import org.ethereum.config.blockchain.ConstantinopleConfig;
+import org.ethereum.config.blockchain.DaoHFConfig;
+import org.ethereum.config.blockchain.FrontierConfig;
+import org.ethereum.config.blockchain.HomesteadConfig;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+
+public class InstructionTableTest {
+
+    @Test
+    public void testForkActivation() {
+        InstructionTable frontier = InstructionTable.forConfig(new FrontierConfig());
+        InstructionTable byzantium = InstructionTable.forConfig(new ByzantiumConfig(new DaoHFConfig(new HomesteadConfig(), 0)));
+        InstructionTable constantinople = InstructionTable.forConfig(new ConstantinopleConfig(new DaoHFConfig()));
+
+        assertNull(frontier.get(OpCode.DELEGATECALL.val()));
+        assertNull(frontier.get(OpCode.REVERT.val()));
+        assertEquals(OpCode.REVERT, byzantium.get(OpCode.REVERT.val()));
+        assertNull(byzantium.get(OpCode.SHL.val()));
+        assertNull(byzantium.get(OpCode.CREATE2.val()));
+        assertEquals(OpCode.SHL, constantinople.get(OpCode.SHL.val()));
+        assertEquals(OpCode.CREATE2, constantinople.get(OpCode.CREATE2.val()));
+
+        // undefined opcodes
+        assertNull(constantinople.get((byte) 0x0c));
+        assertNull(constantinople.get((byte) 0xfe));
+    }
+
+    @Test
+    public void testStackAndGas() {
+        BlockchainConfig config = new ByzantiumConfig(new DaoHFConfig(new HomesteadConfig(), 0));
+        InstructionTable table = InstructionTable.forConfig(config);
+        GasCost gasCosts = config.getGasCost();
+
+        for (OpCode op : OpCode.values()) {
+            if (table.get(op.val()) == null) continue;
+            assertEquals(op.require(), table.require(op));
+            assertEquals(op.ret(), table.ret(op));
+        }
+
+        assertEquals(OpCode.ADD.getTier().asInt(), table.staticGas(OpCode.ADD));
+        assertEquals(gasCosts.getSLOAD(), table.staticGas(OpCode.SLOAD));
+        assertEquals(gasCosts.getCALL(), table.staticGas(OpCode.STATICCALL));
+        assertEquals(gasCosts.getLOG_GAS() + 3 * gasCosts.getLOG_TOPIC_GAS(), table.staticGas(OpCode.LOG3));
+    }
+
+    @Test
+    public void testTableIsShared() {
+        BlockchainConfig config = new FrontierConfig();
+        assertSame(InstructionTable.forConfig(config), InstructionTable.forConfig(config));
+
+        BlockchainConfig byzantium = new ByzantiumConfig(new DaoHFConfig(new HomesteadConfig(), 0));
+        assertSame(byzantium.getInstructionTable(), InstructionTable.forConfig(byzantium));
+    }
+
+    @Ignore("performance comparison")
+    @Test
+    public void compareWithMapLookups() {
+        BlockchainConfig config = new ByzantiumConfig(new DaoHFConfig(new HomesteadConfig(), 0));
+        InstructionTable table = InstructionTable.forConfig(config);
+        GasCost gasCosts = config.getGasCost();
+
+        // decode, validation and pricing as done by the VM before the table: enum lookup, validator map and gas switch
+        Map<OpCode, Function<BlockchainConfig, Boolean>> validators = new HashMap<>();
+        validators.put(OpCode.DELEGATECALL, (c) -> c.getConstants().hasDelegateCallOpcode());
+        validators.put(OpCode.REVERT, BlockchainConfig::eip206);
+        validators.put(OpCode.STATICCALL, BlockchainConfig::eip214);
+        validators.put(OpCode.SHL, BlockchainConfig::eip145);
+
+        byte[] code = new byte[4096];
+        Random rnd = new Random(0);
+        for (int i = 0; i < code.length; i++) {
+            code[i] = (byte) rnd.nextInt(0x60);
+        }
+        int iterations = 10_000;
+
+        for (int round = 0; round < 5; round++) {
+            long gas = 0;
+            long s = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                for (byte b : code) {
+                    OpCode op = OpCode.code(b);
+                    if (op == null) continue;
+                    Function<BlockchainConfig, Boolean> validator = validators.get(op);
+                    if (validator != null && !validator.apply(config)) continue;
+                    gas += op == OpCode.SLOAD ? gasCosts.getSLOAD() : op == OpCode.BALANCE ? gasCosts.getBALANCE() :
+                            op == OpCode.SHA3 ? gasCosts.getSHA3() : op.getTier().asInt();
+                }
+            }
+            long maps = System.nanoTime() - s;
+
+            s = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                for (byte b : code) {
+                    OpCode op = table.get(b);
+                    if (op == null) continue;
+                    gas -= table.staticGas(op);
+                }
+            }
+            long tables = System.nanoTime() - s;
+
+            System.out.printf("maps: %.2f ns/op, table: %.2f ns/op (%d)%n",
+                    (double) maps / iterations / code.length, (double) tables / iterations / code.length, gas);
+        }
+    }
+}
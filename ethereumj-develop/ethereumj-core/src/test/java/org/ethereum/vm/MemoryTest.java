@@ -17,6 +17,7 @@
  */
 package org.ethereum.vm;
 
+import org.ethereum.crypto.HashUtil;
 import org.ethereum.vm.program.Memory;
 import org.junit.Test;
 import org.spongycastle.util.encoders.Hex;
@@ -528,6 +529,30 @@ public class MemoryTest {
         assertTrue(zero == 10);
     }
 
+    @Test
+    public void testIncrementalExtendAcrossChunks() {
+        Memory memory = new Memory();
+        byte[] word = new byte[WORD_SIZE];
+        for (int i = 0; i < 200; i++) {
+            Arrays.fill(word, (byte) i);
+            memory.write(i * WORD_SIZE, word, WORD_SIZE, false);
+        }
+
+        assertEquals(200 * WORD_SIZE, memory.size());
+        assertEquals(calcSize(200 * WORD_SIZE, CHUNK_SIZE), memory.internalSize());
+        assertEquals(memory.internalSize() / CHUNK_SIZE, memory.getChunks().size());
 
+        byte[] all = memory.read(0, memory.size());
+        for (int i = 0; i < 200; i++) {
+            assertEquals((byte) i, all[i * WORD_SIZE]);
+            assertEquals((byte) i, memory.readByte(i * WORD_SIZE + WORD_SIZE - 1));
+        }
+
+        // region crossing chunk boundary
+        byte[] region = memory.read(CHUNK_SIZE - 16, 64);
+        assertArrayEquals(Arrays.copyOfRange(all, CHUNK_SIZE - 16, CHUNK_SIZE + 48), region);
+        assertArrayEquals(HashUtil.sha3(region), memory.sha3(CHUNK_SIZE - 16, 64));
+        assertArrayEquals(HashUtil.sha3(new byte[0]), memory.sha3(0, 0));
+    }
 
-}
\ No newline at end of file
+}
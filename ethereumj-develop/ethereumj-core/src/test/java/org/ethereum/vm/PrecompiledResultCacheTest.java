@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ethereum.vm;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.ethereum.config.BlockchainConfig;
+import org.ethereum.config.blockchain.ByzantiumConfig;
+import org.ethereum.config.blockchain.DaoHFConfig;
+import org.ethereum.config.blockchain.HomesteadConfig;
+import org.ethereum.vm.PrecompiledContracts.PrecompiledContract;
+import org.junit.Test;
+import org.spongycastle.util.encoders.Hex;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+public class PrecompiledResultCacheTest {
+
+    private static final BlockchainConfig byzantiumConfig = new ByzantiumConfig(new DaoHFConfig(new HomesteadConfig(), 0));
+
+    private static final DataWord identityAddr = DataWord.of(4);
+    private static final DataWord bn128MulAddr = DataWord.of(7);
+
+    // generator point multiplied by 2
+    private static final byte[] mulInput = Hex.decode(
+            "0000000000000000000000000000000000000000000000000000000000000001" +
+            "0000000000000000000000000000000000000000000000000000000000000002" +
+            "0000000000000000000000000000000000000000000000000000000000000002");
+
+    @Test
+    public void testHitsAndMisses() {
+        PrecompiledResultCache cache = new PrecompiledResultCache(2);
+        PrecompiledContract mul = PrecompiledContracts.getContractForAddress(bn128MulAddr, byzantiumConfig);
+        byte[] addr = bn128MulAddr.getLast20Bytes();
+
+        Pair<Boolean, byte[]> first = cache.execute(mul, addr, mulInput);
+        Pair<Boolean, byte[]> second = cache.execute(mul, addr, mulInput.clone());
+        assertSame(first, second);
+        assertArrayEquals(mul.execute(mulInput).getRight(), second.getRight());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        // eviction
+        cache.execute(mul, addr, new byte[] {1});
+        cache.execute(mul, addr, new byte[] {2});
+        assertEquals(2, cache.size());
+        cache.execute(mul, addr, mulInput);
+        assertEquals(1, cache.getHits());
+        assertEquals(4, cache.getMisses());
+    }
+
+    @Test
+    public void testCheapContractsNotCached() {
+        PrecompiledResultCache cache = new PrecompiledResultCache(16);
+        PrecompiledContract identity = PrecompiledContracts.getContractForAddress(identityAddr, byzantiumConfig);
+        byte[] data = Hex.decode("112233");
+
+        assertArrayEquals(data, cache.execute(identity, identityAddr.getLast20Bytes(), data).getRight());
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getMisses());
+    }
+
+    @Test
+    public void testDisabled() {
+        PrecompiledResultCache cache = new PrecompiledResultCache(0);
+        PrecompiledContract mul = PrecompiledContracts.getContractForAddress(bn128MulAddr, byzantiumConfig);
+
+        assertFalse(cache.isEnabled());
+        cache.execute(mul, bn128MulAddr.getLast20Bytes(), mulInput);
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getMisses());
+    }
+}
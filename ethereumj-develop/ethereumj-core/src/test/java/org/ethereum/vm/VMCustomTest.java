@@ -17,6 +17,8 @@
  */
 package org.ethereum.vm;
 
+import org.ethereum.config.SystemProperties;
+import org.ethereum.vm.hook.VMHook;
 import org.ethereum.vm.program.Program;
 import org.ethereum.vm.program.Program.OutOfGasException;
 import org.ethereum.vm.program.Program.StackTooSmallException;
@@ -546,6 +548,65 @@ public class VMCustomTest {
         }
     }
 
+    @Test // basic block accounting vs per instruction accounting
+    public void testBasicBlockGas() {
+
+        // loop with GAS and MSTORE inside: PUSH1 0x0a JUMPDEST PUSH1 0x01 SWAP1 SUB DUP1 GAS POP
+        // DUP1 PUSH1 0x00 MSTORE PUSH1 0x02 JUMPI STOP
+        byte[] loop = Hex.decode("600a5b60019003805a50806000526002" + "5700");
+        // ADD on a single item stack
+        byte[] underflow = Hex.decode("6001600201600101");
+
+        // a non empty hook makes VM account every instruction separately
+        VM blockVm = new VM();
+        VM plainVm = new VM(SystemProperties.getDefault(), new VMHook() {});
+
+        for (byte[] code : new byte[][]{loop, underflow}) {
+            for (long gas = 0; gas < 700; gas++) {
+                invoke.setGas(gas);
+                Program blockProgram = new Program(code, invoke);
+                blockVm.play(blockProgram);
+                Program plainProgram = new Program(code, invoke);
+                plainVm.play(plainProgram);
+
+                assertEquals(plainProgram.getResult().getGasUsed(), blockProgram.getResult().getGasUsed());
+                assertEquals(plainProgram.getStack().size(), blockProgram.getStack().size());
+                if (plainProgram.getResult().getException() == null) {
+                    assertNull(blockProgram.getResult().getException());
+                    assertEquals(plainProgram.getStack().peek(), blockProgram.getStack().peek());
+                } else {
+                    assertEquals(plainProgram.getResult().getException().getClass(),
+                            blockProgram.getResult().getException().getClass());
+                    assertEquals(plainProgram.getPC(), blockProgram.getPC());
+                }
+            }
+        }
+    }
+
+    @Test // interrupt stops speculative execution only
+    public void testInterruptible() {
+
+        // endless loop: JUMPDEST PUSH1 0x00 JUMP
+        byte[] loop = Hex.decode("5b600056");
+        invoke.setGas(100_000);
+
+        Thread.currentThread().interrupt();
+        try {
+            Program program = new Program(loop, invoke);
+            new VM().play(program);
+            assertTrue(program.getResult().getException() instanceof Program.OutOfGasException);
+
+            VM.setInterruptible(true);
+            program = new Program(loop, invoke);
+            new VM().play(program);
+            assertTrue(program.getResult().getException() instanceof Program.ExecutionInterruptedException);
+            assertEquals(0, program.getPC());
+        } finally {
+            VM.setInterruptible(false);
+            Thread.interrupted();
+        }
+    }
+
     /* TEST CASE LIST END */
 
 }
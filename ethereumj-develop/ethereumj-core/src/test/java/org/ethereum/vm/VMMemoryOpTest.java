@@ -717,6 +717,34 @@ public class VMMemoryOpTest extends VMBaseOpTest {
         }
     }
 
+    @Test(expected = Program.OutOfGasException.class) // MSTORE OP past max memory size
+    public void testMSTORE_6() {
+
+        VM vm = new VM();
+        program = new Program(compile("PUSH2 0x1234 PUSH4 0x7FFFFFE0 MSTORE"), invoke);
+        try {
+            vm.step(program);
+            vm.step(program);
+            vm.step(program);
+        } finally {
+            assertTrue(program.isStopped());
+        }
+    }
+
+    @Test(expected = Program.OutOfGasException.class) // MSTORE OP with offset beyond 64 bits
+    public void testMSTORE_7() {
+
+        VM vm = new VM();
+        program = new Program(compile("PUSH2 0x1234 PUSH9 0x010000000000000000 MSTORE"), invoke);
+        try {
+            vm.step(program);
+            vm.step(program);
+            vm.step(program);
+        } finally {
+            assertTrue(program.isStopped());
+        }
+    }
+
     @Test // MLOAD OP
     public void testMLOAD_1() {
 
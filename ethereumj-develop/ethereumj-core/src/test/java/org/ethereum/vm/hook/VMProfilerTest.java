@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ethereum.vm.hook;
+
+import org.ethereum.config.SystemProperties;
+import org.ethereum.crypto.HashUtil;
+import org.ethereum.vm.BytecodeCompiler;
+import org.ethereum.vm.OpCode;
+import org.ethereum.vm.VM;
+import org.ethereum.vm.program.Program;
+import org.ethereum.vm.program.invoke.ProgramInvokeMockImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class VMProfilerTest {
+
+    private ProgramInvokeMockImpl invoke;
+
+    @Before
+    public void setup() {
+        invoke = new ProgramInvokeMockImpl();
+    }
+
+    @After
+    public void tearDown() {
+        invoke.getRepository().close();
+    }
+
+    @Test
+    public void testOpAndContractStats() {
+        VMProfiler profiler = new VMProfiler(true);
+        assertFalse(profiler.isEmpty());
+
+        byte[] code = new BytecodeCompiler().compile("PUSH1 0x01 PUSH1 0x02 ADD PUSH1 0x00 MSTORE");
+        VM vm = new VM(SystemProperties.getDefault(), profiler);
+        for (int i = 0; i < 2; i++) {
+            vm.play(new Program(code, invoke, null, SystemProperties.getDefault(), profiler));
+        }
+
+        Map<OpCode, VMProfiler.OpStats> ops = new HashMap<>();
+        for (VMProfiler.OpStats stats : profiler.getOpStats()) {
+            ops.put(stats.getOp(), stats);
+        }
+        assertEquals(3, ops.size());
+        assertEquals(6, ops.get(OpCode.PUSH1).getCount());
+        assertEquals(18, ops.get(OpCode.PUSH1).getGas());
+        assertEquals(2, ops.get(OpCode.ADD).getCount());
+        assertEquals(6, ops.get(OpCode.ADD).getGas());
+        // static gas plus one memory word
+        assertEquals(12, ops.get(OpCode.MSTORE).getGas());
+
+        List<VMProfiler.ContractStats> contracts = profiler.getContractStats(10);
+        assertEquals(1, contracts.size());
+        assertEquals(0, contracts.get(0).getCodeHash().length);
+        assertEquals(2, contracts.get(0).getPlays());
+        assertEquals(10, contracts.get(0).getOps());
+        assertEquals(36, contracts.get(0).getGas());
+        assertTrue(profiler.getReport(10).contains("MSTORE"));
+
+        profiler.reset();
+        assertTrue(profiler.getOpStats().isEmpty());
+        assertTrue(profiler.getContractStats(10).isEmpty());
+    }
+
+    @Test
+    public void testCallGasAndPcStats() {
+        VMProfiler profiler = new VMProfiler(true);
+
+        // calls the owner account which has no code, forwarded gas is refunded right away
+        byte[] code = new BytecodeCompiler().compile("PUSH1 0x00 PUSH1 0x00 PUSH1 0x00 PUSH1 0x00 PUSH1 0x00 " +
+                "PUSH20 0xcd2a3d9f938e13cd947ec05abc7fe734df8dd826 PUSH2 0x1000 CALL PUSH1 0x01");
+        byte[] codeHash = HashUtil.sha3(code);
+        VM vm = new VM(SystemProperties.getDefault(), profiler);
+        Program program = new Program(codeHash, code, invoke, null, SystemProperties.getDefault(), profiler);
+        vm.play(program);
+        long callGas = program.getBlockchainConfig().getGasCost().getCALL();
+
+        Map<OpCode, VMProfiler.OpStats> ops = new HashMap<>();
+        for (VMProfiler.OpStats stats : profiler.getOpStats()) {
+            ops.put(stats.getOp(), stats);
+        }
+        // neither the forwarded gas nor its refund are accounted to the ops
+        assertEquals(callGas, ops.get(OpCode.CALL).getGas());
+        assertEquals(6 * 3, ops.get(OpCode.PUSH1).getGas());
+        assertEquals(3, ops.get(OpCode.PUSH20).getGas());
+        assertEquals(3, ops.get(OpCode.PUSH2).getGas());
+
+        List<VMProfiler.PcStats> pcs = profiler.getPcStats(100);
+        assertEquals(9, pcs.size());
+        Map<Integer, VMProfiler.PcStats> byPc = new HashMap<>();
+        for (VMProfiler.PcStats stats : pcs) {
+            assertArrayEquals(codeHash, stats.getCodeHash());
+            assertEquals(1, stats.getCount());
+            byPc.put(stats.getPc(), stats);
+        }
+        // 5 x PUSH1 (2 bytes), PUSH20 (21 bytes), PUSH2 (3 bytes)
+        assertEquals(OpCode.CALL, byPc.get(34).getOp());
+        assertEquals(callGas, byPc.get(34).getGas());
+        assertEquals(OpCode.PUSH1, byPc.get(35).getOp());
+        assertEquals(3, byPc.get(35).getGas());
+        assertTrue(profiler.getReport(10).contains(" 34 CALL"));
+    }
+
+    @Test
+    public void testContractsLimit() {
+        VMProfiler profiler = new VMProfiler(true, 1);
+        VM vm = new VM(SystemProperties.getDefault(), profiler);
+
+        byte[] first = new BytecodeCompiler().compile("PUSH1 0x01 PUSH1 0x02 ADD");
+        byte[] second = new BytecodeCompiler().compile("PUSH1 0x03 PUSH1 0x04 MUL");
+        for (byte[] code : new byte[][] {first, second, second}) {
+            vm.play(new Program(HashUtil.sha3(code), code, invoke, null, SystemProperties.getDefault(), profiler));
+        }
+
+        Map<Integer, VMProfiler.ContractStats> byHashLength = new HashMap<>();
+        for (VMProfiler.ContractStats stats : profiler.getContractStats(10)) {
+            byHashLength.put(stats.getCodeHash().length, stats);
+        }
+        assertEquals(2, byHashLength.size());
+        assertArrayEquals(HashUtil.sha3(first), byHashLength.get(32).getCodeHash());
+        assertEquals(1, byHashLength.get(32).getPlays());
+        // contracts over the limit are summed up
+        assertEquals(2, byHashLength.get(1).getPlays());
+        assertEquals(6, byHashLength.get(1).getOps());
+        assertTrue(profiler.getReport(10).contains("(other contracts)"));
+
+        // no per pc stats for the contracts over the limit
+        for (VMProfiler.PcStats stats : profiler.getPcStats(100)) {
+            assertArrayEquals(HashUtil.sha3(first), stats.getCodeHash());
+        }
+
+        profiler.reset();
+        vm.play(new Program(HashUtil.sha3(second), second, invoke, null, SystemProperties.getDefault(), profiler));
+        assertArrayEquals(HashUtil.sha3(second), profiler.getContractStats(10).get(0).getCodeHash());
+    }
+
+    @Test
+    public void testDisabled() {
+        assertTrue(new VMProfiler(false).isEmpty());
+    }
+}
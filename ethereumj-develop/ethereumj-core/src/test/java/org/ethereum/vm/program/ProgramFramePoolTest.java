@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ethereum.vm.program;
+
+import org.ethereum.config.CommonConfig;
+import org.ethereum.config.SystemProperties;
+import org.ethereum.core.Block;
+import org.ethereum.core.CallTransaction;
+import org.ethereum.core.LocalCallExecutor;
+import org.ethereum.core.Repository;
+import org.ethereum.core.Transaction;
+import org.ethereum.crypto.HashUtil;
+import org.ethereum.util.blockchain.StandaloneBlockchain;
+import org.ethereum.vm.DataWord;
+import org.ethereum.vm.hook.VMHook;
+import org.junit.Test;
+import org.spongycastle.util.encoders.Hex;
+
+import java.math.BigInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ProgramFramePoolTest {
+
+    @Test
+    public void testReset() {
+        ProgramFramePool pool = new ProgramFramePool();
+
+        Stack stack = pool.takeStack();
+        Memory memory = pool.takeMemory();
+        stack.push(DataWord.ONE);
+        memory.write(100, DataWord.ONE.getData(), 32, false);
+        pool.release(stack, memory);
+
+        assertSame(stack, pool.takeStack());
+        assertSame(memory, pool.takeMemory());
+        assertTrue(stack.isEmpty());
+        assertEquals(0, memory.size());
+        assertEquals(DataWord.ZERO, memory.readWord(100));
+    }
+
+    @Test
+    public void testLargeMemoryDropped() {
+        ProgramFramePool pool = new ProgramFramePool();
+
+        Memory memory = pool.takeMemory();
+        memory.extend(0, ProgramFramePool.MAX_MEMORY_CAPACITY * 2);
+        pool.release(pool.takeStack(), memory);
+
+        Memory reused = pool.takeMemory();
+        assertEquals(0, reused.size());
+        assertEquals(0, reused.internalSize());
+        assertEquals(DataWord.ZERO, reused.readWord(ProgramFramePool.MAX_MEMORY_CAPACITY));
+    }
+
+    @Test
+    public void testNoLeaksBetweenCalls() {
+        // loads the word at 0, dirties it and returns the loaded value incremented by one
+        byte[] child = Hex.decode("600051600101" + "60ff600052" + "602052" + "60206020f3");
+
+        StandaloneBlockchain sb = new StandaloneBlockchain();
+        Transaction createChild = sb.createTransaction(0, new byte[0], 0,
+                Hex.decode("6013600c60003960136000f3" + Hex.toHexString(child)));
+        String childAddr = Hex.toHexString(createChild.getContractAddress());
+
+        // calls the child twice writing the results to the words 0 and 1, then returns them
+        byte[] caller = Hex.decode(
+                "60206000600060006000" + "73" + childAddr + "5af150" +
+                "60206020600060006000" + "73" + childAddr + "5af150" +
+                "60406000f3");
+        Transaction createCaller = sb.createTransaction(1, new byte[0], 0,
+                Hex.decode("6049600c60003960496000f3" + Hex.toHexString(caller)));
+
+        sb.submitTransaction(createChild);
+        sb.submitTransaction(createCaller);
+        Block block = sb.createBlock();
+
+        LocalCallExecutor executor = new LocalCallExecutor(SystemProperties.getDefault(),
+                sb.getBlockchain().getRepository(), sb.getBlockchain().getBlockStore(),
+                sb.getBlockchain().getProgramInvokeFactory(), CommonConfig.getDefault());
+        Transaction call = CallTransaction.createRawTransaction(0, 0, 1_000_000,
+                Hex.toHexString(createCaller.getContractAddress()), 0, new byte[0]);
+
+        for (int i = 0; i < 3; i++) {
+            ProgramResult result = executor.call(call, block);
+            assertNull(result.getException());
+            assertArrayEquals(Hex.decode(DataWord.ONE.toString() + DataWord.ONE.toString()), result.getHReturn());
+        }
+        assertTrue(ProgramFramePool.get().size() > 0);
+    }
+
+    /**
+     * Imports blocks with nested calls, creates and reverts, pooling is off when a VM hook is set
+     */
+    private static StandaloneBlockchain importFrames(VMHook vmHook, byte[] recursive, byte[] factory) {
+        StandaloneBlockchain sb = new StandaloneBlockchain();
+        if (vmHook != null) sb.withVmHook(vmHook);
+        Transaction createRecursive = sb.createTransaction(0, new byte[0], 0,
+                Hex.decode("6039600c60003960396000f3" + Hex.toHexString(recursive)));
+        Transaction createFactory = sb.createTransaction(1, new byte[0], 0,
+                Hex.decode("601e600c600039601e6000f3" + Hex.toHexString(factory)));
+        sb.submitTransaction(createRecursive);
+        sb.submitTransaction(createFactory);
+        sb.createBlock();
+
+        sb.submitTransaction(sb.createTransaction(2, createRecursive.getContractAddress(), 0, DataWord.of(10).getData()));
+        sb.submitTransaction(sb.createTransaction(3, createFactory.getContractAddress(), 0, new byte[0]));
+        sb.submitTransaction(sb.createTransaction(4, createRecursive.getContractAddress(), 0, DataWord.of(4).getData()));
+        sb.createBlock();
+        return sb;
+    }
+
+    @Test
+    public void testSameAsUnpooled() {
+        // stores MSIZE seen on entry to the slot N, where N is the call data word, then dirties memory,
+        // calls itself with N - 1 storing the result to the slot 0x100 + N, reverts when N == 2
+        byte[] recursive = Hex.decode("60003559815560ff6101005280156032576001810360005260206020602060006000305af1" +
+                "816101000155600281146034575b005b600080fd");
+        // creates two contracts storing MSIZE seen on entry to their slot 0, stores their addresses to the slots 0, 1
+        byte[] factory = Hex.decode("6459600055006000526005601b6000f06000556005601b6000f060015500");
+
+        StandaloneBlockchain unpooled = importFrames(new VMHook() {}, recursive, factory);
+        StandaloneBlockchain pooled = importFrames(null, recursive, factory);
+
+        for (long i = 1; i <= 2; i++) {
+            Block expected = unpooled.getBlockchain().getBlockByNumber(i);
+            Block actual = pooled.getBlockchain().getBlockByNumber(i);
+            assertArrayEquals(expected.getStateRoot(), actual.getStateRoot());
+            assertArrayEquals(expected.getReceiptsRoot(), actual.getReceiptsRoot());
+        }
+
+        Repository repository = pooled.getBlockchain().getRepository();
+        byte[] recursiveAddr = HashUtil.calcNewAddr(pooled.getSender().getAddress(), BigInteger.ZERO.toByteArray());
+        byte[] factoryAddr = HashUtil.calcNewAddr(pooled.getSender().getAddress(), BigInteger.ONE.toByteArray());
+
+        // frames got no memory left by the preceding ones, the frame 2 reverted along with its callees
+        for (int n = 3; n <= 10; n++) {
+            assertNull(repository.getStorageValue(recursiveAddr, DataWord.of(n)));
+        }
+        assertEquals(DataWord.ONE, repository.getStorageValue(recursiveAddr, DataWord.of(0x104)));
+        assertNull(repository.getStorageValue(recursiveAddr, DataWord.of(0x103)));
+        assertNull(repository.getStorageValue(recursiveAddr, DataWord.of(0x102)));
+
+        for (int i = 0; i < 2; i++) {
+            byte[] created = repository.getStorageValue(factoryAddr, DataWord.of(i)).getLast20Bytes();
+            assertNotNull(repository.getAccountState(created));
+            assertNull(repository.getStorageValue(created, DataWord.ZERO));
+        }
+    }
+}
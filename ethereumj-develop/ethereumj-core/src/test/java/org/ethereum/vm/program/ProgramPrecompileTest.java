@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ethereum.vm.program;
+
+import org.ethereum.util.RLP;
+import org.junit.Test;
+import org.spongycastle.util.encoders.Hex;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ProgramPrecompileTest {
+
+    @Test
+    public void testCompile() {
+        // JUMPDEST PUSH2 0x5b5b JUMPDEST STOP ... JUMPDEST at 100
+        byte[] code = new byte[101];
+        System.arraycopy(Hex.decode("5b615b5b5b00"), 0, code, 0, 6);
+        code[100] = 0x5b;
+
+        ProgramPrecompile precompile = ProgramPrecompile.compile(code);
+
+        assertTrue(precompile.hasJumpDest(0));
+        assertFalse(precompile.hasJumpDest(2)); // push data
+        assertFalse(precompile.hasJumpDest(3)); // push data
+        assertTrue(precompile.hasJumpDest(4));
+        assertTrue(precompile.hasJumpDest(100));
+        assertFalse(precompile.hasJumpDest(-1));
+        assertFalse(precompile.hasJumpDest(101));
+        assertFalse(precompile.hasJumpDest(Integer.MAX_VALUE));
+        assertEquals(Arrays.asList(0, 4, 100), precompile.getJumpDests());
+    }
+
+    @Test
+    public void testSerialization() {
+        byte[] code = new byte[200];
+        for (int i = 0; i < code.length; i += 3) code[i] = 0x5b;
+
+        ProgramPrecompile precompile = ProgramPrecompile.compile(code);
+        ProgramPrecompile restored = ProgramPrecompile.deserialize(precompile.serialize());
+
+        assertEquals(precompile.getJumpDests(), restored.getJumpDests());
+        assertTrue(ProgramPrecompile.deserialize(ProgramPrecompile.compile(new byte[0]).serialize())
+                .getJumpDests().isEmpty());
+    }
+
+    @Test
+    public void testBasicBlocks() {
+        // 0: PUSH1 0x0a, 2: JUMPDEST, 3: PUSH1 0x01, 5: SWAP1, 6: SUB, 7: DUP1, 8: GAS, 9: POP,
+        // 10: PUSH1 0x00, 12: MSTORE, 13: PUSH1 0x02, 15: JUMPI, 16: STOP, 17: 0x0c (undefined), 18: ADD
+        byte[] code = Hex.decode("600a5b60019003805a50600052600257000c01");
+        ProgramPrecompile precompile = ProgramPrecompile.compile(code);
+
+        assertEquals(6, precompile.getBlockCount());
+        assertBlock(precompile, 0, 0, 2, 0, 1);
+        assertBlock(precompile, 1, 2, 9, 1, 2);     // ends with GAS
+        assertBlock(precompile, 2, 9, 12, 1, 0);    // ends before MSTORE
+        assertBlock(precompile, 3, 13, 16, 1, 1);   // ends with JUMPI
+        assertBlock(precompile, 4, 16, 17, 0, 0);   // STOP
+        assertBlock(precompile, 5, 18, 19, 2, 0);   // after undefined opcode
+
+        assertEquals(1, precompile.findBlock(2, 1));
+        assertEquals(3, precompile.findBlock(13, 0));
+        assertEquals(-1, precompile.findBlock(12, 3));
+        assertEquals(-1, precompile.findBlock(1, -1));
+
+        ProgramPrecompile restored = ProgramPrecompile.deserialize(precompile.serialize());
+        assertEquals(precompile.getBlockCount(), restored.getBlockCount());
+        for (int i = 0; i < precompile.getBlockCount(); i++) {
+            assertBlock(restored, i, precompile.getBlockStart(i), precompile.getBlockEnd(i),
+                    precompile.getBlockMinStack(i), precompile.getBlockMaxGrowth(i));
+        }
+    }
+
+    private static void assertBlock(ProgramPrecompile precompile, int block, int start, int end, int minStack, int maxGrowth) {
+        assertEquals(start, precompile.getBlockStart(block));
+        assertEquals(end, precompile.getBlockEnd(block));
+        assertEquals(minStack, precompile.getBlockMinStack(block));
+        assertEquals(maxGrowth, precompile.getBlockMaxGrowth(block));
+    }
+
+    @Test
+    public void testOldVersionIsIgnored() {
+        byte[] v1 = RLP.encodeList(RLP.encodeInt(1), RLP.encodeInt(100));
+        assertNull(ProgramPrecompile.deserialize(v1));
+    }
+}
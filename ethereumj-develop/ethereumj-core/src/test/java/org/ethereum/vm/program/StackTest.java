@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ethereum.vm.program;
+
+import org.ethereum.vm.DataWord;
+import org.ethereum.vm.program.listener.ProgramListenerAdaptor;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.EmptyStackException;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StackTest {
+
+    @Test
+    public void testPushPopSwapDup() {
+        Stack stack = new Stack();
+        for (int i = 0; i < 4; i++) {
+            stack.push(DataWord.of(i));
+        }
+        assertEquals(4, stack.size());
+        assertEquals(DataWord.of(3), stack.peek());
+
+        stack.swap(stack.size() - 1, stack.size() - 3); // SWAP2
+        assertEquals(DataWord.of(1), stack.peek());
+        assertEquals(DataWord.of(3), stack.get(1));
+
+        stack.dup(4); // DUP4
+        assertEquals(5, stack.size());
+        assertEquals(DataWord.of(0), stack.peek());
+
+        assertArrayEquals(new DataWord[] {DataWord.of(0), DataWord.of(3), DataWord.of(2), DataWord.of(1), DataWord.of(0)},
+                stack.toArray());
+
+        List<DataWord> iterated = new ArrayList<>();
+        for (DataWord item : stack) iterated.add(item);
+        assertArrayEquals(stack.toArray(), iterated.toArray());
+
+        for (int i = 0; i < 5; i++) stack.pop();
+        assertTrue(stack.isEmpty());
+    }
+
+    @Test(expected = EmptyStackException.class)
+    public void testPopEmpty() {
+        new Stack().pop();
+    }
+
+    @Test
+    public void testFullStack() {
+        Stack stack = new Stack();
+        for (int i = 0; i < Stack.MAX_SIZE; i++) {
+            stack.push(DataWord.of(i));
+        }
+        assertEquals(Stack.MAX_SIZE, stack.size());
+        try {
+            stack.push(DataWord.ONE);
+        } catch (IndexOutOfBoundsException e) {
+            assertEquals(Stack.MAX_SIZE, stack.size());
+            return;
+        }
+        throw new AssertionError("Stack overflow is expected");
+    }
+
+    @Test
+    public void testListenerEvents() {
+        List<String> events = new ArrayList<>();
+        Stack stack = new Stack();
+        stack.setProgramListener(new ProgramListenerAdaptor() {
+            @Override
+            public void onStackPop() {
+                events.add("pop");
+            }
+
+            @Override
+            public void onStackPush(DataWord value) {
+                events.add("push " + value.intValue());
+            }
+
+            @Override
+            public void onStackSwap(int from, int to) {
+                events.add("swap " + from + " " + to);
+            }
+        });
+
+        stack.push(DataWord.ONE);
+        stack.push(DataWord.ZERO);
+        stack.swap(1, 0);
+        stack.dup(2);
+        stack.pop();
+
+        assertArrayEquals(new String[] {"push 1", "push 0", "swap 1 0", "push 0", "pop"}, events.toArray());
+    }
+}
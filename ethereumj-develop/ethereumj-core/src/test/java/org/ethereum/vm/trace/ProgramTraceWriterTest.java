@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ethereum.vm.trace;
+
+import com.typesafe.config.ConfigFactory;
+import org.ethereum.config.SystemProperties;
+import org.ethereum.vm.DataWord;
+import org.ethereum.vm.OpCode;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+import java.util.EnumSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ProgramTraceWriterTest {
+
+    private static final String CONTRACT = "cd2a3d9f938e13cd947ec05abc7fe734df8dd826";
+
+    @Test
+    public void testStreamedOps() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ProgramTraceWriter writer = new ProgramTraceWriter(null, out,
+                Collections.emptySet(), EnumSet.noneOf(OpCode.class), 1);
+
+        ProgramTrace trace = new ProgramTrace();
+        trace.setContractAddress(CONTRACT);
+        trace.setWriter(writer);
+        trace.addOp(OpCode.PUSH1.val(), 0, 0, DataWord.of(100), new OpActions());
+        trace.addOp(OpCode.STOP.val(), 2, 0, DataWord.of(97), new OpActions());
+        writer.finish(new byte[] {0x12}, null);
+
+        assertTrue(trace.getOps().isEmpty());
+        assertEquals(2, writer.getWritten());
+
+        String[] lines = out.toString().split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].contains("\"contractAddress\":\"" + CONTRACT + "\""));
+        assertTrue(lines[0].contains("\"code\":\"PUSH1\""));
+        assertTrue(lines[1].contains("\"code\":\"STOP\""));
+        assertEquals("{\"result\":\"12\",\"error\":\"\"}", lines[2]);
+    }
+
+    @Test
+    public void testFilterAndSampling() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ProgramTraceWriter writer = new ProgramTraceWriter(null, out,
+                Collections.singleton(CONTRACT), EnumSet.of(OpCode.SSTORE), 2);
+
+        ProgramTrace trace = new ProgramTrace();
+        trace.setContractAddress(CONTRACT);
+        trace.setWriter(writer);
+        ProgramTrace other = new ProgramTrace();
+        other.setContractAddress("0000000000000000000000000000000000000001");
+        other.setWriter(writer);
+
+        for (int i = 0; i < 4; i++) {
+            trace.addOp(OpCode.SSTORE.val(), i, 0, DataWord.of(100), new OpActions());
+            trace.addOp(OpCode.SLOAD.val(), i, 0, DataWord.of(100), new OpActions());
+            other.addOp(OpCode.SSTORE.val(), i, 1, DataWord.of(100), new OpActions());
+        }
+        writer.close();
+
+        // every second of four matching SSTOREs
+        assertEquals(2, writer.getWritten());
+        assertEquals(2, out.toString().split("\n").length);
+    }
+
+    @Test
+    public void testConfigFilters() {
+        SystemProperties config = new SystemProperties();
+        config.overrideParams(ConfigFactory.parseString(
+                "vm.structured.stream { contracts = [\"0xCD2A3D9F938E13CD947EC05ABC7FE734DF8DD826\"], ops = [sstore, CALL] }"));
+        assertEquals(Collections.singleton(CONTRACT), config.vmTraceStreamContracts());
+        assertEquals(EnumSet.of(OpCode.SSTORE, OpCode.CALL), config.vmTraceStreamOps());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testUnknownOpFailsConfigLoad() {
+        new SystemProperties().overrideParams(ConfigFactory.parseString("vm.structured.stream.ops = [SSTORE, SSTOR]"));
+    }
+}